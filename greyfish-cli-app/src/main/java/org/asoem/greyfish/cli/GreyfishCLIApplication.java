@@ -18,7 +18,6 @@
 package org.asoem.greyfish.cli;
 
 import com.google.common.base.Optional;
-import com.google.common.base.Supplier;
 import com.google.common.collect.Maps;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.SubscriberExceptionContext;
@@ -33,7 +32,6 @@ import com.google.inject.name.Names;
 import com.google.inject.util.Providers;
 import joptsimple.*;
 import org.apache.commons.math3.random.RandomGenerator;
-import org.apache.commons.math3.random.Well19937c;
 import org.asoem.greyfish.core.inject.CoreModule;
 import org.asoem.greyfish.core.io.SimulationLogger;
 import org.asoem.greyfish.core.io.SimulationLoggers;
@@ -71,8 +69,9 @@ public final class GreyfishCLIApplication {
     private static final ArgumentAcceptingOptionSpec<String> classpathOptionSpec =
             optionParser.acceptsAll(asList("cp", "classpath"), "add to classpath (where model classes can be found)")
                     .withRequiredArg().ofType(String.class);
-    /* private static final OptionSpecBuilder reproducibleModeOptionSpec =
-            optionParser.accepts("R", "Reproducible mode. Sets the seed of the Pseudo Random Generator to 0"); */
+    private static final ArgumentAcceptingOptionSpec<Long> reproducibleModeOptionSpec =
+            optionParser.accepts("R", "Reproducible mode. Derives all random streams from the given master seed")
+                    .withOptionalArg().ofType(Long.class).defaultsTo(0L);
     private static final ArgumentAcceptingOptionSpec<String> simulationNameOptionSpec =
             optionParser.acceptsAll(asList("n", "name"), "Set simulation name")
                     .withRequiredArg().ofType(String.class);
@@ -233,13 +232,11 @@ public final class GreyfishCLIApplication {
             }
 
             final Module commandLineModule = createCommandLineModule(optionSet);
-            final RandomGenerator randomGenerator = RandomGenerators.threadLocalGenerator(
-                    new Supplier<RandomGenerator>() {
-                        @Override
-                        public RandomGenerator get() {
-                            return new Well19937c();
-                        }
-                    });
+            if (optionSet.has(reproducibleModeOptionSpec)) {
+                RandomGenerators.setMasterSeed(optionSet.valueOf(reproducibleModeOptionSpec));
+            }
+            // draws from the stream of the executing agent, or from a generator derived from the master seed
+            final RandomGenerator randomGenerator = RandomGenerators.rng();
             final EventBus eventBus = new EventBus(new SubscriberExceptionHandler() {
                 @Override
                 public void handleException(final Throwable exception, final SubscriberExceptionContext context) {
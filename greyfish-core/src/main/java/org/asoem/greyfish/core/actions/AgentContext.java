@@ -17,6 +17,7 @@
 
 package org.asoem.greyfish.core.actions;
 
+import org.apache.commons.math3.random.RandomGenerator;
 import org.asoem.greyfish.core.acl.MessageConsumer;
 import org.asoem.greyfish.core.acl.MessageProducer;
 import org.asoem.greyfish.core.agent.Agent;
@@ -26,4 +27,12 @@ public interface AgentContext<A extends Agent<?>> extends MessageProducer<A>, Me
 
     Iterable<A> getActiveAgents();
 
+    /**
+     * Get the random generator of the agent.
+     *
+     * @return the random generator of the agent
+     * @see org.asoem.greyfish.core.agent.Context#getRandomGenerator()
+     */
+    RandomGenerator randomGenerator();
+
 }
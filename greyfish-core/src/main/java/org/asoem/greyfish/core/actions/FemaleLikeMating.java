@@ -84,7 +84,7 @@ public final class FemaleLikeMating<A extends SpatialAgent<A, ?, ?, ?>> extends
         final int sensedMatesCount = Iterables.size(sensedMates);
         assert (sensedMatesCount > 0); // see #evaluateCondition(Simulation)
 
-        final A receiver = Iterables.get(sensedMates, RandomGenerators.rng().nextInt(sensedMatesCount));
+        final A receiver = Iterables.get(sensedMates, context.randomGenerator().nextInt(sensedMatesCount));
         sensedMates = ImmutableList.of();
 
         return ImmutableACLMessage.<A>builder()
@@ -105,7 +105,7 @@ public final class FemaleLikeMating<A extends SpatialAgent<A, ?, ?, ?>> extends
 
         final Chromosome chromosome = (Chromosome) messageContent;
         final double probability = matingProbability.apply(this, ImmutableMap.of("mate", message.getSender()));
-        if (RandomGenerators.nextBoolean(RandomGenerators.rng(), probability)) {
+        if (RandomGenerators.nextBoolean(context.randomGenerator(), probability)) {
             receiveSperm(chromosome, message.getSender(), context);
             builder.performative(ACLPerformative.ACCEPT_PROPOSAL);
             logger.debug("Accepted mating with p={}", probability);
@@ -19,6 +19,7 @@ package org.asoem.greyfish.core.actions;
 
 import org.apache.commons.math3.util.FastMath;
 import org.asoem.greyfish.core.actions.utils.ActionState;
+import org.asoem.greyfish.core.agent.Agents;
 import org.asoem.greyfish.core.agent.SpatialAgent;
 import org.asoem.greyfish.utils.base.Callback;
 import org.asoem.greyfish.utils.base.Callbacks;
@@ -125,7 +126,7 @@ public class GenericMovement<A extends SpatialAgent<A, ?, ?, ?>> extends BaseAge
         private Callback<? super GenericMovement<A>, Double> turningAngle = new Callback<GenericMovement<A>, Double>() {
             @Override
             public Double apply(final GenericMovement<A> caller, final Map<String, ?> args) {
-                return RandomGenerators.rnorm(RandomGenerators.rng(), 0.0, FastMath.PI / 2);
+                return RandomGenerators.rnorm(Agents.randomGenerator(caller.agent()), 0.0, FastMath.PI / 2);
             }
         };
 
@@ -38,7 +38,6 @@ import java.io.Serializable;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static org.asoem.greyfish.utils.math.RandomGenerators.nextBoolean;
-import static org.asoem.greyfish.utils.math.RandomGenerators.rng;
 
 @Tagged("actions")
 public class MaleLikeMating<A extends SpatialAgent<A, ?, ?, ?>> extends ContractNetParticipantAction<A> {
@@ -89,7 +88,7 @@ public class MaleLikeMating<A extends SpatialAgent<A, ?, ?, ?>> extends Contract
         }
 
         final double probability = matingProbability.apply(this, ImmutableMap.of("mate", message.getSender()));
-        if (nextBoolean(rng(), probability)) {
+        if (nextBoolean(context.randomGenerator(), probability)) {
             final Chromosome chromosome = null;//HeritableTraitsChromosome.copyFromAgent(context.agent());
             reply.content(chromosome)
                     .performative(ACLPerformative.PROPOSE);
@@ -28,7 +28,6 @@ import org.asoem.greyfish.core.agent.SpatialAgent;
 import org.asoem.greyfish.utils.base.Callback;
 import org.asoem.greyfish.utils.base.Callbacks;
 import org.asoem.greyfish.utils.base.Tagged;
-import org.asoem.greyfish.utils.math.RandomGenerators;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,7 +59,7 @@ public class ResourceConsumptionAction<A extends SpatialAgent<A, ?, ?, ?>> exten
 
     @Override
     protected ImmutableACLMessage.Builder<A> createCFP(final AgentContext<A> context) {
-        final A receiver = Iterables.get(sensedMates, RandomGenerators.rng().nextInt(Iterables.size(sensedMates)));
+        final A receiver = Iterables.get(sensedMates, context.randomGenerator().nextInt(Iterables.size(sensedMates)));
         sensedMates = ImmutableList.of();
         return ImmutableACLMessage.<A>builder()
                 .sender(context.agent())
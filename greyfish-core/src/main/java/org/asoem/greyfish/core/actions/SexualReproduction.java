@@ -24,12 +24,12 @@ import org.asoem.greyfish.core.traits.Chromosome;
 import org.asoem.greyfish.utils.base.Callback;
 import org.asoem.greyfish.utils.base.Callbacks;
 import org.asoem.greyfish.utils.base.Tagged;
-import org.asoem.greyfish.utils.math.RandomGenerators;
 import org.asoem.greyfish.utils.math.statistics.Sampling;
 import org.asoem.greyfish.utils.math.statistics.Samplings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.Serializable;
 import java.util.List;
 
@@ -45,6 +45,7 @@ public abstract class SexualReproduction<A extends Agent<?>> extends BaseAgentAc
 
     private Callback<? super SexualReproduction<A>, ? extends List<? extends Chromosome>> spermSupplier;
     private Callback<? super SexualReproduction<A>, Integer> clutchSize;
+    @Nullable
     private Sampling<? super Chromosome> spermSelectionStrategy;
     private Callback<? super SexualReproduction<A>, Double> spermFitnessEvaluator;
     private int offspringCount;
@@ -72,7 +73,13 @@ public abstract class SexualReproduction<A extends Agent<?>> extends BaseAgentAc
         final int eggCount = call(clutchSize, this);
         logger.info("{}: Producing {} offspring ", context.agent(), eggCount);
 
-        for (final Chromosome sperm : spermSelectionStrategy.sample(chromosomes, eggCount)) {
+        final Sampling<? super Chromosome> sampling;
+        if (spermSelectionStrategy != null) {
+            sampling = spermSelectionStrategy;
+        } else {
+            sampling = Samplings.random(context.randomGenerator()).withReplacement();
+        }
+        for (final Chromosome sperm : sampling.sample(chromosomes, eggCount)) {
 
             /*
             final Set<Integer> parents = sperm.getParents();
@@ -183,8 +190,8 @@ public abstract class SexualReproduction<A extends Agent<?>> extends BaseAgentAc
         private Callback<? super SexualReproduction<A>, ? extends List<? extends Chromosome>> spermStorage;
         private Callback<? super SexualReproduction<A>, Integer> clutchSize =
                 Callbacks.constant(1);
-        private Sampling<? super Chromosome> spermSelectionStrategy =
-                Samplings.random(RandomGenerators.rng()).withReplacement();
+        @Nullable
+        private Sampling<? super Chromosome> spermSelectionStrategy = null;
         private Callback<? super SexualReproduction<A>, Double> spermFitnessEvaluator = Callbacks.constant(1.0);
 
         protected AbstractBuilder() {
@@ -193,7 +200,6 @@ public abstract class SexualReproduction<A extends Agent<?>> extends BaseAgentAc
                 protected void verify() {
                     checkState(spermStorage != null);
                     checkState(clutchSize != null);
-                    checkState(spermSelectionStrategy != null);
                     checkState(spermFitnessEvaluator != null);
                 }
             });
@@ -215,6 +221,13 @@ public abstract class SexualReproduction<A extends Agent<?>> extends BaseAgentAc
             return self();
         }
 
+        /**
+         * Set the strategy to select the sperm for the offspring. By default, the sperm is sampled randomly with
+         * replacement, using the random generator of the agent.
+         *
+         * @param selectionStrategy the strategy to use
+         * @return this builder
+         */
         public final B spermSelectionStrategy(final Sampling<? super Chromosome> selectionStrategy) {
             this.spermSelectionStrategy = checkNotNull(selectionStrategy);
             return self();
@@ -20,15 +20,19 @@ package org.asoem.greyfish.core.agent;
 import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import org.apache.commons.math3.random.RandomGenerator;
 import org.asoem.greyfish.core.acl.ACLMessage;
 import org.asoem.greyfish.core.actions.AgentAction;
 import org.asoem.greyfish.core.actions.AgentContext;
 import org.asoem.greyfish.core.properties.AgentProperty;
+import org.asoem.greyfish.core.scheduler.ActivityScheduler;
 import org.asoem.greyfish.utils.collect.FunctionalCollection;
 import org.asoem.greyfish.utils.collect.FunctionalList;
 import org.asoem.greyfish.utils.collect.ImmutableMapBuilder;
 import org.asoem.greyfish.utils.collect.Searchable;
+import org.asoem.greyfish.utils.math.RandomGenerators;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -80,6 +84,22 @@ public abstract class AbstractAgent<
 
     @Override
     public final void run() {
+        final Optional<C> context = getContext();
+        final RandomGenerator randomGenerator = context.isPresent() ? context.get().getRandomGenerator() : null;
+        if (randomGenerator != null) {
+            // make code drawing from RandomGenerators.rng() use the reproducible stream of this agent
+            final RandomGenerator previous = RandomGenerators.bind(randomGenerator);
+            try {
+                executeNextAction();
+            } finally {
+                RandomGenerators.unbind(previous);
+            }
+        } else {
+            executeNextAction();
+        }
+    }
+
+    private void executeNextAction() {
         final ActionScheduler<AC> actionScheduler = getActionScheduler();
         final boolean executeSuccess = actionScheduler.executeNext(agentContext());
         if (executeSuccess) {
@@ -113,7 +133,25 @@ public abstract class AbstractAgent<
         if (trait == null) {
             throw new UnsupportedOperationException("Could not find trait with name = " + traitName);
         }
-        return replyType.cast(trait.ask(agentContext(), message, replyType));
+        final T reply = replyType.cast(trait.ask(agentContext(), message, replyType));
+        if (!(message instanceof PropertyValueRequest)) {
+            propertyChanged();
+        }
+        return reply;
+    }
+
+    /**
+     * Wake up this agent, if it is suspended, because one of its properties might have changed.
+     */
+    @SuppressWarnings("unchecked") // the environment schedules agents of type A
+    private void propertyChanged() {
+        final Optional<C> context = getContext();
+        if (context.isPresent()) {
+            final Object environment = context.get().getEnvironment();
+            if (environment instanceof ActivityScheduler) {
+                ((ActivityScheduler<A>) environment).wakeUp(self());
+            }
+        }
     }
 
     @Override
@@ -134,6 +172,8 @@ public abstract class AbstractAgent<
                 builder.put(name, value);
             }
             return replyType.cast(builder.build());
+        } else if (message instanceof RequestMessages) {
+            return replyType.cast(ImmutableList.copyOf(getInBox()));
         }
 
         throw new IllegalArgumentException();
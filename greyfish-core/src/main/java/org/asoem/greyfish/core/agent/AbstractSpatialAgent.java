@@ -21,6 +21,8 @@ import org.asoem.greyfish.core.actions.AgentContext;
 import org.asoem.greyfish.core.environment.SpatialEnvironment2D;
 import org.asoem.greyfish.utils.space.Object2D;
 
+import java.util.List;
+
 /**
  * Base implementation of a spatial agent
  */
@@ -36,4 +38,9 @@ public abstract class AbstractSpatialAgent<A extends SpatialAgent<A, BasicContex
     public Iterable<A> findNeighbours(final double radius) {
         return getContext().get().getEnvironment().findNeighbours(self(), radius);
     }
+
+    @Override
+    public List<A> findNearestNeighbours(final int k) {
+        return getContext().get().getEnvironment().findNearestNeighbours(self(), k);
+    }
 }
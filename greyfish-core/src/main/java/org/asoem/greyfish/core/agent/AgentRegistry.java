@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.agent;
+
+import com.google.common.collect.ImmutableList;
+import org.asoem.greyfish.utils.collect.SlotAllocator;
+
+import javax.annotation.Nullable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An array backed registry of the agents active in an environment. Each registered agent gets a dense slot, which
+ * environments pass to the agent's {@link Context#getSlot() context}. The agents themselves are kept in a compact
+ * array: a removed agent is replaced by the last agent in the array, so removals take constant time and do not
+ * preserve the order of the agents. Slots are stable while an agent is registered and reused afterwards.
+ * <p>{@link #snapshot() Snapshots} share the array with the registry until it is modified for the first time
+ * afterwards, so taking a snapshot is cheap even if done many times per step.</p>
+ * <p>This class is not thread safe. Concurrent calls to {@link #snapshot()} and the other read methods are safe as
+ * long as no thread modifies the registry.</p>
+ *
+ * @param <A> the type of the agents
+ */
+public final class AgentRegistry<A extends Agent<?>> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final SlotAllocator slotAllocator = SlotAllocator.create();
+    // the dense array of agents and their slots
+    private Object[] agents = new Object[INITIAL_CAPACITY];
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private int size = 0;
+    // the position of each slot in the dense array, or -1 if the slot is free
+    private int[] indices = new int[INITIAL_CAPACITY];
+    // true if a snapshot shares the current array
+    private boolean shared = false;
+
+    private AgentRegistry() {
+        Arrays.fill(indices, -1);
+    }
+
+    public static <A extends Agent<?>> AgentRegistry<A> create() {
+        return new AgentRegistry<>();
+    }
+
+    /**
+     * Register the {@code agent}.
+     *
+     * @param agent the agent to add
+     * @return the slot of the agent
+     */
+    public int add(final A agent) {
+        checkNotNull(agent);
+        prepareModification();
+
+        final int slot = slotAllocator.allocate();
+        if (slot == indices.length) {
+            final int length = indices.length;
+            indices = Arrays.copyOf(indices, length * 2);
+            Arrays.fill(indices, length, indices.length, -1);
+        }
+        if (size == agents.length) {
+            agents = Arrays.copyOf(agents, size * 2);
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+
+        agents[size] = agent;
+        slots[size] = slot;
+        indices[slot] = size;
+        ++size;
+        return slot;
+    }
+
+    /**
+     * Get the agent registered at given {@code slot}.
+     *
+     * @param slot the slot
+     * @return the agent at the slot or {@code null}, if the slot is free
+     */
+    @Nullable
+    public A get(final int slot) {
+        if (slot < 0 || slot >= indices.length || indices[slot] < 0) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        final A agent = (A) agents[indices[slot]];
+        return agent;
+    }
+
+    /**
+     * Remove the agent registered at given {@code slot} by moving the last agent into its place.
+     *
+     * @param slot the slot of the agent
+     * @return the removed agent
+     * @throws IllegalArgumentException if the slot is free
+     */
+    public A remove(final int slot) {
+        final A agent = get(slot);
+        checkArgument(agent != null, "No agent registered at slot %s", slot);
+        prepareModification();
+
+        final int index = indices[slot];
+        final int last = --size;
+        agents[index] = agents[last];
+        slots[index] = slots[last];
+        indices[slots[index]] = index;
+        agents[last] = null;
+        indices[slot] = -1;
+        slotAllocator.release(slot);
+        return agent;
+    }
+
+    /**
+     * Remove all agents which are no longer {@link Agent#isActive() active} in a single pass.
+     *
+     * @return the removed agents
+     */
+    public List<A> removeInactive() {
+        final ImmutableList.Builder<A> removed = ImmutableList.builder();
+        int index = 0;
+        while (index < size) {
+            @SuppressWarnings("unchecked")
+            final A agent = (A) agents[index];
+            if (agent.isActive()) {
+                ++index;
+            } else {
+                // the last agent moves to index and is checked next
+                removed.add(remove(slots[index]));
+            }
+        }
+        return removed.build();
+    }
+
+    /**
+     * Get a read-only snapshot of the registered agents. Later modifications of this registry are not reflected by
+     * the snapshot.
+     *
+     * @return the registered agents in no particular order
+     */
+    public List<A> snapshot() {
+        shared = true;
+        return new Snapshot<>(agents, size);
+    }
+
+    /**
+     * The number of registered agents.
+     *
+     * @return the number of agents
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * An upper bound of the slots in use. Arrays indexed by slot need at least this length.
+     *
+     * @return the number of slots which were ever used
+     */
+    public int capacity() {
+        return slotAllocator.capacity();
+    }
+
+    private void prepareModification() {
+        if (shared) {
+            agents = agents.clone();
+            shared = false;
+        }
+    }
+
+    private static final class Snapshot<A> extends AbstractList<A> implements RandomAccess {
+        private final Object[] agents;
+        private final int size;
+
+        private Snapshot(final Object[] agents, final int size) {
+            this.agents = agents;
+            this.size = size;
+        }
+
+        @Override
+        public A get(final int index) {
+            checkElementIndex(index, size);
+            @SuppressWarnings("unchecked")
+            final A agent = (A) agents[index];
+            return agent;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
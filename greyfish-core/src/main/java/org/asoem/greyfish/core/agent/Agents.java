@@ -17,6 +17,10 @@
 
 package org.asoem.greyfish.core.agent;
 
+import com.google.common.base.Optional;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.asoem.greyfish.utils.math.RandomGenerators;
+
 /**
  * A collection of helper functions dealing with agents.
  */
@@ -27,4 +31,22 @@ public final class Agents {
         throw new AssertionError();
     }
 
+    /**
+     * Get the random generator of the given {@code agent}, if it is present and active. Otherwise, the {@link
+     * RandomGenerators#rng() default generator} is returned.
+     *
+     * @param agent the optional agent
+     * @return the random generator of the agent or the default generator
+     * @see Context#getRandomGenerator()
+     */
+    public static RandomGenerator randomGenerator(final Optional<? extends Agent<?>> agent) {
+        if (agent.isPresent()) {
+            final Optional<? extends Context<?, ?>> context = agent.get().getContext();
+            if (context.isPresent()) {
+                return context.get().getRandomGenerator();
+            }
+        }
+        return RandomGenerators.rng();
+    }
+
 }
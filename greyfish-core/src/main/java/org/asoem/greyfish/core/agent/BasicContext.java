@@ -25,6 +25,13 @@ import org.asoem.greyfish.core.environment.DiscreteTimeEnvironment;
  */
 public interface BasicContext<S extends DiscreteTimeEnvironment<A>, A extends Agent<?>> extends Context<S, A> {
 
+    /**
+     * Get the id of the agent. Ids are unique among all agents ever activated in an environment and never reused.
+     *
+     * @return the id of the agent
+     */
+    int getAgentId();
+
     /**
      * The step at which this agent was inserted into the getSimulation.
      *
@@ -17,6 +17,7 @@
 
 package org.asoem.greyfish.core.agent;
 
+import org.apache.commons.math3.random.RandomGenerator;
 import org.asoem.greyfish.core.environment.Environment;
 
 public interface Context<S extends Environment<A>, A extends Agent<?>> {
@@ -29,4 +30,23 @@ public interface Context<S extends Environment<A>, A extends Agent<?>> {
 
     Iterable<A> getActiveAgents();
 
+    /**
+     * Get the slot of the agent in the environment. Slots are dense integers, unique among the active agents of an
+     * environment and reused after an agent was removed. They can be used to index arrays instead of maps keyed by
+     * agents.
+     *
+     * @return the slot of the agent
+     * @see AgentRegistry
+     */
+    int getSlot();
+
+    /**
+     * Get the random generator of the agent. Each agent has a stream of its own, derived from the seed of the
+     * environment and the id of the agent, so that simulations are reproducible regardless of how the agents are
+     * distributed over threads. The generator is not thread safe and must only be used on behalf of the agent.
+     *
+     * @return the random generator of the agent
+     */
+    RandomGenerator getRandomGenerator();
+
 }
@@ -17,8 +17,10 @@
 
 package org.asoem.greyfish.core.agent;
 
+import org.apache.commons.math3.random.RandomGenerator;
 import org.asoem.greyfish.core.environment.DiscreteTimeEnvironment;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -36,15 +38,29 @@ public final class DefaultActiveContext<S extends DiscreteTimeEnvironment<A>, A
 
     private final int agentId;
 
-    private DefaultActiveContext(final S simulation, final int agentId, final long simulationStep) {
+    private final int slot;
+
+    private final RandomGenerator randomGenerator;
+
+    private DefaultActiveContext(final S simulation, final int agentId, final int slot, final long simulationStep,
+                                 final RandomGenerator randomGenerator) {
+        checkArgument(slot >= 0, "Slot must not be negative: %s", slot);
         this.simulation = checkNotNull(simulation);
         this.agentId = agentId;
+        this.slot = slot;
         this.activationStep = simulationStep;
+        this.randomGenerator = checkNotNull(randomGenerator);
     }
 
     public static <S extends DiscreteTimeEnvironment<A>, A extends Agent<?>>
-    DefaultActiveContext<S, A> create(final S simulation, final int agentId, final long simulationStep) {
-        return new DefaultActiveContext<>(simulation, agentId, simulationStep);
+    DefaultActiveContext<S, A> create(final S simulation, final int agentId, final int slot,
+                                      final long simulationStep, final RandomGenerator randomGenerator) {
+        return new DefaultActiveContext<>(simulation, agentId, slot, simulationStep, randomGenerator);
+    }
+
+    @Override
+    public int getAgentId() {
+        return agentId;
     }
 
     @Override
@@ -62,6 +78,16 @@ public final class DefaultActiveContext<S extends DiscreteTimeEnvironment<A>, A
         return simulation.getActiveAgents();
     }
 
+    @Override
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public RandomGenerator getRandomGenerator() {
+        return randomGenerator;
+    }
+
     @Override
     public long getAge() {
         checkState(getSimulationStep() >= getActivationStep(),
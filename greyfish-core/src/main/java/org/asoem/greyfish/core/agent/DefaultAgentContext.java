@@ -18,6 +18,7 @@
 package org.asoem.greyfish.core.agent;
 
 import com.google.common.collect.ImmutableList;
+import org.apache.commons.math3.random.RandomGenerator;
 import org.asoem.greyfish.core.acl.ACLMessage;
 import org.asoem.greyfish.core.acl.MessageTemplate;
 import org.asoem.greyfish.core.actions.AgentContext;
@@ -41,6 +42,11 @@ public final class DefaultAgentContext<A extends Agent<?>> implements AgentConte
         return ImmutableList.copyOf(simulationContext.getActiveAgents());
     }
 
+    @Override
+    public RandomGenerator randomGenerator() {
+        return simulationContext.getRandomGenerator();
+    }
+
     @Override
     public void receive(final ACLMessage<A> message) {
         throw new UnsupportedOperationException("Not implemented");
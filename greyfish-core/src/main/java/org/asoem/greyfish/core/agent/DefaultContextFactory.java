@@ -17,6 +17,7 @@
 
 package org.asoem.greyfish.core.agent;
 
+import org.apache.commons.math3.random.RandomGenerator;
 import org.asoem.greyfish.core.environment.DiscreteTimeEnvironment;
 
 /**
@@ -33,8 +34,9 @@ public final class DefaultContextFactory<S extends DiscreteTimeEnvironment<A>, A
     }
 
     @Override
-    public BasicContext<S, A> createActiveContext(final S simulation, final int agentId, final long simulationStep) {
-        return DefaultActiveContext.create(simulation, agentId, simulationStep);
+    public BasicContext<S, A> createActiveContext(final S simulation, final int agentId, final int slot,
+                                                  final long simulationStep, final RandomGenerator randomGenerator) {
+        return DefaultActiveContext.create(simulation, agentId, slot, simulationStep, randomGenerator);
     }
 
 }
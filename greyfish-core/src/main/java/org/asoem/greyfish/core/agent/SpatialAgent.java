@@ -25,6 +25,8 @@ import org.asoem.greyfish.utils.space.Moving;
 import org.asoem.greyfish.utils.space.Object2D;
 import org.asoem.greyfish.utils.space.Projectable;
 
+import java.util.List;
+
 /**
  * An agent for spatial simulations.
  *
@@ -55,6 +57,14 @@ public interface SpatialAgent<
      */
     Iterable<A> findNeighbours(double radius);
 
+    /**
+     * Find the {@code k} agents which are located closest to this agent.
+     *
+     * @param k the maximum number of agents to find
+     * @return at most {@code k} agents ordered by increasing distance to this agent
+     */
+    List<A> findNearestNeighbours(int k);
+
     Iterable<ACLMessage<A>> getMessages(MessageTemplate template);
 
 }
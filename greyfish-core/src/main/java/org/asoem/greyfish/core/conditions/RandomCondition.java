@@ -18,6 +18,7 @@
 package org.asoem.greyfish.core.conditions;
 
 import org.asoem.greyfish.core.agent.Agent;
+import org.asoem.greyfish.core.agent.Agents;
 import org.asoem.greyfish.utils.base.Tagged;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -29,7 +30,7 @@ public class RandomCondition<A extends Agent<?>> extends LeafCondition<A> {
 
     @Override
     public boolean evaluate() {
-        return Math.random() < probability;
+        return Agents.randomGenerator(agent()).nextDouble() < probability;
     }
 
     @SuppressWarnings("UnusedDeclaration") // Needed for construction by reflection / deserialization
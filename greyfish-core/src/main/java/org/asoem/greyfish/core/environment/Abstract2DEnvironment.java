@@ -17,9 +17,12 @@
 
 package org.asoem.greyfish.core.environment;
 
+import com.google.common.base.Optional;
 import org.asoem.greyfish.core.agent.SpatialAgent;
 import org.asoem.greyfish.core.space.Space2D;
 
+import java.util.List;
+
 /**
  * Basic class for implementing 2D simulations.
  */
@@ -28,16 +31,37 @@ public abstract class Abstract2DEnvironment<A extends SpatialAgent<A, ?, ?, ?>,
 
     @Override
     public final Iterable<A> findNeighbours(final A agent, final double distance) {
+        final Optional<List<A>> precomputed = precomputedNeighbours(agent, distance);
+        if (precomputed.isPresent()) {
+            return precomputed.get();
+        }
         return getSpace().getVisibleNeighbours(agent, distance);
     }
 
+    /**
+     * Get the neighbours of {@code agent} within the given {@code distance}, if they were computed ahead of the query.
+     * The default implementation always returns {@link Optional#absent()}.
+     *
+     * @param agent    The focal {@code agent}
+     * @param distance The maximum allowed distance of an agent to count as a neighbour
+     * @return the precomputed neighbours of {@code agent} or {@link Optional#absent()}
+     */
+    protected Optional<List<A>> precomputedNeighbours(final A agent, final double distance) {
+        return Optional.absent();
+    }
+
+    @Override
+    public final List<A> findNearestNeighbours(final A agent, final int k) {
+        return getSpace().getNearestVisibleNeighbours(agent, k);
+    }
+
     @Override
-    public final Iterable<A> getActiveAgents() {
+    public Iterable<A> getActiveAgents() {
         return getSpace().getObjects();
     }
 
     @Override
-    public final int countAgents() {
+    public int countAgents() {
         return getSpace().countObjects();
     }
 
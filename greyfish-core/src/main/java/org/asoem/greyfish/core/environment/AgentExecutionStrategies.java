@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.environment;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+import jsr166y.ForkJoinPool;
+import org.asoem.greyfish.utils.concurrent.ForkJoinPools;
+import org.asoem.greyfish.utils.concurrent.RecursiveActions;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Static factory methods for {@link AgentExecutionStrategy AgentExecutionStrategies}.
+ */
+public final class AgentExecutionStrategies {
+
+    private AgentExecutionStrategies() {
+        throw new AssertionError("Not instantiable");
+    }
+
+    /**
+     * Get a strategy which executes all agents one after the other on the calling thread. Use it for environments which
+     * are themselves executed in parallel, e.g. the replicates of a {@link org.asoem.greyfish.core.model.Replicates}.
+     *
+     * @return the sequential strategy
+     */
+    public static AgentExecutionStrategy sequential() {
+        return SequentialExecution.INSTANCE;
+    }
+
+    /**
+     * Create a strategy which splits the agents into partitions of {@code partitionSize} agents and executes each
+     * partition as a single task using the given {@code executorService}.
+     *
+     * @param executorService the executor service to submit the partitions to
+     * @param partitionSize   the number of agents per task
+     * @return a new strategy
+     */
+    public static AgentExecutionStrategy partitioned(final ExecutorService executorService,
+                                                     final int partitionSize) {
+        checkNotNull(executorService);
+        checkArgument(partitionSize > 0, "partitionSize must be positive");
+        return new PartitionedExecution(executorService, partitionSize);
+    }
+
+    /**
+     * Create a work stealing strategy which executes the agents on the {@link ForkJoinPools#commonPool() common
+     * pool}.
+     *
+     * @return a new strategy
+     * @see #forkJoin(ForkJoinPool)
+     */
+    public static AgentExecutionStrategy forkJoin() {
+        return forkJoin(ForkJoinPools.commonPool());
+    }
+
+    /**
+     * Create a work stealing strategy which executes the agents on the given {@code pool}. The agents are split
+     * adaptively, so that idle workers can steal agents from busy ones. This balances the load across all workers,
+     * even if the execution time varies strongly between agents, and needs no partition size to be tuned.
+     *
+     * @param pool the pool to execute the agents in
+     * @return a new strategy
+     * @see RecursiveActions#foreach(List, Function)
+     */
+    public static AgentExecutionStrategy forkJoin(final ForkJoinPool pool) {
+        return new ForkJoinExecution(checkNotNull(pool));
+    }
+
+    private enum SequentialExecution implements AgentExecutionStrategy {
+        INSTANCE;
+
+        @Override
+        public void execute(final List<? extends Runnable> agents) {
+            for (int i = 0; i < agents.size(); i++) {
+                ModificationBuffer.run(agents, i);
+            }
+        }
+    }
+
+    private static final class PartitionedExecution implements AgentExecutionStrategy {
+        private final ExecutorService executorService;
+        private final int partitionSize;
+
+        private PartitionedExecution(final ExecutorService executorService, final int partitionSize) {
+            this.executorService = executorService;
+            this.partitionSize = partitionSize;
+        }
+
+        @Override
+        public void execute(final List<? extends Runnable> agents) throws InterruptedException, ExecutionException {
+            final List<Callable<Void>> callables = Lists.newArrayList();
+            for (int from = 0; from < agents.size(); from += partitionSize) {
+                final int start = from;
+                final int end = Math.min(from + partitionSize, agents.size());
+                callables.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = start; i < end; i++) {
+                            ModificationBuffer.run(agents, i);
+                        }
+                        return null;
+                    }
+                });
+            }
+
+            final List<Future<Void>> futures = executorService.invokeAll(callables);
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    private static final class ForkJoinExecution implements AgentExecutionStrategy {
+        private final ForkJoinPool pool;
+
+        private ForkJoinExecution(final ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void execute(final List<? extends Runnable> agents) {
+            pool.invoke(RecursiveActions.foreachIndex(agents.size(), new RecursiveActions.IndexAction() {
+                @Override
+                public void apply(final int index) {
+                    ModificationBuffer.run(agents, index);
+                }
+            }));
+        }
+    }
+}
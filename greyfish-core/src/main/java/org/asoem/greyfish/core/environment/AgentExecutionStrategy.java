@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.environment;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A strategy to execute the agents of an environment in one step.
+ *
+ * @see AgentExecutionStrategies
+ */
+public interface AgentExecutionStrategy {
+
+    /**
+     * Run all given {@code agents} once and return after all of them are done. Implementations should run each agent
+     * via {@link ModificationBuffer#run(List, int)}, so that the modifications the agents request are applied in the
+     * order of the list.
+     *
+     * @param agents the agents to run
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     * @throws ExecutionException   if the execution of an agent threw an exception
+     */
+    void execute(List<? extends Runnable> agents) throws InterruptedException, ExecutionException;
+}
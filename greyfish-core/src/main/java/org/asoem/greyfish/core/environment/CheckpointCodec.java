@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.environment;
+
+import org.asoem.greyfish.core.agent.Agent;
+
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes the part of a checkpoint which only the model knows about: the state of its agents and the contents of their
+ * messages. The environment itself writes everything it manages, i.e. the ids, slots, positions, inboxes and random
+ * generators of the agents.
+ *
+ * @param <A> the type of the agents
+ * @see DiscreteTimeEnvironment#checkpoint(java.nio.channels.FileChannel, CheckpointCodec)
+ */
+public interface CheckpointCodec<A extends Agent<?>> {
+
+    /**
+     * Write the state of the given {@code agent}, e.g. the values of its traits and the state of its actions.
+     *
+     * @param agent the agent to write
+     * @param out   the output to write to
+     * @throws IOException if writing fails
+     */
+    void writeAgent(A agent, DataOutput out) throws IOException;
+
+    /**
+     * Create a new, inactive agent with the state written by {@link #writeAgent(Agent, DataOutput)}.
+     *
+     * @param in the input to read from
+     * @return a new agent
+     * @throws IOException if reading fails
+     */
+    A readAgent(DataInput in) throws IOException;
+
+    /**
+     * Write the content of a message in the inbox of an agent.
+     *
+     * @param content the content of the message
+     * @param out     the output to write to
+     * @throws IOException if writing fails
+     */
+    void writeContent(@Nullable Object content, DataOutput out) throws IOException;
+
+    /**
+     * Read the content of a message written by {@link #writeContent(Object, DataOutput)}.
+     *
+     * @param in the input to read from
+     * @return the content of the message
+     * @throws IOException if reading fails
+     */
+    @Nullable
+    Object readContent(DataInput in) throws IOException;
+}
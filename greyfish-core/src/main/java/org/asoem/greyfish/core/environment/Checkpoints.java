@@ -0,0 +1,558 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.environment;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.asoem.greyfish.core.acl.ACLMessage;
+import org.asoem.greyfish.core.acl.ACLPerformative;
+import org.asoem.greyfish.core.acl.ImmutableACLMessage;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.asoem.greyfish.core.agent.Agent;
+import org.asoem.greyfish.core.agent.RequestMessages;
+import org.asoem.greyfish.core.scheduler.ActiveSet;
+import org.asoem.greyfish.core.scheduler.EventCalendar;
+import org.asoem.greyfish.utils.math.SplitMix64;
+import org.asoem.greyfish.utils.space.ImmutableMotion2D;
+import org.asoem.greyfish.utils.space.ImmutablePoint2D;
+import org.asoem.greyfish.utils.space.Motion2D;
+import org.asoem.greyfish.utils.space.Point2D;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads and writes the binary checkpoint format of the environments.
+ * <p>A checkpoint starts with a header (magic number, format version, type of environment, time, seed and the last
+ * agent id), followed by one record per agent in execution order and the inboxes of all agents. Agents and message
+ * senders or recipients are referenced by their id. The state of the agents themselves and the contents of the
+ * messages are written by a {@link CheckpointCodec} as length prefixed blocks, so that a codec reading too much or too
+ * little is detected immediately. User defined message parameters are not part of the format.</p>
+ */
+public final class Checkpoints {
+
+    /**
+     * The version of the format written by this class.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x47464350; // "GFCP"
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int NO_AGENT = -1;
+    private static final ACLPerformative[] PERFORMATIVES = ACLPerformative.values();
+
+    private Checkpoints() {
+        throw new AssertionError("Not instantiable");
+    }
+
+    /**
+     * Write the given {@code state} to the {@code channel}, starting at its current position.
+     *
+     * @param channel the channel to write to
+     * @param state   the state to write
+     * @param codec   the codec for the agents and message contents
+     * @param <A>     the type of the agents
+     * @throws IOException if writing fails
+     */
+    public static <A extends Agent<?>> void write(final FileChannel channel, final EnvironmentState<A> state,
+                                                  final CheckpointCodec<A> codec) throws IOException {
+        checkNotNull(channel);
+        checkNotNull(state);
+        checkNotNull(codec);
+        // the stream must not be closed, as this would close the channel
+        final DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeBoolean(state.spatial);
+        out.writeLong(state.time);
+        out.writeLong(state.seed);
+        out.writeInt(state.lastAgentId);
+
+        final Map<Agent<?>, Integer> ids = Maps.newIdentityHashMap();
+        for (AgentState<A> agentState : state.agents) {
+            ids.put(agentState.agent, agentState.id);
+        }
+
+        out.writeInt(state.agents.size());
+        final Block block = new Block();
+        for (AgentState<A> agentState : state.agents) {
+            out.writeInt(agentState.id);
+            out.writeLong(agentState.activationStep);
+            out.writeLong(agentState.wakeUpTime);
+            out.writeBoolean(agentState.randomState.isPresent());
+            if (agentState.randomState.isPresent()) {
+                out.writeLong(agentState.randomState.get());
+            }
+            if (state.spatial) {
+                checkArgument(agentState.position != null && agentState.motion != null,
+                        "Agent %s has no position or motion", agentState.id);
+                out.writeDouble(agentState.position.getX());
+                out.writeDouble(agentState.position.getY());
+                out.writeDouble(agentState.motion.getRotation());
+                out.writeDouble(agentState.motion.getTranslation());
+            }
+            codec.writeAgent(agentState.agent, block.data);
+            block.writeTo(out);
+        }
+
+        for (AgentState<A> agentState : state.agents) {
+            out.writeInt(agentState.messages.size());
+            for (ACLMessage<A> message : agentState.messages) {
+                writeMessage(out, message, ids, codec, block);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Read a state written by {@link #write(FileChannel, EnvironmentState, CheckpointCodec)} from the {@code channel},
+     * starting at its current position.
+     *
+     * @param channel the channel to read from
+     * @param codec   the codec for the agents and message contents
+     * @param <A>     the type of the agents
+     * @return the state with new, inactive agents
+     * @throws IOException if reading fails or the channel does not contain a checkpoint of a supported version
+     */
+    public static <A extends Agent<?>> EnvironmentState<A> read(final FileChannel channel,
+                                                                final CheckpointCodec<A> codec) throws IOException {
+        checkNotNull(channel);
+        checkNotNull(codec);
+        final DataInputStream in =
+                new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+        // no length or count in a valid checkpoint exceeds the size of the file
+        final long limit = channel.size();
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a checkpoint");
+        }
+        final int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version: " + version);
+        }
+        final boolean spatial = in.readBoolean();
+        final long time = in.readLong();
+        final long seed = in.readLong();
+        final int lastAgentId = in.readInt();
+
+        final int agentCount = readLength(in, limit, "agent count");
+        final List<AgentState<A>> agents = Lists.newArrayListWithCapacity(agentCount);
+        final Map<Integer, A> agentsById = Maps.newHashMapWithExpectedSize(agentCount);
+        for (int i = 0; i < agentCount; i++) {
+            final int id = in.readInt();
+            final long activationStep = in.readLong();
+            final long wakeUpTime = in.readLong();
+            final Optional<Long> randomState = in.readBoolean() ? Optional.of(in.readLong()) : Optional.<Long>absent();
+            Point2D position = null;
+            Motion2D motion = null;
+            if (spatial) {
+                position = ImmutablePoint2D.at(in.readDouble(), in.readDouble());
+                motion = ImmutableMotion2D.of(in.readDouble(), in.readDouble());
+            }
+            final DataInputStream agentData = readBlock(in, limit);
+            final A agent = codec.readAgent(agentData);
+            checkFullyRead(agentData, "agent " + id);
+            agents.add(new AgentState<>(agent, id, activationStep, wakeUpTime, randomState, position, motion,
+                    ImmutableList.<ACLMessage<A>>of()));
+            agentsById.put(id, agent);
+        }
+
+        final List<AgentState<A>> agentsWithMessages = Lists.newArrayListWithCapacity(agentCount);
+        for (AgentState<A> agentState : agents) {
+            final int messageCount = readLength(in, limit, "message count");
+            final List<ACLMessage<A>> messages = Lists.newArrayListWithCapacity(messageCount);
+            for (int i = 0; i < messageCount; i++) {
+                messages.add(readMessage(in, agentState.agent, agentsById, codec, limit));
+            }
+            agentsWithMessages.add(agentState.withMessages(messages));
+        }
+
+        return new EnvironmentState<>(spatial, time, seed, lastAgentId, agentsWithMessages);
+    }
+
+    private static <A extends Agent<?>> void writeMessage(final DataOutputStream out, final ACLMessage<A> message,
+                                                          final Map<Agent<?>, Integer> ids,
+                                                          final CheckpointCodec<A> codec, final Block block)
+            throws IOException {
+        out.writeByte(message.getPerformative().ordinal());
+        out.writeInt(idOf(message.getSender(), ids));
+        writeAgentIds(out, message.getRecipients(), ids);
+        writeAgentIds(out, message.getAllReplyTo(), ids);
+        out.writeInt(message.getConversationId());
+        writeNullableString(out, message.getReplyWith());
+        writeNullableString(out, message.getInReplyTo());
+        writeNullableString(out, message.getEncoding());
+        writeNullableString(out, message.getLanguage());
+        writeNullableString(out, message.getOntology());
+        writeNullableString(out, message.getProtocol());
+        codec.writeContent(message.getContent(), block.data);
+        block.writeTo(out);
+    }
+
+    private static <A extends Agent<?>> ACLMessage<A> readMessage(final DataInputStream in, final A owner,
+                                                                  final Map<Integer, A> agentsById,
+                                                                  final CheckpointCodec<A> codec, final long limit)
+            throws IOException {
+        final ImmutableACLMessage.Builder<A> builder = ImmutableACLMessage.builder();
+        final int performative = in.readByte();
+        if (performative < 0 || performative >= PERFORMATIVES.length) {
+            throw new IOException("Unknown performative: " + performative);
+        }
+        builder.performative(PERFORMATIVES[performative]);
+        final A sender = agentsById.get(in.readInt());
+        if (sender != null) {
+            builder.sender(sender);
+        }
+        final List<A> recipients = readAgents(in, agentsById, limit);
+        if (recipients.isEmpty()) {
+            // all other recipients are gone, but the owner of the inbox received it
+            builder.addReceiver(owner);
+        }
+        for (A recipient : recipients) {
+            builder.addReceiver(recipient);
+        }
+        for (A replyTo : readAgents(in, agentsById, limit)) {
+            builder.addReplyTo(replyTo);
+        }
+        builder.conversationId(in.readInt());
+        builder.replyWith(readNullableString(in));
+        builder.inReplyTo(readNullableString(in));
+        builder.encoding(readNullableString(in));
+        builder.language(readNullableString(in));
+        builder.ontology(readNullableString(in));
+        builder.protocol(readNullableString(in));
+        final DataInputStream content = readBlock(in, limit);
+        final Object value = codec.readContent(content);
+        if (value != null) {
+            builder.content(value);
+        }
+        checkFullyRead(content, "message content");
+        return builder.build();
+    }
+
+    private static int idOf(@Nullable final Agent<?> agent, final Map<Agent<?>, Integer> ids) {
+        final Integer id = agent == null ? null : ids.get(agent);
+        return id == null ? NO_AGENT : id;
+    }
+
+    /**
+     * Restore the state the environment manages for the given {@code agents} after it activated them with the ids and
+     * activation steps of the checkpoint: the state of their random generators, their suspension and their inboxes.
+     * Wake up events of agents suspended until a given time are added to the {@code events}.
+     *
+     * @param agents    the restored agents
+     * @param activeSet the active set of the environment
+     * @param events    the event calendar of the environment
+     * @param <A>       the type of the agents
+     */
+    public static <A extends Agent<?>> void restoreAgents(final List<AgentState<A>> agents, final ActiveSet activeSet,
+                                                          final EventCalendar events) {
+        for (AgentState<A> agentState : agents) {
+            final A agent = agentState.getAgent();
+            restoreRandomState(agent.getContext().get().getRandomGenerator(), agentState.getRandomState());
+            final long wakeUpTime = agentState.getWakeUpTime();
+            if (wakeUpTime == Long.MAX_VALUE) {
+                activeSet.suspend(agent);
+            } else if (wakeUpTime != Long.MIN_VALUE) {
+                activeSet.suspend(agent, wakeUpTime);
+                events.add(activeSet.wakeUpEvent(agent, wakeUpTime));
+            }
+        }
+        for (AgentState<A> agentState : agents) {
+            for (ACLMessage<A> message : agentState.getMessages()) {
+                agentState.getAgent().ask(message, Void.class);
+            }
+        }
+    }
+
+    /**
+     * Get the state of the given {@code generator} if it can be restored with
+     * {@link #restoreRandomState(RandomGenerator, Optional)}. This is the case for the {@link SplitMix64} generators
+     * the environments create for their agents.
+     *
+     * @param generator the generator of an agent
+     * @return the state of the generator, or {@link Optional#absent()} if it cannot be restored
+     */
+    public static Optional<Long> randomState(final RandomGenerator generator) {
+        if (generator instanceof SplitMix64) {
+            return Optional.of(((SplitMix64) generator).getState());
+        }
+        return Optional.absent();
+    }
+
+    /**
+     * Restore the state of the given {@code generator} returned by {@link #randomState(RandomGenerator)}. An absent
+     * state leaves the generator untouched.
+     *
+     * @param generator the generator of a restored agent
+     * @param state     the saved state
+     */
+    public static void restoreRandomState(final RandomGenerator generator, final Optional<Long> state) {
+        if (state.isPresent() && generator instanceof SplitMix64) {
+            generator.setSeed(state.get());
+        }
+    }
+
+    /**
+     * Get the messages in the inbox of the given {@code agent}.
+     *
+     * @param agent the agent
+     * @param <A>   the type of the agent
+     * @return the messages in the inbox of the agent
+     * @see RequestMessages
+     */
+    @SuppressWarnings("unchecked") // agents only receive messages of their own type
+    public static <A extends Agent<?>> List<ACLMessage<A>> messagesOf(final A agent) {
+        return agent.ask(new RequestMessages(), List.class);
+    }
+
+    private static void writeAgentIds(final DataOutput out, final Collection<? extends Agent<?>> agents,
+                                      final Map<Agent<?>, Integer> ids) throws IOException {
+        final List<Integer> known = Lists.newArrayListWithCapacity(agents.size());
+        for (Agent<?> agent : agents) {
+            final int id = idOf(agent, ids);
+            if (id != NO_AGENT) {
+                known.add(id);
+            }
+        }
+        out.writeInt(known.size());
+        for (Integer id : known) {
+            out.writeInt(id);
+        }
+    }
+
+    private static <A> List<A> readAgents(final DataInput in, final Map<Integer, A> agentsById, final long limit)
+            throws IOException {
+        final int count = readLength(in, limit, "agent reference count");
+        final List<A> agents = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            final int id = in.readInt();
+            final A agent = agentsById.get(id);
+            if (agent == null) {
+                throw new IOException("Reference to unknown agent " + id);
+            }
+            agents.add(agent);
+        }
+        return agents;
+    }
+
+    private static void writeNullableString(final DataOutput out, @Nullable final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    @Nullable
+    private static String readNullableString(final DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static int readLength(final DataInput in, final long limit, final String what) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > limit) {
+            throw new IOException("Corrupt " + what + ": " + length);
+        }
+        return length;
+    }
+
+    private static DataInputStream readBlock(final DataInput in, final long limit) throws IOException {
+        final byte[] bytes = new byte[readLength(in, limit, "block length")];
+        in.readFully(bytes);
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    private static void checkFullyRead(final DataInputStream block, final String what) throws IOException {
+        if (block.available() != 0) {
+            throw new IOException("Codec did not read all data of " + what);
+        }
+    }
+
+    /**
+     * A reusable buffer for length prefixed blocks written by a codec.
+     */
+    private static final class Block {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(bytes);
+
+        private void writeTo(final DataOutputStream out) throws IOException {
+            data.flush();
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            bytes.reset();
+        }
+    }
+
+    /**
+     * The state of an environment as stored in a checkpoint.
+     *
+     * @param <A> the type of the agents
+     */
+    public static final class EnvironmentState<A extends Agent<?>> {
+        private final boolean spatial;
+        private final long time;
+        private final long seed;
+        private final int lastAgentId;
+        private final List<AgentState<A>> agents;
+
+        public EnvironmentState(final boolean spatial, final long time, final long seed, final int lastAgentId,
+                                final List<AgentState<A>> agents) {
+            this.spatial = spatial;
+            this.time = time;
+            this.seed = seed;
+            this.lastAgentId = lastAgentId;
+            this.agents = ImmutableList.copyOf(agents);
+        }
+
+        /**
+         * Check if the agents of this state have positions.
+         *
+         * @return {@code true} if this is the state of a spatial environment
+         */
+        public boolean isSpatial() {
+            return spatial;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * Get the id of the last agent activated in the environment.
+         *
+         * @return the last agent id
+         */
+        public int getLastAgentId() {
+            return lastAgentId;
+        }
+
+        /**
+         * Get the states of the agents in slot order.
+         *
+         * @return the agent states
+         */
+        public List<AgentState<A>> getAgents() {
+            return agents;
+        }
+    }
+
+    /**
+     * The state of an agent as stored in a checkpoint.
+     *
+     * @param <A> the type of the agent
+     */
+    public static final class AgentState<A extends Agent<?>> {
+        private final A agent;
+        private final int id;
+        private final long activationStep;
+        private final long wakeUpTime;
+        private final Optional<Long> randomState;
+        @Nullable
+        private final Point2D position;
+        @Nullable
+        private final Motion2D motion;
+        private final List<ACLMessage<A>> messages;
+
+        /**
+         * Create a new agent state.
+         *
+         * @param agent          the agent
+         * @param id             the id of the agent
+         * @param activationStep the step the agent was activated at
+         * @param wakeUpTime     the wake up time as reported by {@link org.asoem.greyfish.core.scheduler.ActiveSet}
+         * @param randomState    the state of the random generator of the agent, if it can be restored
+         * @param position       the position of the agent in a spatial environment
+         * @param motion         the motion of the agent in a spatial environment
+         * @param messages       the messages in the inbox of the agent
+         */
+        public AgentState(final A agent, final int id, final long activationStep, final long wakeUpTime,
+                          final Optional<Long> randomState, @Nullable final Point2D position,
+                          @Nullable final Motion2D motion, final List<? extends ACLMessage<A>> messages) {
+            this.agent = checkNotNull(agent);
+            this.id = id;
+            this.activationStep = activationStep;
+            this.wakeUpTime = wakeUpTime;
+            this.randomState = checkNotNull(randomState);
+            this.position = position;
+            this.motion = motion;
+            this.messages = ImmutableList.copyOf(messages);
+        }
+
+        private AgentState<A> withMessages(final List<? extends ACLMessage<A>> messages) {
+            return new AgentState<>(agent, id, activationStep, wakeUpTime, randomState, position, motion, messages);
+        }
+
+        public A getAgent() {
+            return agent;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public long getActivationStep() {
+            return activationStep;
+        }
+
+        public long getWakeUpTime() {
+            return wakeUpTime;
+        }
+
+        public Optional<Long> getRandomState() {
+            return randomState;
+        }
+
+        @Nullable
+        public Point2D getPosition() {
+            return position;
+        }
+
+        @Nullable
+        public Motion2D getMotion() {
+            return motion;
+        }
+
+        public List<ACLMessage<A>> getMessages() {
+            return messages;
+        }
+    }
+}
@@ -20,9 +20,38 @@ package org.asoem.greyfish.core.environment;
 import org.asoem.greyfish.core.agent.Agent;
 import org.asoem.greyfish.core.utils.DiscreteTime;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
 /**
  * A Simulation which has discrete time steps.
  */
 public interface DiscreteTimeEnvironment<A extends Agent<?>> extends Environment<A>, DiscreteTime {
 
+    /**
+     * Write a checkpoint of this environment to the given {@code channel}, starting at its current position. The
+     * checkpoint contains the time, the seed and all active agents with their ids, positions, inboxes, random
+     * generators and suspension state. The state of the agents themselves is written by the given {@code codec}.
+     * Events scheduled by the model are not part of a checkpoint. Must not be called during a step.
+     *
+     * @param channel the channel to write to
+     * @param codec   the codec for the state of the agents
+     * @throws IOException if writing fails
+     * @throws IllegalStateException if modifications requested since the last step are still pending
+     * @see Checkpoints
+     */
+    void checkpoint(FileChannel channel, CheckpointCodec<A> codec) throws IOException;
+
+    /**
+     * Restore the state of a checkpoint written by {@link #checkpoint(FileChannel, CheckpointCodec)}. This environment
+     * must be new, i.e. have no agents and not have executed any step, and must be configured like the environment the
+     * checkpoint was taken of. Stepping the restored environment continues the simulation exactly where the checkpoint
+     * was taken.
+     *
+     * @param channel the channel to read from, starting at its current position
+     * @param codec   the codec for the state of the agents
+     * @throws IOException if reading fails or the channel contains no compatible checkpoint
+     * @throws IllegalStateException if this environment is not new
+     */
+    void restore(FileChannel channel, CheckpointCodec<A> codec) throws IOException;
 }
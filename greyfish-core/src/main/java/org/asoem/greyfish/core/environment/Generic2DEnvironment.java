@@ -17,66 +17,150 @@
 
 package org.asoem.greyfish.core.environment;
 
-import com.google.common.base.Function;
-import com.google.common.base.Predicate;
+import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.eventbus.EventBus;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.commons.math3.random.RandomGenerator;
 import org.asoem.greyfish.core.acl.ACLMessage;
 import org.asoem.greyfish.core.agent.Agent;
+import org.asoem.greyfish.core.agent.AgentRegistry;
+import org.asoem.greyfish.core.agent.Context;
+import org.asoem.greyfish.core.agent.BasicContext;
 import org.asoem.greyfish.core.agent.SpatialAgent;
+import org.asoem.greyfish.core.scheduler.ActiveSet;
 import org.asoem.greyfish.core.scheduler.Event;
+import org.asoem.greyfish.core.scheduler.EventCalendar;
 import org.asoem.greyfish.core.space.ForwardingSpace2D;
 import org.asoem.greyfish.core.space.Space2D;
 import org.asoem.greyfish.impl.environment.AgentAddedEvent;
 import org.asoem.greyfish.utils.base.InheritableBuilder;
+import org.asoem.greyfish.utils.math.RandomGenerators;
+import org.asoem.greyfish.utils.space.Motion2D;
 import org.asoem.greyfish.utils.space.Object2D;
+import org.asoem.greyfish.utils.space.Point2D;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Preconditions.*;
 
 /**
- * A {@code Simulation} that uses a cached thread pool to execute {@link Agent}s and process their addition, removal,
- * migration and communication in parallel.
+ * A {@code Simulation} that executes its {@link Agent}s and processes their addition, removal, migration and
+ * communication in parallel. Unless configured otherwise, the agents are executed by the {@link
+ * SimulationExecutor#common() shared executor}, which is bounded by the number of available processors.
  */
-public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ?, P, ?>, S extends SpatialEnvironment2D<A, Z>,
+public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ? extends BasicContext<?, A>, P, ?>,
+        S extends SpatialEnvironment2D<A, Z>,
         Z extends Space2D<A, P>, P extends Object2D> extends Abstract2DEnvironment<A, Z> {
 
     private static final Logger logger = LoggerFactory.getLogger(Generic2DEnvironment.class);
 
     private final AgentSpace<Z, A, P> space;
     private final AtomicInteger currentStep = new AtomicInteger(0);
-    private final List<NewAgentEvent<P, A>> addAgentMessages;
-    private final List<RemoveAgentMessage<A>> removeAgentMessages;
-    private final List<DeliverAgentMessageMessage<A>> deliverAgentMessageMessages;
-    private final ExecutorService executorService;
+    private final ModificationBuffer<AgentInsertion<A, P>> requestedInsertions = ModificationBuffer.create();
+    private final ModificationBuffer<A> requestedRemovals = ModificationBuffer.create();
+    private final ModificationBuffer<ACLMessage<A>> requestedDeliveries = ModificationBuffer.create();
+    private final AgentExecutionStrategy executionStrategy;
+    private final StepPipeline pipeline;
+    private final EventCalendar events = EventCalendar.create();
+    private final ActiveSet activeSet = ActiveSet.create();
     private final ConcurrentMap<String, Object> snapshotValues;
-    private final int parallelizationThreshold;
     private final EventBus eventBus;
+    private final double neighbourhoodRadius;
+    private final AtomicInteger agentIdSequence = new AtomicInteger();
+    private final AgentRegistry<A> agents = AgentRegistry.create();
+    /**
+     * The precomputed neighbours of the agents indexed by their {@link Context#getSlot() slot}.
+     */
+    private volatile Object[] neighbourhoods = new Object[0];
+    private volatile Map<String, Long> phaseTimes = ImmutableMap.of();
     private String title = "untitled";
     private SimulationState state;
+    private long seed;
 
     protected Generic2DEnvironment(final Generic2DEnvironmentBuilder<?, ?, S, A, Z, P> builder) {
-        this.parallelizationThreshold = builder.parallelizationThreshold;
         this.space = new AgentSpace<>(checkNotNull(builder.space));
 
-        this.addAgentMessages = checkNotNull(Collections.synchronizedList(Lists.<NewAgentEvent<P, A>>newArrayList()));
-        this.removeAgentMessages = checkNotNull(Collections.synchronizedList(Lists.<RemoveAgentMessage<A>>newArrayList()));
-        this.deliverAgentMessageMessages = checkNotNull(Collections.synchronizedList(Lists.<DeliverAgentMessageMessage<A>>newArrayList()));
-
         this.snapshotValues = Maps.newConcurrentMap();
-        this.executorService = builder.executionService;
+        if (builder.executionStrategy != null) {
+            this.executionStrategy = builder.executionStrategy;
+        } else if (builder.executionService != null) {
+            this.executionStrategy =
+                    AgentExecutionStrategies.partitioned(builder.executionService, builder.parallelizationThreshold);
+        } else {
+            this.executionStrategy = SimulationExecutor.common();
+        }
         this.eventBus = builder.eventPublisher;
+        this.neighbourhoodRadius = builder.neighbourhoodRadius;
+        this.seed = builder.seed;
+        this.pipeline = createPipeline(builder.phaseExecutor);
+    }
+
+    /**
+     * Create the pipeline of a single step. After the agents were executed and the requested removals are done, the
+     * message delivery and the movement of the agents are independent of each other and may overlap.
+     */
+    private StepPipeline createPipeline(final Executor phaseExecutor) {
+        return StepPipeline.builder()
+                .executor(phaseExecutor)
+                .phase("events", new StepPipeline.Phase() {
+                    @Override
+                    public void run() {
+                        events.fireDue(getTime());
+                    }
+                })
+                .phase("neighbourhoods", new StepPipeline.Phase() {
+                    @Override
+                    public void run() {
+                        computeNeighbourhoods();
+                    }
+                }, "events")
+                .exclusivePhase("execution", new StepPipeline.Phase() {
+                    @Override
+                    public void run() throws Exception {
+                        executeAllAgents();
+                    }
+                }, "neighbourhoods")
+                .phase("removal", new StepPipeline.Phase() {
+                    @Override
+                    public void run() {
+                        setState(SimulationState.MODIFICATION_PHASE);
+                        processRequestedAgentRemovals();
+                    }
+                }, "execution")
+                .phase("delivery", new StepPipeline.Phase() {
+                    @Override
+                    public void run() {
+                        processAgentMessageDelivery();
+                    }
+                }, "removal")
+                .phase("movement", new StepPipeline.Phase() {
+                    @Override
+                    public void run() {
+                        processAgentsMovement();
+                    }
+                }, "removal")
+                .phase("activation", new StepPipeline.Phase() {
+                    @Override
+                    public void run() {
+                        processRequestedAgentActivations();
+                    }
+                }, "delivery", "movement")
+                .build();
     }
 
     /**
@@ -86,7 +170,7 @@ public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ?, P, ?>, S
      * @param projection the projection
      */
     public final void addAgent(final A agent, final P projection) {
-        addAgentMessages.add(new InjectedAgentEvent(agent, projection));
+        requestedInsertions.add(new AgentInsertion<>(agent, projection));
     }
 
     private void insertAgent(final A agent, final P projection) {
@@ -94,29 +178,77 @@ public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ?, P, ?>, S
         checkNotNull(agent, "agent is null");
         // TODO: check state of agent (should be initialized)
 
-        space.insertObject(agent, projection);
-        activateAgent(agent);
+        final int slot = agents.add(agent);
+        space.insertAgent(agent, slot, projection);
+        activeSet.wakeUp(slot);
+        activateAgent(agent, agentIdSequence.incrementAndGet(), slot, getTime());
 
         logger.debug("Agent activated: {}", agent);
 
         eventBus.post(new AgentAddedEvent(agent, this));
     }
 
-    protected abstract void activateAgent(final A agent);
+    /**
+     * Activate the {@code agent} with a context for this environment.
+     *
+     * @param agent          the agent to activate
+     * @param agentId        the id the context must report for the agent
+     * @param slot           the slot the context must report for the agent
+     * @param activationStep the activation step the context must report for the agent
+     */
+    protected abstract void activateAgent(final A agent, final int agentId, final int slot, final long activationStep);
+
+    /**
+     * Create the projection of an agent restored at the given {@code position}.
+     *
+     * @param position the position of the agent
+     * @return the projection to insert the agent at
+     */
+    protected abstract P projectionAt(final Point2D position);
 
     protected abstract S self();
 
-    private void passivateAgentsInternal(final List<? extends A> agents) {
-        for (final A agent : agents) {
+    /**
+     * Remove the given agents from the space and the registry and deactivate them. Active agents are removed in
+     * constant time by their slot. If any agent was deactivated before, all inactive agents are removed in a single
+     * compacting sweep.
+     */
+    private void passivateAgentsInternal(final List<? extends A> agentsToRemove) {
+        boolean sweep = false;
+        for (final A agent : agentsToRemove) {
+            if (agent.isActive()) {
+                final int slot = agent.getContext().get().getSlot();
+                space.retireAgent(agent, slot);
+                agents.remove(slot);
+            } else {
+                sweep = true;
+            }
             agent.deactivate();
         }
-        space.removeInactiveAgents();
+        if (sweep) {
+            for (final A agent : agents.removeInactive()) {
+                space.retireAgent(agent);
+            }
+        }
     }
 
     @Override
     public final void removeAgent(final A agent) {
         checkNotNull(agent);
-        removeAgentMessages.add(new RemoveAgentMessage<A>(agent));
+        requestedRemovals.add(agent);
+    }
+
+    /**
+     * {@inheritDoc} <p>The returned list is a read-only snapshot of the agent registry, which is cheap to take.</p>
+     */
+    @Override
+    public final List<A> getActiveAgents() {
+        return agents.snapshot();
+    }
+
+    @Override
+    public final int countAgents() {
+        return agents.size();
     }
 
     @Override
@@ -124,11 +256,49 @@ public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ?, P, ?>, S
         return space.delegate();
     }
 
+    /**
+     * {@inheritDoc} <p>The projection of an active agent of this environment is read from the space by the {@link
+     * Context#getSlot() slot} of the agent, without looking the agent up.</p>
+     */
+    @Nullable
+    @Override
+    public final P getProjection(final A agent) {
+        final Optional<? extends BasicContext<?, A>> context = agent.getContext();
+        if (context.isPresent()) {
+            final int slot = context.get().getSlot();
+            if (agents.get(slot) == agent) {
+                return space.agentProjection(slot);
+            }
+        }
+        return space.getProjection(agent);
+    }
+
     @Override
     public final double distance(final A agent, final double degrees) {
         return space.distance(agent, degrees);
     }
 
+    /**
+     * Get the seed from which the random generators of the agents are derived.
+     *
+     * @return the seed of this environment
+     */
+    public final long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Create the random generator for the agent with the given {@code agentId}. Subclasses should pass it to the
+     * context of the agent when they {@link #activateAgent(SpatialAgent, int, int, long) activate} it.
+     *
+     * @param agentId the id of the agent
+     * @return a new random generator
+     * @see org.asoem.greyfish.core.agent.Context#getRandomGenerator()
+     */
+    protected final RandomGenerator createRandomGenerator(final int agentId) {
+        return RandomGenerators.stream(seed, agentId);
+    }
+
     @Override
     public final long getTime() {
         return currentStep.get();
@@ -142,16 +312,10 @@ public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ?, P, ?>, S
 
         try {
             setState(SimulationState.PLANING_PHASE);
-
-            executeAllAgents();
-
-            setState(SimulationState.MODIFICATION_PHASE);
-
-            processAgentMessageDelivery();
-            processRequestedAgentRemovals();
-            processAgentsMovement();
-            processRequestedAgentActivations();
-
+            phaseTimes = pipeline.run();
+            logger.debug("{}: Phase times in ns: {}", this, phaseTimes);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
         } catch (Throwable e) {
             throw Throwables.propagate(e);
         }
@@ -165,102 +329,201 @@ public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ?, P, ?>, S
         currentStep.incrementAndGet();
     }
 
+    /**
+     * {@inheritDoc} <p>The agents are written in execution order, so that the restored environment executes them in
+     * the same order.</p>
+     */
+    @Override
+    public final synchronized void checkpoint(final FileChannel channel, final CheckpointCodec<A> codec)
+            throws IOException {
+        checkState(requestedInsertions.isEmpty() && requestedRemovals.isEmpty() && requestedDeliveries.isEmpty(),
+                "Requested modifications are pending");
+        final List<A> snapshot = agents.snapshot();
+        final List<Checkpoints.AgentState<A>> agentStates = Lists.newArrayListWithCapacity(snapshot.size());
+        for (final A agent : snapshot) {
+            final BasicContext<?, A> context = agent.getContext().get();
+            agentStates.add(new Checkpoints.AgentState<>(agent, context.getAgentId(), context.getActivationStep(),
+                    activeSet.getWakeUpTime(agent), Checkpoints.randomState(context.getRandomGenerator()),
+                    space.agentProjection(context.getSlot()).getCentroid(), agent.getMotion(),
+                    Checkpoints.messagesOf(agent)));
+        }
+        Checkpoints.write(channel,
+                new Checkpoints.EnvironmentState<>(true, getTime(), seed, agentIdSequence.get(), agentStates), codec);
+    }
+
+    @Override
+    public final synchronized void restore(final FileChannel channel, final CheckpointCodec<A> codec)
+            throws IOException {
+        checkState(getTime() == 0 && agents.size() == 0 && requestedInsertions.isEmpty(), "Environment is not new");
+        final Checkpoints.EnvironmentState<A> checkpoint = Checkpoints.read(channel, codec);
+        if (!checkpoint.isSpatial()) {
+            throw new IOException("Not the checkpoint of a spatial environment");
+        }
+
+        this.seed = checkpoint.getSeed();
+        currentStep.set(Ints.checkedCast(checkpoint.getTime()));
+        agentIdSequence.set(checkpoint.getLastAgentId());
+        for (Checkpoints.AgentState<A> agentState : checkpoint.getAgents()) {
+            final A agent = agentState.getAgent();
+            agent.setMotion(agentState.getMotion());
+            final int slot = agents.add(agent);
+            space.insertAgent(agent, slot, projectionAt(agentState.getPosition()));
+            activeSet.wakeUp(slot);
+            activateAgent(agent, agentState.getId(), slot, agentState.getActivationStep());
+        }
+        Checkpoints.restoreAgents(checkpoint.getAgents(), activeSet, events);
+        logger.debug("{}: Restored {} agents at step {}", this, countAgents(), getTime());
+    }
+
+    /**
+     * Get the wall time in nanoseconds each phase of the last step took.
+     *
+     * @return the phase times of the last step, keyed by the name of the phase
+     */
+    public final Map<String, Long> getPhaseTimes() {
+        return phaseTimes;
+    }
+
+    /**
+     * Schedule the given event. Events are fired at the beginning of the step matching their time, before the agents
+     * are executed.
+     *
+     * @param e the event to schedule
+     */
     @Override
     public final void schedule(final Event e) {
-        throw new UnsupportedOperationException("Not implemented");
+        checkNotNull(e);
+        checkArgument(e.getTime() >= getTime(), "Event is in the past: %s", e);
+        events.add(e);
+    }
+
+    @Override
+    public final void suspend(final A agent) {
+        activeSet.suspend(agent);
+    }
+
+    @Override
+    public final void suspendUntil(final A agent, final long time) {
+        checkArgument(time > getTime(), "Wake up time must be in the future: %s", time);
+        activeSet.suspend(agent, time);
+        events.add(activeSet.wakeUpEvent(agent, time));
+    }
+
+    @Override
+    public final void wakeUp(final A agent) {
+        activeSet.wakeUp(agent);
+    }
+
+    @Override
+    public final boolean isSuspended(final A agent) {
+        return activeSet.isSuspended(agent);
     }
 
     private void afterStepCleanUp() {
         snapshotValues.clear();
+        neighbourhoods = new Object[0];
     }
 
-    private void processAgentMessageDelivery() {
-        for (final DeliverAgentMessageMessage<A> message : deliverAgentMessageMessages) {
-            for (final A agent : message.message.getRecipients()) {
-                agent.ask(message.message, Void.class);
+    /**
+     * Compute the neighbours of all agents in one parallel sweep, if a neighbourhood radius was configured. Agents do
+     * not move during the planing phase, so the neighbourhoods stay valid until the end of it.
+     */
+    private void computeNeighbourhoods() {
+        if (neighbourhoodRadius > 0) {
+            final Object[] neighbourhoodsBySlot = new Object[agents.capacity()];
+            for (Map.Entry<A, List<A>> entry : space.getAllVisibleNeighbours(neighbourhoodRadius).entrySet()) {
+                final Optional<? extends Context<?, ?>> context = entry.getKey().getContext();
+                if (context.isPresent()) {
+                    neighbourhoodsBySlot[context.get().getSlot()] = entry.getValue();
+                }
             }
+            neighbourhoods = neighbourhoodsBySlot;
         }
-        deliverAgentMessageMessages.clear();
     }
 
-    private void executeAllAgents() throws InterruptedException, ExecutionException {
-        final List<List<A>> partition = Lists.partition(ImmutableList.copyOf(getActiveAgents()), parallelizationThreshold);
-        final Collection<Callable<Void>> callables = Lists.transform(partition, new Function<List<A>, Callable<Void>>() {
-            @Override
-            public Callable<Void> apply(final List<A> input) {
-                return new Callable<Void>() {
-                    @Override
-                    public Void call() {
-                        for (A a : input) {
-                            a.run();
-                        }
-                        return null;
-                    }
-                };
+    @Override
+    protected final Optional<List<A>> precomputedNeighbours(final A agent, final double distance) {
+        if (distance == neighbourhoodRadius && state == SimulationState.PLANING_PHASE) {
+            final Optional<? extends Context<?, ?>> context = agent.getContext();
+            final Object[] neighbourhoodsBySlot = this.neighbourhoods;
+            if (context.isPresent() && context.get().getSlot() < neighbourhoodsBySlot.length) {
+                @SuppressWarnings("unchecked")
+                final List<A> neighbours = (List<A>) neighbourhoodsBySlot[context.get().getSlot()];
+                if (neighbours != null) {
+                    return Optional.of(Collections.unmodifiableList(neighbours));
+                }
             }
-        });
+        }
+        return Optional.absent();
+    }
 
-        final List<Future<Void>> futures = executorService.invokeAll(callables);
-        for (Future<Void> future : futures) {
-            future.get();
+    /**
+     * Deliver all messages sent in this step and wake up their recipients. Recipients which were removed in the same
+     * step will not receive them.
+     */
+    private void processAgentMessageDelivery() {
+        for (final ACLMessage<A> message : requestedDeliveries.drain()) {
+            for (final A agent : message.getRecipients()) {
+                if (agent.isActive()) {
+                    agent.ask(message, Void.class);
+                    activeSet.wakeUp(agent);
+                }
+            }
         }
     }
 
+    private void executeAllAgents() throws InterruptedException, ExecutionException {
+        executionStrategy.execute(activeSet.filterAwake(agents.snapshot()));
+    }
+
     private void processRequestedAgentActivations() {
-        for (final NewAgentEvent<P, A> addAgentMessage : addAgentMessages) {
-            final A clone = addAgentMessage.getAgent();
-            insertAgent(clone, addAgentMessage.getProjection());
+        for (final AgentInsertion<A, P> insertion : requestedInsertions.drain()) {
+            insertAgent(insertion.agent, insertion.projection);
         }
-        addAgentMessages.clear();
     }
 
-    private void processAgentsMovement() throws InterruptedException {
-        final List<List<A>> partition = Lists.partition(ImmutableList.copyOf(getActiveAgents()), parallelizationThreshold);
-        final Collection<Callable<Void>> callables = Lists.transform(partition, new Function<List<A>, Callable<Void>>() {
-            @Override
-            public Callable<Void> apply(final List<A> input) {
-                return new Callable<Void>() {
-                    @Override
-                    public Void call() {
-                        for (A a : input) {
-                            space.moveObject(a, a.getMotion());
-                        }
-                        return null;
-                    }
-                };
+    /**
+     * Collect the motions of all moving or turning agents and apply them as a single batch, so that the space has to
+     * update its index only once per step. The motions are applied in the order of the registry.
+     */
+    private void processAgentsMovement() {
+        final List<A> snapshot = agents.snapshot();
+        final int[] slots = new int[snapshot.size()];
+        final Motion2D[] motions = new Motion2D[snapshot.size()];
+        int count = 0;
+        for (final A agent : snapshot) {
+            final Motion2D motion = agent.getMotion();
+            if (motion != null && (motion.getTranslation() != 0 || motion.getRotation() != 0)) {
+                slots[count] = agent.getContext().get().getSlot();
+                motions[count] = motion;
+                ++count;
             }
-        });
-
-        executorService.invokeAll(callables);
+        }
+        space.moveAgents(slots, motions, count);
     }
 
     /**
      * Remove all agents from this getSimulation and the underlying {@code #space} as requested by {@link
-     * #removeAgentMessages}
+     * #requestedRemovals}
      */
     private void processRequestedAgentRemovals() {
-        logger.debug("Removing {} agent(s)", removeAgentMessages.size());
-        if (removeAgentMessages.size() > 0) {
-            passivateAgentsInternal(Lists.transform(removeAgentMessages, new Function<RemoveAgentMessage<A>, A>() {
-                @Override
-                public A apply(final RemoveAgentMessage<A> removeAgentMessage) {
-                    return removeAgentMessage.agent;
-                }
-            }));
-            removeAgentMessages.clear();
+        final List<A> agentsToRemove = requestedRemovals.drain();
+        logger.debug("Removing {} agent(s)", agentsToRemove.size());
+        if (!agentsToRemove.isEmpty()) {
+            passivateAgentsInternal(agentsToRemove);
         }
     }
 
     @Override
     public final void deliverMessage(final ACLMessage<A> message) {
         checkNotNull(message);
-        deliverAgentMessageMessages.add(new DeliverAgentMessageMessage<A>(message));
+        requestedDeliveries.add(message);
     }
 
     protected final void enqueueAgentCreation(final A population, final P projection) {
         checkNotNull(population);
         checkNotNull(projection);
-        addAgentMessages.add(new AddAgentMessage(population, projection));
+        requestedInsertions.add(new AgentInsertion<>(population, projection));
     }
 
     @Override
@@ -282,92 +545,31 @@ public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ?, P, ?>, S
         return String.format("%d agents; %d steps", countAgents(), getTime());
     }
 
-    private interface NewAgentEvent<P extends Object2D, A extends SpatialAgent<A, ?, P, ?>> {
-        A getAgent();
-
-        P getProjection();
-    }
-
-    private class AddAgentMessage implements NewAgentEvent<P, A> {
-
+    private static final class AgentInsertion<A, P> {
         private final A agent;
         private final P projection;
 
-        public AddAgentMessage(final A agent, final P projection) {
+        private AgentInsertion(final A agent, final P projection) {
             this.agent = checkNotNull(agent);
             this.projection = checkNotNull(projection);
         }
-
-        @Override
-        public A getAgent() {
-            return agent;
-        }
-
-        @Override
-        public P getProjection() {
-            return projection;
-        }
-    }
-
-    private class InjectedAgentEvent implements NewAgentEvent<P, A> {
-
-        private final A agent;
-        private final P projection;
-
-        private InjectedAgentEvent(final A agent, final P projection) {
-            this.projection = checkNotNull(projection);
-            this.agent = checkNotNull(agent);
-        }
-
-        @Override
-        public A getAgent() {
-            return agent;
-        }
-
-        @Override
-        public P getProjection() {
-            return projection;
-        }
-    }
-
-    private static class RemoveAgentMessage<A> {
-
-        private final A agent;
-
-        public RemoveAgentMessage(final A agent) {
-            assert agent != null;
-            this.agent = agent;
-        }
-
-    }
-
-    private static class DeliverAgentMessageMessage<A> {
-
-        private final ACLMessage<A> message;
-
-        public DeliverAgentMessageMessage(final ACLMessage<A> message) {
-            this.message = message;
-        }
-
     }
 
+    /**
+     * The space of the agents. Agents are addressed by their registry {@link Context#getSlot() slot}, which is mapped
+     * to their {@link Space2D#slotOf(Object) slot in the space}, so that the space does not have to look them up.
+     */
     private static final class AgentSpace<Z extends Space2D<T, P>, T extends SpatialAgent<?, ?, P, ?>, P extends Object2D>
             extends ForwardingSpace2D<T, P> {
 
         private final Z delegate;
-        private final List<T> agentsByPopulation;
-        private final Predicate<T> inactiveAgentPredicate = new Predicate<T>() {
-            @Override
-            public boolean apply(final T input) {
-                return !input.isActive();
-            }
-        };
+        // the slots in the space indexed by the registry slots
+        private int[] spaceSlots = new int[0];
 
         private AgentSpace(final Z delegate) {
             assert delegate != null;
 
             this.delegate = delegate;
-            this.agentsByPopulation = Lists.newLinkedList();
         }
 
         @Override
@@ -381,9 +583,7 @@ public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ?, P, ?>, S
             checkNotNull(projection, "projection is null");
 
             if (super.insertObject(object, projection)) {
-                final boolean add = agentsByPopulation.add(object);
                 object.setProjection(projection);
-                assert add : "Could not add " + object;
                 return true;
             }
             return false;
@@ -393,22 +593,76 @@ public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ?, P, ?>, S
         public boolean removeObject(final T agent) {
             checkNotNull(agent);
             if (super.removeObject(agent)) {
-                final boolean remove = agentsByPopulation.remove(agent);
                 agent.setProjection(null);
-                assert remove : "Could not remove " + agent;
                 return true;
             }
             return false;
         }
 
-        @Override
-        public P getProjection(final T object) {
-            return checkNotNull(object).getProjection();
+        /**
+         * Insert the agent registered at the given registry {@code slot}.
+         *
+         * @param agent      the agent to insert
+         * @param slot       the registry slot of the agent
+         * @param projection the projection of the agent
+         */
+        public void insertAgent(final T agent, final int slot, final P projection) {
+            insertObject(agent, projection);
+            if (slot >= spaceSlots.length) {
+                spaceSlots = Arrays.copyOf(spaceSlots, Math.max(slot + 1, spaceSlots.length * 2));
+            }
+            spaceSlots[slot] = delegate.slotOf(agent);
+        }
+
+        /**
+         * Get the projection of the agent registered at the given registry {@code slot}.
+         *
+         * @param slot the registry slot of the agent
+         * @return the projection of the agent
+         */
+        public P agentProjection(final int slot) {
+            return delegate.getProjectionAt(spaceSlots[slot]);
         }
 
-        public void removeInactiveAgents() {
-            if (super.removeIf(inactiveAgentPredicate)) {
-                Iterables.removeIf(agentsByPopulation, inactiveAgentPredicate);
+        /**
+         * Move the agents registered at the first {@code count} registry {@code slots}. The slots are replaced by the
+         * slots in the space.
+         *
+         * @param slots   the registry slots of the agents to move
+         * @param motions the motions of the agents
+         * @param count   the number of agents to move
+         */
+        public void moveAgents(final int[] slots, final Motion2D[] motions, final int count) {
+            for (int i = 0; i < count; i++) {
+                slots[i] = spaceSlots[slots[i]];
+            }
+            delegate.moveObjectsAt(slots, motions, count);
+        }
+
+        /**
+         * Remove an agent which is about to be deactivated. The agent keeps the projection it had at the time of
+         * removal, because inactive agents can no longer look up their projection in the space.
+         *
+         * @param agent the agent to remove
+         * @param slot  the registry slot of the agent
+         */
+        public void retireAgent(final T agent, final int slot) {
+            final P projection = agentProjection(slot);
+            if (super.removeObject(agent)) {
+                agent.setProjection(projection);
+            }
+        }
+
+        /**
+         * Remove an agent which was deactivated before and therefore has no registry slot anymore.
+         *
+         * @param agent the agent to remove
+         * @see #retireAgent(SpatialAgent, int)
+         */
+        public void retireAgent(final T agent) {
+            final P projection = delegate.getProjection(agent);
+            if (super.removeObject(agent)) {
+                agent.setProjection(projection);
             }
         }
 
@@ -418,15 +672,21 @@ public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ?, P, ?>, S
             B extends Generic2DEnvironmentBuilder<B, S, X, A, Z, P>,
             S extends Generic2DEnvironment<A, X, Z, P>,
             X extends SpatialEnvironment2D<A, Z>,
-            A extends SpatialAgent<A, ?, P, ?>,
+            A extends SpatialAgent<A, ? extends BasicContext<?, A>, P, ?>,
             Z extends Space2D<A, P>,
             P extends Object2D>
             extends InheritableBuilder<S, B> {
 
         private int parallelizationThreshold = 1000;
         private final Z space;
-        private ExecutorService executionService = Executors.newCachedThreadPool();
+        @Nullable
+        private ExecutorService executionService = null;
+        @Nullable
+        private AgentExecutionStrategy executionStrategy = null;
+        private Executor phaseExecutor = MoreExecutors.sameThreadExecutor();
         private EventBus eventPublisher = new EventBus();
+        private double neighbourhoodRadius = 0;
+        private long seed = RandomGenerators.nextSeed();
 
         public Generic2DEnvironmentBuilder(final Z space) {
             this.space = checkNotNull(space);
@@ -434,13 +694,14 @@ public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ?, P, ?>, S
                 @Override
                 protected void verify() {
                     checkState(space.isEmpty(), "Space is not empty");
-                    checkState(executionService != null, "The execution service must not be null");
                 }
             });
         }
 
         /**
-         * Set the parallelization threshold after above which to parallelize agent executions.
+         * Set the number of agents per task submitted to the {@link #executionService(ExecutorService) execution
+         * service}. Has no effect if no execution service or an {@link #executionStrategy(AgentExecutionStrategy)
+         * execution strategy} is set.
          *
          * @param parallelizationThreshold the threshold for parallelling agent executions
          * @return this builder
@@ -452,7 +713,8 @@ public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ?, P, ?>, S
         }
 
         /**
-         * Set the executor service used to execute agents.
+         * Set the executor service used to execute agents. Has no effect if an {@link
+         * #executionStrategy(AgentExecutionStrategy) execution strategy} is set.
          *
          * @param executionService the execution servive to use
          * @return this builder
@@ -463,6 +725,62 @@ public abstract class Generic2DEnvironment<A extends SpatialAgent<A, ?, P, ?>, S
             return self();
         }
 
+        /**
+         * Set the strategy used to execute the agents in each step. By default, the agents are executed by the {@link
+         * SimulationExecutor#common() common simulation executor}, or split into partitions of {@link
+         * #parallelizationThreshold(int) parallelizationThreshold} agents if an {@link
+         * #executionService(ExecutorService) execution service} is set. Pass the same {@link SimulationExecutor} to
+         * all environments of an experiment to bound the number of threads they use together. Use {@link
+         * AgentExecutionStrategies#forkJoin()} for a work stealing execution which needs no tuning.
+         *
+         * @param executionStrategy the strategy to use
+         * @return this builder
+         */
+        public final B executionStrategy(final AgentExecutionStrategy executionStrategy) {
+            this.executionStrategy = checkNotNull(executionStrategy);
+            return self();
+        }
+
+        /**
+         * Set the seed from which the random generators of the agents are derived. By default, the next seed of {@link
+         * RandomGenerators#nextSeed()} is used.
+         *
+         * @param seed the seed
+         * @return this builder
+         */
+        public final B seed(final long seed) {
+            this.seed = seed;
+            return self();
+        }
+
+        /**
+         * Set the executor used to run the phases of each step. By default, all phases run one after another in the
+         * thread calling {@link Generic2DEnvironment#nextStep()}. With a multi-threaded executor, independent phases
+         * like the message delivery and the movement of the agents overlap.
+         *
+         * @param phaseExecutor the executor to use
+         * @return this builder
+         * @see Generic2DEnvironment#getPhaseTimes()
+         */
+        public final B phaseExecutor(final Executor phaseExecutor) {
+            this.phaseExecutor = checkNotNull(phaseExecutor);
+            return self();
+        }
+
+        /**
+         * Compute the neighbours of all agents within the given {@code radius} at the beginning of each step. Queries
+         * for neighbours with exactly this radius will then be answered from the precomputed lists.
+         *
+         * @param radius the radius of the neighbourhood
+         * @return this builder
+         * @see SpatialEnvironment2D#findNeighbours(SpatialAgent, double)
+         */
+        public final B precomputeNeighbours(final double radius) {
+            checkArgument(radius > 0, "radius must be positive");
+            this.neighbourhoodRadius = radius;
+            return self();
+        }
+
         public final B eventBus(final EventBus eventBus) {
             this.eventPublisher = checkNotNull(eventBus);
             return self();
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.environment;
+
+import org.asoem.greyfish.utils.concurrent.ThreadLocalBuffer;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A buffer for the modifications agents request while they are executed, possibly in parallel. Each request is tagged
+ * with the position of the requesting agent in the execution order, so that {@link #drain() draining} yields the same
+ * order regardless of how the agents were distributed among threads. Execution strategies must run the agents via
+ * {@link #run(List, int)} for their requests to be tagged.
+ * <p>Requests made outside of an agent execution precede all tagged requests.</p>
+ *
+ * @param <E> the type of the requested modifications
+ */
+@ThreadSafe
+public final class ModificationBuffer<E> {
+
+    private static final int UNTAGGED = -1;
+    private static final ThreadLocal<int[]> REQUESTER = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[]{UNTAGGED};
+        }
+    };
+
+    private final ThreadLocalBuffer<E> requests = ThreadLocalBuffer.create();
+
+    private ModificationBuffer() {
+    }
+
+    public static <E> ModificationBuffer<E> create() {
+        return new ModificationBuffer<>();
+    }
+
+    /**
+     * Run the agent at the given {@code index} of the {@code agents}, so that all requests it makes while running are
+     * tagged with the index.
+     *
+     * @param agents the agents in execution order
+     * @param index  the index of the agent to run
+     */
+    public static void run(final List<? extends Runnable> agents, final int index) {
+        runAs(index, agents.get(index));
+    }
+
+    /**
+     * Run the given {@code runnable}, so that the requests it makes outside of agent executions are not tagged. Use
+     * this for tasks of an execution strategy which are not agents, e.g. the steps of whole environments.
+     *
+     * @param runnable the runnable to run
+     */
+    public static void runUntagged(final Runnable runnable) {
+        runAs(UNTAGGED, checkNotNull(runnable));
+    }
+
+    private static void runAs(final int tag, final Runnable runnable) {
+        final int[] requester = REQUESTER.get();
+        final int previous = requester[0];
+        requester[0] = tag;
+        try {
+            runnable.run();
+        } finally {
+            requester[0] = previous;
+        }
+    }
+
+    /**
+     * Add the given {@code modification} on behalf of the agent currently running on the calling thread.
+     *
+     * @param modification the requested modification
+     */
+    public void add(final E modification) {
+        // untagged requests get tag 0 and precede the requests of the agents
+        requests.add(REQUESTER.get()[0] - UNTAGGED, checkNotNull(modification));
+    }
+
+    /**
+     * Remove all requested modifications. They are ordered by the execution order of the requesting agents and, for
+     * each agent, by the order of the requests.
+     *
+     * @return the removed modifications
+     */
+    public List<E> drain() {
+        // the requests of an agent are all made on the same thread, so the order of equal tags is kept
+        return requests.drain();
+    }
+
+    public boolean isEmpty() {
+        return requests.isEmpty();
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.environment;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A bounded pool of named daemon threads which executes the agents of one or more environments in batches. The agents
+ * are not submitted one by one: a few worker tasks claim batches of {@code batchSize} agents until all are done, and
+ * the calling thread takes part in the work. So the number of tasks per step depends on the number of threads, not on
+ * the number of agents, and no futures are created. If the queue is full, the calling thread runs the worker task
+ * itself, which throttles the environments sharing this executor.
+ * <p>Instances can be shared by all environments of an experiment.</p>
+ */
+public final class SimulationExecutor implements AgentExecutionStrategy {
+
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final int batchSize;
+
+    private SimulationExecutor(final String name, final ThreadPoolExecutor executor, final int threads,
+                               final int batchSize) {
+        this.name = name;
+        this.executor = executor;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Get the executor which is shared by all environments not configured otherwise. It uses one thread per available
+     * processor.
+     *
+     * @return the shared executor
+     */
+    public static SimulationExecutor common() {
+        return CommonExecutor.INSTANCE;
+    }
+
+    /**
+     * Create a new executor with one thread per available processor.
+     *
+     * @param name the name of the executor, used as prefix for the thread names
+     * @return a new executor
+     */
+    public static SimulationExecutor create(final String name) {
+        return create(name, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a new executor with the given number of threads.
+     *
+     * @param name    the name of the executor, used as prefix for the thread names
+     * @param threads the number of threads
+     * @return a new executor
+     */
+    public static SimulationExecutor create(final String name, final int threads) {
+        return create(name, threads, 4 * threads, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Create a new executor.
+     *
+     * @param name          the name of the executor, used as prefix for the thread names
+     * @param threads       the number of threads
+     * @param queueCapacity the maximum number of queued worker tasks
+     * @param batchSize     the number of agents a worker claims at once
+     * @return a new executor
+     */
+    public static SimulationExecutor create(final String name, final int threads, final int queueCapacity,
+                                            final int batchSize) {
+        checkNotNull(name);
+        checkArgument(threads > 0, "threads must be positive");
+        checkArgument(queueCapacity > 0, "queueCapacity must be positive");
+        checkArgument(batchSize > 0, "batchSize must be positive");
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        return new SimulationExecutor(name, executor, threads, batchSize);
+    }
+
+    /**
+     * Get an executor which runs on the threads of this one, but lets the workers claim {@code batchSize} tasks at
+     * once. A batch size of 1 suits few coarse tasks, like the steps of whole environments. Shutting down either
+     * executor shuts down both.
+     *
+     * @param batchSize the number of tasks a worker claims at once
+     * @return an executor sharing the threads of this one
+     */
+    public SimulationExecutor withBatchSize(final int batchSize) {
+        checkArgument(batchSize > 0, "batchSize must be positive");
+        return new SimulationExecutor(name, executor, threads, batchSize);
+    }
+
+    @Override
+    public void execute(final List<? extends Runnable> agents) throws InterruptedException, ExecutionException {
+        checkNotNull(agents);
+        final int batchCount = (agents.size() + batchSize - 1) / batchSize;
+        if (batchCount == 0) {
+            return;
+        }
+        final Job job = new Job(agents, batchSize, batchCount);
+        final int helpers = Math.min(batchCount - 1, threads);
+        for (int i = 0; i < helpers; i++) {
+            executor.execute(job);
+        }
+        job.run();
+        job.await();
+        // helpers which did not get a thread in time have nothing left to do
+        for (int i = 0; i < helpers; i++) {
+            if (!executor.remove(job)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Get the number of worker tasks waiting for a free thread.
+     *
+     * @return the current queue depth
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Get the number of threads which are currently executing agents.
+     *
+     * @return the number of busy threads
+     */
+    public int getActiveThreadCount() {
+        return executor.getActiveCount();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Shut down the threads of this executor after all pending work is done.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        final BlockingQueue<Runnable> queue = executor.getQueue();
+        return "SimulationExecutor{name=" + name + ", threads=" + threads + ", queueDepth=" + queue.size() + '}';
+    }
+
+    private static final class Job implements Runnable {
+        private final List<? extends Runnable> agents;
+        private final int batchSize;
+        private final int batchCount;
+        private final AtomicInteger nextBatch = new AtomicInteger();
+        private final CountDownLatch pendingBatches;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private Job(final List<? extends Runnable> agents, final int batchSize, final int batchCount) {
+            this.agents = agents;
+            this.batchSize = batchSize;
+            this.batchCount = batchCount;
+            this.pendingBatches = new CountDownLatch(batchCount);
+        }
+
+        @Override
+        public void run() {
+            int batch;
+            while ((batch = nextBatch.getAndIncrement()) < batchCount) {
+                final int from = batch * batchSize;
+                final int to = Math.min(from + batchSize, agents.size());
+                try {
+                    if (failure.get() == null) {
+                        for (int i = from; i < to; i++) {
+                            ModificationBuffer.run(agents, i);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    pendingBatches.countDown();
+                }
+            }
+        }
+
+        private void await() throws InterruptedException, ExecutionException {
+            pendingBatches.await();
+            final Throwable throwable = failure.get();
+            if (throwable != null) {
+                throw new ExecutionException(throwable);
+            }
+        }
+    }
+
+    private static final class CommonExecutor {
+        private static final SimulationExecutor INSTANCE = create("greyfish-simulation");
+    }
+}
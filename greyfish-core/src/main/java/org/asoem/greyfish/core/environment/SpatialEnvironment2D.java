@@ -19,6 +19,11 @@ package org.asoem.greyfish.core.environment;
 
 import org.asoem.greyfish.core.agent.SpatialAgent;
 import org.asoem.greyfish.core.space.Space2D;
+import org.asoem.greyfish.utils.space.Object2D;
+
+import javax.annotation.Nullable;
+
+import java.util.List;
 
 public interface SpatialEnvironment2D<A extends SpatialAgent<A, ?, ?, ?>, Z extends Space2D<A, ?>> extends DiscreteTimeEnvironment<A> {
 
@@ -31,6 +36,15 @@ public interface SpatialEnvironment2D<A extends SpatialAgent<A, ?, ?, ?>, Z exte
      */
     Iterable<A> findNeighbours(A agent, double distance);
 
+    /**
+     * Find the {@code k} neighbours of {@code agent} which are closest to it.
+     *
+     * @param agent The focal {@code agent}
+     * @param k     The maximum number of neighbours to find
+     * @return at most {@code k} neighbours of {@code agent} ordered by increasing distance
+     */
+    List<A> findNearestNeighbours(A agent, int k);
+
     /**
      * Get the space used in this getSimulation
      *
@@ -38,6 +52,15 @@ public interface SpatialEnvironment2D<A extends SpatialAgent<A, ?, ?, ?>, Z exte
      */
     Z getSpace();
 
+    /**
+     * Get the projection of the given {@code agent} in the space of this environment.
+     *
+     * @param agent the agent
+     * @return the projection of the agent or {@code null} if the agent is not in the space of this environment
+     */
+    @Nullable
+    Object2D getProjection(A agent);
+
     /**
      * Measure the distance from given agent to the first obstacle in the given direction (in degrees [0, 360))
      *
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.environment;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The phases of a simulation step and the order in which they have to be executed. Each phase declares the phases it
+ * depends on. A phase is started as soon as all of its dependencies have finished, so that independent phases can
+ * overlap if the pipeline is backed by a multi-threaded {@link Executor}. Phases which use all available threads on
+ * their own should be added as {@link Builder#exclusivePhase(String, Phase, String...) exclusive} phases.
+ * <p>Instances are immutable and can be {@link #run() run} once per step.</p>
+ */
+public final class StepPipeline {
+
+    private final Executor executor;
+    private final String[] names;
+    private final Phase[] phases;
+    private final boolean[] exclusive;
+    private final int[] dependencyCounts;
+    private final int[][] dependents;
+
+    private StepPipeline(final Builder builder) {
+        this.executor = builder.executor;
+        final int count = builder.names.size();
+        this.names = builder.names.toArray(new String[count]);
+        this.phases = builder.phases.toArray(new Phase[count]);
+        this.exclusive = new boolean[count];
+        this.dependencyCounts = new int[count];
+        final List<List<Integer>> dependentsByPhase = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            exclusive[i] = builder.exclusive.get(i);
+            dependencyCounts[i] = builder.dependencies.get(i).length;
+            dependentsByPhase.add(Lists.<Integer>newArrayList());
+        }
+        for (int i = 0; i < count; i++) {
+            for (int dependency : builder.dependencies.get(i)) {
+                dependentsByPhase.get(dependency).add(i);
+            }
+        }
+        this.dependents = new int[count][];
+        for (int i = 0; i < count; i++) {
+            final List<Integer> list = dependentsByPhase.get(i);
+            dependents[i] = new int[list.size()];
+            for (int j = 0; j < list.size(); j++) {
+                dependents[i][j] = list.get(j);
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Execute all phases of this pipeline and wait for them to finish. If a phase fails, no further phases are
+     * started and the exception is rethrown after all running phases have finished.
+     *
+     * @return the wall time in nanoseconds each phase took, in the order the phases were added
+     * @throws ExecutionException   if a phase threw an exception
+     * @throws InterruptedException if the current thread was interrupted while waiting for a phase
+     */
+    public Map<String, Long> run() throws InterruptedException, ExecutionException {
+        final int[] pending = dependencyCounts.clone();
+        final long[] nanos = new long[phases.length];
+        final CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+        final LinkedList<Integer> ready = Lists.newLinkedList();
+        for (int i = 0; i < phases.length; i++) {
+            if (pending[i] == 0) {
+                ready.add(i);
+            }
+        }
+
+        int running = 0;
+        boolean exclusiveRunning = false;
+        ExecutionException failure = null;
+        while (true) {
+            if (failure == null && !exclusiveRunning) {
+                final Iterator<Integer> iterator = ready.iterator();
+                while (iterator.hasNext()) {
+                    final int index = iterator.next();
+                    if (exclusive[index]) {
+                        if (running > 0) {
+                            break;
+                        }
+                        exclusiveRunning = true;
+                    }
+                    iterator.remove();
+                    completionService.submit(timed(index, nanos));
+                    running++;
+                    if (exclusiveRunning) {
+                        break;
+                    }
+                }
+            }
+            if (running == 0) {
+                break;
+            }
+
+            final int finished;
+            try {
+                finished = completionService.take().get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+                running--;
+                exclusiveRunning = false;
+                continue;
+            }
+            running--;
+            if (exclusive[finished]) {
+                exclusiveRunning = false;
+            }
+            for (int dependent : dependents[finished]) {
+                if (--pending[dependent] == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        final ImmutableMap.Builder<String, Long> timings = ImmutableMap.builder();
+        for (int i = 0; i < names.length; i++) {
+            timings.put(names[i], nanos[i]);
+        }
+        return timings.build();
+    }
+
+    private Callable<Integer> timed(final int index, final long[] nanos) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                final long start = System.nanoTime();
+                phases[index].run();
+                nanos[index] = System.nanoTime() - start;
+                return index;
+            }
+        };
+    }
+
+    /**
+     * Get the names of the phases in the order they were added.
+     *
+     * @return the names of the phases
+     */
+    public List<String> getPhaseNames() {
+        return Arrays.asList(names.clone());
+    }
+
+    @Override
+    public String toString() {
+        return "StepPipeline" + Arrays.toString(names);
+    }
+
+    /**
+     * A single phase of a {@link StepPipeline}.
+     */
+    public interface Phase {
+        /**
+         * Execute this phase.
+         *
+         * @throws Exception if the phase failed
+         */
+        void run() throws Exception;
+    }
+
+    public static final class Builder {
+        private final List<String> names = Lists.newArrayList();
+        private final List<Phase> phases = Lists.newArrayList();
+        private final List<Boolean> exclusive = Lists.newArrayList();
+        private final List<int[]> dependencies = Lists.newArrayList();
+        private final Map<String, Integer> indices = Maps.newHashMap();
+        private Executor executor = MoreExecutors.sameThreadExecutor();
+
+        private Builder() {
+        }
+
+        /**
+         * Add a phase which may overlap with other phases it does not depend on.
+         *
+         * @param name         the unique name of the phase
+         * @param phase        the phase to add
+         * @param dependencies the names of previously added phases which must finish before this phase can start
+         * @return this builder
+         */
+        public Builder phase(final String name, final Phase phase, final String... dependencies) {
+            return add(name, phase, false, dependencies);
+        }
+
+        /**
+         * Add a phase which never overlaps with other phases. Use this for phases which parallelize their work on
+         * their own, like the execution of the agents.
+         *
+         * @param name         the unique name of the phase
+         * @param phase        the phase to add
+         * @param dependencies the names of previously added phases which must finish before this phase can start
+         * @return this builder
+         */
+        public Builder exclusivePhase(final String name, final Phase phase, final String... dependencies) {
+            return add(name, phase, true, dependencies);
+        }
+
+        /**
+         * Set the executor used to run the phases. The default executor runs all phases in the calling thread, one
+         * after another, in the order they were added.
+         *
+         * @param executor the executor to use
+         * @return this builder
+         */
+        public Builder executor(final Executor executor) {
+            this.executor = checkNotNull(executor);
+            return this;
+        }
+
+        private Builder add(final String name, final Phase phase, final boolean exclusive,
+                            final String... dependencies) {
+            checkNotNull(name);
+            checkNotNull(phase);
+            checkArgument(!indices.containsKey(name), "Duplicate phase: %s", name);
+            final int[] dependencyIndices = new int[dependencies.length];
+            for (int i = 0; i < dependencies.length; i++) {
+                final Integer index = indices.get(dependencies[i]);
+                checkArgument(index != null, "Unknown phase: %s", dependencies[i]);
+                dependencyIndices[i] = index;
+            }
+            indices.put(name, names.size());
+            names.add(name);
+            phases.add(phase);
+            this.exclusive.add(exclusive);
+            this.dependencies.add(dependencyIndices);
+            return this;
+        }
+
+        public StepPipeline build() {
+            return new StepPipeline(this);
+        }
+    }
+}
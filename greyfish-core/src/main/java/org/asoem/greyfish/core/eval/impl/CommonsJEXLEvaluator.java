@@ -5,6 +5,7 @@ import com.google.common.collect.ImmutableMap;
 import org.apache.commons.jexl2.Expression;
 import org.apache.commons.jexl2.JexlContext;
 import org.apache.commons.jexl2.JexlEngine;
+import org.apache.commons.math3.distribution.PoissonDistribution;
 import org.apache.commons.math3.util.FastMath;
 import org.asoem.greyfish.core.eval.*;
 import org.asoem.greyfish.utils.math.RandomGenerators;
@@ -22,7 +23,7 @@ public final class CommonsJEXLEvaluator implements Evaluator, Serializable {
         JEXL_ENGINE.setFunctions(ImmutableMap.<String, Object>of(
                 //"fish", GreyfishVariableFactory.class,
                 "math", Math.class,
-                "rand", RandomGenerators.class));
+                "rand", RandomFunctions.class));
     }
 
     private static final ImmutableMap<String, Object> GLOBAL_VARIABLES = ImmutableMap.<String, Object>builder()
@@ -177,5 +178,29 @@ public final class CommonsJEXLEvaluator implements Evaluator, Serializable {
         private static final long serialVersionUID = 0;
     }
 
+    /**
+     * The functions of the {@code rand} namespace. They draw from {@link RandomGenerators#rng()}, which is the
+     * generator of the agent on whose behalf an expression is evaluated.
+     */
+    public static final class RandomFunctions {
+
+        private RandomFunctions() {
+            throw new AssertionError("Not instantiable");
+        }
+
+        public static double rnorm(final double mu, final double sigma) {
+            return RandomGenerators.nextNormal(RandomGenerators.rng(), mu, sigma);
+        }
+
+        public static double runif(final double lower, final double upper) {
+            return RandomGenerators.nextDouble(RandomGenerators.rng(), lower, upper);
+        }
+
+        public static int rpois(final double lambda) {
+            return new PoissonDistribution(RandomGenerators.rng(), lambda,
+                    PoissonDistribution.DEFAULT_EPSILON, PoissonDistribution.DEFAULT_MAX_ITERATIONS).sample();
+        }
+    }
+
     private static final long serialVersionUID = 0;
 }
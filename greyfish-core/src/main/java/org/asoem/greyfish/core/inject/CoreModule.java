@@ -34,6 +34,9 @@ public final class CoreModule extends AbstractModule {
     private final RandomGenerator randomGenerator;
     private final EventBus eventBus;
 
+    /**
+     * Create a module binding {@link RandomGenerators#rng()}, which draws from the generator of the executing agent.
+     */
     public CoreModule() {
         this(RandomGenerators.rng());
     }
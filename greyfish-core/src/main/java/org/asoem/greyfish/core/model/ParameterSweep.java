@@ -0,0 +1,352 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.model;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Module;
+import com.google.inject.matcher.Matchers;
+import com.google.inject.name.Names;
+import org.asoem.greyfish.core.environment.AgentExecutionStrategies;
+import org.asoem.greyfish.core.environment.AgentExecutionStrategy;
+import org.asoem.greyfish.core.environment.SimulationExecutor;
+import org.asoem.greyfish.core.io.SimulationLogger;
+import org.asoem.greyfish.core.io.SimulationLoggers;
+import org.asoem.greyfish.impl.environment.SynchronizedAgentsEnvironment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * An experiment which runs one simulation per point of a parameter sweep inside a single JVM. For each point, a
+ * {@link SimulationModel} is created by a new injector, which binds the parameters of the point like the {@code -D}
+ * option of the command line application does. At most {@link Builder#parallelism(int) parallelism} simulations run
+ * concurrently.
+ * <p>All threads of a sweep are taken from one {@link Builder#threads(int) budget}: each running simulation occupies
+ * one thread, and the remaining threads execute the agents of all simulations. The {@link AgentExecutionStrategy}
+ * doing so is bound in the injector of each point, and models must pass it to the environments they create. If the
+ * parallelism equals the budget, the bound strategy is {@link AgentExecutionStrategies#sequential() sequential}.</p>
+ * <p>All simulations write to the same {@link SimulationLogger}, which must be thread safe. Each simulation is named
+ * {@code <name>#<index of the point>} and the name is bound as {@code @Named("simulationName") String}, so that models
+ * can use it for the simulation they create. The parameters of each point are logged as properties of this type.</p>
+ * <p>Simulations are created one after the other on the thread running the sweep, so that the seeds they get from
+ * {@link org.asoem.greyfish.utils.math.RandomGenerators#nextSeed()} do not depend on the scheduling of the runs.</p>
+ *
+ * @param <S> the type of the simulations
+ */
+public final class ParameterSweep<S extends SynchronizedAgentsEnvironment<?>> extends AbstractExperiment {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParameterSweep.class);
+
+    private final Class<? extends SimulationModel<? extends S>> modelClass;
+    private final List<Module> modules;
+    private final List<Map<String, String>> points;
+    private final long steps;
+    private final int parallelism;
+    private final int threads;
+    private final String name;
+    private final SimulationLogger simulationLogger;
+    private final EventBus eventBus;
+
+    private ParameterSweep(final Builder<S> builder) {
+        this.modelClass = builder.modelClass;
+        this.modules = ImmutableList.copyOf(builder.modules);
+        this.points = ImmutableList.copyOf(builder.points);
+        this.steps = builder.steps;
+        this.parallelism = builder.parallelism;
+        this.threads = builder.threads;
+        this.name = builder.name;
+        this.simulationLogger = builder.simulationLogger;
+        this.eventBus = builder.eventBus;
+    }
+
+    public static <S extends SynchronizedAgentsEnvironment<?>> Builder<S> builder(
+            final Class<? extends SimulationModel<? extends S>> modelClass) {
+        return new Builder<>(modelClass);
+    }
+
+    /**
+     * Run the simulations of all points. Returns after all of them are done or rethrows the first failure. No further
+     * simulations are started after a failure.
+     */
+    @Override
+    public void run() {
+        final ExecutorService executorService = Executors.newFixedThreadPool(parallelism,
+                new ThreadFactoryBuilder().setNameFormat(name + "-%d").build());
+        final AgentExecutionStrategy agentExecution = threads > parallelism
+                ? SimulationExecutor.create(name + "-agents", threads - parallelism)
+                : AgentExecutionStrategies.sequential();
+        final Semaphore permits = new Semaphore(parallelism);
+        final List<Future<?>> runs = Lists.newArrayListWithCapacity(points.size());
+        try {
+            for (int i = 0; i < points.size(); i++) {
+                permits.acquire();
+                if (hasFailed(runs)) {
+                    break;
+                }
+                final S simulation;
+                try {
+                    simulation = createSimulation(i, agentExecution);
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+                runs.add(executorService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            runSimulation(simulation);
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running " + name, e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } finally {
+            executorService.shutdownNow();
+            if (agentExecution instanceof SimulationExecutor) {
+                ((SimulationExecutor) agentExecution).shutdown();
+            }
+        }
+    }
+
+    private static boolean hasFailed(final List<Future<?>> runs) throws InterruptedException {
+        for (Future<?> run : runs) {
+            if (run.isDone()) {
+                try {
+                    run.get();
+                } catch (ExecutionException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private S createSimulation(final int index, final AgentExecutionStrategy agentExecution) {
+        final Map<String, String> point = points.get(index);
+        final String simulationName = name + "#" + index;
+        final Module pointModule = new AbstractModule() {
+            @Override
+            protected void configure() {
+                bindListener(Matchers.any(), new ModelParameterTypeListener(point));
+                ModelParameters.bind(binder(), point);
+                bind(String.class).annotatedWith(Names.named("simulationName")).toInstance(simulationName);
+                bind(SimulationLogger.class).toInstance(simulationLogger);
+                bind(AgentExecutionStrategy.class).toInstance(agentExecution);
+            }
+        };
+        final SimulationModel<? extends S> model =
+                Guice.createInjector(Lists.asList(pointModule, modules.toArray(new Module[modules.size()])))
+                        .getInstance(modelClass);
+        final S simulation = model.createSimulation();
+
+        simulationLogger.logEnvironment(simulation);
+        for (Map.Entry<String, String> parameter : point.entrySet()) {
+            simulationLogger.logProperty(simulationName, parameter.getKey(), parameter.getValue());
+        }
+        logger.debug("Created simulation {} for point {}", simulationName, point);
+        eventBus.post(new SimulationCreatedEvent(this, simulation));
+        return simulation;
+    }
+
+    private void runSimulation(final S simulation) {
+        notifyStarted(simulation);
+        while (simulation.getTime() < steps) {
+            simulation.nextStep();
+        }
+        notifyDone(simulation);
+    }
+
+    /**
+     * Get the parameter points of this sweep in the order they are run.
+     *
+     * @return the parameter points
+     */
+    public List<Map<String, String>> getPoints() {
+        return points;
+    }
+
+    public static final class Builder<S extends SynchronizedAgentsEnvironment<?>>
+            implements org.asoem.greyfish.utils.base.Builder<ParameterSweep<S>> {
+
+        private final Class<? extends SimulationModel<? extends S>> modelClass;
+        private final List<Module> modules = Lists.newArrayList();
+        private final List<Map<String, String>> points = Lists.newArrayList();
+        private long steps = -1;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int parallelism = 0;
+        private String name = "sweep";
+        private SimulationLogger simulationLogger = SimulationLoggers.nullLogger();
+        private EventBus eventBus = new EventBus();
+
+        private Builder(final Class<? extends SimulationModel<? extends S>> modelClass) {
+            this.modelClass = checkNotNull(modelClass);
+        }
+
+        /**
+         * Add modules to the injectors creating the models, e.g. a {@link org.asoem.greyfish.core.inject.CoreModule}.
+         *
+         * @param modules the modules to install for each point
+         * @return this builder
+         */
+        public Builder<S> modules(final Module... modules) {
+            this.modules.addAll(ImmutableList.copyOf(modules));
+            return this;
+        }
+
+        /**
+         * Add a single point to the sweep.
+         *
+         * @param parameters the values of the model parameters, keyed by parameter name
+         * @return this builder
+         */
+        public Builder<S> point(final Map<String, String> parameters) {
+            this.points.add(ImmutableMap.copyOf(parameters));
+            return this;
+        }
+
+        /**
+         * Add all points of the grid spanned by the given values, in lexicographic order of the given parameters.
+         *
+         * @param values the values for each parameter, keyed by parameter name
+         * @return this builder
+         */
+        public Builder<S> grid(final Map<String, ? extends Iterable<String>> values) {
+            final List<String> keys = ImmutableList.copyOf(values.keySet());
+            final List<Set<String>> axes = Lists.newArrayListWithCapacity(keys.size());
+            for (String key : keys) {
+                final ImmutableSet<String> axis = ImmutableSet.copyOf(values.get(key));
+                checkArgument(!axis.isEmpty(), "No values for parameter %s", key);
+                axes.add(axis);
+            }
+            for (List<String> combination : Sets.cartesianProduct(axes)) {
+                final ImmutableMap.Builder<String, String> point = ImmutableMap.builder();
+                for (int i = 0; i < keys.size(); i++) {
+                    point.put(keys.get(i), combination.get(i));
+                }
+                this.points.add(point.build());
+            }
+            return this;
+        }
+
+        /**
+         * Set the number of steps each simulation is run.
+         *
+         * @param steps the number of steps
+         * @return this builder
+         */
+        public Builder<S> steps(final long steps) {
+            checkArgument(steps >= 0, "Steps must not be negative: %s", steps);
+            this.steps = steps;
+            return this;
+        }
+
+        /**
+         * Set the number of threads the whole sweep may use, including the threads running the simulations. Defaults
+         * to the number of available processors.
+         *
+         * @param threads the thread budget of the sweep
+         * @return this builder
+         */
+        public Builder<S> threads(final int threads) {
+            checkArgument(threads > 0, "Threads must be positive: %s", threads);
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of simulations which run concurrently. It must not exceed the {@link #threads(int)
+         * thread budget}, which is also the default.
+         *
+         * @param parallelism the maximum number of concurrent simulations
+         * @return this builder
+         */
+        public Builder<S> parallelism(final int parallelism) {
+            checkArgument(parallelism > 0, "Parallelism must be positive: %s", parallelism);
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public Builder<S> name(final String name) {
+            this.name = checkNotNull(name);
+            return this;
+        }
+
+        /**
+         * Set the logger shared by all simulations. It must be thread safe.
+         *
+         * @param simulationLogger the shared logger
+         * @return this builder
+         */
+        public Builder<S> logger(final SimulationLogger simulationLogger) {
+            this.simulationLogger = checkNotNull(simulationLogger);
+            return this;
+        }
+
+        /**
+         * Set the event bus to post a {@link SimulationCreatedEvent} to for each simulation.
+         *
+         * @param eventBus the event bus
+         * @return this builder
+         */
+        public Builder<S> eventBus(final EventBus eventBus) {
+            this.eventBus = checkNotNull(eventBus);
+            return this;
+        }
+
+        @Override
+        public ParameterSweep<S> build() {
+            checkState(!points.isEmpty(), "No points defined");
+            checkState(steps >= 0, "Number of steps not defined");
+            if (parallelism == 0) {
+                parallelism = threads;
+            }
+            checkState(parallelism <= threads, "Parallelism %s exceeds the thread budget %s", parallelism, threads);
+            return new ParameterSweep<>(this);
+        }
+    }
+}
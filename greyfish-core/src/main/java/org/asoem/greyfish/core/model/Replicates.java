@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.model;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import org.asoem.greyfish.core.environment.AgentExecutionStrategies;
+import org.asoem.greyfish.core.environment.AgentExecutionStrategy;
+import org.asoem.greyfish.core.environment.ModificationBuffer;
+import org.asoem.greyfish.core.environment.SimulationExecutor;
+import org.asoem.greyfish.core.utils.DiscreteTime;
+import org.asoem.greyfish.impl.environment.SynchronizedAgentsEnvironment;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A set of stochastic replicates of one {@link SimulationModel}, which are advanced in lockstep. All replicates are
+ * created by the same model instance, so immutable prototype data held by the model (agent types, action and property
+ * definitions, compiled expressions, ...) is shared between them instead of being set up once per replicate.
+ * <p>The replicates are created one after the other on the calling thread, so each gets the next seed of {@link
+ * org.asoem.greyfish.utils.math.RandomGenerators#nextSeed()} in a reproducible order. Each step, the replicates are
+ * executed as the tasks of a shared {@link AgentExecutionStrategy}. By default, this is the {@link
+ * SimulationExecutor#common() common executor}, so replicates executing their agents on it too stay within its thread
+ * bound: a worker blocked on the agents of its replicate does not add threads, and the agents are run by the blocked
+ * worker itself if no other thread is free. Replicates built with the {@link AgentExecutionStrategies#sequential()
+ * sequential} strategy keep all their agents on a single worker, which gives the best cache locality. Fork join
+ * strategies should not be used for the replicates unless the replicates run sequentially, because workers of a fork
+ * join pool must not block on the work of another pool.</p>
+ *
+ * @param <S> the type of the replicates
+ */
+@NotThreadSafe
+public final class Replicates<S extends SynchronizedAgentsEnvironment<?>> implements DiscreteTime {
+
+    private final List<S> replicates;
+    private final List<Runnable> steps;
+    private final AgentExecutionStrategy executionStrategy;
+    private long time;
+
+    private Replicates(final List<S> replicates, final AgentExecutionStrategy executionStrategy) {
+        this.replicates = replicates;
+        this.executionStrategy = executionStrategy;
+        final ImmutableList.Builder<Runnable> stepsBuilder = ImmutableList.builder();
+        for (final S replicate : replicates) {
+            final Runnable step = new Runnable() {
+                @Override
+                public void run() {
+                    replicate.nextStep();
+                }
+            };
+            // the strategy tags the steps like agents, which must not leak into the replicate's own requests
+            stepsBuilder.add(new Runnable() {
+                @Override
+                public void run() {
+                    ModificationBuffer.runUntagged(step);
+                }
+            });
+        }
+        this.steps = stepsBuilder.build();
+    }
+
+    /**
+     * Create {@code count} replicates of the given {@code model}, which are executed on the threads of the {@link
+     * SimulationExecutor#common() common executor}.
+     *
+     * @param model the model to create the replicates with
+     * @param count the number of replicates
+     * @return the new replicates
+     */
+    public static <S extends SynchronizedAgentsEnvironment<?>> Replicates<S> create(
+            final SimulationModel<? extends S> model, final int count) {
+        return create(model, count, SimulationExecutor.common().withBatchSize(1));
+    }
+
+    /**
+     * Create {@code count} replicates of the given {@code model}, which are executed by the given {@code
+     * executionStrategy}.
+     *
+     * @param model             the model to create the replicates with
+     * @param count             the number of replicates
+     * @param executionStrategy the strategy to execute the steps of the replicates with
+     * @return the new replicates
+     */
+    public static <S extends SynchronizedAgentsEnvironment<?>> Replicates<S> create(
+            final SimulationModel<? extends S> model, final int count,
+            final AgentExecutionStrategy executionStrategy) {
+        checkNotNull(model);
+        checkArgument(count > 0, "count must be positive: %s", count);
+        checkNotNull(executionStrategy);
+        final ImmutableList.Builder<S> replicates = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            replicates.add(model.createSimulation());
+        }
+        return new Replicates<>(replicates.build(), executionStrategy);
+    }
+
+    /**
+     * Advance all replicates by one step. Returns after all of them are done.
+     */
+    public void nextStep() {
+        try {
+            executionStrategy.execute(steps);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while executing step " + time, e);
+        }
+        ++time;
+    }
+
+    /**
+     * Advance all replicates by the given number of {@code steps}.
+     *
+     * @param steps the number of steps
+     */
+    public void run(final long steps) {
+        checkArgument(steps >= 0, "steps must not be negative: %s", steps);
+        for (long i = 0; i < steps; i++) {
+            nextStep();
+        }
+    }
+
+    /**
+     * Get the number of steps the replicates were advanced by this object.
+     *
+     * @return the number of lockstep steps
+     */
+    @Override
+    public long getTime() {
+        return time;
+    }
+
+    public List<S> getReplicates() {
+        return replicates;
+    }
+
+    public int size() {
+        return replicates.size();
+    }
+}
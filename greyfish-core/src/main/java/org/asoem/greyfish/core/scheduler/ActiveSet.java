@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.scheduler;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import org.asoem.greyfish.core.agent.Agent;
+import org.asoem.greyfish.core.agent.Context;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The set of awake agents of an environment. Only suspended agents are tracked, indexed by their {@link
+ * Context#getSlot() slot}, together with the time at which they want to be woken up. Agents without a context are
+ * always awake.
+ */
+@ThreadSafe
+public final class ActiveSet {
+
+    private static final long AWAKE = Long.MIN_VALUE;
+    private static final long UNTIL_WOKEN = Long.MAX_VALUE;
+
+    @GuardedBy("this")
+    private long[] wakeUpTimes = new long[0];
+    // written while holding the lock, read without it to make waking up agents cheap while none is suspended
+    private volatile int suspendedCount = 0;
+
+    private ActiveSet() {
+    }
+
+    public static ActiveSet create() {
+        return new ActiveSet();
+    }
+
+    /**
+     * Suspend the given {@code agent} until it is woken up.
+     *
+     * @param agent the agent to suspend
+     */
+    public void suspend(final Agent<?> agent) {
+        suspend(agent, UNTIL_WOKEN);
+    }
+
+    /**
+     * Suspend the given {@code agent} until it is woken up, at the latest by the {@link #wakeUpEvent(Agent, long)
+     * wake up event} for the given {@code time}.
+     *
+     * @param agent the agent to suspend
+     * @param time  the time at which the agent wants to be woken up
+     */
+    public synchronized void suspend(final Agent<?> agent, final long time) {
+        checkArgument(time != AWAKE);
+        final int slot = slotOf(agent);
+        checkArgument(slot >= 0, "Agent is not active: %s", agent);
+        if (slot >= wakeUpTimes.length) {
+            final int oldLength = wakeUpTimes.length;
+            wakeUpTimes = Arrays.copyOf(wakeUpTimes, Math.max(16, Math.max(slot + 1, oldLength * 2)));
+            Arrays.fill(wakeUpTimes, oldLength, wakeUpTimes.length, AWAKE);
+        }
+        if (wakeUpTimes[slot] == AWAKE) {
+            suspendedCount++;
+        }
+        wakeUpTimes[slot] = time;
+    }
+
+    /**
+     * Wake up the given {@code agent}.
+     *
+     * @param agent the agent to wake up
+     * @return {@code true} if the agent was suspended, {@code false} otherwise
+     */
+    public boolean wakeUp(final Agent<?> agent) {
+        return suspendedCount > 0 && wakeUp(slotOf(agent));
+    }
+
+    /**
+     * Mark the given {@code slot} as awake. Environments should call this method when they assign a slot to an agent,
+     * so that a new agent does not inherit the state of a removed one.
+     *
+     * @param slot the slot to wake up
+     * @return {@code true} if the slot was suspended, {@code false} otherwise
+     */
+    public synchronized boolean wakeUp(final int slot) {
+        if (slot < 0 || slot >= wakeUpTimes.length || wakeUpTimes[slot] == AWAKE) {
+            return false;
+        }
+        wakeUpTimes[slot] = AWAKE;
+        suspendedCount--;
+        return true;
+    }
+
+    public synchronized boolean isSuspended(final Agent<?> agent) {
+        if (suspendedCount == 0) {
+            return false;
+        }
+        final int slot = slotOf(agent);
+        return slot >= 0 && slot < wakeUpTimes.length && wakeUpTimes[slot] != AWAKE;
+    }
+
+    /**
+     * Get the time at which the given {@code agent} will be woken up.
+     *
+     * @param agent the agent
+     * @return the wake up time, {@code Long.MAX_VALUE} if the agent sleeps until it is woken up explicitly or {@code
+     * Long.MIN_VALUE} if it is awake
+     */
+    public synchronized long getWakeUpTime(final Agent<?> agent) {
+        if (suspendedCount == 0) {
+            return AWAKE;
+        }
+        final int slot = slotOf(agent);
+        return slot >= 0 && slot < wakeUpTimes.length ? wakeUpTimes[slot] : AWAKE;
+    }
+
+    public synchronized int countSuspended() {
+        return suspendedCount;
+    }
+
+    /**
+     * Create an event which wakes up the given {@code agent} at the given {@code time}, unless it was woken up and
+     * suspended again in the meantime.
+     *
+     * @param agent the agent to wake up
+     * @param time  the time of the event
+     * @param <A>   the type of the agent
+     * @return a new event
+     */
+    public <A extends Agent<?>> Event wakeUpEvent(final A agent, final long time) {
+        return new AgentEvent<A>(time, agent) {
+            @Override
+            protected void fire(final A target) {
+                wakeUpIfDue(slotOf(target), time);
+            }
+        };
+    }
+
+    private synchronized void wakeUpIfDue(final int slot, final long time) {
+        if (slot >= 0 && slot < wakeUpTimes.length && wakeUpTimes[slot] == time) {
+            wakeUp(slot);
+        }
+    }
+
+    /**
+     * Filter the given {@code agents} for those which are awake.
+     *
+     * @param agents the agents to filter
+     * @param <A>    the type of the agents
+     * @return the given list if no agent is suspended, a new list of the awake agents otherwise
+     */
+    public synchronized <A extends Agent<?>> List<A> filterAwake(final List<A> agents) {
+        checkNotNull(agents);
+        if (suspendedCount == 0) {
+            return agents;
+        }
+        final List<A> awake = Lists.newArrayListWithCapacity(Math.max(0, agents.size() - suspendedCount));
+        for (A agent : agents) {
+            final int slot = slotOf(agent);
+            if (slot < 0 || slot >= wakeUpTimes.length || wakeUpTimes[slot] == AWAKE) {
+                awake.add(agent);
+            }
+        }
+        return awake;
+    }
+
+    private static int slotOf(final Agent<?> agent) {
+        final Optional<? extends Context<?, ?>> context = agent.getContext();
+        return context.isPresent() ? context.get().getSlot() : -1;
+    }
+}
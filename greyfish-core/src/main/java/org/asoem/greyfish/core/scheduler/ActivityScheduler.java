@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.scheduler;
+
+import org.asoem.greyfish.core.agent.Agent;
+
+/**
+ * A scheduler which executes only agents which are awake. Agents can suspend themselves, declaring the conditions under
+ * which they want to be woken up again: the arrival of a message, a given time or an explicit {@link
+ * #wakeUp(Agent) wake up}. {@link org.asoem.greyfish.core.agent.AbstractAgent Agents} also wake up if one of their
+ * properties gets a {@link org.asoem.greyfish.core.agent.ComponentMessage request} other than a {@link
+ * org.asoem.greyfish.core.agent.PropertyValueRequest value request}, as it might change the value of the property.
+ * Agents which never suspend are executed in every step.
+ *
+ * @param <A> the type of the agents
+ */
+public interface ActivityScheduler<A extends Agent<?>> {
+
+    /**
+     * Suspend the given {@code agent} until it receives a message, one of its properties changes or it gets woken up
+     * explicitly.
+     *
+     * @param agent the agent to suspend
+     */
+    void suspend(A agent);
+
+    /**
+     * Suspend the given {@code agent} until the given {@code time}, until it receives a message, until one of its
+     * properties changes or until it gets woken up explicitly, whatever happens first.
+     *
+     * @param agent the agent to suspend
+     * @param time  the time at which to wake up the agent
+     */
+    void suspendUntil(A agent, long time);
+
+    /**
+     * Wake up the given {@code agent}, so that it will be executed in the next step. Has no effect if the agent is
+     * awake.
+     *
+     * @param agent the agent to wake up
+     */
+    void wakeUp(A agent);
+
+    /**
+     * Check if the given {@code agent} is suspended.
+     *
+     * @param agent the agent to check
+     * @return {@code true} if the agent is suspended, {@code false} otherwise
+     */
+    boolean isSuspended(A agent);
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.scheduler;
+
+import org.asoem.greyfish.core.agent.Agent;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An {@link Event} which targets a single agent. The event is discarded if the agent is no longer active at the time
+ * the event is due.
+ *
+ * @param <A> the type of the agent
+ */
+public abstract class AgentEvent<A extends Agent<?>> implements Event {
+
+    private final long time;
+    private final A target;
+
+    protected AgentEvent(final long time, final A target) {
+        this.time = time;
+        this.target = checkNotNull(target);
+    }
+
+    @Override
+    public final long getTime() {
+        return time;
+    }
+
+    /**
+     * Get the agent targeted by this event.
+     *
+     * @return the target agent
+     */
+    public final A getTarget() {
+        return target;
+    }
+
+    @Override
+    public final void fire() {
+        if (target.isActive()) {
+            fire(target);
+        }
+    }
+
+    /**
+     * Execute this event for the given {@code target}.
+     *
+     * @param target the active target of this event
+     */
+    protected abstract void fire(A target);
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{time=" + time + ", target=" + target + '}';
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.scheduler;
+
+import org.asoem.greyfish.core.utils.DiscreteTime;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A discrete event scheduler which jumps from one event time to the next, skipping all times without events.
+ */
+@ThreadSafe
+public final class CalendarScheduler implements DiscreteEventScheduler, DiscreteTime {
+
+    private final EventCalendar calendar = EventCalendar.create();
+    private final AtomicLong time;
+
+    private CalendarScheduler(final long startTime) {
+        this.time = new AtomicLong(startTime);
+    }
+
+    public static CalendarScheduler create() {
+        return create(0);
+    }
+
+    public static CalendarScheduler create(final long startTime) {
+        return new CalendarScheduler(startTime);
+    }
+
+    @Override
+    public void schedule(final Event e) {
+        checkNotNull(e);
+        checkArgument(e.getTime() >= time.get(), "Event is in the past: %s", e);
+        calendar.add(e);
+    }
+
+    /**
+     * Advance the time to the time of the next event and fire all events due at this time. Does nothing if no events
+     * are scheduled.
+     */
+    @Override
+    public synchronized void nextStep() {
+        final long nextTime = calendar.nextTime();
+        if (nextTime != Long.MAX_VALUE) {
+            time.set(Math.max(time.get(), nextTime));
+            calendar.fireDue(nextTime);
+        }
+    }
+
+    /**
+     * Fire all events up to and including the given {@code time}.
+     *
+     * @param endTime the time to advance to
+     */
+    public synchronized void advanceTo(final long endTime) {
+        checkArgument(endTime >= time.get(), "Time is in the past: %s", endTime);
+        while (calendar.nextTime() <= endTime) {
+            nextStep();
+        }
+        time.set(endTime);
+    }
+
+    /**
+     * Get the number of pending events.
+     *
+     * @return the number of pending events
+     */
+    public int countPendingEvents() {
+        return calendar.size();
+    }
+
+    @Override
+    public long getTime() {
+        return time.get();
+    }
+}
@@ -17,6 +17,13 @@
 
 package org.asoem.greyfish.core.scheduler;
 
+/**
+ * A {@link Scheduler} which proceeds in discrete steps.
+ */
 public interface DiscreteEventScheduler extends Scheduler {
+
+    /**
+     * Advance this scheduler by one step and fire all events which are due.
+     */
     void nextStep();
 }
@@ -17,5 +17,20 @@
 
 package org.asoem.greyfish.core.scheduler;
 
+/**
+ * An event which is due at a given discrete time.
+ */
 public interface Event {
+
+    /**
+     * Get the time at which this event is due.
+     *
+     * @return the time of this event
+     */
+    long getTime();
+
+    /**
+     * Execute this event.
+     */
+    void fire();
 }
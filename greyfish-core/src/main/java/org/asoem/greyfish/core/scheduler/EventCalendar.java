@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.scheduler;
+
+import com.google.common.collect.Lists;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A time ordered queue of {@link Event events}, implemented as a binary min-heap. The time of an event is read once
+ * when it is added. Events with equal times are returned in the order they were added.
+ */
+@ThreadSafe
+public final class EventCalendar {
+
+    @GuardedBy("this")
+    private Event[] events = new Event[16];
+    @GuardedBy("this")
+    private long[] times = new long[16];
+    @GuardedBy("this")
+    private long[] sequences = new long[16];
+    @GuardedBy("this")
+    private int size = 0;
+    @GuardedBy("this")
+    private long nextSequence = 0;
+
+    private EventCalendar() {
+    }
+
+    public static EventCalendar create() {
+        return new EventCalendar();
+    }
+
+    /**
+     * Add the given {@code event} to this calendar.
+     *
+     * @param event the event to add
+     */
+    public synchronized void add(final Event event) {
+        checkNotNull(event);
+        if (size == events.length) {
+            events = Arrays.copyOf(events, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+            sequences = Arrays.copyOf(sequences, size * 2);
+        }
+        siftUp(size++, event, event.getTime(), nextSequence++);
+    }
+
+    /**
+     * Get the time of the earliest event in this calendar.
+     *
+     * @return the time of the earliest event or {@link Long#MAX_VALUE} if the calendar is empty
+     */
+    public synchronized long nextTime() {
+        return size == 0 ? Long.MAX_VALUE : times[0];
+    }
+
+    /**
+     * Remove all events which are due at or before the given {@code time}.
+     *
+     * @param time the current time
+     * @return the removed events in the order they are due
+     */
+    public synchronized List<Event> pollDue(final long time) {
+        final List<Event> due = Lists.newArrayList();
+        while (size > 0 && times[0] <= time) {
+            due.add(events[0]);
+            final int last = --size;
+            final Event event = events[last];
+            events[last] = null;
+            if (last > 0) {
+                siftDown(0, event, times[last], sequences[last]);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Fire all events which are due at or before the given {@code time}, including those which are scheduled for
+     * this time by the fired events themselves.
+     *
+     * @param time the current time
+     * @return the number of fired events
+     */
+    public int fireDue(final long time) {
+        int fired = 0;
+        List<Event> due = pollDue(time);
+        while (!due.isEmpty()) {
+            for (Event event : due) {
+                event.fire();
+            }
+            fired += due.size();
+            due = pollDue(time);
+        }
+        return fired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static boolean precedes(final long time, final long sequence,
+                                    final long otherTime, final long otherSequence) {
+        return time < otherTime || time == otherTime && sequence < otherSequence;
+    }
+
+    private void siftUp(final int from, final Event event, final long time, final long sequence) {
+        int index = from;
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (!precedes(time, sequence, times[parent], sequences[parent])) {
+                break;
+            }
+            set(index, events[parent], times[parent], sequences[parent]);
+            index = parent;
+        }
+        set(index, event, time, sequence);
+    }
+
+    private void siftDown(final int from, final Event event, final long time, final long sequence) {
+        int index = from;
+        final int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            final int right = child + 1;
+            if (right < size && precedes(times[right], sequences[right], times[child], sequences[child])) {
+                child = right;
+            }
+            if (!precedes(times[child], sequences[child], time, sequence)) {
+                break;
+            }
+            set(index, events[child], times[child], sequences[child]);
+            index = child;
+        }
+        set(index, event, time, sequence);
+    }
+
+    private void set(final int index, final Event event, final long time, final long sequence) {
+        events[index] = event;
+        times[index] = time;
+        sequences[index] = sequence;
+    }
+}
@@ -17,6 +17,16 @@
 
 package org.asoem.greyfish.core.scheduler;
 
+/**
+ * A scheduler for {@link Event events}.
+ */
 public interface Scheduler {
+
+    /**
+     * Schedule the given event to be fired at its {@link Event#getTime() time}.
+     *
+     * @param e the event to schedule
+     * @throws IllegalArgumentException if the time of the event has already passed
+     */
     void schedule(Event e);
 }
@@ -21,8 +21,10 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.ForwardingObject;
 import org.asoem.greyfish.utils.space.Motion2D;
 import org.asoem.greyfish.utils.space.Object2D;
+import org.asoem.greyfish.utils.space.RangeVisitor;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 
@@ -55,11 +57,37 @@ public abstract class ForwardingSpace2D<O, P extends Object2D> extends Forwardin
         delegate().moveObject(object2d, motion2D);
     }
 
+    @Override
+    public void moveObjects(final Map<? extends O, ? extends Motion2D> motions) {
+        delegate().moveObjects(motions);
+    }
+
+    @Override
+    public int slotOf(final O object) {
+        return delegate().slotOf(object);
+    }
+
+    @Override
+    public P getProjectionAt(final int slot) {
+        return delegate().getProjectionAt(slot);
+    }
+
+    @Override
+    public void moveObjectsAt(final int[] slots, final Motion2D[] motions, final int count) {
+        delegate().moveObjectsAt(slots, motions, count);
+    }
+
     @Override
     public Iterable<O> findObjects(final double x, final double y, final double radius) {
         return delegate().findObjects(x, y, radius);
     }
 
+    @Override
+    public void forEachInRange(final double x, final double y, final double radius,
+                               final RangeVisitor<? super O> visitor) {
+        delegate().forEachInRange(x, y, radius, visitor);
+    }
+
     @Override
     public boolean insertObject(final O object, final P projection) {
         return delegate().insertObject(object, projection);
@@ -80,6 +108,21 @@ public abstract class ForwardingSpace2D<O, P extends Object2D> extends Forwardin
         return delegate().getVisibleNeighbours(object, radius);
     }
 
+    @Override
+    public List<O> findNearestObjects(final double x, final double y, final int k) {
+        return delegate().findNearestObjects(x, y, k);
+    }
+
+    @Override
+    public List<O> getNearestVisibleNeighbours(final O object, final int k) {
+        return delegate().getNearestVisibleNeighbours(object, k);
+    }
+
+    @Override
+    public Map<O, List<O>> getAllVisibleNeighbours(final double radius) {
+        return delegate().getAllVisibleNeighbours(radius);
+    }
+
     @Override
     public double width() {
         return delegate().width();
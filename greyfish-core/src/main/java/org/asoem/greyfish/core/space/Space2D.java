@@ -20,6 +20,11 @@ package org.asoem.greyfish.core.space;
 import org.asoem.greyfish.utils.space.Motion2D;
 import org.asoem.greyfish.utils.space.MovingProjectable2D;
 import org.asoem.greyfish.utils.space.Object2D;
+import org.asoem.greyfish.utils.space.RangeVisitor;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
 
 
 public interface Space2D<T, P extends Object2D> extends Space<T, P> {
@@ -42,6 +47,47 @@ public interface Space2D<T, P extends Object2D> extends Space<T, P> {
      */
     void moveObject(T object2d, Motion2D motion2D);
 
+    /**
+     * Move all given objects using their motion. The result is the same as calling {@link #moveObject(Object,
+     * Motion2D)} for each entry, but implementations can update their spatial index once for the whole batch.
+     *
+     * @param motions the motions of the objects to move
+     */
+    void moveObjects(Map<? extends T, ? extends Motion2D> motions);
+
+    /**
+     * Get the slot of the {@code object}. An object keeps its slot as long as it stays in this space, so callers which
+     * access the same objects repeatedly can look the slot up once and use the slot based methods afterwards, which
+     * do not have to look up the object.
+     *
+     * @param object the object to look up
+     * @return the slot of the object or {@code -1} if it is not in this space
+     * @see #getProjectionAt(int)
+     * @see #moveObjectsAt(int[], Motion2D[], int)
+     */
+    int slotOf(T object);
+
+    /**
+     * Get the projection of the object at given {@code slot}.
+     *
+     * @param slot the slot of the object
+     * @return the projection of the object or {@code null} if the slot is free
+     * @see #slotOf(Object)
+     */
+    @Nullable
+    P getProjectionAt(int slot);
+
+    /**
+     * Move the objects at the first {@code count} {@code slots} using the motions at the same index of {@code
+     * motions}. The result is the same as calling {@link #moveObjects(Map)} with the objects at these slots.
+     *
+     * @param slots   the slots of the objects to move
+     * @param motions the motions of the objects
+     * @param count   the number of objects to move
+     * @see #slotOf(Object)
+     */
+    void moveObjectsAt(int[] slots, Motion2D[] motions, int count);
+
     /**
      * Find all objects in this space with are contained in the circle defined by the center point at {@code x}, {@code
      * y} and the {@code radius}
@@ -52,6 +98,18 @@ public interface Space2D<T, P extends Object2D> extends Space<T, P> {
      */
     Iterable<T> findObjects(double x, double y, double radius);
 
+    /**
+     * Call the {@code visitor} for all objects in this space which are contained in the circle defined by the center
+     * point at {@code x}, {@code y} and the {@code radius}. Unlike {@link #findObjects(double, double, double)}, this
+     * method does not create a result collection, so a reused visitor makes the query free of allocations.
+     *
+     * @param x       the x coordinate of the center point
+     * @param y       the y coordinate of the center point
+     * @param radius  the radius of the circle
+     * @param visitor the visitor to call for each object found
+     */
+    void forEachInRange(double x, double y, double radius, RangeVisitor<? super T> visitor);
+
     /**
      * Find all neighbours which are located inside the circle around {@code object} with given {@code radius} and are
      * visible by the given object. Visibility is implementation dependent.
@@ -63,6 +121,36 @@ public interface Space2D<T, P extends Object2D> extends Space<T, P> {
      */
     Iterable<T> getVisibleNeighbours(T object, double radius);
 
+    /**
+     * Find the {@code k} objects in this space which are located closest to the point at {@code x}, {@code y}.
+     *
+     * @param x the x coordinate of the query point
+     * @param y the y coordinate of the query point
+     * @param k the maximum number of objects to return
+     * @return at most {@code k} objects ordered by increasing distance
+     */
+    List<T> findNearestObjects(double x, double y, int k);
+
+    /**
+     * Find the {@code k} neighbours which are located closest to {@code object} and are visible by it. Visibility is
+     * implementation dependent.
+     *
+     * @param object the object which acts as the center point for the search
+     * @param k      the maximum number of neighbours to return
+     * @return at most {@code k} visible neighbours ordered by increasing distance
+     */
+    List<T> getNearestVisibleNeighbours(T object, int k);
+
+    /**
+     * Get the visible neighbours of all objects in this space in one pass. This is equivalent to calling {@link
+     * #getVisibleNeighbours(Object, double)} for each object, but implementations can share the work between the
+     * queries and run them in parallel.
+     *
+     * @param radius the maximum distance of a neighbour
+     * @return a map containing the visible neighbours for each object in this space
+     */
+    Map<T, List<T>> getAllVisibleNeighbours(double radius);
+
     double width();
 
     double height();
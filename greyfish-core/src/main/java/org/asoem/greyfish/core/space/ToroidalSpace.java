@@ -0,0 +1,562 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.space;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Doubles;
+import org.apache.commons.math3.util.FastMath;
+import org.apache.commons.math3.util.MathUtils;
+import org.asoem.greyfish.utils.space.*;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.*;
+
+/**
+ * A space without borders. Its opposite edges are connected, so objects leaving the space on one side reenter it on
+ * the other side, and the distance between two objects is measured to the nearest periodic image of the other object.
+ * This avoids the edge effects of bounded spaces, without the need to simulate an oversized arena.
+ * <p>Objects are indexed by a planar {@link SpatialIndex2D}. Range queries which cross an edge of the space are
+ * answered by querying the images of the search circle on the other side of the edge. The space has no walls, the
+ * wall flags of its tiles are ignored.</p>
+ *
+ * @param <O> the type of the objects in this space
+ */
+public final class ToroidalSpace<O> implements TiledSpace<O, Point2D, WalledTile> {
+
+    private final int width;
+    private final int height;
+    private final WalledTile[][] tileMatrix;
+    private final SpatialIndex2D<O> index;
+    private final PositionStore<O> positions = PositionStore.create();
+
+    private ToroidalSpace(final int width, final int height, final SpatialIndex2DFactory<O> indexFactory) {
+        checkArgument(width > 0 && height > 0, "Dimensions must be positive: %s x %s", width, height);
+        checkNotNull(indexFactory);
+
+        this.width = width;
+        this.height = height;
+        this.index = checkNotNull(indexFactory.create(width, height), "The index factory must not return null");
+        this.tileMatrix = new WalledTile[width][height];
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                this.tileMatrix[i][j] = new WalledTile(i, j);
+            }
+        }
+    }
+
+    /**
+     * Create a new toroidal space of given size which indexes its objects using an {@link
+     * IncrementalTwoDimTreeIndex}.
+     *
+     * @param width  the number of columns
+     * @param height the number of rows
+     * @param <O>    the type of the objects
+     * @return a new space
+     */
+    public static <O> ToroidalSpace<O> ofSize(final int width, final int height) {
+        return ofSize(width, height, SpatialIndexes.<O>incrementalTreeIndex());
+    }
+
+    /**
+     * Create a new toroidal space of given size which indexes its objects using an index created by the given
+     * factory.
+     *
+     * @param width        the number of columns
+     * @param height       the number of rows
+     * @param indexFactory the factory for the index used to answer range queries
+     * @param <O>          the type of the objects
+     * @return a new space
+     */
+    public static <O> ToroidalSpace<O> ofSize(final int width, final int height,
+                                              final SpatialIndex2DFactory<O> indexFactory) {
+        return new ToroidalSpace<O>(width, height, indexFactory);
+    }
+
+    /**
+     * Map the given coordinate to its periodic image in {@code [0, period)}.
+     */
+    private static double wrap(final double value, final double period) {
+        final double wrapped = value - period * Math.floor(value / period);
+        return wrapped < period ? wrapped : 0;
+    }
+
+    /**
+     * The difference {@code b - a} of the nearest periodic images of two coordinates.
+     */
+    private static double delta(final double a, final double b, final double period) {
+        final double d = b - a;
+        return d - period * Math.rint(d / period);
+    }
+
+    /**
+     * Get the distance between the given points, measured to the nearest periodic image of {@code x1, y1}.
+     *
+     * @return the minimum image distance between the two points
+     */
+    public double distance(final double x, final double y, final double x1, final double y1) {
+        final double dx = delta(x, x1, width);
+        final double dy = delta(y, y1, height);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    @Override
+    public boolean contains(final double x, final double y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    @Override
+    public void moveObject(final O object2d, final Motion2D motion2D) {
+        moveObjects(Collections.singletonMap(object2d, motion2D));
+    }
+
+    /**
+     * {@inheritDoc} <p>Objects move along a straight line and wrap around the edges of the space. There are no walls,
+     * so no collisions have to be traced. The new locations are written to the {@link PositionStore} in place.</p>
+     */
+    @Override
+    public void moveObjects(final Map<? extends O, ? extends Motion2D> motions) {
+        checkNotNull(motions);
+
+        synchronized (this) {
+            final int[] moved = new int[motions.size()];
+            int movedCount = 0;
+            for (Map.Entry<? extends O, ? extends Motion2D> entry : motions.entrySet()) {
+                final O object = checkNotNull(entry.getKey());
+                final Motion2D motion = checkNotNull(entry.getValue());
+                final int slot = positions.slotOf(object);
+                checkArgument(slot >= 0, "Object is not in this space: %s", object);
+                if (move(slot, motion)) {
+                    moved[movedCount++] = slot;
+                }
+            }
+
+            if (movedCount > 0) {
+                index.moveAll(positions, moved, movedCount);
+            }
+        }
+    }
+
+    @Override
+    public void moveObjectsAt(final int[] slots, final Motion2D[] motions, final int count) {
+        checkNotNull(slots);
+        checkNotNull(motions);
+        checkArgument(count >= 0 && count <= slots.length && count <= motions.length, "Invalid count: %s", count);
+
+        synchronized (this) {
+            final int[] moved = new int[count];
+            int movedCount = 0;
+            for (int i = 0; i < count; i++) {
+                final int slot = slots[i];
+                checkArgument(slot >= 0 && slot < positions.slotCount() && positions.objectAt(slot) != null,
+                        "Slot is free: %s", slot);
+                if (move(slot, checkNotNull(motions[i]))) {
+                    moved[movedCount++] = slot;
+                }
+            }
+
+            if (movedCount > 0) {
+                index.moveAll(positions, moved, movedCount);
+            }
+        }
+    }
+
+    /**
+     * Write the destination of the {@code motion} of the object at {@code slot} to the {@link PositionStore}.
+     *
+     * @return {@code true} if the object moved, {@code false} if its location did not change
+     */
+    private boolean move(final int slot, final Motion2D motion) {
+        final double translation = motion.getTranslation();
+        final double rotation = motion.getRotation();
+        if (translation == 0 && rotation == 0) {
+            return false;
+        }
+        if (translation < 0) {
+            throw new IllegalStateException("Translations < 0 are not supported: " + translation);
+        }
+
+        final double orientation = (rotation == 0)
+                ? 0
+                : ((rotation) % MathUtils.TWO_PI + MathUtils.TWO_PI) % MathUtils.TWO_PI;
+        if (translation == 0) {
+            // rotation in place, the location and the index are unchanged
+            positions.setOrientation(slot, orientation);
+            return false;
+        }
+        positions.setLocation(slot,
+                wrap(positions.x(slot) + translation * FastMath.cos(orientation), width),
+                wrap(positions.y(slot) + translation * FastMath.sin(orientation), height));
+        positions.setOrientation(slot, orientation);
+        return true;
+    }
+
+    @Override
+    public Iterable<O> findObjects(final double x, final double y, final double radius) {
+        final List<O> objects = Lists.newArrayList();
+        forEachInRange(x, y, radius, new RangeVisitor<O>() {
+            @Override
+            public void visit(final O object, final double distance) {
+                objects.add(object);
+            }
+        });
+        return objects;
+    }
+
+    /**
+     * {@inheritDoc} <p>The circle is wrapped around the edges of this space and distances are measured to the nearest
+     * periodic image. If the circle covers more than half of the width or height of the space, all objects are
+     * scanned.</p>
+     */
+    @Override
+    public void forEachInRange(final double x, final double y, final double radius,
+                               final RangeVisitor<? super O> visitor) {
+        checkNotNull(visitor);
+        if (radius < 0) {
+            return;
+        }
+
+        final double cx = wrap(x, width);
+        final double cy = wrap(y, height);
+
+        if (2 * radius >= Math.min(width, height)) {
+            for (int slot = 0; slot < positions.slotCount(); slot++) {
+                final O object = positions.objectAt(slot);
+                if (object != null) {
+                    final double distance = distance(cx, cy, positions.x(slot), positions.y(slot));
+                    if (distance <= radius) {
+                        visitor.visit(object, distance);
+                    }
+                }
+            }
+            return;
+        }
+
+        // The images of the circle cover disjoint parts of the space, so each object is visited at most once
+        for (double dx : shifts(cx, radius, width)) {
+            for (double dy : shifts(cy, radius, height)) {
+                index.forEachInRange(cx + dx, cy + dy, radius, visitor);
+            }
+        }
+    }
+
+    /**
+     * Get the offsets of the images of an interval around {@code center} with given {@code radius} which intersect
+     * with {@code [0, period)}.
+     */
+    private static double[] shifts(final double center, final double radius, final double period) {
+        if (center - radius < 0) {
+            return new double[]{0, period};
+        } else if (center + radius >= period) {
+            return new double[]{0, -period};
+        } else {
+            return new double[]{0};
+        }
+    }
+
+    @Override
+    public Iterable<O> getVisibleNeighbours(final O object, final double radius) {
+        final Point2D projection = getProjection(object);
+        checkArgument(projection != null, "Projectable has no projection");
+        assert projection != null;
+
+        final List<O> neighbours = Lists.newArrayList();
+        forEachInRange(projection.getX(), projection.getY(), radius, new RangeVisitor<O>() {
+            @Override
+            public void visit(final O t, final double distance) {
+                if (!t.equals(object)) {
+                    neighbours.add(t);
+                }
+            }
+        });
+        return neighbours;
+    }
+
+    /**
+     * {@inheritDoc} <p>The planar index is asked for the nearest objects of the query point. If the circle through the
+     * farthest of them crosses an edge of the space, the images of the query point on the other side of the edge are
+     * asked as well and the results are merged by their minimum image distance.</p>
+     */
+    @Override
+    public List<O> findNearestObjects(final double x, final double y, final int k) {
+        checkArgument(k >= 0, "k must not be negative: %s", k);
+        if (k == 0 || positions.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final double cx = wrap(x, width);
+        final double cy = wrap(y, height);
+
+        // the planar distance of the k-th planar candidate bounds the minimum image distance of the k-th neighbour
+        final List<O> candidates = index.findNearest(cx, cy, k);
+        final int farthest = positions.slotOf(candidates.get(candidates.size() - 1));
+        final double bound = candidates.size() < k
+                ? Double.POSITIVE_INFINITY
+                : Geometry2D.distance(cx, cy, positions.x(farthest), positions.y(farthest));
+
+        final Set<O> merged = new LinkedHashSet<>(candidates);
+        if (2 * bound >= Math.min(width, height)) {
+            merged.addAll(positions.objects());
+        } else {
+            for (double dx : shifts(cx, bound, width)) {
+                for (double dy : shifts(cy, bound, height)) {
+                    if (dx != 0 || dy != 0) {
+                        merged.addAll(index.findNearest(cx + dx, cy + dy, k));
+                    }
+                }
+            }
+        }
+
+        final List<O> nearest = Lists.newArrayList(merged);
+        Collections.sort(nearest, new Comparator<O>() {
+            @Override
+            public int compare(final O o1, final O o2) {
+                return Doubles.compare(distance(cx, cy, positions.slotOf(o1)), distance(cx, cy, positions.slotOf(o2)));
+            }
+        });
+        return nearest.subList(0, Math.min(k, nearest.size()));
+    }
+
+    private double distance(final double x, final double y, final int slot) {
+        return distance(x, y, positions.x(slot), positions.y(slot));
+    }
+
+    @Override
+    public List<O> getNearestVisibleNeighbours(final O object, final int k) {
+        checkArgument(k >= 0, "k must not be negative: %s", k);
+        final Point2D projection = getProjection(object);
+        checkArgument(projection != null, "Projectable has no projection");
+        assert projection != null;
+
+        final List<O> nearest = Lists.newArrayList(findNearestObjects(projection.getX(), projection.getY(), k + 1));
+        nearest.remove(object);
+        return nearest.subList(0, Math.min(k, nearest.size()));
+    }
+
+    /**
+     * {@inheritDoc} <p>The neighbours are computed by a parallel {@link NeighbourSweep} with periodic
+     * boundaries.</p>
+     */
+    @Override
+    public Map<O, List<O>> getAllVisibleNeighbours(final double radius) {
+        synchronized (this) {
+            return NeighbourSweep.allNeighboursOnTorus(positions, radius, width, height);
+        }
+    }
+
+    @Override
+    public double width() {
+        return width;
+    }
+
+    @Override
+    public double height() {
+        return height;
+    }
+
+    /**
+     * {@inheritDoc} <p>There are no obstacles in a toroidal space, so the distance is always infinite.</p>
+     */
+    @Override
+    public double distance(final O agent, final double degrees) {
+        checkNotNull(agent);
+        checkArgument(degrees >= 0 && degrees < MathUtils.TWO_PI, "Degrees must be in [0, TWO_PI), was %s", degrees);
+        checkArgument(positions.contains(agent), "Has no projection: %s", agent);
+        return Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public int countObjects() {
+        return positions.size();
+    }
+
+    @Override
+    public Collection<O> getObjects() {
+        return positions.objects();
+    }
+
+    @Override
+    public Iterable<O> getObjects(final Iterable<? extends Tile> tiles) {
+        return Iterables.concat(Iterables.transform(tiles, new Function<Tile, Iterable<O>>() {
+            @Override
+            public Iterable<O> apply(final Tile tile) {
+                final Tile checkedTile = checkNotNull(tile);
+                return Iterables.filter(
+                        findObjects(checkedTile.getX() + 0.5, checkedTile.getY() + 0.5, 0.70710678118),
+                        new Predicate<O>() {
+                            @Override
+                            public boolean apply(final O t) {
+                                final int slot = positions.slotOf(t);
+                                return Geometry2D.rectangleContains(checkedTile.getX(), checkedTile.getY(), 1, 1,
+                                        positions.x(slot), positions.y(slot));
+                            }
+                        });
+            }
+        }));
+    }
+
+    /**
+     * {@inheritDoc} <p>The projection must be located inside the bounds of this space.</p>
+     */
+    @Override
+    public boolean insertObject(final O object, final Point2D projection) {
+        checkNotNull(object, "projectable is null");
+        checkNotNull(projection, "projection is null");
+        checkArgument(contains(projection.getX(), projection.getY()),
+                "Projection is not contained by this space: %s", projection);
+
+        synchronized (this) {
+            checkState(!positions.contains(object), "no duplicate objects allowed: " + object);
+            positions.add(object, projection.getX(), projection.getY());
+            index.insert(object, projection.getX(), projection.getY());
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeObject(final O object) {
+        checkNotNull(object);
+
+        synchronized (this) {
+            if (positions.remove(object) >= 0) {
+                final boolean removed = index.remove(object);
+                assert removed;
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public boolean removeIf(final Predicate<O> predicate) {
+        synchronized (this) {
+            boolean modified = false;
+            for (int slot = 0; slot < positions.slotCount(); slot++) {
+                final O object = positions.objectAt(slot);
+                if (object != null && predicate.apply(object)) {
+                    positions.remove(object);
+                    index.remove(object);
+                    modified = true;
+                }
+            }
+            return modified;
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return positions.isEmpty();
+    }
+
+    @Override
+    @Nullable
+    public Point2D getProjection(final O object) {
+        final int slot = positions.slotOf(object);
+        return slot < 0 ? null : positions.location(slot);
+    }
+
+    @Override
+    public int slotOf(final O object) {
+        return positions.slotOf(object);
+    }
+
+    @Override
+    @Nullable
+    public Point2D getProjectionAt(final int slot) {
+        return positions.objectAt(slot) == null ? null : positions.location(slot);
+    }
+
+    /**
+     * Get the orientation of the {@code object} set by its last motion.
+     *
+     * @param object the object
+     * @return the orientation in radians
+     * @throws IllegalArgumentException if the object is not in this space
+     */
+    public double getOrientation(final O object) {
+        final int slot = positions.slotOf(object);
+        checkArgument(slot >= 0, "Object is not in this space: %s", object);
+        return positions.orientation(slot);
+    }
+
+    /**
+     * {@inheritDoc} <p>The returned map is an unmodifiable live view.</p>
+     */
+    @Override
+    public Map<O, Point2D> asMap() {
+        return Collections.unmodifiableMap(Maps.asMap(positions.objects(), new Function<O, Point2D>() {
+            @Override
+            public Point2D apply(final O input) {
+                return getProjection(input);
+            }
+        }));
+    }
+
+    @Override
+    public int rowCount() {
+        return height;
+    }
+
+    @Override
+    public int colCount() {
+        return width;
+    }
+
+    @Override
+    public boolean hasTileAt(final int x, final int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    @Override
+    public WalledTile getTileAt(final int x, final int y) {
+        checkArgument(hasTileAt(x, y));
+        return tileMatrix[x][y];
+    }
+
+    @Override
+    public Iterable<WalledTile> getTiles() {
+        return Iterables.concat(Iterables.transform(Arrays.asList(tileMatrix),
+                new Function<WalledTile[], Iterable<WalledTile>>() {
+                    @Override
+                    public Iterable<WalledTile> apply(final WalledTile[] tiles) {
+                        return Arrays.asList(tiles);
+                    }
+                }));
+    }
+
+    /**
+     * {@inheritDoc} <p>The tiles at the edges of this space are adjacent to the tiles at the opposite edges.</p>
+     */
+    @Override
+    public WalledTile getAdjacentTile(final WalledTile tile, final TileDirection direction) {
+        final int x = (tile.getX() + direction.getXTranslation() + width) % width;
+        final int y = (tile.getY() + direction.getYTranslation() + height) % height;
+        return tileMatrix[x][y];
+    }
+
+    @Override
+    public String toString() {
+        return "Toroidal Space: dim=" + width + "x" + height + "; oc=" + positions.size();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.space;
+
+import org.asoem.greyfish.utils.space.TileDirection;
+
+/**
+ * A table which answers in constant time whether a rectangular block of tiles has any wall inside. The segment between
+ * two points lies in the bounding block of their tiles, so if the block has no inner walls, the points see each other
+ * without tracing the segment through the tiles.
+ * <p>The table is built from summed area tables of the walls between horizontally and vertically adjacent tiles. It
+ * is computed lazily and discarded by {@link #invalidate()} whenever a wall of a tile changes.</p>
+ */
+final class WallVisibility {
+
+    private final WalledPointSpace<?> space;
+    /**
+     * The walls between tile {@code (x, y)} and {@code (x + 1, y)}, summed over all tiles in {@code [0, x) * [0, y)}.
+     * A {@code null} value means the tables have to be recomputed.
+     */
+    private volatile int[][] eastWalls;
+    private volatile int[][] southWalls;
+
+    WallVisibility(final WalledPointSpace<?> space) {
+        assert space != null;
+        this.space = space;
+    }
+
+    /**
+     * Discard the tables. They will be recomputed on the next query.
+     */
+    void invalidate() {
+        eastWalls = null;
+    }
+
+    /**
+     * Checks if there is a wall between any two tiles of the block spanned by the tiles {@code (x0, y0)} and {@code
+     * (x1, y1)}.
+     *
+     * @return {@code true} if no wall separates any two tiles of the block, {@code false} otherwise
+     */
+    boolean isUnobstructed(final int x0, final int y0, final int x1, final int y1) {
+        final int minX = Math.min(x0, x1);
+        final int maxX = Math.max(x0, x1);
+        final int minY = Math.min(y0, y1);
+        final int maxY = Math.max(y0, y1);
+        if (minX == maxX && minY == maxY) {
+            return true;
+        }
+
+        int[][] east = eastWalls;
+        int[][] south = southWalls;
+        if (east == null) {
+            synchronized (this) {
+                if (eastWalls == null) {
+                    southWalls = sumWalls(TileDirection.SOUTH, TileDirection.NORTH, 0, 1);
+                    eastWalls = sumWalls(TileDirection.EAST, TileDirection.WEST, 1, 0);
+                }
+                east = eastWalls;
+                south = southWalls;
+            }
+        }
+
+        return sum(east, minX, minY, maxX, maxY + 1) == 0 && sum(south, minX, minY, maxX + 1, maxY) == 0;
+    }
+
+    private int[][] sumWalls(final TileDirection direction, final TileDirection opposite,
+                             final int dx, final int dy) {
+        final int width = space.colCount();
+        final int height = space.rowCount();
+        final int[][] table = new int[width + 1][height + 1];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                final boolean inner = x + dx < width && y + dy < height;
+                final boolean wall = inner && (space.getTileAt(x, y).hasWall(direction)
+                        || space.getTileAt(x + dx, y + dy).hasWall(opposite));
+                table[x + 1][y + 1] = (wall ? 1 : 0) + table[x][y + 1] + table[x + 1][y] - table[x][y];
+            }
+        }
+        return table;
+    }
+
+    /**
+     * The sum of the table entries for the tiles in {@code [x0, x1) * [y0, y1)}.
+     */
+    private static int sum(final int[][] table, final int x0, final int y0, final int x1, final int y1) {
+        return table[x1][y1] - table[x0][y1] - table[x1][y0] + table[x0][y0];
+    }
+}
@@ -18,14 +18,14 @@
 package org.asoem.greyfish.core.space;
 
 import com.google.common.base.*;
-import com.google.common.base.Optional;
-import com.google.common.collect.BinaryTreeTraverser;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import jsr166y.RecursiveAction;
+import org.apache.commons.math3.util.FastMath;
 import org.apache.commons.math3.util.MathUtils;
 import org.asoem.greyfish.utils.base.Builder;
-import org.asoem.greyfish.utils.base.SingleElementCache;
+import org.asoem.greyfish.utils.concurrent.ForkJoinPools;
 import org.asoem.greyfish.utils.space.*;
 
 import javax.annotation.Nullable;
@@ -40,28 +40,34 @@ import static org.asoem.greyfish.utils.space.Geometry2D.polarToCartesian;
  */
 public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledTile> {
 
+    /**
+     * The number of motions above which collisions are resolved in parallel.
+     */
+    private static final int MOVES_PER_TASK = 512;
+
     private final int height;
 
     private final int width;
 
     private final WalledTile[][] tileMatrix;
 
-    private final SingleElementCache<TwoDimTree<O>> tree = SingleElementCache.memoize(new Supplier<TwoDimTree<O>>() {
-        @Override
-        public TwoDimTree<O> get() {
-            final TwoDimTree<O> twoDimTree = treeFactory.create(point2DMap.keySet(), Functions.forMap(point2DMap));
-            checkNotNull(twoDimTree, "The tree factory must not return null");
-            return twoDimTree;
-        }
-    });
+    private final SpatialIndex2DFactory<O> indexFactory;
 
-    private final TwoDimTreeFactory<O> treeFactory;
+    private final SpatialIndex2D<O> index;
 
-    private final Map<O, Point2D> point2DMap = Maps.newHashMap();
+    private final PositionStore<O> positions = PositionStore.create();
+
+    private final WallVisibility wallVisibility = new WallVisibility(this);
+
+    private final LineOfSight lineOfSight = new LineOfSight() {
+        @Override
+        public boolean isVisible(final double x, final double y, final double x1, final double y1) {
+            return WalledPointSpace.this.isVisible(x, y, x1, y1);
+        }
+    };
 
     private WalledPointSpace(final WalledPointSpace<O> space) {
-        this(checkNotNull(space).colCount(), space.rowCount(), space.treeFactory);
-        setWalledTiles(space.getWalledTiles());
+        this(checkNotNull(space).colCount(), space.rowCount(), space.getWalledTiles(), space.indexFactory);
     }
 
     private WalledPointSpace(final int width, final int height, final TwoDimTreeFactory<O> twoDimTreeFactory) {
@@ -72,11 +78,13 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
     private WalledPointSpace(final int width, final int height, final Map<O, Point2D> projectables,
                              final WalledTile[] walledTiles, final TwoDimTreeFactory<O> treeFactory) {
         this(width, height, walledTiles, treeFactory);
-        this.point2DMap.putAll(projectables);
+        for (final Map.Entry<O, Point2D> entry : projectables.entrySet()) {
+            insertObject(entry.getKey(), entry.getValue());
+        }
     }
 
     private WalledPointSpace(final TiledSpaceBuilder<O> builder) {
-        this(builder.width, builder.height, builder.treeFactory);
+        this(builder.width, builder.height, new WalledTile[0], builder.indexFactory);
         for (final TiledSpaceBuilder.WallDefinition wallDefinition : builder.wallDefinitions) {
             wallDefinition.apply(this);
         }
@@ -84,18 +92,24 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
 
     public WalledPointSpace(final int width, final int height, final WalledTile[] walledTiles,
                             final TwoDimTreeFactory<O> treeFactory) {
+        this(width, height, walledTiles, SpatialIndexes.treeIndex(treeFactory));
+    }
+
+    private WalledPointSpace(final int width, final int height, final WalledTile[] walledTiles,
+                             final SpatialIndex2DFactory<O> indexFactory) {
         checkArgument(width >= 0);
         checkArgument(height >= 0);
-        checkNotNull(treeFactory);
+        checkNotNull(indexFactory);
 
         this.width = width;
         this.height = height;
-        this.treeFactory = treeFactory;
+        this.indexFactory = indexFactory;
+        this.index = checkNotNull(indexFactory.create(width, height), "The index factory must not return null");
 
         this.tileMatrix = new WalledTile[width][height];
         for (int i = 0; i < width; i++) {
             for (int j = 0; j < height; j++) {
-                this.tileMatrix[i][j] = new WalledTile(this, i, j);
+                this.tileMatrix[i][j] = new WalledTile(this, wallVisibility, i, j);
             }
         }
 
@@ -174,9 +188,91 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
 
     @Override
     public void moveObject(final O object, final Motion2D motion) {
-        checkNotNull(object);
-        checkNotNull(motion);
+        moveObjects(Collections.singletonMap(object, motion));
+    }
+
+    /**
+     * {@inheritDoc} <p>The wall collisions of large batches are resolved in parallel on the {@link
+     * ForkJoinPools#commonPool() common pool}. The destinations are computed into primitive arrays and then committed
+     * to the {@link PositionStore} in one pass before the index is updated once. The space is locked for the whole
+     * operation.</p>
+     */
+    @Override
+    public void moveObjects(final Map<? extends O, ? extends Motion2D> motions) {
+        checkNotNull(motions);
+
+        synchronized (this) {
+            final MoveBatch batch = new MoveBatch(motions.size());
+            for (Map.Entry<? extends O, ? extends Motion2D> entry : motions.entrySet()) {
+                final O object = checkNotNull(entry.getKey());
+                final int slot = positions.slotOf(object);
+                checkArgument(slot >= 0, "Object is not in this space: %s", object);
+                batch.add(slot, checkNotNull(entry.getValue()));
+            }
+            move(batch);
+        }
+    }
+
+    @Override
+    public void moveObjectsAt(final int[] slots, final Motion2D[] motions, final int count) {
+        checkNotNull(slots);
+        checkNotNull(motions);
+        checkArgument(count >= 0 && count <= slots.length && count <= motions.length, "Invalid count: %s", count);
+
+        synchronized (this) {
+            final MoveBatch batch = new MoveBatch(count);
+            for (int i = 0; i < count; i++) {
+                final int slot = slots[i];
+                checkArgument(slot >= 0 && slot < positions.slotCount() && positions.objectAt(slot) != null,
+                        "Slot is free: %s", slot);
+                batch.add(slot, checkNotNull(motions[i]));
+            }
+            move(batch);
+        }
+    }
+
+    /**
+     * Resolve and commit the motions of the {@code batch}. Must be called while holding the lock of this space.
+     */
+    private void move(final MoveBatch batch) {
+        if (batch.size <= MOVES_PER_TASK) {
+            resolveMotions(batch, 0, batch.size);
+        } else {
+            ForkJoinPools.commonPool().invoke(new ResolveMotions(batch, 0, batch.size));
+        }
+
+        int movedCount = 0;
+        for (int i = 0; i < batch.size; i++) {
+            if (batch.moved[i]) {
+                final int slot = batch.slots[i];
+                positions.setLocation(slot, batch.xs[i], batch.ys[i]);
+                positions.setOrientation(slot, batch.orientations[i]);
+                batch.slots[movedCount++] = slot;
+            } else if (batch.turned[i]) {
+                // the location is unchanged, so the index needs no update
+                positions.setOrientation(batch.slots[i], batch.orientations[i]);
+            }
+        }
+        if (movedCount > 0) {
+            index.moveAll(positions, batch.slots, movedCount);
+        }
+    }
 
+    private void resolveMotions(final MoveBatch batch, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            resolveMotion(batch, i);
+        }
+    }
+
+    /**
+     * Compute the destination of the {@code i}-th motion of the {@code batch}, respecting collisions with walls. A
+     * point is only allocated if the motion collides with a wall.
+     *
+     * @param batch the batch of motions
+     * @param i     the index of the motion
+     */
+    private void resolveMotion(final MoveBatch batch, final int i) {
+        final Motion2D motion = batch.motions[i];
         final double translation = motion.getTranslation();
         final double rotation = motion.getRotation();
 
@@ -190,22 +286,87 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
         final double newOrientation = (rotation == 0)
                 ? 0
                 : ((rotation) % MathUtils.TWO_PI + MathUtils.TWO_PI) % MathUtils.TWO_PI;
+        batch.orientations[i] = newOrientation;
+
+        if (translation == 0) {
+            // rotation in place
+            batch.turned[i] = true;
+            return;
+        }
+
+        final int slot = batch.slots[i];
+        final double x = positions.x(slot);
+        final double y = positions.y(slot);
+        final double x1 = x + translation * FastMath.cos(newOrientation);
+        final double y1 = y + translation * FastMath.sin(newOrientation);
 
-        final Point2D currentProjection = getProjection(object);
-        final Point2D anchorPoint =
-                checkNotNull(currentProjection, "Projection of {} is null", object).getCentroid();
-        if (translation != 0) {
-            final Point2D preferredPoint =
-                    ImmutablePoint2D.sum(anchorPoint, polarToCartesian(newOrientation, translation));
-            final Point2D maxPoint = maxTransition(anchorPoint, preferredPoint);
-            //final MotionObject2D projection = MotionObject2DImpl.of(maxPoint.getX(),
-            // maxPoint.getY(), !preferredPoint.equals(maxPoint));
-            //object.setProjection(projection);
+        final Point2D collision = collision(x, y, x1, y1);
+        if (collision != null) {
+            batch.xs[i] = collision.getX();
+            batch.ys[i] = collision.getY();
+        } else {
+            batch.xs[i] = x1;
+            batch.ys[i] = y1;
+        }
+        batch.moved[i] = true;
+    }
+
+    /**
+     * The motions of one call to {@link #moveObjects(Map)} and their destinations in parallel arrays.
+     */
+    private static final class MoveBatch {
+        private final int[] slots;
+        private final Motion2D[] motions;
+        private final double[] xs;
+        private final double[] ys;
+        private final double[] orientations;
+        private final boolean[] moved;
+        private final boolean[] turned;
+        private int size;
+
+        private MoveBatch(final int capacity) {
+            this.slots = new int[capacity];
+            this.motions = new Motion2D[capacity];
+            this.xs = new double[capacity];
+            this.ys = new double[capacity];
+            this.orientations = new double[capacity];
+            this.moved = new boolean[capacity];
+            this.turned = new boolean[capacity];
         }
-        // else: object.setProjection(MotionObject2DImpl.of(anchorPoint.getX(),
-        // anchorPoint.getY(), newOrientation, false));
 
-        tree.invalidate();
+        private void add(final int slot, final Motion2D motion) {
+            slots[size] = slot;
+            motions[size] = motion;
+            ++size;
+        }
+    }
+
+    /**
+     * Computes the destinations of a range of motions, splitting the range in halves until it contains at most
+     * {@link #MOVES_PER_TASK} motions. Tasks only read the locations and write their own range of destinations.
+     */
+    private final class ResolveMotions extends RecursiveAction {
+        private final MoveBatch batch;
+        private final int from;
+        private final int to;
+
+        private ResolveMotions(final MoveBatch batch, final int from, final int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MOVES_PER_TASK) {
+                resolveMotions(batch, from, to);
+            } else {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new ResolveMotions(batch, from, mid), new ResolveMotions(batch, mid, to));
+            }
+        }
+
+        private static final long serialVersionUID = 0;
     }
 
     /**
@@ -226,126 +387,122 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
         return collision != null ? collision : destination;
     }
 
-    @Nullable
-    private Point2D collision(final double x, final double y, final double x1, final double y1) {
-        return collision(getTileAt(x, y), x, y, x1, y1);
+    /**
+     * Checks if there is no wall between the two given points. If the block of tiles spanned by the two points has no
+     * inner walls, this is a table lookup. Otherwise the line between the points is traced through the tiles.
+     */
+    private boolean isVisible(final double x, final double y, final double x1, final double y1) {
+        return wallVisibility.isUnobstructed((int) x, (int) y, (int) x1, (int) y1)
+                || collision(x, y, x1, y1) == null;
     }
 
     /**
-     * Checks if the line {@code xo, yo, xd, yd} crosses an edge of the {@code tile} or any adjacent tile in the
-     * direction of movement which has a wall present. If such a crossing is found, than the point closest to this
-     * crossing is returned, {@code null}, otherwise.
+     * Trace the line {@code xo, yo, xd, yd} through the tiles it crosses and check the walls of each tile it leaves.
+     * The tiles are visited in order by a grid traversal as described by Amanatides and Woo (1987), so the cost is
+     * linear in the number of crossed tiles and nothing is allocated unless a collision is found.
      *
-     * @param tile the tile to check for a collision
-     * @param xo   Movement line x origin
-     * @param yo   Movement line y origin
-     * @param xd   Movement line x destination
-     * @param yd   Movement line x destination
+     * @param xo Movement line x origin
+     * @param yo Movement line y origin
+     * @param xd Movement line x destination
+     * @param yd Movement line y destination
      * @return the location on the line closest to the point of a collision with a wall or {@code null} if none could be
      * found
      */
     @Nullable
-    private Point2D collision(final WalledTile tile,
-                              final double xo, final double yo,
-                              final double xd, final double yd) {
-        assert tile != null;
-
-        if (tile.covers(xd, yd)) {
-            return null;
-        }
-
-        TileDirection follow1 = null;
-        TileDirection follow2 = null;
+    private Point2D collision(final double xo, final double yo, final double xd, final double yd) {
+        assert contains(xo, yo);
+
+        final double dx = xd - xo;
+        final double dy = yd - yo;
+        final int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+        final int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+        int tileX = (int) xo;
+        int tileY = (int) yo;
+
+        // The line parameters t in [0, 1] at which the line crosses the next vertical and horizontal tile border
+        double tMaxX = stepX > 0 ? (tileX + 1 - xo) / dx : (stepX < 0 ? (tileX - xo) / dx : Double.POSITIVE_INFINITY);
+        double tMaxY = stepY > 0 ? (tileY + 1 - yo) / dy : (stepY < 0 ? (tileY - yo) / dy : Double.POSITIVE_INFINITY);
+        final double tDeltaX = stepX != 0 ? stepX / dx : Double.POSITIVE_INFINITY;
+        final double tDeltaY = stepY != 0 ? stepY / dy : Double.POSITIVE_INFINITY;
+
+        while (true) {
+            final WalledTile tile = tileMatrix[tileX][tileY];
+            if (tile.covers(xd, yd) || (tMaxX > 1 && tMaxY > 1)) {
+                return null;
+            }
 
-        if (yd < yo) { // north
-            final ImmutablePoint2D intersection = intersection(
-                    tile.getX(), tile.getY(),
-                    Math.nextAfter(tile.getX() + 1.0, -Double.MIN_VALUE), tile.getY(),
-                    xo, yo, xd, yd);
+            final boolean leavesX = tMaxX <= tMaxY;
+            final boolean leavesY = tMaxY <= tMaxX;
+            final double t = Math.min(tMaxX, tMaxY);
 
-            if (intersection != null) {
-                if (tile.hasWall(TileDirection.NORTH)) {
-                    return intersection;
-                } else {
-                    follow1 = TileDirection.NORTH;
-                }
+            if (leavesY && stepY < 0 && tile.hasWall(TileDirection.NORTH)) {
+                return wallIntersection(tile, TileDirection.NORTH, xo, yo, xd, yd, t);
+            }
+            if (leavesX && stepX > 0 && tile.hasWall(TileDirection.EAST)) {
+                return wallIntersection(tile, TileDirection.EAST, xo, yo, xd, yd, t);
+            }
+            if (leavesY && stepY > 0 && tile.hasWall(TileDirection.SOUTH)) {
+                return wallIntersection(tile, TileDirection.SOUTH, xo, yo, xd, yd, t);
+            }
+            if (leavesX && stepX < 0 && tile.hasWall(TileDirection.WEST)) {
+                return wallIntersection(tile, TileDirection.WEST, xo, yo, xd, yd, t);
             }
-        }
 
-        if (xd > xo) { // east
-            final ImmutablePoint2D intersection = intersection(
-                    Math.nextAfter(tile.getX() + 1.0, -Double.MIN_VALUE),
-                    tile.getY(),
-                    Math.nextAfter(tile.getX() + 1.0, -Double.MIN_VALUE),
-                    Math.nextAfter(tile.getY() + 1.0, -Double.MIN_VALUE),
-                    xo, yo, xd, yd);
-
-            if (intersection != null) {
-                if (tile.hasWall(TileDirection.EAST)) {
-                    return intersection;
-                } else {
-                    if (follow1 == null) {
-                        follow1 = TileDirection.EAST;
-                    } else {
-                        follow2 = TileDirection.EAST;
-                    }
-                }
+            // At a corner, step horizontally first, the vertical border gets checked in the next tile
+            if (leavesX) {
+                tileX += stepX;
+                tMaxX += tDeltaX;
+            } else {
+                tileY += stepY;
+                tMaxY += tDeltaY;
             }
-        }
 
-        if (yd > yo) { // south
-            final ImmutablePoint2D intersection = intersection(
-                    tile.getX(),
-                    Math.nextAfter(tile.getY() + 1.0, -Double.MIN_VALUE),
-                    Math.nextAfter(tile.getX() + 1.0, -Double.MIN_VALUE),
-                    Math.nextAfter(tile.getY() + 1.0, -Double.MIN_VALUE),
-                    xo, yo, xd, yd);
-
-            if (intersection != null) {
-                if (tile.hasWall(TileDirection.SOUTH)) {
-                    return intersection;
-                } else {
-                    if (follow1 == null) {
-                        follow1 = TileDirection.SOUTH;
-                    } else {
-                        follow2 = TileDirection.SOUTH;
-                    }
-                }
+            if (!hasTileAt(tileX, tileY)) {
+                return null;
             }
         }
+    }
 
-        if (xd < xo) { // west
-            final ImmutablePoint2D intersection = intersection(
-                    tile.getX(), Math.nextAfter(tile.getY() + 1.0, -Double.MIN_VALUE),
-                    tile.getX(), tile.getY(),
-                    xo, yo, xd, yd);
-
-            if (intersection != null) {
-                if (tile.hasWall(TileDirection.WEST)) {
-                    return intersection;
-                } else {
-                    if (follow1 == null) {
-                        follow1 = TileDirection.WEST;
-                    } else {
-                        follow2 = TileDirection.WEST;
-                    }
-                }
-            }
+    /**
+     * Get the point where the line {@code xo, yo, xd, yd} crosses the given {@code wall} of the {@code tile}. The
+     * point is always covered by the tile.
+     *
+     * @param t the line parameter at which the line leaves the tile
+     */
+    private static Point2D wallIntersection(final WalledTile tile, final TileDirection wall,
+                                            final double xo, final double yo, final double xd, final double yd,
+                                            final double t) {
+        final double minX = tile.getX();
+        final double minY = tile.getY();
+        final double maxX = Math.nextAfter(minX + 1.0, -Double.MIN_VALUE);
+        final double maxY = Math.nextAfter(minY + 1.0, -Double.MIN_VALUE);
+
+        final Point2D intersection;
+        switch (wall) {
+            case NORTH:
+                intersection = intersection(minX, minY, maxX, minY, xo, yo, xd, yd);
+                break;
+            case EAST:
+                intersection = intersection(maxX, minY, maxX, maxY, xo, yo, xd, yd);
+                break;
+            case SOUTH:
+                intersection = intersection(minX, maxY, maxX, maxY, xo, yo, xd, yd);
+                break;
+            case WEST:
+                intersection = intersection(minX, maxY, minX, minY, xo, yo, xd, yd);
+                break;
+            default:
+                throw new AssertionError("Not a wall: " + wall);
         }
 
-        if (follow1 != null && hasAdjacentTile(tile, follow1)) {
-            final Point2D collision = collision(getAdjacentTile(tile, follow1), xo, yo, xd, yd);
-            if (collision != null) {
-                return collision;
-            } else if (follow2 != null && hasAdjacentTile(tile, follow2)) {
-                final Point2D collision1 = collision(getAdjacentTile(tile, follow2), xo, yo, xd, yd);
-                if (collision1 != null) {
-                    return collision1;
-                }
-            }
+        if (intersection != null) {
+            return intersection;
         }
 
-        return null;
+        // The line passes the tile exactly at a corner
+        return ImmutablePoint2D.at(
+                Math.max(minX, Math.min(maxX, xo + t * (xd - xo))),
+                Math.max(minY, Math.min(maxY, yo + t * (yd - yo))));
     }
 
     private boolean hasAdjacentTile(final WalledTile tile, final TileDirection direction) {
@@ -354,13 +511,13 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
 
     @Override
     public Iterable<O> findObjects(final double x, final double y, final double radius) {
-        return Iterables.transform(tree.get().findNodes(x, y, radius),
-                new Function<DistantObject<TwoDimTree.Node<O>>, O>() {
-                    @Override
-                    public O apply(final DistantObject<TwoDimTree.Node<O>> input) {
-                        return input.object().value();
-                    }
-                });
+        return index.findObjects(x, y, radius);
+    }
+
+    @Override
+    public void forEachInRange(final double x, final double y, final double radius,
+                               final RangeVisitor<? super O> visitor) {
+        index.forEachInRange(x, y, radius, visitor);
     }
 
     @Override
@@ -368,41 +525,101 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
         final Point2D projection = getProjection(object);
         if (projection != null) {
             final Point2D anchorPoint = projection.getCentroid();
-            return Iterables.filter(findObjects(anchorPoint.getX(), anchorPoint.getY(), range), new Predicate<O>() {
+            final double x = anchorPoint.getX();
+            final double y = anchorPoint.getY();
+            final List<O> visibleNeighbours = Lists.newArrayList();
+            forEachInRange(x, y, range, new RangeVisitor<O>() {
                 @Override
-                public boolean apply(final O t) {
+                public void visit(final O t, final double distance) {
                     if (t.equals(object)) {
-                        return false;
+                        return;
                     }
 
-                    final Point2D neighborProjection = getProjection(t);
-                    assert neighborProjection != null;
-                    final Point2D neighborProjectionAnchorPoint = neighborProjection.getCentroid();
-                    return collision(anchorPoint.getX(), anchorPoint.getY(),
-                            neighborProjectionAnchorPoint.getX(), neighborProjectionAnchorPoint.getY()) == null;
+                    final int slot = positions.slotOf(t);
+                    assert slot >= 0;
+                    if (isVisible(x, y, positions.x(slot), positions.y(slot))) {
+                        visibleNeighbours.add(t);
+                    }
                 }
             });
+            return visibleNeighbours;
         } else {
             throw new IllegalArgumentException("Projectable has no projection");
         }
     }
 
+    @Override
+    public List<O> findNearestObjects(final double x, final double y, final int k) {
+        return index.findNearest(x, y, k);
+    }
+
+    /**
+     * {@inheritDoc} <p>A neighbour is visible if there is no wall between the two objects. Candidates are fetched
+     * from the index in doubling batches until {@code k} visible neighbours are found or all objects were
+     * considered.</p>
+     */
+    @Override
+    public List<O> getNearestVisibleNeighbours(final O object, final int k) {
+        checkArgument(k >= 0, "k must not be negative: %s", k);
+        final Point2D projection = getProjection(object);
+        checkArgument(projection != null, "Projectable has no projection");
+        assert projection != null;
+
+        final Point2D anchorPoint = projection.getCentroid();
+        final double x = anchorPoint.getX();
+        final double y = anchorPoint.getY();
+        final List<O> visibleNeighbours = Lists.newArrayListWithCapacity(k);
+        int candidateCount = k + 1;
+        int checked = 0;
+        while (visibleNeighbours.size() < k && checked < countObjects()) {
+            final List<O> candidates = findNearestObjects(x, y, candidateCount);
+            for (final O t : candidates.subList(checked, candidates.size())) {
+                if (t.equals(object)) {
+                    continue;
+                }
+                final int slot = positions.slotOf(t);
+                if (isVisible(x, y, positions.x(slot), positions.y(slot))) {
+                    visibleNeighbours.add(t);
+                    if (visibleNeighbours.size() == k) {
+                        break;
+                    }
+                }
+            }
+            if (candidates.size() < candidateCount) {
+                break;
+            }
+            checked = candidates.size();
+            candidateCount *= 2;
+        }
+        return visibleNeighbours;
+    }
+
+    /**
+     * {@inheritDoc} <p>The neighbours are computed by a parallel {@link NeighbourSweep} over all objects.</p>
+     */
+    @Override
+    public Map<O, List<O>> getAllVisibleNeighbours(final double radius) {
+        synchronized (this) {
+            return NeighbourSweep.allNeighbours(positions, radius, lineOfSight);
+        }
+    }
+
     @Override
     public boolean insertObject(final O object, final Point2D projection) {
         checkNotNull(object, "projectable is null");
         checkNotNull(projection, "projection is null");
 
         synchronized (this) {
-            final Point2D previous = point2DMap.put(object, projection);
-            checkState(previous == null, "no duplicate objects allowed: " + object);
-            tree.invalidate();
+            checkState(!positions.contains(object), "no duplicate objects allowed: " + object);
+            positions.add(object, projection.getX(), projection.getY());
+            index.insert(object, projection.getX(), projection.getY());
             return true;
         }
     }
 
     @Override
     public boolean isEmpty() {
-        return point2DMap.isEmpty();
+        return positions.isEmpty();
     }
 
     @Override
@@ -415,41 +632,55 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
         return height;
     }
 
+    /**
+     * {@inheritDoc} <p>This is a constant time lookup which returns a snapshot of the location held by the {@link
+     * PositionStore}.</p>
+     */
     @Override
     @Nullable
     public Point2D getProjection(final O object) {
+        final int slot = positions.slotOf(object);
+        return slot < 0 ? null : positions.location(slot);
+    }
 
-        final BinaryTreeTraverser<TwoDimTree.Node<O>> traverser = new BinaryTreeTraverser<TwoDimTree.Node<O>>() {
-            @Override
-            public Optional<TwoDimTree.Node<O>> leftChild(final TwoDimTree.Node<O> root) {
-                return root.leftChild();
-            }
+    @Override
+    public int slotOf(final O object) {
+        return positions.slotOf(object);
+    }
 
-            @Override
-            public Optional<TwoDimTree.Node<O>> rightChild(final TwoDimTree.Node<O> root) {
-                return root.rightChild();
-            }
-        };
-
-        final TwoDimTree.Node<O> root = tree.get().rootNode().orNull();
-
-        if (root != null) {
-            final Optional<TwoDimTree.Node<O>> node = traverser.postOrderTraversal(root).firstMatch(
-                    new Predicate<TwoDimTree.Node<O>>() {
-                        @Override
-                        public boolean apply(final TwoDimTree.Node<O> input) {
-                            return object.equals(input.value());
-                        }
-                    });
-            return node.isPresent() ? ImmutablePoint2D.at(node.get().xCoordinate(), node.get().yCoordinate()) : null;
-        } else {
-            return null;
-        }
+    /**
+     * {@inheritDoc} <p>The slot is the slot of the object in the {@link PositionStore}.</p>
+     */
+    @Override
+    @Nullable
+    public Point2D getProjectionAt(final int slot) {
+        return positions.objectAt(slot) == null ? null : positions.location(slot);
     }
 
+    /**
+     * Get the orientation of the {@code object} set by its last motion.
+     *
+     * @param object the object
+     * @return the orientation in radians
+     * @throws IllegalArgumentException if the object is not in this space
+     */
+    public double getOrientation(final O object) {
+        final int slot = positions.slotOf(object);
+        checkArgument(slot >= 0, "Object is not in this space: %s", object);
+        return positions.orientation(slot);
+    }
+
+    /**
+     * {@inheritDoc} <p>The returned map is an unmodifiable live view.</p>
+     */
     @Override
     public Map<O, Point2D> asMap() {
-        return point2DMap;
+        return Collections.unmodifiableMap(Maps.asMap(positions.objects(), new Function<O, Point2D>() {
+            @Override
+            public Point2D apply(final O input) {
+                return getProjection(input);
+            }
+        }));
     }
 
     @Override
@@ -503,7 +734,7 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
 
     @Override
     public Collection<O> getObjects() {
-        return Collections.unmodifiableSet(point2DMap.keySet());
+        return positions.objects();
     }
 
     @Override
@@ -537,8 +768,9 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
         checkNotNull(agent);
 
         synchronized (this) {
-            if (point2DMap.remove(agent) != null) {
-                tree.invalidate();
+            if (positions.remove(agent) >= 0) {
+                final boolean removed = index.remove(agent);
+                assert removed;
                 return true;
             } else {
                 return false;
@@ -549,17 +781,22 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
     @Override
     public boolean removeIf(final Predicate<O> predicate) {
         synchronized (this) {
-            if (Iterables.removeIf(point2DMap.keySet(), predicate)) {
-                tree.invalidate();
-                return true;
+            boolean modified = false;
+            for (int slot = 0; slot < positions.slotCount(); slot++) {
+                final O object = positions.objectAt(slot);
+                if (object != null && predicate.apply(object)) {
+                    positions.remove(object);
+                    index.remove(object);
+                    modified = true;
+                }
             }
-            return false;
+            return modified;
         }
     }
 
     @Override
     public int countObjects() {
-        return point2DMap.size();
+        return positions.size();
     }
 
     @Override
@@ -585,6 +822,19 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
         return create(width, height, twoDimTreeFactory);
     }
 
+    /**
+     * Create a new space of given size without walls which indexes its objects using an {@link
+     * IncrementalTwoDimTreeIndex}.
+     *
+     * @param width  the number of columns
+     * @param height the number of rows
+     * @param <O>    the type of the objects
+     * @return a new space
+     */
+    public static <O> WalledPointSpace<O> ofSize(final int width, final int height) {
+        return new WalledPointSpace<O>(width, height, new WalledTile[0], SpatialIndexes.<O>incrementalTreeIndex());
+    }
+
     public static <O> TiledSpaceBuilder<O> builder(final int width, final int height) {
         return new TiledSpaceBuilder<O>(width, height);
     }
@@ -595,7 +845,7 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
         private final int width;
         private final int height;
         private final List<WallDefinition> wallDefinitions = Lists.newArrayList();
-        private TwoDimTreeFactory<O> treeFactory;
+        private SpatialIndex2DFactory<O> indexFactory = SpatialIndexes.incrementalTreeIndex();
 
         public TiledSpaceBuilder(final int width, final int height) {
 
@@ -652,13 +902,25 @@ public final class WalledPointSpace<O> implements TiledSpace<O, Point2D, WalledT
         }
 
         public TiledSpaceBuilder<O> treeFactory(final TwoDimTreeFactory<O> treeFactory) {
-            this.treeFactory = checkNotNull(treeFactory);
+            this.indexFactory = SpatialIndexes.treeIndex(treeFactory);
+            return this;
+        }
+
+        /**
+         * Set the factory for the index used to answer range queries. The default is an {@link
+         * IncrementalTwoDimTreeIndex}. For dense and highly mobile populations an index created by {@link
+         * SpatialIndexes#uniformGrid(double)} is usually faster, as it updates in constant time.
+         *
+         * @param indexFactory the index factory
+         * @return this builder
+         */
+        public TiledSpaceBuilder<O> spatialIndex(final SpatialIndex2DFactory<O> indexFactory) {
+            this.indexFactory = checkNotNull(indexFactory);
             return this;
         }
 
         @Override
         public WalledPointSpace<O> build() {
-            checkState(treeFactory != null, "You must provide a tree factory");
             return new WalledPointSpace<O>(this);
         }
 
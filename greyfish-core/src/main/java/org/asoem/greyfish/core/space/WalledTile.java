@@ -25,6 +25,7 @@ import org.asoem.greyfish.utils.space.Point2D;
 import org.asoem.greyfish.utils.space.Tile;
 import org.asoem.greyfish.utils.space.TileDirection;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 
 import static org.asoem.greyfish.utils.space.TileDirection.*;
@@ -34,18 +35,26 @@ public class WalledTile implements Tile {
     private final int wallFlagsMask;
     private final int x;
     private final int y;
+    @Nullable
+    private final WallVisibility visibility;
     private int wallFlags = 0;
 
-    @SuppressWarnings("UnusedDeclaration") // Needed for deserialization
-    private WalledTile(final int x, final int y) {
+    /**
+     * Create a tile without implicit walls at the borders of the space. Used for deserialization and by spaces
+     * without borders.
+     */
+    WalledTile(final int x, final int y) {
         this.x = x;
         this.y = y;
         this.wallFlagsMask = 0;
+        this.visibility = null;
     }
 
-    WalledTile(final TiledSpace<?, ?, WalledTile> space, final int x, final int y) {
+    WalledTile(final TiledSpace<?, ?, WalledTile> space, @Nullable final WallVisibility visibility,
+               final int x, final int y) {
         this.x = x;
         this.y = y;
+        this.visibility = visibility;
 
         int mask = 0;
         if (x == 0) {
@@ -155,6 +164,7 @@ public class WalledTile implements Tile {
         } else {
             wallFlags &= (~(1 << direction.ordinal()));
         }
+        wallsChanged();
     }
 
     public int getWallFlags() {
@@ -163,6 +173,13 @@ public class WalledTile implements Tile {
 
     public void setWallFlags(final int borderFlags) {
         this.wallFlags = borderFlags;
+        wallsChanged();
+    }
+
+    private void wallsChanged() {
+        if (visibility != null) {
+            visibility.invalidate();
+        }
     }
 
     public void toggleWall(final TileDirection direction) {
@@ -24,6 +24,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import org.apache.commons.math3.random.RandomGenerator;
 import org.asoem.greyfish.core.acl.ACLMessage;
 import org.asoem.greyfish.core.acl.MessageTemplate;
 import org.asoem.greyfish.core.actions.AgentAction;
@@ -78,6 +79,11 @@ public final class DefaultBasic2DAgent extends AbstractSpatialAgent<Basic2DAgent
             return getContext().get().getActiveAgents();
         }
 
+        @Override
+        public RandomGenerator randomGenerator() {
+            return getContext().get().getRandomGenerator();
+        }
+
         @Override
         public void receive(final ACLMessage<Basic2DAgent> message) {
             inBox.add(message);
@@ -143,9 +149,19 @@ public final class DefaultBasic2DAgent extends AbstractSpatialAgent<Basic2DAgent
         return ImmutableFunctionalList.copyOf(actions);
     }
 
+    /**
+     * {@inheritDoc} <p>While this agent is active, its projection is read from the space of its environment, which
+     * holds the locations of all agents. Otherwise the last projection set is returned.</p>
+     */
     @Nullable
     @Override
     public Point2D getProjection() {
+        if (simulationContext != null) {
+            final Point2D location = simulationContext.getEnvironment().getProjection(this);
+            if (location != null) {
+                return location;
+            }
+        }
         return projection;
     }
 
@@ -23,6 +23,7 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import org.apache.commons.math3.random.RandomGenerator;
 import org.asoem.greyfish.core.acl.ACLMessage;
 import org.asoem.greyfish.core.acl.MessageTemplate;
 import org.asoem.greyfish.core.actions.AgentAction;
@@ -76,6 +77,11 @@ public final class DefaultBasicAgent
             return getContext().get().getActiveAgents();
         }
 
+        @Override
+        public RandomGenerator randomGenerator() {
+            return getContext().get().getRandomGenerator();
+        }
+
         @Override
         public void receive(final ACLMessage<BasicAgent> message) {
             ask(message, Void.class);
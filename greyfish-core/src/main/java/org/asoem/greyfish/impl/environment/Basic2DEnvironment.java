@@ -22,7 +22,13 @@ import org.asoem.greyfish.impl.agent.Basic2DAgent;
 import org.asoem.greyfish.impl.space.BasicTiled2DSpace;
 import org.asoem.greyfish.utils.space.Point2D;
 
+import javax.annotation.Nullable;
+
 public interface Basic2DEnvironment extends SpatialEnvironment2D<Basic2DAgent, BasicTiled2DSpace>, SynchronizedAgentsEnvironment<Basic2DAgent> {
 
     void enqueueAddition(Basic2DAgent agent, Point2D point2D);
+
+    @Nullable
+    @Override
+    Point2D getProjection(Basic2DAgent agent);
 }
@@ -22,23 +22,29 @@ import org.asoem.greyfish.core.agent.DefaultActiveContext;
 import org.asoem.greyfish.core.environment.Generic2DEnvironment;
 import org.asoem.greyfish.impl.agent.Basic2DAgent;
 import org.asoem.greyfish.impl.space.BasicTiled2DSpace;
+import org.asoem.greyfish.utils.space.ImmutablePoint2D;
 import org.asoem.greyfish.utils.space.Point2D;
 
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public final class DefaultBasic2DEnvironment
         extends Generic2DEnvironment<Basic2DAgent, Basic2DEnvironment, BasicTiled2DSpace, Point2D>
         implements Basic2DEnvironment {
-    private final AtomicInteger agentIdSequence = new AtomicInteger();
 
     private DefaultBasic2DEnvironment(final Builder builder) {
         super(builder);
     }
 
     @Override
-    protected void activateAgent(final Basic2DAgent agent) {
-        agent.activate(DefaultActiveContext.create(self(), agentIdSequence.incrementAndGet(), getTime()));
+    protected void activateAgent(final Basic2DAgent agent, final int agentId, final int slot,
+                                 final long activationStep) {
+        agent.activate(DefaultActiveContext.create(
+                self(), agentId, slot, activationStep, createRandomGenerator(agentId)));
+    }
+
+    @Override
+    protected Point2D projectionAt(final Point2D position) {
+        return ImmutablePoint2D.at(position.getX(), position.getY());
     }
 
     @Override
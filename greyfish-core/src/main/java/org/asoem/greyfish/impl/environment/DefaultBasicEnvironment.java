@@ -17,31 +17,42 @@
 
 package org.asoem.greyfish.impl.environment;
 
-import com.google.common.collect.ImmutableList;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Queues;
 import com.google.common.eventbus.EventBus;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import org.asoem.greyfish.core.acl.ACLMessage;
+import org.asoem.greyfish.core.agent.AgentRegistry;
+import org.asoem.greyfish.core.agent.BasicContext;
 import org.asoem.greyfish.core.agent.ContextFactory;
 import org.asoem.greyfish.core.agent.DefaultContextFactory;
 import org.asoem.greyfish.core.environment.AbstractEnvironment;
+import org.asoem.greyfish.core.environment.AgentExecutionStrategies;
+import org.asoem.greyfish.core.environment.AgentExecutionStrategy;
+import org.asoem.greyfish.core.environment.CheckpointCodec;
+import org.asoem.greyfish.core.environment.Checkpoints;
+import org.asoem.greyfish.core.environment.ModificationBuffer;
+import org.asoem.greyfish.core.environment.SimulationExecutor;
+import org.asoem.greyfish.core.environment.StepPipeline;
+import org.asoem.greyfish.core.scheduler.ActiveSet;
 import org.asoem.greyfish.core.scheduler.Event;
+import org.asoem.greyfish.core.scheduler.EventCalendar;
 import org.asoem.greyfish.impl.agent.BasicAgent;
 import org.asoem.greyfish.utils.concurrent.Runnables;
+import org.asoem.greyfish.utils.math.RandomGenerators;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
-import java.util.Iterator;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -56,22 +67,58 @@ public final class DefaultBasicEnvironment
         extends AbstractEnvironment<BasicAgent>
         implements BasicEnvironment {
 
+    private static final int PARTITION_SIZE = 1000;
+
     @GuardedBy("agents")
-    private final List<BasicAgent> agents = Lists.newLinkedList();
-    private final Queue<DelayedModification> delayedModifications = Queues.newConcurrentLinkedQueue();
-    private final ListeningExecutorService executorService;
+    private final AgentRegistry<BasicAgent> agents = AgentRegistry.create();
+    private final ModificationBuffer<DelayedModification> delayedModifications = ModificationBuffer.create();
+    private final AgentExecutionStrategy executionStrategy;
     private final String name;
     private final ContextFactory<BasicEnvironment, BasicAgent> contextFactory;
     private final AtomicLong steps = new AtomicLong(0);
     private final AtomicInteger agentIdSequence = new AtomicInteger();
     private final AtomicReference<Phase> phase = new AtomicReference<Phase>(Phase.IDLE);
     private final EventBus eventBus;
+    private final StepPipeline pipeline;
+    private final EventCalendar events = EventCalendar.create();
+    private final ActiveSet activeSet = ActiveSet.create();
+    private volatile Map<String, Long> phaseTimes = ImmutableMap.of();
+    private long seed;
 
     public DefaultBasicEnvironment(final Builder builder) {
-        this.executorService = MoreExecutors.listeningDecorator(builder.executorService);
+        if (builder.executionStrategy != null) {
+            this.executionStrategy = builder.executionStrategy;
+        } else if (builder.executorService != null) {
+            this.executionStrategy = AgentExecutionStrategies.partitioned(builder.executorService, PARTITION_SIZE);
+        } else {
+            this.executionStrategy = SimulationExecutor.common();
+        }
         this.name = builder.name;
         this.contextFactory = builder.simulationContextFactory;
         this.eventBus = builder.eventPublisher;
+        this.seed = builder.seed;
+        this.pipeline = StepPipeline.builder()
+                .phase("update", new StepPipeline.Phase() {
+                    @Override
+                    public void run() {
+                        checkState(phase.compareAndSet(Phase.IDLE, Phase.UPDATE));
+                        applyModifications();
+                    }
+                })
+                .phase("events", new StepPipeline.Phase() {
+                    @Override
+                    public void run() {
+                        events.fireDue(getTime());
+                    }
+                }, "update")
+                .exclusivePhase("execution", new StepPipeline.Phase() {
+                    @Override
+                    public void run() throws Exception {
+                        checkState(phase.compareAndSet(Phase.UPDATE, Phase.EXECUTION));
+                        executeAgents();
+                    }
+                }, "events")
+                .build();
     }
 
     @Override
@@ -82,17 +129,38 @@ public final class DefaultBasicEnvironment
     @Override
     public void nextStep() {
         synchronized (this) {
-            checkState(this.phase.compareAndSet(Phase.IDLE, Phase.UPDATE));
-            applyModifications();
-
-            checkState(this.phase.compareAndSet(Phase.UPDATE, Phase.EXECUTION));
-            executeAgents();
+            try {
+                phaseTimes = pipeline.run();
+            } catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while executing step " + getTime(), e);
+            }
 
             incrementTime(); // TODO: should be moved to the beginning of the loop
             checkState(this.phase.compareAndSet(Phase.EXECUTION, Phase.IDLE));
         }
     }
 
+    /**
+     * Get the seed from which the random generators of the agents are derived.
+     *
+     * @return the seed of this environment
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the wall time in nanoseconds each phase of the last step took.
+     *
+     * @return the phase times of the last step, keyed by the name of the phase
+     */
+    public Map<String, Long> getPhaseTimes() {
+        return phaseTimes;
+    }
+
     private void incrementTime() {
         final long previousStep = steps.getAndIncrement();
         final long currentStep = steps.get();
@@ -100,37 +168,34 @@ public final class DefaultBasicEnvironment
     }
 
     private void applyModifications() {
-        for (DelayedModification delayedModification : delayedModifications) {
+        for (DelayedModification delayedModification : delayedModifications.drain()) {
             delayedModification.apply();
         }
-        delayedModifications.clear();
         removeInactiveAgents();
     }
 
-    private void executeAgents() {
-        final List<ListenableFuture<?>> agentExecutions = Lists.newArrayList();
-        for (BasicAgent agent : agents) {
-            agentExecutions.add(executorService.submit(agent));
+    private void executeAgents() throws InterruptedException, ExecutionException {
+        final List<BasicAgent> activeAgents;
+        synchronized (agents) {
+            activeAgents = agents.snapshot();
         }
-        Futures.getUnchecked(Futures.allAsList(agentExecutions));
+        executionStrategy.execute(activeSet.filterAwake(activeAgents));
     }
 
     private void removeInactiveAgents() {
+        final List<BasicAgent> removed;
         synchronized (agents) {
-            for (Iterator<BasicAgent> iterator = agents.iterator(); iterator.hasNext(); ) {
-                BasicAgent agent = iterator.next();
-                if (!agent.isActive()) {
-                    iterator.remove();
-                    eventBus.post(new AgentRemovedEvent(agent, this));
-                }
-            }
+            removed = agents.removeInactive();
+        }
+        for (BasicAgent agent : removed) {
+            eventBus.post(new AgentRemovedEvent(agent, this));
         }
     }
 
     @Override
     public Iterable<BasicAgent> getActiveAgents() {
         synchronized (agents) {
-            return ImmutableList.copyOf(agents);
+            return agents.snapshot();
         }
     }
 
@@ -163,19 +228,22 @@ public final class DefaultBasicEnvironment
         this.delayedModifications.add(new AgentActivation(agent));
     }
 
-    private void activateAgent(final BasicAgent agent) {
+    private void activateAgent(final BasicAgent agent, final int agentId, final long activationStep) {
         assert agent != null;
-        agent.activate(contextFactory.createActiveContext(
-                this, agentIdSequence.incrementAndGet(), getTime()));
         synchronized (agents) {
-            agents.add(agent);
+            final int slot = agents.add(agent);
+            activeSet.wakeUp(slot);
+            agent.activate(contextFactory.createActiveContext(
+                    this, agentId, slot, activationStep, RandomGenerators.stream(seed, agentId)));
         }
         eventBus.post(new AgentAddedEvent(agent, this));
     }
 
     @Override
     public int countAgents() {
-        return standardCountAgents();
+        synchronized (agents) {
+            return agents.size();
+        }
     }
 
     @Override
@@ -193,19 +261,92 @@ public final class DefaultBasicEnvironment
                 final Set<BasicAgent> recipients = message.getRecipients();
                 for (BasicAgent recipient : recipients) {
                     recipient.ask(message, Void.class);
+                    activeSet.wakeUp(recipient);
                 }
             }
         });
     }
 
+    /**
+     * {@inheritDoc} <p>The agents are written in execution order, so that the restored environment executes them in
+     * the same order.</p>
+     */
+    @Override
+    public synchronized void checkpoint(final FileChannel channel, final CheckpointCodec<BasicAgent> codec)
+            throws IOException {
+        checkState(delayedModifications.isEmpty(), "Requested modifications are pending");
+        final List<BasicAgent> snapshot;
+        synchronized (agents) {
+            snapshot = agents.snapshot();
+        }
+        final List<Checkpoints.AgentState<BasicAgent>> agentStates =
+                Lists.newArrayListWithCapacity(snapshot.size());
+        for (final BasicAgent agent : snapshot) {
+            final BasicContext<BasicEnvironment, BasicAgent> context = agent.getContext().get();
+            agentStates.add(new Checkpoints.AgentState<>(agent, context.getAgentId(), context.getActivationStep(),
+                    activeSet.getWakeUpTime(agent), Checkpoints.randomState(context.getRandomGenerator()),
+                    null, null, Checkpoints.messagesOf(agent)));
+        }
+        Checkpoints.write(channel,
+                new Checkpoints.EnvironmentState<>(false, getTime(), seed, agentIdSequence.get(), agentStates), codec);
+    }
+
+    @Override
+    public synchronized void restore(final FileChannel channel, final CheckpointCodec<BasicAgent> codec)
+            throws IOException {
+        checkState(getTime() == 0 && countAgents() == 0 && delayedModifications.isEmpty(), "Environment is not new");
+        final Checkpoints.EnvironmentState<BasicAgent> checkpoint = Checkpoints.read(channel, codec);
+        if (checkpoint.isSpatial()) {
+            throw new IOException("Not the checkpoint of a non-spatial environment");
+        }
+
+        this.seed = checkpoint.getSeed();
+        steps.set(checkpoint.getTime());
+        agentIdSequence.set(checkpoint.getLastAgentId());
+        for (Checkpoints.AgentState<BasicAgent> agentState : checkpoint.getAgents()) {
+            activateAgent(agentState.getAgent(), agentState.getId(), agentState.getActivationStep());
+        }
+        Checkpoints.restoreAgents(checkpoint.getAgents(), activeSet, events);
+    }
+
     @Override
     public String getStatusInfo() {
         return String.format("%d agents; %d steps", countAgents(), getTime());
     }
 
+    /**
+     * Schedule the given event. Events are fired at the beginning of the step matching their time, after pending
+     * modifications were applied and before the agents are executed.
+     *
+     * @param e the event to schedule
+     */
     @Override
     public void schedule(final Event e) {
-        throw new UnsupportedOperationException("Not implemented");
+        checkNotNull(e);
+        checkArgument(e.getTime() >= getTime(), "Event is in the past: %s", e);
+        events.add(e);
+    }
+
+    @Override
+    public void suspend(final BasicAgent agent) {
+        activeSet.suspend(agent);
+    }
+
+    @Override
+    public void suspendUntil(final BasicAgent agent, final long time) {
+        checkArgument(time > getTime(), "Wake up time must be in the future: %s", time);
+        activeSet.suspend(agent, time);
+        events.add(activeSet.wakeUpEvent(agent, time));
+    }
+
+    @Override
+    public void wakeUp(final BasicAgent agent) {
+        activeSet.wakeUp(agent);
+    }
+
+    @Override
+    public boolean isSuspended(final BasicAgent agent) {
+        return activeSet.isSuspended(agent);
     }
 
     private interface DelayedModification {
@@ -228,21 +369,55 @@ public final class DefaultBasicEnvironment
      */
     public static class Builder {
         private final String name;
-        private ExecutorService executorService =
-                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        @Nullable
+        private ExecutorService executorService = null;
+        @Nullable
+        private AgentExecutionStrategy executionStrategy = null;
         private DefaultContextFactory<BasicEnvironment, BasicAgent> simulationContextFactory =
                 DefaultContextFactory.<BasicEnvironment, BasicAgent>create();
         private EventBus eventPublisher = new EventBus();
+        private long seed = RandomGenerators.nextSeed();
 
         private Builder(final String name) {
             this.name = name;
         }
 
+        /**
+         * Set the executor service used to execute the agents in partitions. Has no effect if an {@link
+         * #executionStrategy(AgentExecutionStrategy) execution strategy} is set.
+         *
+         * @param executorService the executor service to use
+         * @return this builder
+         */
         public Builder executorService(final ExecutorService executorService) {
             this.executorService = checkNotNull(executorService);
             return this;
         }
 
+        /**
+         * Set the strategy used to execute the agents in each step. By default, the agents are executed by the {@link
+         * SimulationExecutor#common() common simulation executor}.
+         *
+         * @param executionStrategy the strategy to use
+         * @return this builder
+         */
+        public Builder executionStrategy(final AgentExecutionStrategy executionStrategy) {
+            this.executionStrategy = checkNotNull(executionStrategy);
+            return this;
+        }
+
+        /**
+         * Set the seed from which the random generators of the agents are derived. By default, the next seed of {@link
+         * RandomGenerators#nextSeed()} is used.
+         *
+         * @param seed the seed
+         * @return this builder
+         */
+        public Builder seed(final long seed) {
+            this.seed = seed;
+            return this;
+        }
+
         public Builder eventBus(final EventBus eventBus) {
             this.eventPublisher = checkNotNull(eventBus);
             return this;
@@ -277,7 +452,7 @@ public final class DefaultBasicEnvironment
 
         @Override
         public void apply() {
-            activateAgent(agent);
+            activateAgent(agent, agentIdSequence.incrementAndGet(), getTime());
         }
 
         @Override
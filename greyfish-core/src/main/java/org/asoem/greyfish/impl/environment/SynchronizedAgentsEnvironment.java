@@ -19,12 +19,14 @@ package org.asoem.greyfish.impl.environment;
 
 import org.asoem.greyfish.core.agent.Agent;
 import org.asoem.greyfish.core.environment.DiscreteTimeEnvironment;
+import org.asoem.greyfish.core.scheduler.ActivityScheduler;
 import org.asoem.greyfish.core.scheduler.DiscreteEventScheduler;
 
 /**
  * A getSimulation which executes it's agents in discrete steps. Before each step all agents are synchronized, to ensure
- * that they all share the same knowledge.
+ * that they all share the same knowledge. Agents can {@link ActivityScheduler#suspend(Agent) suspend} themselves
+ * through the environment of their context to be skipped until they are woken up again.
  */
 public interface SynchronizedAgentsEnvironment<A extends Agent<?>>
-        extends DiscreteTimeEnvironment<A>, DiscreteEventScheduler {
+        extends DiscreteTimeEnvironment<A>, DiscreteEventScheduler, ActivityScheduler<A> {
 }
@@ -72,7 +72,23 @@ public class DefaultBasicTiled2DSpace extends ForwardingSpace2D<Basic2DAgent, Po
         return space.getObjects(tiles);
     }
 
+    public static BasicTiled2DSpace ofSize(final int width, final int height) {
+        return new DefaultBasicTiled2DSpace(WalledPointSpace.<Basic2DAgent>ofSize(width, height));
+    }
+
     public static BasicTiled2DSpace ofSize(final int width, final int height, final TwoDimTreeFactory<Basic2DAgent> twoDimTreeFactory) {
         return new DefaultBasicTiled2DSpace(WalledPointSpace.<Basic2DAgent>ofSize(width, height, twoDimTreeFactory));
     }
+
+    /**
+     * Create a space of given size with periodic boundaries.
+     *
+     * @param width  the number of columns
+     * @param height the number of rows
+     * @return a new toroidal space
+     * @see ToroidalSpace
+     */
+    public static BasicTiled2DSpace toroidal(final int width, final int height) {
+        return new DefaultBasicTiled2DSpace(ToroidalSpace.<Basic2DAgent>ofSize(width, height));
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.agent;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class AgentRegistryTest {
+
+    @Test
+    public void testAddAndRemove() throws Exception {
+        // given
+        final AgentRegistry<Agent<?>> registry = AgentRegistry.create();
+        final Agent<?> a = mock(Agent.class);
+        final Agent<?> b = mock(Agent.class);
+        final Agent<?> c = mock(Agent.class);
+        final int slotA = registry.add(a);
+        final int slotB = registry.add(b);
+        final int slotC = registry.add(c);
+
+        // when
+        final Agent<?> removed = registry.remove(slotA);
+
+        // then
+        assertThat(removed, is(sameInstance((Object) a)));
+        assertThat(registry.size(), is(2));
+        assertThat(registry.get(slotA), is(nullValue()));
+        assertThat(registry.get(slotB), is(sameInstance((Object) b)));
+        assertThat(registry.get(slotC), is(sameInstance((Object) c)));
+        assertThat(registry.snapshot(), containsInAnyOrder((Object) b, c));
+    }
+
+    @Test
+    public void testSlotsAreReused() throws Exception {
+        // given
+        final AgentRegistry<Agent<?>> registry = AgentRegistry.create();
+        final int slot = registry.add(mock(Agent.class));
+        registry.remove(slot);
+
+        // when
+        final int reused = registry.add(mock(Agent.class));
+
+        // then
+        assertThat(reused, is(slot));
+        assertThat(registry.capacity(), is(1));
+    }
+
+    @Test
+    public void testRemoveInactive() throws Exception {
+        // given
+        final AgentRegistry<Agent<?>> registry = AgentRegistry.create();
+        final List<Agent<?>> active = Lists.newArrayList();
+        for (int i = 0; i < 10000; i++) {
+            final Agent<?> agent = mock(Agent.class);
+            given(agent.isActive()).willReturn(i % 3 == 0);
+            registry.add(agent);
+            if (i % 3 == 0) {
+                active.add(agent);
+            }
+        }
+
+        // when
+        final List<Agent<?>> removed = registry.removeInactive();
+
+        // then
+        assertThat(removed, hasSize(10000 - active.size()));
+        assertThat(registry.size(), is(active.size()));
+        assertThat(registry.snapshot(), containsInAnyOrder(active.toArray()));
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedByModifications() throws Exception {
+        // given
+        final AgentRegistry<Agent<?>> registry = AgentRegistry.create();
+        final Agent<?> a = mock(Agent.class);
+        final Agent<?> b = mock(Agent.class);
+        final int slotA = registry.add(a);
+        registry.add(b);
+        final List<Agent<?>> snapshot = registry.snapshot();
+
+        // when
+        registry.remove(slotA);
+        registry.add(mock(Agent.class));
+
+        // then
+        assertThat(snapshot, contains((Object) a, b));
+        assertThat(registry.size(), is(2));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsReadOnly() throws Exception {
+        // given
+        final AgentRegistry<Agent<?>> registry = AgentRegistry.create();
+        registry.add(mock(Agent.class));
+
+        // when
+        registry.snapshot().remove(0);
+
+        // then
+        // expected UnsupportedOperationException
+    }
+}
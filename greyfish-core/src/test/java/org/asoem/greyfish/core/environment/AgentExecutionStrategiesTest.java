@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.environment;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import jsr166y.ForkJoinPool;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class AgentExecutionStrategiesTest {
+
+    @Test
+    public void testForkJoinRunsEachAgentOnce() throws Exception {
+        // given
+        final AtomicIntegerArray runs = new AtomicIntegerArray(5000);
+        final List<Runnable> agents = agents(runs);
+        final AgentExecutionStrategy strategy = AgentExecutionStrategies.forkJoin(new ForkJoinPool(4));
+
+        // when
+        strategy.execute(agents);
+
+        // then
+        for (int i = 0; i < runs.length(); i++) {
+            assertThat(runs.get(i), is(1));
+        }
+    }
+
+    @Test
+    public void testPartitionedRunsEachAgentOnce() throws Exception {
+        // given
+        final AtomicIntegerArray runs = new AtomicIntegerArray(5000);
+        final List<Runnable> agents = agents(runs);
+        final AgentExecutionStrategy strategy =
+                AgentExecutionStrategies.partitioned(MoreExecutors.sameThreadExecutor(), 1000);
+
+        // when
+        strategy.execute(agents);
+
+        // then
+        for (int i = 0; i < runs.length(); i++) {
+            assertThat(runs.get(i), is(1));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testForkJoinPropagatesExceptions() throws Exception {
+        // given
+        final List<Runnable> agents = Lists.newArrayList(agents(new AtomicIntegerArray(100)));
+        agents.set(42, new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException();
+            }
+        });
+        final AgentExecutionStrategy strategy = AgentExecutionStrategies.forkJoin();
+
+        // when
+        strategy.execute(agents);
+
+        // then
+        // expected IllegalStateException
+    }
+
+    /**
+     * Create agents whose execution time varies strongly.
+     */
+    private static List<Runnable> agents(final AtomicIntegerArray runs) {
+        final List<Runnable> agents = Lists.newArrayList();
+        for (int i = 0; i < runs.length(); i++) {
+            final int index = i;
+            agents.add(new Runnable() {
+                @Override
+                public void run() {
+                    double sink = 0;
+                    for (int j = 0; j < (index % 97) * 100; j++) {
+                        sink += Math.sqrt(j);
+                    }
+                    if (sink >= 0) {
+                        runs.incrementAndGet(index);
+                    }
+                }
+            });
+        }
+        return agents;
+    }
+}
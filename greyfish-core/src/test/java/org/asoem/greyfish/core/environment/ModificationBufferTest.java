@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.environment;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+public class ModificationBufferTest {
+
+    @Test
+    public void testDrainsInExecutionOrder() throws Exception {
+        // given
+        final ModificationBuffer<String> buffer = ModificationBuffer.create();
+        final List<Runnable> agents = ImmutableList.of(
+                request(buffer, "a1", "a2"),
+                request(buffer, "b1"),
+                request(buffer, "c1", "c2"));
+        final ExecutorService executorService = Executors.newFixedThreadPool(3);
+
+        // when
+        try {
+            final List<Future<?>> futures = Lists.newArrayList();
+            for (int i = agents.size() - 1; i >= 0; i--) {
+                final int index = i;
+                futures.add(executorService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        ModificationBuffer.run(agents, index);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        // then
+        assertThat(buffer.drain(), contains("a1", "a2", "b1", "c1", "c2"));
+    }
+
+    @Test
+    public void testUntaggedRequestsComeFirst() throws Exception {
+        // given
+        final ModificationBuffer<String> buffer = ModificationBuffer.create();
+        final List<Runnable> agents = ImmutableList.of(request(buffer, "tagged"));
+
+        // when
+        ModificationBuffer.run(agents, 0);
+        buffer.add("untagged");
+
+        // then
+        assertThat(buffer.drain(), contains("untagged", "tagged"));
+    }
+
+    @Test
+    public void testNestedExecutionRestoresRequester() throws Exception {
+        // given
+        final ModificationBuffer<String> buffer = ModificationBuffer.create();
+        final Runnable outer = new Runnable() {
+            @Override
+            public void run() {
+                ModificationBuffer.run(ImmutableList.of(request(buffer, "inner")), 0);
+                buffer.add("outer");
+            }
+        };
+
+        // when
+        ModificationBuffer.run(ImmutableList.of(request(buffer, "first"), outer), 1);
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    ModificationBuffer.run(ImmutableList.of(request(buffer, "first")), 0);
+                    return null;
+                }
+            }).get();
+        } finally {
+            executorService.shutdown();
+        }
+
+        // then
+        assertThat(buffer.drain(), contains("inner", "first", "outer"));
+    }
+
+    private static Runnable request(final ModificationBuffer<String> buffer, final String... modifications) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                for (String modification : modifications) {
+                    buffer.add(modification);
+                }
+            }
+        };
+    }
+}
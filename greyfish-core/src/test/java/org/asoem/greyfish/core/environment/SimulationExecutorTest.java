@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.environment;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+public class SimulationExecutorTest {
+
+    @Test
+    public void testRunsEachAgentOnce() throws Exception {
+        // given
+        final SimulationExecutor executor = SimulationExecutor.create("test", 4, 2, 7);
+        final AtomicIntegerArray runs = new AtomicIntegerArray(5000);
+        final List<Runnable> agents = agents(runs);
+
+        // when
+        try {
+            executor.execute(agents);
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        for (int i = 0; i < runs.length(); i++) {
+            assertThat(runs.get(i), is(1));
+        }
+    }
+
+    @Test
+    public void testNestedExecutionOnSharedThreads() throws Exception {
+        // given
+        final SimulationExecutor executor = SimulationExecutor.create("test", 2, 8, 16);
+        final SimulationExecutor outer = executor.withBatchSize(1);
+        final AtomicIntegerArray runs = new AtomicIntegerArray(4000);
+        final List<Runnable> agents = agents(runs);
+        final List<Runnable> environments = Lists.newArrayList();
+        for (int i = 0; i < 4; i++) {
+            final List<Runnable> partition = agents.subList(i * 1000, (i + 1) * 1000);
+            environments.add(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        executor.execute(partition);
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+        }
+
+        // when
+        try {
+            outer.execute(environments);
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        for (int i = 0; i < runs.length(); i++) {
+            assertThat(runs.get(i), is(1));
+        }
+    }
+
+    @Test
+    public void testSharedByConcurrentCallers() throws Exception {
+        // given
+        final SimulationExecutor executor = SimulationExecutor.create("test", 2, 1, 10);
+        final AtomicIntegerArray runs = new AtomicIntegerArray(2000);
+        final List<Runnable> agents = agents(runs);
+        final Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor.execute(agents.subList(1000, 2000));
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+
+        // when
+        other.start();
+        executor.execute(agents.subList(0, 1000));
+        other.join();
+        executor.shutdown();
+
+        // then
+        for (int i = 0; i < runs.length(); i++) {
+            assertThat(runs.get(i), is(1));
+        }
+        assertThat(executor.getQueueDepth(), is(0));
+    }
+
+    @Test
+    public void testFailureIsPropagated() throws Exception {
+        // given
+        final SimulationExecutor executor = SimulationExecutor.create("test", 2, 2, 3);
+        final List<Runnable> agents = agents(new AtomicIntegerArray(10));
+        agents.set(5, new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException();
+            }
+        });
+
+        // when
+        Throwable cause = null;
+        try {
+            executor.execute(agents);
+        } catch (ExecutionException e) {
+            cause = e.getCause();
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        assertThat(cause, is(instanceOf(IllegalStateException.class)));
+    }
+
+    private static List<Runnable> agents(final AtomicIntegerArray runs) {
+        final List<Runnable> agents = Lists.newArrayListWithCapacity(runs.length());
+        for (int i = 0; i < runs.length(); i++) {
+            final int index = i;
+            agents.add(new Runnable() {
+                @Override
+                public void run() {
+                    runs.incrementAndGet(index);
+                }
+            });
+        }
+        return agents;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.environment;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+public class StepPipelineTest {
+
+    @Test
+    public void testRunsPhasesInDeclaredOrder() throws Exception {
+        // given
+        final List<String> log = Collections.synchronizedList(Lists.<String>newArrayList());
+        final StepPipeline pipeline = StepPipeline.builder()
+                .phase("a", record(log, "a"))
+                .phase("b", record(log, "b"), "a")
+                .phase("c", record(log, "c"), "b")
+                .build();
+
+        // when
+        final Map<String, Long> times = pipeline.run();
+
+        // then
+        assertThat(log, contains("a", "b", "c"));
+        assertThat(times.keySet(), contains("a", "b", "c"));
+    }
+
+    @Test
+    public void testIndependentPhasesOverlap() throws Exception {
+        // given
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final StepPipeline.Phase awaitOther = new StepPipeline.Phase() {
+            @Override
+            public void run() throws Exception {
+                bothStarted.countDown();
+                if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new AssertionError("Phases did not overlap");
+                }
+            }
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final StepPipeline pipeline = StepPipeline.builder()
+                .executor(executor)
+                .phase("a", awaitOther)
+                .phase("b", awaitOther)
+                .build();
+
+        // when
+        try {
+            pipeline.run();
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        assertThat(bothStarted.getCount(), is(0L));
+    }
+
+    @Test
+    public void testExclusivePhaseRunsAlone() throws Exception {
+        // given
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final StepPipeline.Phase phase = new StepPipeline.Phase() {
+            @Override
+            public void run() throws Exception {
+                final int current = running.incrementAndGet();
+                maxRunning.set(Math.max(maxRunning.get(), current));
+                Thread.sleep(20);
+                running.decrementAndGet();
+            }
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        final StepPipeline pipeline = StepPipeline.builder()
+                .executor(executor)
+                .exclusivePhase("a", phase)
+                .exclusivePhase("b", phase)
+                .exclusivePhase("c", phase)
+                .build();
+
+        // when
+        try {
+            pipeline.run();
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        assertThat(maxRunning.get(), is(1));
+    }
+
+    @Test
+    public void testFailingPhaseStopsPipeline() throws Exception {
+        // given
+        final List<String> log = Collections.synchronizedList(Lists.<String>newArrayList());
+        final StepPipeline pipeline = StepPipeline.builder()
+                .phase("a", new StepPipeline.Phase() {
+                    @Override
+                    public void run() {
+                        throw new IllegalStateException();
+                    }
+                })
+                .phase("b", record(log, "b"), "a")
+                .build();
+
+        // when
+        Throwable cause = null;
+        try {
+            pipeline.run();
+        } catch (ExecutionException e) {
+            cause = e.getCause();
+        }
+
+        // then
+        assertThat(cause, is(instanceOf(IllegalStateException.class)));
+        assertThat(log.isEmpty(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDependency() throws Exception {
+        // when
+        StepPipeline.builder().phase("a", record(Lists.<String>newArrayList(), "a"), "b");
+
+        // then
+        // IllegalArgumentException
+    }
+
+    private static StepPipeline.Phase record(final List<String> log, final String name) {
+        return new StepPipeline.Phase() {
+            @Override
+            public void run() {
+                log.add(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import org.asoem.greyfish.core.agent.BasicAgentType;
+import org.asoem.greyfish.core.environment.AgentExecutionStrategies;
+import org.asoem.greyfish.core.environment.AgentExecutionStrategy;
+import org.asoem.greyfish.core.environment.Environment;
+import org.asoem.greyfish.core.environment.SimulationExecutor;
+import org.asoem.greyfish.core.io.SimulationLogger;
+import org.asoem.greyfish.impl.agent.DefaultBasicAgent;
+import org.asoem.greyfish.impl.environment.BasicEnvironment;
+import org.asoem.greyfish.impl.environment.DefaultBasicEnvironment;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ParameterSweepTest {
+
+    @Test
+    public void testGridPoints() throws Exception {
+        // given
+        final ParameterSweep.Builder<BasicEnvironment> builder = ParameterSweep.builder(TestModel.class);
+
+        // when
+        final ParameterSweep<BasicEnvironment> sweep = builder
+                .grid(ImmutableMap.of("agents", ImmutableList.of("1", "2"), "tag", ImmutableList.of("a", "b")))
+                .steps(1)
+                .build();
+
+        // then
+        assertThat(sweep.getPoints(), is(equalTo((List<Map<String, String>>) ImmutableList.<Map<String, String>>of(
+                ImmutableMap.of("agents", "1", "tag", "a"),
+                ImmutableMap.of("agents", "1", "tag", "b"),
+                ImmutableMap.of("agents", "2", "tag", "a"),
+                ImmutableMap.of("agents", "2", "tag", "b")))));
+    }
+
+    @Test
+    public void testRunsAllPoints() throws Exception {
+        // given
+        final ParameterSweep<BasicEnvironment> sweep = ParameterSweep.builder(TestModel.class)
+                .grid(ImmutableMap.of("agents", ImmutableList.of("1", "2", "3"), "tag", ImmutableList.of("a", "b")))
+                .steps(3)
+                .threads(2)
+                .parallelism(2)
+                .name("test")
+                .build();
+        final Map<String, Environment<?>> done = Maps.newConcurrentMap();
+        sweep.addSimulationListener(new SimulationListener() {
+            @Override
+            public void started(final Environment<?> environment) {
+            }
+
+            @Override
+            public void done(final Environment<?> environment) {
+                done.put(environment.getName(), environment);
+            }
+        });
+
+        // when
+        sweep.run();
+
+        // then
+        assertThat(done.size(), is(6));
+        for (int i = 0; i < 6; i++) {
+            final BasicEnvironment environment = (BasicEnvironment) done.get("test#" + i);
+            assertThat(environment.getTime(), is(3L));
+            assertThat(environment.countAgents(), is(equalTo(i / 2 + 1)));
+        }
+    }
+
+    @Test
+    public void testParametersAreLogged() throws Exception {
+        // given
+        final SimulationLogger simulationLogger = mock(SimulationLogger.class);
+        final ParameterSweep<BasicEnvironment> sweep = ParameterSweep.builder(TestModel.class)
+                .point(ImmutableMap.of("agents", "4", "tag", "x"))
+                .steps(0)
+                .name("test")
+                .logger(simulationLogger)
+                .build();
+
+        // when
+        sweep.run();
+
+        // then
+        verify(simulationLogger).logProperty("test#0", "agents", "4");
+        verify(simulationLogger).logProperty("test#0", "tag", "x");
+    }
+
+    @Test
+    public void testAgentsRunSequentiallyIfTheBudgetIsUsedBySimulations() throws Exception {
+        // given
+        strategies.clear();
+        final ParameterSweep<BasicEnvironment> sweep = ParameterSweep.builder(TestModel.class)
+                .grid(ImmutableMap.of("agents", ImmutableList.of("1", "2"), "tag", ImmutableList.of("a")))
+                .steps(1)
+                .threads(2)
+                .parallelism(2)
+                .build();
+
+        // when
+        sweep.run();
+
+        // then
+        assertThat(strategies, everyItem(Matchers.<AgentExecutionStrategy>is(AgentExecutionStrategies.sequential())));
+    }
+
+    @Test
+    public void testAgentsShareTheRemainingThreads() throws Exception {
+        // given
+        strategies.clear();
+        final ParameterSweep<BasicEnvironment> sweep = ParameterSweep.builder(TestModel.class)
+                .grid(ImmutableMap.of("agents", ImmutableList.of("1", "2"), "tag", ImmutableList.of("a")))
+                .steps(1)
+                .threads(3)
+                .parallelism(1)
+                .build();
+
+        // when
+        sweep.run();
+
+        // then
+        assertThat(strategies, everyItem(Matchers.<AgentExecutionStrategy>instanceOf(SimulationExecutor.class)));
+        assertThat(ImmutableSet.copyOf(strategies).size(), is(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParallelismMustNotExceedTheBudget() throws Exception {
+        // when
+        ParameterSweep.builder(TestModel.class)
+                .point(ImmutableMap.of("agents", "1", "tag", "a"))
+                .steps(1)
+                .threads(1)
+                .parallelism(2)
+                .build();
+    }
+
+    private static final List<AgentExecutionStrategy> strategies =
+            Collections.synchronizedList(Lists.<AgentExecutionStrategy>newArrayList());
+
+    private static final class TestModel implements SimulationModel<BasicEnvironment> {
+        @ModelParameter("agents")
+        private int agents;
+        @ModelParameter("tag")
+        private String tag;
+        private final String simulationName;
+        private final AgentExecutionStrategy executionStrategy;
+
+        @Inject
+        private TestModel(@Named("simulationName") final String simulationName,
+                          final AgentExecutionStrategy executionStrategy) {
+            this.simulationName = simulationName;
+            this.executionStrategy = executionStrategy;
+            strategies.add(executionStrategy);
+        }
+
+        @Override
+        public BasicEnvironment createSimulation() {
+            final BasicEnvironment environment = DefaultBasicEnvironment.builder(simulationName)
+                    .executionStrategy(executionStrategy)
+                    .build();
+            for (int i = 0; i < agents; i++) {
+                environment.enqueueAddition(DefaultBasicAgent.builder().setType(new BasicAgentType(tag)).build());
+            }
+            return environment;
+        }
+    }
+}
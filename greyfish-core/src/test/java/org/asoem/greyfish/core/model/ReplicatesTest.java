@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.model;
+
+import com.google.common.collect.ImmutableSet;
+import org.asoem.greyfish.core.environment.AgentExecutionStrategies;
+import org.asoem.greyfish.core.environment.AgentExecutionStrategy;
+import org.asoem.greyfish.impl.agent.Basic2DAgent;
+import org.asoem.greyfish.impl.agent.DefaultBasic2DAgent;
+import org.asoem.greyfish.impl.environment.Basic2DEnvironment;
+import org.asoem.greyfish.impl.environment.DefaultBasic2DEnvironment;
+import org.asoem.greyfish.impl.space.DefaultBasicTiled2DSpace;
+import org.asoem.greyfish.utils.space.ImmutablePoint2D;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ReplicatesTest {
+
+    @Test
+    public void testReplicatesAreCreatedByTheModel() throws Exception {
+        // given
+        final TestModel model = new TestModel();
+
+        // when
+        final Replicates<Basic2DEnvironment> replicates = Replicates.create(model, 3);
+
+        // then
+        assertThat(replicates.size(), is(3));
+        assertThat(model.created.get(), is(3));
+    }
+
+    @Test
+    public void testLockstep() throws Exception {
+        // given
+        final Replicates<Basic2DEnvironment> replicates = Replicates.create(new TestModel(), 4);
+
+        // when
+        replicates.run(5);
+
+        // then
+        assertThat(replicates.getTime(), is(5L));
+        for (Basic2DEnvironment replicate : replicates.getReplicates()) {
+            assertThat(replicate.getTime(), is(5L));
+            assertThat(replicate.countAgents(), is(2));
+        }
+    }
+
+    @Test
+    public void testStepsAreExecutedByTheStrategy() throws Exception {
+        // given
+        final AtomicInteger tasks = new AtomicInteger();
+        final AgentExecutionStrategy strategy = new AgentExecutionStrategy() {
+            @Override
+            public void execute(final List<? extends Runnable> agents)
+                    throws InterruptedException, ExecutionException {
+                tasks.addAndGet(agents.size());
+                AgentExecutionStrategies.sequential().execute(agents);
+            }
+        };
+        final Replicates<Basic2DEnvironment> replicates = Replicates.create(new TestModel(), 3, strategy);
+
+        // when
+        replicates.nextStep();
+
+        // then
+        assertThat(tasks.get(), is(3));
+    }
+
+    private static final class TestModel implements SimulationModel<Basic2DEnvironment> {
+        private final Basic2DAgent prototype = DefaultBasic2DAgent.builder().build();
+        private final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public Basic2DEnvironment createSimulation() {
+            created.incrementAndGet();
+            final DefaultBasic2DEnvironment environment =
+                    DefaultBasic2DEnvironment.builder(DefaultBasicTiled2DSpace.ofSize(2, 2), ImmutableSet.of(prototype))
+                            .executionStrategy(AgentExecutionStrategies.sequential())
+                            .build();
+            environment.addAgent(DefaultBasic2DAgent.builder().build(), ImmutablePoint2D.at(0.5, 0.5));
+            environment.addAgent(DefaultBasic2DAgent.builder().build(), ImmutablePoint2D.at(1.5, 1.5));
+            return environment;
+        }
+    }
+}
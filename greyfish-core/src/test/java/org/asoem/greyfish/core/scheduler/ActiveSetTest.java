@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.scheduler;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import org.asoem.greyfish.core.agent.Agent;
+import org.asoem.greyfish.core.agent.Context;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class ActiveSetTest {
+
+    @Test
+    public void testFilterAwake() throws Exception {
+        // given
+        final ActiveSet activeSet = ActiveSet.create();
+        final Agent<?> a = agent(0);
+        final Agent<?> b = agent(1);
+        final Agent<?> c = agent(2);
+        activeSet.suspend(b);
+
+        // when
+        final List<Agent<?>> awake = activeSet.filterAwake(ImmutableList.<Agent<?>>of(a, b, c));
+
+        // then
+        assertThat(awake, contains((Object) a, c));
+        assertThat(activeSet.isSuspended(b), is(true));
+        assertThat(activeSet.countSuspended(), is(1));
+    }
+
+    @Test
+    public void testWakeUp() throws Exception {
+        // given
+        final ActiveSet activeSet = ActiveSet.create();
+        final Agent<?> a = agent(20);
+        activeSet.suspend(a);
+
+        // when
+        final boolean wasSuspended = activeSet.wakeUp(a);
+
+        // then
+        assertThat(wasSuspended, is(true));
+        assertThat(activeSet.isSuspended(a), is(false));
+        assertThat(activeSet.countSuspended(), is(0));
+    }
+
+    @Test
+    public void testWakeUpEvent() throws Exception {
+        // given
+        final ActiveSet activeSet = ActiveSet.create();
+        final Agent<?> a = agent(3);
+        activeSet.suspend(a, 10);
+        final Event event = activeSet.wakeUpEvent(a, 10);
+
+        // when
+        event.fire();
+
+        // then
+        assertThat(activeSet.isSuspended(a), is(false));
+    }
+
+    @Test
+    public void testOutdatedWakeUpEventIsIgnored() throws Exception {
+        // given
+        final ActiveSet activeSet = ActiveSet.create();
+        final Agent<?> a = agent(3);
+        activeSet.suspend(a, 10);
+        final Event outdated = activeSet.wakeUpEvent(a, 10);
+        activeSet.wakeUp(a);
+        activeSet.suspend(a, 20);
+
+        // when
+        outdated.fire();
+
+        // then
+        assertThat(activeSet.isSuspended(a), is(true));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Agent<?> agent(final int slot) {
+        final Agent<Context<?, ?>> agent = mock(Agent.class);
+        final Context<?, ?> context = mock(Context.class);
+        given(context.getSlot()).willReturn(slot);
+        given(agent.getContext()).willReturn(Optional.<Context<?, ?>>of(context));
+        given(agent.isActive()).willReturn(true);
+        return agent;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.scheduler;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class CalendarSchedulerTest {
+
+    @Test
+    public void testNextStepSkipsToNextEvent() throws Exception {
+        // given
+        final CalendarScheduler scheduler = CalendarScheduler.create();
+        final List<String> log = Lists.newArrayList();
+        scheduler.schedule(new EventCalendarTest.TestEvent(10, log, "a"));
+        scheduler.schedule(new EventCalendarTest.TestEvent(1000, log, "b"));
+
+        // when
+        scheduler.nextStep();
+
+        // then
+        assertThat(scheduler.getTime(), is(10L));
+        assertThat(log, contains("a"));
+        assertThat(scheduler.countPendingEvents(), is(1));
+    }
+
+    @Test
+    public void testAdvanceTo() throws Exception {
+        // given
+        final CalendarScheduler scheduler = CalendarScheduler.create();
+        final List<String> log = Lists.newArrayList();
+        scheduler.schedule(new EventCalendarTest.TestEvent(5, log, "a"));
+        scheduler.schedule(new EventCalendarTest.TestEvent(3, log, "b"));
+        scheduler.schedule(new EventCalendarTest.TestEvent(20, log, "c"));
+
+        // when
+        scheduler.advanceTo(10);
+
+        // then
+        assertThat(scheduler.getTime(), is(10L));
+        assertThat(log, contains("b", "a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScheduleInThePast() throws Exception {
+        // given
+        final CalendarScheduler scheduler = CalendarScheduler.create(10);
+
+        // when
+        scheduler.schedule(new EventCalendarTest.TestEvent(9, null));
+
+        // then
+        // IllegalArgumentException
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.scheduler;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class EventCalendarTest {
+
+    @Test
+    public void testPollDueInTimeOrder() throws Exception {
+        // given
+        final EventCalendar calendar = EventCalendar.create();
+        final Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            calendar.add(new TestEvent(random.nextInt(100), null));
+        }
+
+        // when
+        final List<Event> due = calendar.pollDue(49);
+
+        // then
+        long previous = Long.MIN_VALUE;
+        for (Event event : due) {
+            assertThat(event.getTime() >= previous, is(true));
+            assertThat(event.getTime() <= 49, is(true));
+            previous = event.getTime();
+        }
+        assertThat(calendar.nextTime() >= 50, is(true));
+        assertThat(due.size() + calendar.size(), is(1000));
+    }
+
+    @Test
+    public void testEqualTimesInInsertionOrder() throws Exception {
+        // given
+        final EventCalendar calendar = EventCalendar.create();
+        final List<String> log = Lists.newArrayList();
+        calendar.add(new TestEvent(2, log, "c"));
+        calendar.add(new TestEvent(1, log, "a"));
+        calendar.add(new TestEvent(2, log, "d"));
+        calendar.add(new TestEvent(1, log, "b"));
+
+        // when
+        calendar.fireDue(2);
+
+        // then
+        assertThat(log, contains("a", "b", "c", "d"));
+        assertThat(calendar.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testFireDueIncludesEventsScheduledWhileFiring() throws Exception {
+        // given
+        final EventCalendar calendar = EventCalendar.create();
+        final List<String> log = Lists.newArrayList();
+        calendar.add(new TestEvent(1, log, "a") {
+            @Override
+            public void fire() {
+                super.fire();
+                calendar.add(new TestEvent(1, log, "b"));
+                calendar.add(new TestEvent(2, log, "c"));
+            }
+        });
+
+        // when
+        final int fired = calendar.fireDue(1);
+
+        // then
+        assertThat(fired, is(2));
+        assertThat(log, contains("a", "b"));
+        assertThat(calendar.nextTime(), is(2L));
+    }
+
+    @Test
+    public void testNextTimeOfEmptyCalendar() throws Exception {
+        // given
+        final EventCalendar calendar = EventCalendar.create();
+
+        // when
+        final long nextTime = calendar.nextTime();
+
+        // then
+        assertThat(nextTime, is(Long.MAX_VALUE));
+    }
+
+    static class TestEvent implements Event {
+        private final long time;
+        private final List<String> log;
+        private final String name;
+
+        TestEvent(final long time, final List<String> log) {
+            this(time, log, null);
+        }
+
+        TestEvent(final long time, final List<String> log, final String name) {
+            this.time = time;
+            this.log = log;
+            this.name = name;
+        }
+
+        @Override
+        public long getTime() {
+            return time;
+        }
+
+        @Override
+        public void fire() {
+            if (log != null) {
+                log.add(name);
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.space;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.asoem.greyfish.utils.space.*;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.asoem.greyfish.utils.space.ImmutablePoint2D.at;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ToroidalSpaceTest {
+
+    @Test
+    public void testMoveWrapsAroundEdges() throws Exception {
+        // given
+        final ToroidalSpace<String> space = ToroidalSpace.ofSize(10, 5);
+        space.insertObject("a", at(9.5, 0.5));
+
+        // when
+        space.moveObject("a", ImmutableMotion2D.of(0, 1));
+
+        // then
+        final Point2D projection = space.getProjection("a");
+        assertThat(projection.getX(), is(closeTo(0.5, 1e-9)));
+        assertThat(projection.getY(), is(closeTo(0.5, 1e-9)));
+    }
+
+    @Test
+    public void testRotateInPlace() throws Exception {
+        // given
+        final ToroidalSpace<String> space = ToroidalSpace.ofSize(10, 5);
+        space.insertObject("a", at(9.5, 0.5));
+
+        // when
+        space.moveObject("a", ImmutableMotion2D.of(Math.PI / 2, 0));
+
+        // then
+        assertThat(space.getProjection("a"), is(equalTo((Point2D) at(9.5, 0.5))));
+        assertThat(space.getOrientation("a"), is(closeTo(Math.PI / 2, 1e-9)));
+    }
+
+    @Test
+    public void testMoveObjectsAtWrapsAroundEdges() throws Exception {
+        // given
+        final ToroidalSpace<String> space = ToroidalSpace.ofSize(10, 5);
+        space.insertObject("a", at(9.5, 0.5));
+        space.insertObject("b", at(0.5, 0.5));
+        final int[] slots = {space.slotOf("a")};
+
+        // when
+        space.moveObjectsAt(slots, new Motion2D[]{ImmutableMotion2D.of(0, 1)}, 1);
+
+        // then
+        final Point2D projection = space.getProjectionAt(space.slotOf("a"));
+        assertThat(projection.getX(), is(closeTo(0.5, 1e-9)));
+        assertThat(projection.getY(), is(closeTo(0.5, 1e-9)));
+        assertThat(space.getProjection("b"), is(equalTo((Point2D) at(0.5, 0.5))));
+    }
+
+    @Test
+    public void testFindObjectsAcrossCorner() throws Exception {
+        // given
+        final ToroidalSpace<String> space = ToroidalSpace.ofSize(10, 10);
+        space.insertObject("near", at(9.5, 9.5));
+        space.insertObject("far", at(5, 5));
+
+        // when
+        final Iterable<String> objects = space.findObjects(0.2, 0.2, 1.0);
+
+        // then
+        assertThat(objects, contains("near"));
+    }
+
+    @Test
+    public void testDistanceUsesNearestImage() throws Exception {
+        // given
+        final ToroidalSpace<String> space = ToroidalSpace.ofSize(10, 10);
+
+        // when
+        final double distance = space.distance(0.5, 5, 9.5, 5);
+
+        // then
+        assertThat(distance, is(closeTo(1.0, 1e-9)));
+    }
+
+    @Test
+    public void testRangeQueriesEqualBruteForce() throws Exception {
+        // given
+        final Random random = new Random(0);
+        final ToroidalSpace<Integer> treeSpace = ToroidalSpace.ofSize(20, 10);
+        final ToroidalSpace<Integer> gridSpace =
+                ToroidalSpace.ofSize(20, 10, SpatialIndexes.<Integer>uniformGrid(1.0));
+        for (int i = 0; i < 1000; i++) {
+            final Point2D point = at(random.nextDouble() * 20, random.nextDouble() * 10);
+            treeSpace.insertObject(i, point);
+            gridSpace.insertObject(i, point);
+        }
+
+        for (int q = 0; q < 100; q++) {
+            final double x = random.nextDouble() * 20;
+            final double y = random.nextDouble() * 10;
+            final double radius = random.nextDouble() * 6;
+
+            // when
+            final Set<Integer> fromTree = ImmutableSet.copyOf(treeSpace.findObjects(x, y, radius));
+            final Set<Integer> fromGrid = ImmutableSet.copyOf(gridSpace.findObjects(x, y, radius));
+
+            // then
+            final Set<Integer> expected = bruteForce(treeSpace, x, y, radius);
+            assertThat(fromTree, is(equalTo(expected)));
+            assertThat(fromGrid, is(equalTo(expected)));
+            assertThat(Lists.newArrayList(treeSpace.findObjects(x, y, radius)), hasSize(expected.size()));
+        }
+    }
+
+    @Test
+    public void testFindNearestObjectsEqualsBruteForce() throws Exception {
+        // given
+        final Random random = new Random(1);
+        final ToroidalSpace<Integer> space = ToroidalSpace.ofSize(10, 10);
+        for (int i = 0; i < 200; i++) {
+            space.insertObject(i, at(random.nextDouble() * 10, random.nextDouble() * 10));
+        }
+
+        for (int q = 0; q < 100; q++) {
+            final double x = random.nextDouble() * 10;
+            final double y = random.nextDouble() * 10;
+            final int k = 1 + random.nextInt(20);
+
+            // when
+            final List<Integer> nearest = space.findNearestObjects(x, y, k);
+
+            // then
+            final List<Integer> expected = Lists.newArrayList(space.getObjects());
+            Collections.sort(expected, byDistance(space, x, y));
+            assertThat(nearest, is(equalTo(expected.subList(0, k))));
+        }
+    }
+
+    @Test
+    public void testGetAllVisibleNeighboursEqualsSingleQueries() throws Exception {
+        // given
+        final Random random = new Random(2);
+        final ToroidalSpace<Integer> space = ToroidalSpace.ofSize(15, 8);
+        for (int i = 0; i < 500; i++) {
+            space.insertObject(i, at(random.nextDouble() * 15, random.nextDouble() * 8));
+        }
+
+        // when
+        final Map<Integer, List<Integer>> neighbours = space.getAllVisibleNeighbours(2.0);
+
+        // then
+        for (Integer object : space.getObjects()) {
+            assertThat(ImmutableSet.copyOf(neighbours.get(object)),
+                    is(equalTo(ImmutableSet.copyOf(space.getVisibleNeighbours(object, 2.0)))));
+        }
+    }
+
+    private static Set<Integer> bruteForce(final ToroidalSpace<Integer> space,
+                                           final double x, final double y, final double radius) {
+        final ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
+        for (Integer object : space.getObjects()) {
+            final Point2D point = space.getProjection(object);
+            if (space.distance(x, y, point.getX(), point.getY()) <= radius) {
+                builder.add(object);
+            }
+        }
+        return builder.build();
+    }
+
+    private static Comparator<Integer> byDistance(final ToroidalSpace<Integer> space, final double x, final double y) {
+        return new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer o1, final Integer o2) {
+                final Point2D p1 = space.getProjection(o1);
+                final Point2D p2 = space.getProjection(o2);
+                return Double.compare(
+                        space.distance(x, y, p1.getX(), p1.getY()), space.distance(x, y, p2.getX(), p2.getY()));
+            }
+        };
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.space;
+
+import org.asoem.greyfish.utils.space.TileDirection;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class WallVisibilityTest {
+
+    @Test
+    public void testOpenSpaceIsUnobstructed() throws Exception {
+        // given
+        final WalledPointSpace<Object> space = WalledPointSpace.ofSize(5, 5);
+        final WallVisibility visibility = new WallVisibility(space);
+
+        // when
+        final boolean unobstructed = visibility.isUnobstructed(0, 0, 4, 4);
+
+        // then
+        assertThat(unobstructed, is(true));
+    }
+
+    @Test
+    public void testInnerWallObstructs() throws Exception {
+        // given
+        final WalledPointSpace<Object> space = WalledPointSpace.<Object>builder(5, 5)
+                .addWall(2, 2, TileDirection.SOUTH)
+                .build();
+        final WallVisibility visibility = new WallVisibility(space);
+
+        // when
+        final boolean across = visibility.isUnobstructed(2, 1, 2, 4);
+        final boolean besides = visibility.isUnobstructed(0, 0, 1, 4);
+        final boolean above = visibility.isUnobstructed(0, 0, 4, 2);
+
+        // then
+        assertThat(across, is(false));
+        assertThat(besides, is(true));
+        assertThat(above, is(true));
+    }
+
+    @Test
+    public void testOneSidedWallObstructs() throws Exception {
+        // given
+        final WalledPointSpace<Object> space = WalledPointSpace.ofSize(3, 1);
+        space.getTileAt(1, 0).setWall(TileDirection.EAST, true);
+        final WallVisibility visibility = new WallVisibility(space);
+
+        // when
+        final boolean unobstructed = visibility.isUnobstructed(2, 0, 0, 0);
+
+        // then
+        assertThat(unobstructed, is(false));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        // given
+        final WalledPointSpace<Object> space = WalledPointSpace.ofSize(3, 1);
+        final WallVisibility visibility = new WallVisibility(space);
+        assertThat(visibility.isUnobstructed(0, 0, 2, 0), is(true));
+
+        // when
+        space.getTileAt(1, 0).setWall(TileDirection.EAST, true);
+        visibility.invalidate();
+
+        // then
+        assertThat(visibility.isUnobstructed(0, 0, 2, 0), is(false));
+    }
+}
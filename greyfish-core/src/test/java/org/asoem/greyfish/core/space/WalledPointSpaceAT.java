@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.space;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.asoem.greyfish.utils.space.ImmutablePoint2D;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Test whether the cost of neighbour queries in {@link WalledPointSpace} grows linearly with the number of found
+ * neighbours and does not depend on the total number of objects in the space.
+ */
+public class WalledPointSpaceAT {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalledPointSpaceAT.class);
+
+    private static final int SIZE = 50;
+    private static final int QUERIES = 200;
+    private static final int MEASUREMENTS = 30;
+
+    @Test
+    public void testQueryCostIndependentOfPopulationSize() throws Exception {
+        // given
+        final double smallPopulationCost = nanosPerNeighbour(2500, 3.0);
+        final double largePopulationCost = nanosPerNeighbour(20000, 3.0);
+
+        // then
+        logger.info("ns per neighbour: {} (n=2500), {} (n=20000)", smallPopulationCost, largePopulationCost);
+        assertThat(largePopulationCost, is(lessThan(3 * smallPopulationCost)));
+    }
+
+    @Test
+    public void testQueryCostLinearInResultSize() throws Exception {
+        // given
+        final double smallRangeCost = nanosPerNeighbour(10000, 1.0);
+        final double largeRangeCost = nanosPerNeighbour(10000, 4.0);
+
+        // then
+        logger.info("ns per neighbour: {} (r=1), {} (r=4)", smallRangeCost, largeRangeCost);
+        assertThat(largeRangeCost, is(lessThan(3 * smallRangeCost)));
+    }
+
+    /**
+     * Measure the median time needed per found neighbour for {@link WalledPointSpace#getVisibleNeighbours(Object,
+     * double)} in a space populated with {@code population} objects.
+     */
+    private static double nanosPerNeighbour(final int population, final double range) {
+        final Random random = new Random(0);
+        final WalledPointSpace<Integer> space = WalledPointSpace.<Integer>builder(SIZE, SIZE).build();
+        for (int i = 0; i < population; i++) {
+            space.insertObject(i, ImmutablePoint2D.at(random.nextDouble() * SIZE, random.nextDouble() * SIZE));
+        }
+        final List<Integer> focals = Lists.newArrayList();
+        for (int i = 0; i < QUERIES; i++) {
+            focals.add(random.nextInt(population));
+        }
+
+        // warm up and build the index
+        query(space, focals, range);
+
+        final DescriptiveStatistics statistics = new DescriptiveStatistics();
+        for (int i = 0; i < MEASUREMENTS; i++) {
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            final long neighbours = query(space, focals, range);
+            statistics.addValue((double) stopwatch.elapsed(TimeUnit.NANOSECONDS) / neighbours);
+        }
+        return statistics.getPercentile(50);
+    }
+
+    private static long query(final WalledPointSpace<Integer> space, final List<Integer> focals, final double range) {
+        long count = 0;
+        for (Integer focal : focals) {
+            count += Iterables.size(space.getVisibleNeighbours(focal, range));
+        }
+        return count;
+    }
+}
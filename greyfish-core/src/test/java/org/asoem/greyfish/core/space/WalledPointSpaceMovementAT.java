@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.core.space;
+
+import com.google.common.base.Stopwatch;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.asoem.greyfish.utils.space.ImmutablePoint2D;
+import org.asoem.greyfish.utils.space.Point2D;
+import org.asoem.greyfish.utils.space.TileDirection;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Test whether the cost of wall collision checks in {@link WalledPointSpace} grows linearly with the number of tiles
+ * crossed by a movement, so that long moves across large arenas are not more expensive per tile than short ones.
+ */
+public class WalledPointSpaceMovementAT {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalledPointSpaceMovementAT.class);
+
+    private static final int SIZE = 1000;
+    private static final int MOVES = 2000;
+    private static final int MEASUREMENTS = 30;
+
+    @Test
+    public void testMovementCostLinearInDistance() throws Exception {
+        // given
+        final WalledPointSpace<Object> space = WalledPointSpace.<Object>builder(SIZE, SIZE)
+                .addWallsVertical(SIZE / 2, 0, SIZE / 4, TileDirection.EAST)
+                .build();
+
+        // when
+        final double shortMoveCost = nanosPerTile(space, 4);
+        final double longMoveCost = nanosPerTile(space, 400);
+
+        // then
+        logger.info("ns per crossed tile: {} (d=4), {} (d=400)", shortMoveCost, longMoveCost);
+        assertThat(longMoveCost, is(lessThan(3 * shortMoveCost)));
+    }
+
+    /**
+     * Measure the median time needed per crossed tile for {@link WalledPointSpace#maxTransition(Point2D, Point2D)} for
+     * moves of the given {@code distance} in random directions.
+     */
+    private static double nanosPerTile(final WalledPointSpace<Object> space, final double distance) {
+        final Random random = new Random(0);
+        final Point2D[] origins = new Point2D[MOVES];
+        final Point2D[] destinations = new Point2D[MOVES];
+        double tiles = 0;
+        for (int i = 0; i < MOVES; i++) {
+            final double angle = random.nextDouble() * 2 * Math.PI;
+            final double dx = distance * Math.cos(angle);
+            final double dy = distance * Math.sin(angle);
+            final double x = distance + random.nextDouble() * (SIZE - 2 * distance);
+            final double y = distance + random.nextDouble() * (SIZE - 2 * distance);
+            origins[i] = ImmutablePoint2D.at(x, y);
+            destinations[i] = ImmutablePoint2D.at(x + dx, y + dy);
+            tiles += Math.abs(dx) + Math.abs(dy) + 1;
+        }
+
+        // warm up
+        move(space, origins, destinations);
+
+        final DescriptiveStatistics statistics = new DescriptiveStatistics();
+        for (int i = 0; i < MEASUREMENTS; i++) {
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            move(space, origins, destinations);
+            statistics.addValue(stopwatch.elapsed(TimeUnit.NANOSECONDS) / tiles);
+        }
+        return statistics.getPercentile(50);
+    }
+
+    private static double move(final WalledPointSpace<Object> space,
+                               final Point2D[] origins, final Point2D[] destinations) {
+        double sum = 0;
+        for (int i = 0; i < origins.length; i++) {
+            sum += space.maxTransition(origins[i], destinations[i]).getX();
+        }
+        return sum;
+    }
+}
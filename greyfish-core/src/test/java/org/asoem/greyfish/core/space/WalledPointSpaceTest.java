@@ -17,6 +17,8 @@
 
 package org.asoem.greyfish.core.space;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import org.asoem.greyfish.core.agent.Agent;
@@ -26,6 +28,10 @@ import org.asoem.greyfish.utils.space.*;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
 import static org.asoem.greyfish.utils.space.ImmutablePoint2D.at;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -188,7 +194,7 @@ public class WalledPointSpaceTest {
 
         // then
         final Point2D projection = space.getProjection(agent);
-        assertThat(projection, is(equalTo((Point2D) at(0, 0))));
+        assertThat(projection, is(equalTo((Point2D) at(Math.nextAfter(1.0, -Double.MIN_VALUE), 0))));
     }
 
 
@@ -206,7 +212,84 @@ public class WalledPointSpaceTest {
 
         // then
         final Point2D projection = space.getProjection(agent);
-        assertThat(projection, is(equalTo((Point2D) at(0, 0))));
+        assertThat(projection, is(equalTo((Point2D) Geometry2D.polarToCartesian(Math.PI / 4, 1))));
+    }
+
+    @Test
+    public void testRotateInPlace() throws Exception {
+        // given
+        final WalledPointSpace<String> space = WalledPointSpace.ofSize(2, 2);
+        space.insertObject("a", at(0.5, 0.5));
+
+        // when
+        space.moveObject("a", ImmutableMotion2D.of(-Math.PI / 2, 0));
+
+        // then
+        assertThat(space.getProjection("a"), is(equalTo((Point2D) at(0.5, 0.5))));
+        assertThat(space.getOrientation("a"), is(closeTo(1.5 * Math.PI, 1e-9)));
+        assertThat(space.findObjects(0.5, 0.5, 0.1), contains("a"));
+    }
+
+    @Test
+    public void testMoveObjectsEqualsSingleMoves() throws Exception {
+        // given
+        final Random random = new Random(0);
+        final WalledPointSpace.TiledSpaceBuilder<Integer> builder = WalledPointSpace.<Integer>builder(20, 20)
+                .addWallsVertical(10, 0, 15, TileDirection.EAST);
+        final WalledPointSpace<Integer> space = builder.build();
+        final WalledPointSpace<Integer> reference = builder.build();
+        final Map<Integer, Motion2D> motions = Maps.newHashMap();
+        for (int i = 0; i < 5000; i++) {
+            final Point2D origin = at(random.nextDouble() * 20, random.nextDouble() * 20);
+            final Motion2D motion = ImmutableMotion2D.of(random.nextDouble() * 2 * Math.PI, random.nextDouble() * 5);
+            space.insertObject(i, origin);
+            reference.insertObject(i, origin);
+            reference.moveObject(i, motion);
+            motions.put(i, motion);
+        }
+
+        // when
+        space.moveObjects(motions);
+
+        // then
+        for (int i = 0; i < 5000; i++) {
+            assertThat(space.getProjection(i), is(equalTo(reference.getProjection(i))));
+        }
+        assertThat(ImmutableSet.copyOf(space.findObjects(5, 5, 1.0)),
+                is(equalTo(ImmutableSet.copyOf(reference.findObjects(5, 5, 1.0)))));
+    }
+
+    @Test
+    public void testMoveObjectsAtEqualsMoveObjects() throws Exception {
+        // given
+        final Random random = new Random(0);
+        final WalledPointSpace.TiledSpaceBuilder<Integer> builder = WalledPointSpace.<Integer>builder(20, 20)
+                .addWallsVertical(10, 0, 15, TileDirection.EAST);
+        final WalledPointSpace<Integer> space = builder.build();
+        final WalledPointSpace<Integer> reference = builder.build();
+        final Map<Integer, Motion2D> motions = Maps.newHashMap();
+        final int[] slots = new int[500];
+        final Motion2D[] slotMotions = new Motion2D[500];
+        for (int i = 0; i < 500; i++) {
+            final Point2D origin = at(random.nextDouble() * 20, random.nextDouble() * 20);
+            final Motion2D motion = ImmutableMotion2D.of(random.nextDouble() * 2 * Math.PI, random.nextDouble() * 5);
+            space.insertObject(i, origin);
+            reference.insertObject(i, origin);
+            motions.put(i, motion);
+            slots[i] = space.slotOf(i);
+            slotMotions[i] = motion;
+        }
+        reference.moveObjects(motions);
+
+        // when
+        space.moveObjectsAt(slots, slotMotions, 500);
+
+        // then
+        for (int i = 0; i < 500; i++) {
+            assertThat(space.getProjectionAt(space.slotOf(i)), is(equalTo(reference.getProjection(i))));
+        }
+        assertThat(ImmutableSet.copyOf(space.findObjects(5, 5, 1.0)),
+                is(equalTo(ImmutableSet.copyOf(reference.findObjects(5, 5, 1.0)))));
     }
 
     @Test
@@ -232,4 +315,97 @@ public class WalledPointSpaceTest {
         // then
         assertThat(visibleNeighbours, contains(neighbour2));
     }
+
+    @Test
+    public void testFindVisibleNeighboursWithGridIndex() throws Exception {
+        // given
+        final MovingProjectable2D focal = new MovingProjectable2DImpl();
+        final MovingProjectable2D neighbour1 = new MovingProjectable2DImpl();
+        final MovingProjectable2D neighbour2 = new MovingProjectable2DImpl();
+
+        final WalledPointSpace<MovingProjectable2D> space =
+                WalledPointSpace.<MovingProjectable2D>builder(3, 1)
+                        .addWall(0, 0, TileDirection.EAST)
+                        .spatialIndex(SpatialIndexes.<MovingProjectable2D>uniformGrid(1.0))
+                        .build();
+
+        space.insertObject(focal, at(1.5, 0.5));
+        space.insertObject(neighbour1, at(0.5, 0.5));
+        space.insertObject(neighbour2, at(2.5, 0.5));
+
+        // when
+        final Iterable<MovingProjectable2D> visibleNeighbours = space.getVisibleNeighbours(focal, 2.0);
+
+        // then
+        assertThat(visibleNeighbours, contains(neighbour2));
+    }
+
+    @Test
+    public void testVisibleNeighboursAfterWallChange() throws Exception {
+        // given
+        final MovingProjectable2D focal = new MovingProjectable2DImpl();
+        final MovingProjectable2D neighbour = new MovingProjectable2DImpl();
+
+        final WalledPointSpace<MovingProjectable2D> space = WalledPointSpace.ofSize(3, 1);
+        space.insertObject(focal, at(1.5, 0.5));
+        space.insertObject(neighbour, at(0.5, 0.5));
+        assertThat(space.getVisibleNeighbours(focal, 2.0), contains(neighbour));
+
+        // when
+        space.getTileAt(1, 0).setWall(TileDirection.WEST, true);
+
+        // then
+        assertThat(space.getVisibleNeighbours(focal, 2.0), is(emptyIterable()));
+    }
+
+    @Test
+    public void testGetAllVisibleNeighbours() throws Exception {
+        // given
+        final MovingProjectable2D focal = new MovingProjectable2DImpl();
+        final MovingProjectable2D neighbour1 = new MovingProjectable2DImpl();
+        final MovingProjectable2D neighbour2 = new MovingProjectable2DImpl();
+
+        final WalledPointSpace<MovingProjectable2D> space =
+                WalledPointSpace.<MovingProjectable2D>builder(3, 1)
+                        .addWall(0, 0, TileDirection.EAST)
+                        .build();
+
+        space.insertObject(focal, at(1.5, 0.5));
+        space.insertObject(neighbour1, at(0.5, 0.5));
+        space.insertObject(neighbour2, at(2.5, 0.5));
+
+        // when
+        final Map<MovingProjectable2D, List<MovingProjectable2D>> visibleNeighbours =
+                space.getAllVisibleNeighbours(2.0);
+
+        // then
+        assertThat(visibleNeighbours.get(focal), contains(neighbour2));
+        assertThat(visibleNeighbours.get(neighbour1), is(empty()));
+        assertThat(visibleNeighbours.get(neighbour2), contains(focal));
+    }
+
+    @Test
+    public void testGetNearestVisibleNeighbours() throws Exception {
+        // given
+        final MovingProjectable2D focal = new MovingProjectable2DImpl();
+        final MovingProjectable2D hidden = new MovingProjectable2DImpl();
+        final MovingProjectable2D near = new MovingProjectable2DImpl();
+        final MovingProjectable2D far = new MovingProjectable2DImpl();
+
+        final WalledPointSpace<MovingProjectable2D> space =
+                WalledPointSpace.<MovingProjectable2D>builder(4, 1)
+                        .addWall(0, 0, TileDirection.EAST)
+                        .build();
+
+        space.insertObject(focal, at(1.5, 0.5));
+        space.insertObject(hidden, at(0.5, 0.5));
+        space.insertObject(near, at(2.6, 0.5));
+        space.insertObject(far, at(3.5, 0.5));
+
+        // when
+        final List<MovingProjectable2D> nearestNeighbours = space.getNearestVisibleNeighbours(focal, 2);
+
+        // then
+        assertThat(nearestNeighbours, contains(near, far));
+    }
 }
@@ -20,8 +20,22 @@ package org.asoem.greyfish.impl.environment;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.asoem.greyfish.core.acl.ACLMessage;
+import org.asoem.greyfish.core.acl.ACLPerformative;
+import org.asoem.greyfish.core.acl.ImmutableACLMessage;
+import org.asoem.greyfish.core.actions.GenericAction;
+import org.asoem.greyfish.core.actions.GenericMovement;
+import org.asoem.greyfish.core.environment.AgentExecutionStrategies;
+import org.asoem.greyfish.core.environment.AgentExecutionStrategy;
+import org.asoem.greyfish.core.environment.CheckpointCodec;
+import org.asoem.greyfish.core.environment.Checkpoints;
+import org.asoem.greyfish.core.environment.ModificationBuffer;
+import org.asoem.greyfish.core.environment.SimulationExecutor;
 import org.asoem.greyfish.core.inject.CoreModule;
 import org.asoem.greyfish.core.traits.AgentTrait;
 import org.asoem.greyfish.impl.agent.Basic2DAgent;
@@ -29,9 +43,12 @@ import org.asoem.greyfish.impl.agent.Basic2DAgentContext;
 import org.asoem.greyfish.impl.agent.DefaultBasic2DAgent;
 import org.asoem.greyfish.impl.space.BasicTiled2DSpace;
 import org.asoem.greyfish.impl.space.DefaultBasicTiled2DSpace;
+import org.asoem.greyfish.utils.base.Callback;
 import org.asoem.greyfish.utils.collect.ImmutableFunctionalList;
+import org.asoem.greyfish.utils.math.RandomGenerators;
 import org.asoem.greyfish.utils.persistence.Persister;
 import org.asoem.greyfish.utils.space.ImmutablePoint2D;
+import org.asoem.greyfish.utils.space.ImmutableMotion2D;
 import org.asoem.greyfish.utils.space.Point2D;
 import org.asoem.greyfish.utils.space.TwoDimTree;
 import org.asoem.greyfish.utils.space.TwoDimTreeFactory;
@@ -40,7 +57,14 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
@@ -233,4 +257,317 @@ public class DefaultBasic2DEnvironmentTest {
         // then
         fail();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCheckpointAndRestore() throws Exception {
+        // given
+        final DefaultBasic2DEnvironment environment = newCheckpointEnvironment();
+        final Basic2DAgent first = DefaultBasic2DAgent.builder().build();
+        final Basic2DAgent second = DefaultBasic2DAgent.builder().build();
+        environment.addAgent(first, ImmutablePoint2D.at(0.5, 0.5));
+        environment.addAgent(second, ImmutablePoint2D.at(1.5, 1.5));
+        environment.nextStep();
+        environment.deliverMessage(ImmutableACLMessage.<Basic2DAgent>builder()
+                .performative(ACLPerformative.INFORM)
+                .sender(second)
+                .addReceiver(first)
+                .ontology("test")
+                .conversationId(7)
+                .content("hello")
+                .build());
+        environment.nextStep();
+        environment.suspend(second);
+        final File file = File.createTempFile("checkpoint", ".bin");
+        file.deleteOnExit();
+
+        // when
+        final DefaultBasic2DEnvironment restored = newCheckpointEnvironment();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            environment.checkpoint(randomAccessFile.getChannel(), new TestCodec());
+            randomAccessFile.getChannel().position(0);
+            restored.restore(randomAccessFile.getChannel(), new TestCodec());
+        }
+
+        // then
+        assertThat(restored.getTime(), is(environment.getTime()));
+        assertThat(restored.getSeed(), is(environment.getSeed()));
+        assertThat(restored.countAgents(), is(2));
+        final List<Basic2DAgent> agents = ImmutableList.copyOf(restored.getActiveAgents());
+        assertThat(agents.get(0).getProjection(), is(equalTo(first.getProjection())));
+        assertThat(agents.get(1).getProjection(), is(equalTo(second.getProjection())));
+        assertThat(restored.isSuspended(agents.get(0)), is(false));
+        assertThat(restored.isSuspended(agents.get(1)), is(true));
+        final List<ACLMessage<Basic2DAgent>> messages = Checkpoints.messagesOf(agents.get(0));
+        assertThat(messages, hasSize(1));
+        assertThat(messages.get(0).getSender(), is(agents.get(1)));
+        assertThat(messages.get(0).getOntology(), is("test"));
+        assertThat(messages.get(0).getConversationId(), is(7));
+        assertThat(messages.get(0).getContent(), is((Object) "hello"));
+        assertThat(agents.get(0).getContext().get().getRandomGenerator().nextLong(),
+                is(first.getContext().get().getRandomGenerator().nextLong()));
+    }
+
+    @Test
+    public void testRestoredEnvironmentContinuesLikeTheOriginal() throws Exception {
+        // given
+        final DefaultBasic2DEnvironment environment = newCheckpointEnvironment();
+        for (int i = 0; i < 4; i++) {
+            environment.addAgent(newMovingAgent(), ImmutablePoint2D.at(0.5 + i * 0.3, 0.5 + i * 0.2));
+        }
+        for (int i = 0; i < 4; i++) {
+            environment.nextStep(); // agents act from their second step on, so each draws 3 gaussians
+        }
+        final File file = File.createTempFile("checkpoint", ".bin");
+        file.deleteOnExit();
+        final DefaultBasic2DEnvironment restored = newCheckpointEnvironment();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            environment.checkpoint(randomAccessFile.getChannel(), new MovingAgentCodec());
+            randomAccessFile.getChannel().position(0);
+            restored.restore(randomAccessFile.getChannel(), new MovingAgentCodec());
+        }
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            environment.nextStep();
+            restored.nextStep();
+        }
+
+        // then
+        final List<Basic2DAgent> originalAgents = ImmutableList.copyOf(environment.getActiveAgents());
+        final List<Basic2DAgent> restoredAgents = ImmutableList.copyOf(restored.getActiveAgents());
+        assertThat(restored.getTime(), is(environment.getTime()));
+        assertThat(restoredAgents, hasSize(originalAgents.size()));
+        for (int i = 0; i < originalAgents.size(); i++) {
+            final Basic2DAgent original = originalAgents.get(i);
+            final Basic2DAgent copy = restoredAgents.get(i);
+            assertThat(copy.getProjection(), is(equalTo(original.getProjection())));
+            assertThat(copy.getMotion(), is(equalTo(original.getMotion())));
+            assertThat(copy.getContext().get().getRandomGenerator().nextGaussian(),
+                    is(original.getContext().get().getRandomGenerator().nextGaussian()));
+        }
+    }
+
+    @Test
+    public void testAgentProjectionIsReadFromSpace() throws Exception {
+        // given
+        final DefaultBasic2DEnvironment environment = newCheckpointEnvironment();
+        for (int i = 0; i < 4; i++) {
+            environment.addAgent(newMovingAgent(), ImmutablePoint2D.at(0.5 + i * 0.3, 0.5 + i * 0.2));
+        }
+        environment.nextStep();
+        final Basic2DAgent removed = environment.getActiveAgents().get(0);
+
+        // when
+        environment.nextStep();
+        environment.nextStep();
+        final Point2D lastProjection = environment.getSpace().getProjection(removed);
+        environment.removeAgent(removed);
+        environment.nextStep();
+
+        // then
+        for (final Basic2DAgent agent : environment.getActiveAgents()) {
+            assertThat(agent.getProjection(), is(equalTo(environment.getSpace().getProjection(agent))));
+            assertThat(environment.getProjection(agent), is(equalTo(agent.getProjection())));
+        }
+        assertThat(removed.getProjection(), is(equalTo(lastProjection)));
+        assertThat(environment.getProjection(removed), is(nullValue()));
+    }
+
+    @Test
+    public void testSeededRunIsIndependentOfExecutionStrategy() throws Exception {
+        // given
+        final SimulationExecutor executor = SimulationExecutor.create("test", 4).withBatchSize(1);
+
+        // when
+        final List<List<Object>> sequential = runLivingPopulation(AgentExecutionStrategies.sequential());
+        final List<List<Object>> forkJoin = runLivingPopulation(AgentExecutionStrategies.forkJoin());
+        final List<List<Object>> reversed = runLivingPopulation(new ReversedExecution());
+        final List<List<Object>> pooled;
+        try {
+            pooled = runLivingPopulation(executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        assertThat(sequential, hasSize(greaterThan(0)));
+        assertThat(forkJoin, is(equalTo(sequential)));
+        assertThat(reversed, is(equalTo(sequential)));
+        assertThat(pooled, is(equalTo(sequential)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRestoreRejectsUnknownFormat() throws Exception {
+        // given
+        final DefaultBasic2DEnvironment environment = newCheckpointEnvironment();
+        final File file = File.createTempFile("checkpoint", ".bin");
+        file.deleteOnExit();
+
+        // when
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.write(new byte[64]);
+            randomAccessFile.getChannel().position(0);
+            environment.restore(randomAccessFile.getChannel(), new TestCodec());
+        }
+
+        // then
+        fail();
+    }
+
+    @Test(expected = IOException.class)
+    public void testRestoreRejectsCorruptBlockLength() throws Exception {
+        // given
+        final DefaultBasic2DEnvironment environment = newCheckpointEnvironment();
+        environment.addAgent(DefaultBasic2DAgent.builder().build(), ImmutablePoint2D.at(0.5, 0.5));
+        environment.nextStep();
+        final File file = File.createTempFile("checkpoint", ".bin");
+        file.deleteOnExit();
+
+        // when
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            environment.checkpoint(randomAccessFile.getChannel(), new TestCodec());
+            // header (29 bytes), agent count, id, activation step, wake up time, random state, position and motion
+            randomAccessFile.seek(29 + 4 + 4 + 8 + 8 + 9 + 32);
+            randomAccessFile.writeInt(Integer.MAX_VALUE);
+            randomAccessFile.getChannel().position(0);
+            newCheckpointEnvironment().restore(randomAccessFile.getChannel(), new TestCodec());
+        }
+
+        // then
+        fail();
+    }
+
+    private static DefaultBasic2DEnvironment newCheckpointEnvironment() {
+        return DefaultBasic2DEnvironment.builder(DefaultBasicTiled2DSpace.ofSize(2, 2),
+                ImmutableSet.<Basic2DAgent>of())
+                .executionStrategy(AgentExecutionStrategies.sequential())
+                .seed(42)
+                .build();
+    }
+
+    private static Basic2DAgent newMovingAgent() {
+        return DefaultBasic2DAgent.builder()
+                .addAction(GenericMovement.<Basic2DAgent>builder().name("move").build())
+                .build();
+    }
+
+    /**
+     * Run a population of {@link #newLivingAgent() living agents} with the given {@code strategy} and describe the
+     * resulting agents by their id, their projection and the contents of their inbox.
+     */
+    private static List<List<Object>> runLivingPopulation(final AgentExecutionStrategy strategy) {
+        final DefaultBasic2DEnvironment environment = DefaultBasic2DEnvironment.builder(
+                DefaultBasicTiled2DSpace.ofSize(2, 2), ImmutableSet.<Basic2DAgent>of())
+                .executionStrategy(strategy)
+                .seed(42)
+                .build();
+        for (int i = 0; i < 8; i++) {
+            environment.addAgent(newLivingAgent(), ImmutablePoint2D.at(0.2 + i * 0.2, 0.3 + i * 0.15));
+        }
+        for (int i = 0; i < 20; i++) {
+            environment.nextStep();
+        }
+        final List<List<Object>> description = Lists.newArrayList();
+        for (final Basic2DAgent agent : environment.getActiveAgents()) {
+            final List<Object> contents = Lists.newArrayList();
+            for (final ACLMessage<Basic2DAgent> message : Checkpoints.messagesOf(agent)) {
+                contents.add(message.getContent());
+            }
+            description.add(ImmutableList.<Object>of(
+                    agent.getContext().get().getAgentId(), environment.getProjection(agent), contents));
+        }
+        return description;
+    }
+
+    /**
+     * Create an agent which, drawing from {@link RandomGenerators#rng()}, dies, reproduces or messages a random agent
+     * and changes its motion in every step.
+     */
+    private static Basic2DAgent newLivingAgent() {
+        return DefaultBasic2DAgent.builder()
+                .addAction(GenericAction.<Basic2DAgent>builder()
+                        .name("live")
+                        .executes(new Callback<GenericAction<Basic2DAgent>, Void>() {
+                            @Override
+                            public Void apply(final GenericAction<Basic2DAgent> caller, final Map<String, ?> args) {
+                                final Basic2DAgent self = caller.agent().get();
+                                final Basic2DEnvironment environment = self.getContext().get().getEnvironment();
+                                final RandomGenerator rng = RandomGenerators.rng();
+                                final double draw = rng.nextDouble();
+                                if (draw < 0.1) {
+                                    environment.removeAgent(self);
+                                    return null;
+                                } else if (draw < 0.3 && environment.countAgents() < 40) {
+                                    environment.enqueueAddition(newLivingAgent(),
+                                            ImmutablePoint2D.at(2 * rng.nextDouble(), 2 * rng.nextDouble()));
+                                } else {
+                                    final Basic2DAgent receiver = Iterables.get(environment.getActiveAgents(),
+                                            rng.nextInt(environment.countAgents()));
+                                    environment.deliverMessage(ImmutableACLMessage.<Basic2DAgent>builder()
+                                            .performative(ACLPerformative.INFORM)
+                                            .sender(self)
+                                            .addReceiver(receiver)
+                                            .content(self.getContext().get().getAgentId() + ":" + rng.nextInt())
+                                            .build());
+                                }
+                                self.setMotion(ImmutableMotion2D.of(rng.nextGaussian(), 0.1));
+                                return null;
+                            }
+                        })
+                        .build())
+                .build();
+    }
+
+    /**
+     * Runs the agents in reverse order, like a parallel strategy which happens to finish the last agent first.
+     */
+    private static final class ReversedExecution implements AgentExecutionStrategy {
+        @Override
+        public void execute(final List<? extends Runnable> agents) {
+            for (int i = agents.size() - 1; i >= 0; i--) {
+                ModificationBuffer.run(agents, i);
+            }
+        }
+    }
+
+    private static final class MovingAgentCodec implements CheckpointCodec<Basic2DAgent> {
+        @Override
+        public void writeAgent(final Basic2DAgent agent, final DataOutput out) {
+        }
+
+        @Override
+        public Basic2DAgent readAgent(final DataInput in) {
+            return newMovingAgent();
+        }
+
+        @Override
+        public void writeContent(final Object content, final DataOutput out) {
+        }
+
+        @Override
+        public Object readContent(final DataInput in) {
+            return null;
+        }
+    }
+
+    private static final class TestCodec implements CheckpointCodec<Basic2DAgent> {
+        @Override
+        public void writeAgent(final Basic2DAgent agent, final DataOutput out) {
+        }
+
+        @Override
+        public Basic2DAgent readAgent(final DataInput in) {
+            return DefaultBasic2DAgent.builder().build();
+        }
+
+        @Override
+        public void writeContent(final Object content, final DataOutput out) throws IOException {
+            out.writeUTF((String) content);
+        }
+
+        @Override
+        public Object readContent(final DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    }
+}
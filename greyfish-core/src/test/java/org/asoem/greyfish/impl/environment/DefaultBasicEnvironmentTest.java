@@ -19,17 +19,31 @@ package org.asoem.greyfish.impl.environment;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.asoem.greyfish.core.acl.ACLMessage;
+import org.asoem.greyfish.core.actions.GenericAction;
+import org.asoem.greyfish.core.agent.BasicAgentType;
 import org.asoem.greyfish.core.agent.BasicContext;
+import org.asoem.greyfish.core.agent.PropertyValueRequest;
+import org.asoem.greyfish.core.properties.DoubleProperty;
+import org.asoem.greyfish.core.scheduler.Event;
 import org.asoem.greyfish.impl.agent.BasicAgent;
+import org.asoem.greyfish.impl.agent.BasicAgentContext;
+import org.asoem.greyfish.impl.agent.DefaultBasicAgent;
+import org.asoem.greyfish.utils.base.Callback;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Preconditions.checkState;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.BDDMockito.given;
@@ -176,4 +190,111 @@ public class DefaultBasicEnvironmentTest {
         verify(eventPublisherMock).post(argThat(Matchers.isA(AgentRemovedEvent.class)));
         verify(eventPublisherMock, times(2)).post(argThat(Matchers.isA(TimeChangedEvent.class)));
     }
+
+    @Test
+    public void testScheduledEventFiresAtItsTime() throws Exception {
+        // given
+        final DefaultBasicEnvironment simulation = DefaultBasicEnvironment.builder("test").build();
+        final Event event = mock(Event.class);
+        given(event.getTime()).willReturn(1L);
+        simulation.schedule(event);
+
+        // when
+        simulation.nextStep();
+
+        // then
+        verify(event, never()).fire();
+
+        // and when
+        simulation.nextStep();
+
+        // then
+        verify(event).fire();
+    }
+
+    @Test
+    public void testAgentSuspendsItselfThroughItsContext() throws Exception {
+        // given
+        final DefaultBasicEnvironment simulation = DefaultBasicEnvironment.builder("test")
+                .executorService(MoreExecutors.sameThreadExecutor())
+                .build();
+        final List<Long> executionTimes = Lists.newArrayList();
+        final BasicAgent agent = DefaultBasicAgent.builder()
+                .setType(new BasicAgentType("sleeper"))
+                .addAction(GenericAction.<BasicAgent>builder()
+                        .name("sleep")
+                        .executes(new Callback<GenericAction<BasicAgent>, Void>() {
+                            @Override
+                            public Void apply(final GenericAction<BasicAgent> caller, final Map<String, ?> args) {
+                                final BasicAgent self = caller.agent().get();
+                                final BasicEnvironment environment = self.getContext().get().getEnvironment();
+                                executionTimes.add(environment.getTime());
+                                environment.suspendUntil(self, environment.getTime() + 3);
+                                return null;
+                            }
+                        })
+                        .build())
+                .build();
+        simulation.enqueueAddition(agent);
+
+        // when
+        for (int i = 0; i < 8; i++) {
+            simulation.nextStep();
+        }
+
+        // then
+        assertThat(executionTimes, hasSize(3));
+        assertThat(executionTimes.get(1), is(executionTimes.get(0) + 3));
+        assertThat(executionTimes.get(2), is(executionTimes.get(1) + 3));
+        assertThat(simulation.isSuspended(agent), is(true));
+    }
+
+    @Test
+    public void testPropertyChangeWakesUpAgent() throws Exception {
+        // given
+        final DefaultBasicEnvironment simulation = DefaultBasicEnvironment.builder("test")
+                .executorService(MoreExecutors.sameThreadExecutor())
+                .build();
+        final AtomicInteger executions = new AtomicInteger();
+        final BasicAgent agent = DefaultBasicAgent.builder()
+                .setType(new BasicAgentType("sleeper"))
+                .addProperty(DoubleProperty.<BasicAgent, BasicAgentContext>with()
+                        .name("energy")
+                        .upperBound(10.0)
+                        .build())
+                .addAction(GenericAction.<BasicAgent>builder()
+                        .name("sleep")
+                        .executes(new Callback<GenericAction<BasicAgent>, Void>() {
+                            @Override
+                            public Void apply(final GenericAction<BasicAgent> caller, final Map<String, ?> args) {
+                                executions.incrementAndGet();
+                                final BasicAgent self = caller.agent().get();
+                                self.getContext().get().getEnvironment().suspend(self);
+                                return null;
+                            }
+                        })
+                        .build())
+                .build();
+        agent.initialize();
+        simulation.enqueueAddition(agent);
+        simulation.nextStep();
+        simulation.nextStep();
+        simulation.nextStep();
+        checkState(executions.get() == 1);
+
+        // when
+        agent.ask(new PropertyValueRequest("energy"), Double.class);
+        simulation.nextStep();
+
+        // then
+        assertThat(executions.get(), is(1));
+
+        // and when
+        agent.ask(new DoubleProperty.Add("energy", 1.0), Void.class);
+        simulation.nextStep();
+
+        // then
+        assertThat(simulation.isSuspended(agent), is(true));
+        assertThat(executions.get(), is(2));
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.collect;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An allocator of dense integer slots. Released slots are pushed to a free list and handed out again before a new slot
+ * is allocated, so all slots in use are less than {@link #capacity()}, which never exceeds the maximum number of slots
+ * in use at the same time. This makes the slots suitable as indices into primitive arrays.
+ * <p>This class is not thread safe.</p>
+ */
+public final class SlotAllocator {
+
+    private final BitSet allocated = new BitSet();
+    private int[] freeSlots = new int[16];
+    private int freeCount = 0;
+    private int capacity = 0;
+
+    private SlotAllocator() {
+    }
+
+    public static SlotAllocator create() {
+        return new SlotAllocator();
+    }
+
+    /**
+     * Allocate a slot. The most recently released slot is reused first.
+     *
+     * @return the allocated slot
+     */
+    public int allocate() {
+        final int slot = freeCount > 0 ? freeSlots[--freeCount] : capacity++;
+        allocated.set(slot);
+        return slot;
+    }
+
+    /**
+     * Release the {@code slot} for reuse.
+     *
+     * @param slot the slot to release
+     * @throws IllegalArgumentException if the slot is not allocated
+     */
+    public void release(final int slot) {
+        checkArgument(isAllocated(slot), "Slot is not allocated: %s", slot);
+        allocated.clear(slot);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    public boolean isAllocated(final int slot) {
+        return slot >= 0 && allocated.get(slot);
+    }
+
+    /**
+     * The number of allocated slots.
+     *
+     * @return the number of allocated slots
+     */
+    public int size() {
+        return capacity - freeCount;
+    }
+
+    /**
+     * An upper bound of the allocated slots. All allocated slots are less than this value.
+     *
+     * @return the number of slots which were ever allocated
+     */
+    public int capacity() {
+        return capacity;
+    }
+}
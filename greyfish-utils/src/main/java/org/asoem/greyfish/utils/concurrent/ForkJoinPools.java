@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.concurrent;
+
+import jsr166y.ForkJoinPool;
+
+/**
+ * Static utility methods for {@link ForkJoinPool}s.
+ */
+public final class ForkJoinPools {
+
+    private ForkJoinPools() {
+        throw new AssertionError("Not instantiable");
+    }
+
+    /**
+     * Get the pool which is shared by all parallel computations which are not given a pool explicitly. The pool is
+     * created on first use and has a parallelism equal to the number of available processors. Its worker threads are
+     * daemon threads, so it does not need to be shut down.
+     *
+     * @return the shared pool
+     */
+    public static ForkJoinPool commonPool() {
+        return CommonPool.INSTANCE;
+    }
+
+    private static final class CommonPool {
+        private static final ForkJoinPool INSTANCE = new ForkJoinPool();
+    }
+}
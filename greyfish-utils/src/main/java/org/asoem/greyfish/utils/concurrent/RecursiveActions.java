@@ -22,18 +22,25 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import jsr166y.ForkJoinPool;
+import jsr166y.ForkJoinTask;
 import jsr166y.RecursiveAction;
 import jsr166y.RecursiveTask;
 
 import javax.annotation.Nullable;
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 
 public final class RecursiveActions {
 
+    /**
+     * The number of surplus tasks a worker may have queued before an adaptive task stops splitting.
+     */
+    private static final int MAX_SURPLUS_TASKS = 3;
+
     private RecursiveActions() {}
 
     private static final RecursiveAction NULL_ACTION = new RecursiveAction() {
@@ -98,6 +105,102 @@ public final class RecursiveActions {
         }
     }
 
+    /**
+     * Creates a {@code RecursiveAction} which applies a function {@code f} to all elements in the given {@code list}
+     * in parallel. Instead of splitting the list into partitions of a fixed size, a task splits off halves of its range
+     * for other workers to steal only as long as its worker has few {@link ForkJoinTask#getSurplusQueuedTaskCount()
+     * surplus tasks} queued. The granularity adapts to the load of the pool, which balances well even if the cost of
+     * {@code f} varies strongly between elements.
+     *
+     * @param list the elements on which the function will be applied, should support fast random access
+     * @param f    the function to apply
+     * @return a {@code RecursiveAction} which should be executed with a {@link ForkJoinPool}
+     */
+    public static <T> RecursiveAction foreach(final List<T> list, final Function<? super T, Void> f) {
+        checkNotNull(list);
+        checkNotNull(f);
+
+        return foreachIndex(list.size(), new IndexAction() {
+            @Override
+            public void apply(final int index) {
+                f.apply(list.get(index));
+            }
+        });
+    }
+
+    /**
+     * Creates a {@code RecursiveAction} which applies the {@code action} to all indices in [0, {@code size}) in
+     * parallel. The range is split adaptively like in {@link #foreach(List, Function)}.
+     *
+     * @param size   the number of indices
+     * @param action the action to apply
+     * @return a {@code RecursiveAction} which should be executed with a {@link ForkJoinPool}
+     */
+    public static RecursiveAction foreachIndex(final int size, final IndexAction action) {
+        checkArgument(size >= 0, "size must not be negative: %s", size);
+        checkNotNull(action);
+
+        if (size == 0) {
+            return NULL_ACTION;
+        } else {
+            return new AdaptiveForeach(action, 0, size, null);
+        }
+    }
+
+    /**
+     * An action applied to each index of a range.
+     *
+     * @see #foreachIndex(int, IndexAction)
+     */
+    public interface IndexAction {
+        void apply(int index);
+    }
+
+    private static final class AdaptiveForeach extends RecursiveAction {
+        private final IndexAction action;
+        private final int from;
+        private final int to;
+        // the task forked before this one by the same parent
+        @Nullable
+        private final AdaptiveForeach next;
+
+        private AdaptiveForeach(final IndexAction action, final int from, final int to,
+                                @Nullable final AdaptiveForeach next) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+            this.next = next;
+        }
+
+        @Override
+        protected void compute() {
+            int end = to;
+            AdaptiveForeach forked = null;
+            while (end - from > 1 && getSurplusQueuedTaskCount() <= MAX_SURPLUS_TASKS) {
+                final int mid = (from + end) >>> 1;
+                forked = new AdaptiveForeach(action, mid, end, forked);
+                forked.fork();
+                end = mid;
+            }
+
+            for (int i = from; i < end; i++) {
+                action.apply(i);
+            }
+
+            // run the halves nobody stole ourselves
+            while (forked != null) {
+                if (forked.tryUnfork()) {
+                    forked.compute();
+                } else {
+                    forked.join();
+                }
+                forked = forked.next;
+            }
+        }
+
+        private static final long serialVersionUID = 0;
+    }
+
     public static <T, S> RecursiveAction foldLeft(final T initialValue, final List<T> list, final Function<? super T, S> f, final int size) {
         checkNotNull(list);
         checkNotNull(f);
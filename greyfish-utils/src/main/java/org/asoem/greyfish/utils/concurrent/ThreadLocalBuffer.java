@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.concurrent;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A buffer for many producers and a single consumer. Each producing thread appends to a buffer of its own, so that
+ * producers never contend with each other. The consumer collects the elements of all buffers at once.
+ * <p>Elements can be added with a tag, which is kept in a primitive array next to the element. Elements are drained in
+ * the order of their tags. Elements with equal tags added by a single thread are drained in the order they were added.
+ * Elements with equal tags of different threads are drained in the order in which the threads first used this
+ * buffer.</p>
+ * <p>The buffers of threads which have terminated are released by the next {@link #drain()}, so that pools which
+ * replace their threads do not make this buffer grow.</p>
+ *
+ * @param <E> the type of the elements
+ */
+@ThreadSafe
+public final class ThreadLocalBuffer<E> {
+
+    private static final Object[] NO_ELEMENTS = new Object[0];
+    private static final int[] NO_TAGS = new int[0];
+
+    private final Queue<LocalBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<LocalBuffer> localBuffer = new ThreadLocal<LocalBuffer>() {
+        @Override
+        protected LocalBuffer initialValue() {
+            final LocalBuffer buffer = new LocalBuffer();
+            buffers.add(buffer);
+            return buffer;
+        }
+    };
+
+    private ThreadLocalBuffer() {
+    }
+
+    public static <E> ThreadLocalBuffer<E> create() {
+        return new ThreadLocalBuffer<>();
+    }
+
+    /**
+     * Append the given {@code element} with tag {@code 0} to the buffer of the calling thread.
+     *
+     * @param element the element to add
+     */
+    public void add(final E element) {
+        add(0, element);
+    }
+
+    /**
+     * Append the given {@code element} with the given {@code tag} to the buffer of the calling thread.
+     *
+     * @param tag     the tag which determines the drain order of the element
+     * @param element the element to add
+     * @throws IllegalArgumentException if the tag is negative
+     */
+    public void add(final int tag, final E element) {
+        checkArgument(tag >= 0, "Tag must not be negative: %s", tag);
+        final LocalBuffer buffer = localBuffer.get();
+        synchronized (buffer) {
+            buffer.add(tag, element);
+        }
+    }
+
+    /**
+     * Remove all elements from this buffer.
+     *
+     * @return the removed elements in the order of their tags
+     */
+    public List<E> drain() {
+        Object[] elements = NO_ELEMENTS;
+        int[] tags = NO_TAGS;
+        int size = 0;
+        int maxTag = 0;
+        for (Iterator<LocalBuffer> iterator = buffers.iterator(); iterator.hasNext(); ) {
+            final LocalBuffer buffer = iterator.next();
+            synchronized (buffer) {
+                if (buffer.size > 0) {
+                    if (size + buffer.size > elements.length) {
+                        final int capacity = Math.max(size + buffer.size, elements.length * 2);
+                        elements = Arrays.copyOf(elements, capacity);
+                        tags = Arrays.copyOf(tags, capacity);
+                    }
+                    System.arraycopy(buffer.elements, 0, elements, size, buffer.size);
+                    System.arraycopy(buffer.tags, 0, tags, size, buffer.size);
+                    for (int i = 0; i < buffer.size; i++) {
+                        maxTag = Math.max(maxTag, buffer.tags[i]);
+                    }
+                    size += buffer.size;
+                    buffer.clear();
+                }
+            }
+            // a terminated thread cannot add to its buffer anymore
+            if (buffer.isOrphaned()) {
+                iterator.remove();
+            }
+        }
+
+        if (size == 0) {
+            return Lists.newArrayList();
+        }
+        return asList(maxTag == 0 ? Arrays.copyOf(elements, size) : sortByTag(elements, tags, size, maxTag));
+    }
+
+    /**
+     * A stable counting sort of the first {@code size} elements by their tags.
+     */
+    private static Object[] sortByTag(final Object[] elements, final int[] tags, final int size, final int maxTag) {
+        final int[] offsets = new int[maxTag + 2];
+        for (int i = 0; i < size; i++) {
+            ++offsets[tags[i] + 1];
+        }
+        for (int tag = 0; tag <= maxTag; tag++) {
+            offsets[tag + 1] += offsets[tag];
+        }
+        final Object[] sorted = new Object[size];
+        for (int i = 0; i < size; i++) {
+            sorted[offsets[tags[i]]++] = elements[i];
+        }
+        return sorted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<E> asList(final Object[] elements) {
+        return (List<E>) Arrays.asList(elements);
+    }
+
+    /**
+     * Count the elements in this buffer. The result is only a snapshot if producers are active.
+     *
+     * @return the number of buffered elements
+     */
+    public int size() {
+        int size = 0;
+        for (LocalBuffer buffer : buffers) {
+            synchronized (buffer) {
+                size += buffer.size;
+            }
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @VisibleForTesting
+    int bufferCount() {
+        return buffers.size();
+    }
+
+    /**
+     * The buffer of a single thread. The arrays are kept between drains, so that adding does not allocate once they
+     * are large enough.
+     */
+    private static final class LocalBuffer {
+        private final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+        @GuardedBy("this")
+        private Object[] elements = NO_ELEMENTS;
+        @GuardedBy("this")
+        private int[] tags = NO_TAGS;
+        @GuardedBy("this")
+        private int size;
+
+        private void add(final int tag, final Object element) {
+            if (size == elements.length) {
+                final int capacity = Math.max(16, size * 2);
+                elements = Arrays.copyOf(elements, capacity);
+                tags = Arrays.copyOf(tags, capacity);
+            }
+            elements[size] = element;
+            tags[size] = tag;
+            ++size;
+        }
+
+        private void clear() {
+            // release the elements, but keep the arrays
+            Arrays.fill(elements, 0, size, null);
+            size = 0;
+        }
+
+        private boolean isOrphaned() {
+            final Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+    }
+}
@@ -145,7 +145,6 @@ public final class ImmutableMarkovChain<S> implements MarkovChain<S> {
                     throw new IllegalArgumentException(message);
                 }
             }
-            rng = RandomGenerators.rng();
             return new ImmutableMarkovChain<S>(ImmutableTable.copyOf(table), rng);
         }
     }
@@ -28,6 +28,7 @@ import org.apache.commons.math3.random.Well19937c;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.Serializable;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -40,6 +41,12 @@ public final class RandomGenerators {
 
     private static final Logger logger = LoggerFactory.getLogger(RandomGenerators.class);
 
+    private static final long FALLBACK_STREAM = -1;
+    private static final ThreadLocal<RandomGenerator> BOUND_GENERATOR = new ThreadLocal<>();
+
+    private static volatile SeedSequence seedSequence = SeedSequence.create(new Well19937c().nextLong());
+    private static volatile RandomGenerator fallbackGenerator = ThreadLocalWell19937cHolder.INSTANCE;
+
     /**
      * Prevent instantiation of this class.
      */
@@ -48,11 +55,57 @@ public final class RandomGenerators {
     }
 
     /**
-     * @return a singleton instance of the default {@link RandomGenerator}. This method currently delegates to {@link
-     * #well1993c()}
+     * Get the default {@link RandomGenerator}. The returned instance is shared and delegates to the generator {@link
+     * #runWith(RandomGenerator, Runnable) bound} to the calling thread, which is the agent's own generator while an
+     * agent is executed. Otherwise, it delegates to a {@link Well19937c} generator local to the calling thread, or,
+     * after {@link #setMasterSeed(long)}, to a generator derived from the master seed.
+     *
+     * @return the default generator
+     * @see #stream(long, long)
      */
     public static RandomGenerator rng() {
-        return well1993c();
+        return DefaultGenerator.INSTANCE;
+    }
+
+    /**
+     * Run the given {@code runnable} with {@link #rng()} delegating to the given {@code generator} on the calling
+     * thread. Environments use this to make code executed on behalf of an agent draw from the agent's own stream.
+     *
+     * @param generator the generator to bind
+     * @param runnable  the code to run
+     */
+    public static void runWith(final RandomGenerator generator, final Runnable runnable) {
+        final RandomGenerator previous = bind(generator);
+        try {
+            runnable.run();
+        } finally {
+            unbind(previous);
+        }
+    }
+
+    /**
+     * Bind the given {@code generator} to the calling thread, so that {@link #rng()} delegates to it until {@link
+     * #unbind(RandomGenerator) unbind} is called. Prefer {@link #runWith(RandomGenerator, Runnable)}, unless the
+     * caller must not allocate a {@code Runnable}, and always unbind in a {@code finally} block.
+     *
+     * @param generator the generator to bind
+     * @return the generator bound before, which must be passed to {@link #unbind(RandomGenerator)}
+     */
+    @Nullable
+    public static RandomGenerator bind(final RandomGenerator generator) {
+        checkNotNull(generator);
+        final RandomGenerator previous = BOUND_GENERATOR.get();
+        BOUND_GENERATOR.set(generator);
+        return previous;
+    }
+
+    /**
+     * Restore the generator bound to the calling thread before the matching call to {@link #bind(RandomGenerator)}.
+     *
+     * @param previous the generator returned by {@link #bind(RandomGenerator)}
+     */
+    public static void unbind(@Nullable final RandomGenerator previous) {
+        BOUND_GENERATOR.set(previous);
     }
 
     /**
@@ -153,6 +206,45 @@ public final class RandomGenerators {
         return new Well19937c(seed);
     }
 
+    /**
+     * Create the generator for the stream with the given {@code streamId} derived from the given {@code seed}. Use this
+     * to give each agent of a simulation a generator of its own, which makes parallel simulations reproducible
+     * regardless of the number of threads.
+     *
+     * @param seed     the seed of the simulation
+     * @param streamId the id of the stream, e.g. the id of an agent
+     * @return a new, non thread safe generator
+     * @see SplitMix64#stream(long, long)
+     */
+    public static SplitMix64 stream(final long seed, final long streamId) {
+        return SplitMix64.stream(seed, streamId);
+    }
+
+    /**
+     * Set the master seed from which all subsequent calls to {@link #nextSeed()} derive their seeds. Setting the master
+     * seed before any simulation is created makes the whole application reproducible. By default, a random master seed
+     * is used. Afterwards, {@link #rng()} no longer falls back to time seeded generators, but to a single generator
+     * derived from the master seed, which is reproducible as long as it is only used outside of agent executions by
+     * one thread at a time.
+     *
+     * @param masterSeed the master seed
+     */
+    public static void setMasterSeed(final long masterSeed) {
+        logger.info("Setting master seed to {}", masterSeed);
+        seedSequence = SeedSequence.create(masterSeed);
+        fallbackGenerator = synchronizedGenerator(stream(masterSeed, FALLBACK_STREAM));
+    }
+
+    /**
+     * Get the next seed derived from the master seed. Simulations use it as their default seed, so that the n-th
+     * simulation created after {@link #setMasterSeed(long)} always gets the same seed.
+     *
+     * @return the next seed
+     */
+    public static long nextSeed() {
+        return seedSequence.nextSeed();
+    }
+
     /**
      * Create a thread safe {@code RandomGenerator} wrapping given {@code randomGenerator}.
      *
@@ -168,6 +260,35 @@ public final class RandomGenerators {
         }
     }
 
+    private static final class DefaultGenerator extends ForwardingRandomGenerator implements Serializable {
+        private static final DefaultGenerator INSTANCE = new DefaultGenerator();
+
+        @Override
+        protected RandomGenerator delegate() {
+            final RandomGenerator bound = BOUND_GENERATOR.get();
+            return bound != null ? bound : fallbackGenerator;
+        }
+
+        private Object readResolve() {
+            return INSTANCE;
+        }
+
+        private static final long serialVersionUID = 0;
+    }
+
+    private static class ThreadLocalWell19937cHolder {
+        private static final RandomGenerator INSTANCE = threadLocalGenerator(Well19937cSupplier.INSTANCE);
+    }
+
+    private enum Well19937cSupplier implements Supplier<RandomGenerator> {
+        INSTANCE;
+
+        @Override
+        public RandomGenerator get() {
+            return new Well19937c();
+        }
+    }
+
     private static class Well19937cHolder implements Serializable {
 
         private static final Well19937c INSTANCE = new Well19937c();
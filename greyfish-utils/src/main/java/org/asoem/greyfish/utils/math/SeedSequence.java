@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.math;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A sequence of seeds derived from a single master seed. Two sequences with equal master seeds yield equal seeds, so
+ * that a whole hierarchy of random streams (simulations, agents, ...) can be reproduced from the master seed alone.
+ */
+@ThreadSafe
+public final class SeedSequence {
+
+    private final long masterSeed;
+    private final AtomicLong index = new AtomicLong();
+
+    private SeedSequence(final long masterSeed) {
+        this.masterSeed = masterSeed;
+    }
+
+    public static SeedSequence create(final long masterSeed) {
+        return new SeedSequence(masterSeed);
+    }
+
+    /**
+     * Get the seed with the given {@code index} in this sequence.
+     *
+     * @param index the index of the seed
+     * @return the seed derived from the master seed and {@code index}
+     */
+    public long seed(final long index) {
+        return SplitMix64.stream(masterSeed, index).nextLong();
+    }
+
+    /**
+     * Get the next seed of this sequence.
+     *
+     * @return the seed with the next unused index
+     */
+    public long nextSeed() {
+        return seed(index.getAndIncrement());
+    }
+
+    public long getMasterSeed() {
+        return masterSeed;
+    }
+}
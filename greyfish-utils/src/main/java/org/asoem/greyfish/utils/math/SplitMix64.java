@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.math;
+
+import org.apache.commons.math3.random.BitsStreamGenerator;
+
+/**
+ * A fast, non thread safe generator implementing the SplitMix64 algorithm of Steele, Lea and Flood (2014). Its state is
+ * a single {@code long}, so it is cheap to create one generator per agent or per worker. Independent streams can be
+ * derived from a common seed with {@link #stream(long, long)} or {@link #split()}.
+ */
+public final class SplitMix64 extends BitsStreamGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long state;
+
+    private SplitMix64(final long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Create a new generator with the given {@code seed}.
+     *
+     * @param seed the seed
+     * @return a new generator
+     */
+    public static SplitMix64 create(final long seed) {
+        return new SplitMix64(seed);
+    }
+
+    /**
+     * Create the generator for the stream with the given {@code streamId} derived from the given {@code seed}. Equal
+     * arguments always yield generators producing equal sequences, and different stream ids yield statistically
+     * independent sequences.
+     *
+     * @param seed     the common seed of all streams
+     * @param streamId the id of the stream, e.g. the id of an agent
+     * @return a new generator
+     */
+    public static SplitMix64 stream(final long seed, final long streamId) {
+        return new SplitMix64(mix64(seed ^ mix64(streamId + GOLDEN_GAMMA)));
+    }
+
+    /**
+     * Create a new generator seeded from the output of this one. The sequences of both generators are statistically
+     * independent.
+     *
+     * @return a new generator
+     */
+    public SplitMix64 split() {
+        return new SplitMix64(mix64(nextLong()));
+    }
+
+    /**
+     * Get the current state of this generator. Passing it to {@link #setSeed(long)} restores the generator to this
+     * point of its sequence.
+     *
+     * @return the current state
+     */
+    public long getState() {
+        return state;
+    }
+
+    @Override
+    public void setSeed(final int seed) {
+        setSeed((long) seed);
+    }
+
+    @Override
+    public void setSeed(final int[] seed) {
+        long combined = 0;
+        for (int value : seed) {
+            combined = mix64(combined ^ value);
+        }
+        setSeed(combined);
+    }
+
+    @Override
+    public void setSeed(final long seed) {
+        this.state = seed;
+        clear();
+    }
+
+    @Override
+    protected int next(final int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * {@inheritDoc} <p>Unlike {@link BitsStreamGenerator#nextGaussian()}, this generator does not keep the second
+     * value of each pair for the next call, so its whole state is {@link #getState() a single long}.</p>
+     */
+    @Override
+    public double nextGaussian() {
+        double x;
+        double y;
+        double s;
+        do {
+            x = 2 * nextDouble() - 1;
+            y = 2 * nextDouble() - 1;
+            s = x * x + y * y;
+        } while (s >= 1 || s == 0);
+        return x * Math.sqrt(-2 * Math.log(s) / s);
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    private static long mix64(final long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final long serialVersionUID = 0;
+}
@@ -0,0 +1,490 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.TreeTraverser;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A two dimensional kd-tree which is balanced by splitting each subtree at the median of alternating axes. The points
+ * of the tree are stored in flat arrays in the order of an implicit binary tree: The node of a subtree which covers the
+ * index range {@code [lo, hi)} is located at index {@code (lo + hi) >>> 1}, its left subtree covers {@code [lo, mid)}
+ * and its right subtree {@code [mid + 1, hi)}. Construction takes {@code O(n log n)} time.
+ *
+ * @param <T> the value type
+ */
+public final class BalancedTwoDimTree<T> extends AbstractCollection<TwoDimTree.Node<T>> implements TwoDimTree<T> {
+
+    private static final byte LEFT = 0;
+    private static final byte MEDIAN = 1;
+    private static final byte RIGHT = 2;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final Object[] values;
+    private final TreeTraverser<TwoDimTree.Node<T>> treeTraverser = new TwoDimTreeTraverser<>();
+
+    private BalancedTwoDimTree(final double[] xs, final double[] ys, final Object[] values) {
+        assert xs.length == ys.length && ys.length == values.length;
+        this.xs = xs;
+        this.ys = ys;
+        this.values = values;
+    }
+
+    /**
+     * Create a new tree containing all given {@code elements} at the point computed by {@code function}.
+     *
+     * @param elements the elements to store in the tree
+     * @param function the function which maps the elements to their point in space
+     * @param <T>      the value type
+     * @return a new balanced tree
+     */
+    public static <T> BalancedTwoDimTree<T> create(final Iterable<? extends T> elements,
+                                                   final Function<? super T, ? extends Point2D> function) {
+        checkNotNull(elements);
+        checkNotNull(function);
+
+        final Collection<? extends T> collection = elements instanceof Collection
+                ? (Collection<? extends T>) elements
+                : ImmutableList.copyOf(elements);
+        final int size = collection.size();
+        final double[] inputX = new double[size];
+        final double[] inputY = new double[size];
+        final Object[] inputValues = new Object[size];
+        int i = 0;
+        for (T element : collection) {
+            final Point2D point2D = checkNotNull(function.apply(element), "No point for element %s", element);
+            inputX[i] = point2D.getX();
+            inputY[i] = point2D.getY();
+            inputValues[i] = element;
+            ++i;
+        }
+        checkArgument(i == size, "Collection changed during tree construction");
+
+        return build(inputX, inputY, inputValues);
+    }
+
+    private static <T> BalancedTwoDimTree<T> build(final double[] inputX, final double[] inputY,
+                                                   final Object[] inputValues) {
+        final int size = inputValues.length;
+        final int[] order = balancedOrder(inputX, inputY);
+
+        final double[] xs = new double[size];
+        final double[] ys = new double[size];
+        final Object[] values = new Object[size];
+        for (int j = 0; j < size; j++) {
+            final int index = order[j];
+            xs[j] = inputX[index];
+            ys[j] = inputY[index];
+            values[j] = inputValues[index];
+        }
+        return new BalancedTwoDimTree<>(xs, ys, values);
+    }
+
+    /**
+     * Compute the order in which the given points have to be stored in the flat arrays of a balanced tree.
+     *
+     * @param xs the x coordinates of the points
+     * @param ys the y coordinates of the points
+     * @return an array which holds at each position of the tree the index of the point stored there
+     */
+    static int[] balancedOrder(final double[] xs, final double[] ys) {
+        assert xs.length == ys.length;
+        final int size = xs.length;
+        final int[] byX = sortedIndices(xs, ys);
+        final int[] byY = sortedIndices(ys, xs);
+
+        final int[] order = new int[size];
+        final int[] buffer = new int[size];
+        final byte[] side = new byte[size];
+        partition(0, size, 0, byX, byY, order, buffer, side);
+        return order;
+    }
+
+    /**
+     * Recursively select the median of the range {@code [lo, hi)} on the axis given by {@code depth} and split the
+     * presorted index arrays into the ranges of the left and right subtree. Both arrays contain the same indices in
+     * each range, so the order of the secondary axis can be kept by a stable partition in linear time.
+     */
+    private static void partition(final int lo, final int hi, final int depth,
+                                  final int[] byX, final int[] byY,
+                                  final int[] order, final int[] buffer, final byte[] side) {
+        if (lo >= hi) {
+            return;
+        }
+
+        final int[] primary = (depth & 1) == 0 ? byX : byY;
+        final int[] secondary = (depth & 1) == 0 ? byY : byX;
+        final int mid = (lo + hi) >>> 1;
+        final int median = primary[mid];
+        order[mid] = median;
+
+        if (hi - lo > 1) {
+            for (int i = lo; i < mid; i++) {
+                side[primary[i]] = LEFT;
+            }
+            side[median] = MEDIAN;
+            for (int i = mid + 1; i < hi; i++) {
+                side[primary[i]] = RIGHT;
+            }
+
+            int left = lo;
+            int right = mid + 1;
+            for (int i = lo; i < hi; i++) {
+                final int index = secondary[i];
+                switch (side[index]) {
+                    case LEFT:
+                        buffer[left++] = index;
+                        break;
+                    case RIGHT:
+                        buffer[right++] = index;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            assert left == mid && right == hi;
+            System.arraycopy(buffer, lo, secondary, lo, mid - lo);
+            System.arraycopy(buffer, mid + 1, secondary, mid + 1, hi - mid - 1);
+            secondary[mid] = median;
+
+            partition(lo, mid, depth + 1, byX, byY, order, buffer, side);
+            partition(mid + 1, hi, depth + 1, byX, byY, order, buffer, side);
+        }
+    }
+
+    /**
+     * Sort the indices of the given coordinates by {@code primary} and break ties with {@code secondary} using a
+     * stable merge sort.
+     */
+    private static int[] sortedIndices(final double[] primary, final double[] secondary) {
+        final int size = primary.length;
+        int[] source = new int[size];
+        for (int i = 0; i < size; i++) {
+            source[i] = i;
+        }
+        int[] target = new int[size];
+        for (int width = 1; width < size; width <<= 1) {
+            for (int lo = 0; lo < size; lo += width << 1) {
+                final int mid = Math.min(lo + width, size);
+                final int hi = Math.min(lo + (width << 1), size);
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi) {
+                    target[k++] = compare(source[j], source[i], primary, secondary) < 0 ? source[j++] : source[i++];
+                }
+                while (i < mid) {
+                    target[k++] = source[i++];
+                }
+                while (j < hi) {
+                    target[k++] = source[j++];
+                }
+            }
+            final int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        return source;
+    }
+
+    private static int compare(final int a, final int b, final double[] primary, final double[] secondary) {
+        final int compare = Double.compare(primary[a], primary[b]);
+        return compare != 0 ? compare : Double.compare(secondary[a], secondary[b]);
+    }
+
+    @Override
+    public int dimensions() {
+        return 2;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public Iterable<DistantObject<TwoDimTree.Node<T>>> rangeSearch(final double[] center, final double range) {
+        checkArgument(center.length == dimensions(), "Dimension mismatch");
+        return findNodes(center[0], center[1], range);
+    }
+
+    @Override
+    public Iterable<DistantObject<TwoDimTree.Node<T>>> findNodes(final double x, final double y, final double range) {
+        final List<DistantObject<TwoDimTree.Node<T>>> result = Lists.newArrayList();
+        if (values.length > 0) {
+            findNodes(0, values.length, 0, x, y, range, range * range, result);
+        }
+        return result;
+    }
+
+    /**
+     * Collect all nodes of the subtree {@code [lo, hi)} which are inside the circle. A subtree is only entered if its
+     * cell, which is bounded by the splitting lines of its ancestors, can intersect the circle.
+     */
+    private void findNodes(final int lo, final int hi, final int depth,
+                           final double x, final double y, final double range, final double rangeSquared,
+                           final List<DistantObject<TwoDimTree.Node<T>>> result) {
+        final int mid = (lo + hi) >>> 1;
+        final double dx = xs[mid] - x;
+        final double dy = ys[mid] - y;
+        final double distanceSquared = dx * dx + dy * dy;
+        if (distanceSquared <= rangeSquared) {
+            result.add(new NodeDistance<TwoDimTree.Node<T>>(new ArrayNode(lo, hi, depth), Math.sqrt(distanceSquared)));
+        }
+
+        final double delta = (depth & 1) == 0 ? -dx : -dy;
+        if (lo < mid && delta - range <= 0) {
+            findNodes(lo, mid, depth + 1, x, y, range, rangeSquared, result);
+        }
+        if (mid + 1 < hi && delta + range >= 0) {
+            findNodes(mid + 1, hi, depth + 1, x, y, range, rangeSquared, result);
+        }
+    }
+
+    @Override
+    public void forEachInRange(final double x, final double y, final double range,
+                               final RangeVisitor<? super T> visitor) {
+        checkNotNull(visitor);
+        if (values.length > 0) {
+            forEachInRange(0, values.length, 0, x, y, range, range * range, visitor);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void forEachInRange(final int lo, final int hi, final int depth,
+                                final double x, final double y, final double range, final double rangeSquared,
+                                final RangeVisitor<? super T> visitor) {
+        final int mid = (lo + hi) >>> 1;
+        final double dx = xs[mid] - x;
+        final double dy = ys[mid] - y;
+        final double distanceSquared = dx * dx + dy * dy;
+        if (distanceSquared <= rangeSquared) {
+            visitor.visit((T) values[mid], Math.sqrt(distanceSquared));
+        }
+
+        final double delta = (depth & 1) == 0 ? -dx : -dy;
+        if (lo < mid && delta - range <= 0) {
+            forEachInRange(lo, mid, depth + 1, x, y, range, rangeSquared, visitor);
+        }
+        if (mid + 1 < hi && delta + range >= 0) {
+            forEachInRange(mid + 1, hi, depth + 1, x, y, range, rangeSquared, visitor);
+        }
+    }
+
+    @Override
+    public List<TwoDimTree.Node<T>> kNearest(final double[] center, final int k) {
+        checkArgument(center.length == dimensions(), "Dimension mismatch");
+        return kNearest(center[0], center[1], k);
+    }
+
+    @Override
+    public List<TwoDimTree.Node<T>> kNearest(final double x, final double y, final int k) {
+        checkArgument(k >= 0, "k must not be negative: %s", k);
+        if (k == 0 || values.length == 0) {
+            return ImmutableList.of();
+        }
+        final NearestNeighbourQueue<TwoDimTree.Node<T>> queue = new NearestNeighbourQueue<>(k);
+        kNearest(0, values.length, 0, x, y, queue);
+        return queue.drain();
+    }
+
+    @Override
+    public Optional<TwoDimTree.Node<T>> nearest(final double x, final double y) {
+        final List<TwoDimTree.Node<T>> nearest = kNearest(x, y, 1);
+        return nearest.isEmpty() ? Optional.<TwoDimTree.Node<T>>absent() : Optional.of(nearest.get(0));
+    }
+
+    /**
+     * Offer the node of the subtree {@code [lo, hi)} to the queue and descend first into the child on the side of the
+     * query point. The other child is only searched if the splitting line is closer than the current k-th neighbour.
+     */
+    private void kNearest(final int lo, final int hi, final int depth, final double x, final double y,
+                          final NearestNeighbourQueue<TwoDimTree.Node<T>> queue) {
+        final int mid = (lo + hi) >>> 1;
+        final double dx = x - xs[mid];
+        final double dy = y - ys[mid];
+        final double distanceSquared = dx * dx + dy * dy;
+        if (distanceSquared < queue.bound()) {
+            queue.offer(new ArrayNode(lo, hi, depth), distanceSquared);
+        }
+
+        final double delta = (depth & 1) == 0 ? dx : dy;
+        final int nearLo = delta <= 0 ? lo : mid + 1;
+        final int nearHi = delta <= 0 ? mid : hi;
+        final int farLo = delta <= 0 ? mid + 1 : lo;
+        final int farHi = delta <= 0 ? hi : mid;
+        if (nearLo < nearHi) {
+            kNearest(nearLo, nearHi, depth + 1, x, y, queue);
+        }
+        if (farLo < farHi && delta * delta < queue.bound()) {
+            kNearest(farLo, farHi, depth + 1, x, y, queue);
+        }
+    }
+
+    @Deprecated
+    @Override
+    public TwoDimTree.Node<T> root() {
+        return rootNode().orNull();
+    }
+
+    @Override
+    public Optional<TwoDimTree.Node<T>> rootNode() {
+        return values.length == 0
+                ? Optional.<TwoDimTree.Node<T>>absent()
+                : Optional.<TwoDimTree.Node<T>>of(new ArrayNode(0, values.length, 0));
+    }
+
+    @Override
+    public Iterator<TwoDimTree.Node<T>> iterator() {
+        return rootNode().isPresent()
+                ? treeTraverser.postOrderTraversal(rootNode().get()).iterator()
+                : Collections.<TwoDimTree.Node<T>>emptyIterator();
+    }
+
+    private static final class NodeDistance<N> implements DistantObject<N> {
+        private final N node;
+        private final double distance;
+
+        private NodeDistance(final N node, final double distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+
+        @Override
+        public N object() {
+            return node;
+        }
+
+        @Override
+        public double distance() {
+            return distance;
+        }
+    }
+
+    /**
+     * A view on the node at the median of the index range {@code [lo, hi)}.
+     */
+    private final class ArrayNode implements TwoDimTree.Node<T> {
+        private final int lo;
+        private final int hi;
+        private final int depth;
+
+        private ArrayNode(final int lo, final int hi, final int depth) {
+            this.lo = lo;
+            this.hi = hi;
+            this.depth = depth;
+        }
+
+        private int index() {
+            return (lo + hi) >>> 1;
+        }
+
+        @Override
+        public double xCoordinate() {
+            return xs[index()];
+        }
+
+        @Override
+        public double yCoordinate() {
+            return ys[index()];
+        }
+
+        @Override
+        public int dimensions() {
+            return 2;
+        }
+
+        @Override
+        public Optional<TwoDimTree.Node<T>> leftChild() {
+            return lo < index()
+                    ? Optional.<TwoDimTree.Node<T>>of(new ArrayNode(lo, index(), depth + 1))
+                    : Optional.<TwoDimTree.Node<T>>absent();
+        }
+
+        @Override
+        public Optional<TwoDimTree.Node<T>> rightChild() {
+            return index() + 1 < hi
+                    ? Optional.<TwoDimTree.Node<T>>of(new ArrayNode(index() + 1, hi, depth + 1))
+                    : Optional.<TwoDimTree.Node<T>>absent();
+        }
+
+        @Override
+        public Iterable<TwoDimTree.Node<T>> children() {
+            return Iterables.filter(Arrays.asList(leftChild().orNull(), rightChild().orNull()), Predicates.notNull());
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T value() {
+            return (T) values[index()];
+        }
+
+        @Override
+        public double[] coordinates() {
+            return new double[]{xCoordinate(), yCoordinate()};
+        }
+
+        @Override
+        public double distance(final double... coordinates) {
+            checkArgument(coordinates.length == dimensions());
+            return Geometry2D.distance(xCoordinate(), yCoordinate(), coordinates[0], coordinates[1]);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BalancedTwoDimTree.ArrayNode)) {
+                return false;
+            }
+            final BalancedTwoDimTree<?>.ArrayNode that = (BalancedTwoDimTree<?>.ArrayNode) o;
+            return tree() == that.tree() && lo == that.lo && hi == that.hi;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * lo + hi;
+        }
+
+        private BalancedTwoDimTree<T> tree() {
+            return BalancedTwoDimTree.this;
+        }
+
+        @Override
+        public String toString() {
+            return "Node{" + value() + " at [" + xCoordinate() + ", " + yCoordinate() + "]}";
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import com.google.common.base.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A factory for {@link BalancedTwoDimTree balanced kd-trees}.
+ *
+ * @param <T> the value type
+ */
+public final class BalancedTwoDimTreeFactory<T> implements TwoDimTreeFactory<T> {
+
+    private BalancedTwoDimTreeFactory() {
+    }
+
+    @Override
+    public TwoDimTree<T> create(final Iterable<? extends T> elements, final Function<? super T, Point2D> function) {
+        checkNotNull(elements);
+        checkNotNull(function);
+        return BalancedTwoDimTree.create(elements, function);
+    }
+
+    public static <T> TwoDimTreeFactory<T> newInstance() {
+        return new BalancedTwoDimTreeFactory<>();
+    }
+}
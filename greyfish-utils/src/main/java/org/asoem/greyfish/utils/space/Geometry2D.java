@@ -94,6 +94,8 @@ public final class Geometry2D {
      * @return the Euclidean distance
      */
     public static double distance(final double x, final double y, final double x1, final double y1) {
-        return FastMath.sqrt(x * x1 + y * y1);
+        final double dx = x - x1;
+        final double dy = y - y1;
+        return FastMath.sqrt(dx * dx + dy * dy);
     }
 }
@@ -0,0 +1,439 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A balanced two dimensional kd-tree index which is maintained incrementally instead of being rebuilt after every
+ * modification. <p>The tree is laid out like a {@link BalancedTwoDimTree}, but the split values of the nodes are kept
+ * separately from the locations of the objects stored at the nodes. Each node therefore owns a fixed cell bounded by
+ * the split lines of its ancestors, and an object may move freely inside the cell of its node. An object leaving its
+ * cell leaves a tombstone behind and is reinserted at the first tombstone on the path from the root to its new
+ * location, or into a small overflow list if there is none. Once too many tombstones or overflowing objects have
+ * accumulated, the tree is rebalanced.</p> <p>Use {@link #moveAll(Map)} to apply the moves of a whole simulation step,
+ * which checks for the need to rebalance only once.</p>
+ *
+ * @param <T> the type of the indexed objects
+ */
+public final class IncrementalTwoDimTreeIndex<T> implements SpatialIndex2D<T> {
+
+    private static final int NO_SLOT = -1;
+    private static final int MIN_OVERFLOW = 8;
+
+    /**
+     * Maps objects to their slot. Slots in the tree are positive or zero, slots in the overflow list are encoded as
+     * {@code -(index + 2)}.
+     */
+    private final Map<T, Integer> slots = Maps.newHashMap();
+
+    // the tree
+    private Object[] values = new Object[0];
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private double[] splits = new double[0];
+    private double[] minX = new double[0];
+    private double[] maxX = new double[0];
+    private double[] minY = new double[0];
+    private double[] maxY = new double[0];
+    private int tombstones;
+
+    // the overflow list
+    private Object[] overflowValues = new Object[MIN_OVERFLOW];
+    private double[] overflowXs = new double[MIN_OVERFLOW];
+    private double[] overflowYs = new double[MIN_OVERFLOW];
+    private int overflowSize;
+
+    private int rebuilds;
+
+    private IncrementalTwoDimTreeIndex() {
+    }
+
+    public static <T> IncrementalTwoDimTreeIndex<T> create() {
+        return new IncrementalTwoDimTreeIndex<>();
+    }
+
+    @Override
+    public void insert(final T object, final double x, final double y) {
+        checkNotNull(object);
+        checkArgument(!slots.containsKey(object), "Object is already indexed: %s", object);
+        place(object, x, y);
+        rebalanceIfNecessary();
+    }
+
+    @Override
+    public boolean remove(final T object) {
+        final Integer slot = slots.remove(object);
+        if (slot == null) {
+            return false;
+        }
+        if (slot >= 0) {
+            bury(slot);
+        } else {
+            removeOverflow(-slot - 2);
+        }
+        rebalanceIfNecessary();
+        return true;
+    }
+
+    @Override
+    public void move(final T object, final double x, final double y) {
+        relocate(object, x, y);
+        rebalanceIfNecessary();
+    }
+
+    @Override
+    public void moveAll(final Map<? extends T, ? extends Point2D> locations) {
+        for (Map.Entry<? extends T, ? extends Point2D> entry : locations.entrySet()) {
+            final Point2D location = entry.getValue();
+            relocate(entry.getKey(), location.getX(), location.getY());
+        }
+        rebalanceIfNecessary();
+    }
+
+    @Override
+    public void moveAll(final PositionStore<? extends T> positions, final int[] slots, final int count) {
+        for (int i = 0; i < count; i++) {
+            final int slot = slots[i];
+            relocate(positions.objectAt(slot), positions.x(slot), positions.y(slot));
+        }
+        rebalanceIfNecessary();
+    }
+
+    @Override
+    public Iterable<T> findObjects(final double x, final double y, final double range) {
+        final List<T> result = Lists.newArrayList();
+        forEachInRange(x, y, range, new RangeVisitor<T>() {
+            @Override
+            public void visit(final T object, final double distance) {
+                result.add(object);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void forEachInRange(final double x, final double y, final double range,
+                               final RangeVisitor<? super T> visitor) {
+        checkNotNull(visitor);
+        final double rangeSquared = range * range;
+        if (values.length > 0) {
+            forEachInRange(0, values.length, 0, x, y, range, rangeSquared, visitor);
+        }
+        for (int i = 0; i < overflowSize; i++) {
+            final double dx = overflowXs[i] - x;
+            final double dy = overflowYs[i] - y;
+            final double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared <= rangeSquared) {
+                visitor.visit(this.<T>overflowValue(i), Math.sqrt(distanceSquared));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void forEachInRange(final int lo, final int hi, final int depth,
+                                final double x, final double y, final double range, final double rangeSquared,
+                                final RangeVisitor<? super T> visitor) {
+        final int mid = (lo + hi) >>> 1;
+        final Object value = values[mid];
+        if (value != null) {
+            final double dx = xs[mid] - x;
+            final double dy = ys[mid] - y;
+            final double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared <= rangeSquared) {
+                visitor.visit((T) value, Math.sqrt(distanceSquared));
+            }
+        }
+
+        final double delta = ((depth & 1) == 0 ? x : y) - splits[mid];
+        if (lo < mid && delta - range <= 0) {
+            forEachInRange(lo, mid, depth + 1, x, y, range, rangeSquared, visitor);
+        }
+        if (mid + 1 < hi && delta + range >= 0) {
+            forEachInRange(mid + 1, hi, depth + 1, x, y, range, rangeSquared, visitor);
+        }
+    }
+
+    @Override
+    public List<T> findNearest(final double x, final double y, final int k) {
+        checkArgument(k >= 0, "k must not be negative: %s", k);
+        if (k == 0 || slots.isEmpty()) {
+            return ImmutableList.of();
+        }
+        final NearestNeighbourQueue<T> queue = new NearestNeighbourQueue<>(k);
+        if (values.length > 0) {
+            findNearest(0, values.length, 0, x, y, queue);
+        }
+        for (int i = 0; i < overflowSize; i++) {
+            final double dx = overflowXs[i] - x;
+            final double dy = overflowYs[i] - y;
+            queue.offer(overflowValues[i], dx * dx + dy * dy);
+        }
+        return queue.drain();
+    }
+
+    private void findNearest(final int lo, final int hi, final int depth, final double x, final double y,
+                             final NearestNeighbourQueue<T> queue) {
+        final int mid = (lo + hi) >>> 1;
+        final Object value = values[mid];
+        if (value != null) {
+            final double dx = xs[mid] - x;
+            final double dy = ys[mid] - y;
+            queue.offer(value, dx * dx + dy * dy);
+        }
+
+        final double delta = ((depth & 1) == 0 ? x : y) - splits[mid];
+        final int nearLo = delta <= 0 ? lo : mid + 1;
+        final int nearHi = delta <= 0 ? mid : hi;
+        final int farLo = delta <= 0 ? mid + 1 : lo;
+        final int farHi = delta <= 0 ? hi : mid;
+        if (nearLo < nearHi) {
+            findNearest(nearLo, nearHi, depth + 1, x, y, queue);
+        }
+        if (farLo < farHi && delta * delta < queue.bound()) {
+            findNearest(farLo, farHi, depth + 1, x, y, queue);
+        }
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * The number of times the tree was rebuilt since the creation of this index.
+     *
+     * @return the number of rebuilds
+     */
+    public int rebuilds() {
+        return rebuilds;
+    }
+
+    private void relocate(final T object, final double x, final double y) {
+        checkNotNull(object);
+        final Integer slot = slots.get(object);
+        checkArgument(slot != null, "Object is not indexed: %s", object);
+        assert slot != null;
+
+        if (slot >= 0) {
+            if (x >= minX[slot] && x <= maxX[slot] && y >= minY[slot] && y <= maxY[slot]) {
+                xs[slot] = x;
+                ys[slot] = y;
+            } else {
+                bury(slot);
+                place(object, x, y);
+            }
+        } else {
+            final int index = -slot - 2;
+            final int treeSlot = findTombstone(x, y);
+            if (treeSlot == NO_SLOT) {
+                overflowXs[index] = x;
+                overflowYs[index] = y;
+            } else {
+                removeOverflow(index);
+                resurrect(treeSlot, object, x, y);
+            }
+        }
+    }
+
+    /**
+     * Place an object which is currently not stored in the tree or the overflow list.
+     */
+    private void place(final T object, final double x, final double y) {
+        final int slot = findTombstone(x, y);
+        if (slot == NO_SLOT) {
+            addOverflow(object, x, y);
+        } else {
+            resurrect(slot, object, x, y);
+        }
+    }
+
+    /**
+     * Walk down from the root towards {@code x, y} and return the first tombstone on the path. The cell of each node
+     * on this path contains the location.
+     */
+    private int findTombstone(final double x, final double y) {
+        if (tombstones == 0) {
+            return NO_SLOT;
+        }
+        int lo = 0;
+        int hi = values.length;
+        int depth = 0;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (values[mid] == null) {
+                assert x >= minX[mid] && x <= maxX[mid] && y >= minY[mid] && y <= maxY[mid];
+                return mid;
+            }
+            if (((depth & 1) == 0 ? x : y) <= splits[mid]) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+            ++depth;
+        }
+        return NO_SLOT;
+    }
+
+    private void bury(final int slot) {
+        values[slot] = null;
+        ++tombstones;
+    }
+
+    private void resurrect(final int slot, final T object, final double x, final double y) {
+        values[slot] = object;
+        xs[slot] = x;
+        ys[slot] = y;
+        --tombstones;
+        slots.put(object, slot);
+    }
+
+    private void addOverflow(final T object, final double x, final double y) {
+        if (overflowSize == overflowValues.length) {
+            final int capacity = overflowSize * 2;
+            overflowValues = Arrays.copyOf(overflowValues, capacity);
+            overflowXs = Arrays.copyOf(overflowXs, capacity);
+            overflowYs = Arrays.copyOf(overflowYs, capacity);
+        }
+        overflowValues[overflowSize] = object;
+        overflowXs[overflowSize] = x;
+        overflowYs[overflowSize] = y;
+        slots.put(object, -overflowSize - 2);
+        ++overflowSize;
+    }
+
+    private void removeOverflow(final int index) {
+        final int last = --overflowSize;
+        if (index != last) {
+            overflowValues[index] = overflowValues[last];
+            overflowXs[index] = overflowXs[last];
+            overflowYs[index] = overflowYs[last];
+            slots.put(this.<T>overflowValue(index), -index - 2);
+        }
+        overflowValues[last] = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E> E overflowValue(final int index) {
+        return (E) overflowValues[index];
+    }
+
+    /**
+     * Rebuild the tree if the overflow list grew beyond {@code sqrt(n)} objects, which would dominate the cost of a
+     * range query, or if more than half of the tree nodes are tombstones.
+     */
+    private void rebalanceIfNecessary() {
+        if (overflowSize > MIN_OVERFLOW + (int) Math.sqrt(slots.size()) || tombstones > values.length / 2) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        final int size = slots.size();
+        final Object[] liveValues = new Object[size];
+        final double[] liveXs = new double[size];
+        final double[] liveYs = new double[size];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                liveValues[n] = values[i];
+                liveXs[n] = xs[i];
+                liveYs[n] = ys[i];
+                ++n;
+            }
+        }
+        for (int i = 0; i < overflowSize; i++) {
+            liveValues[n] = overflowValues[i];
+            liveXs[n] = overflowXs[i];
+            liveYs[n] = overflowYs[i];
+            ++n;
+        }
+        assert n == size;
+
+        final int[] order = BalancedTwoDimTree.balancedOrder(liveXs, liveYs);
+        values = new Object[size];
+        xs = new double[size];
+        ys = new double[size];
+        for (int i = 0; i < size; i++) {
+            final int index = order[i];
+            values[i] = liveValues[index];
+            xs[i] = liveXs[index];
+            ys[i] = liveYs[index];
+            slots.put(this.<T>value(i), i);
+        }
+        splits = new double[size];
+        minX = new double[size];
+        maxX = new double[size];
+        minY = new double[size];
+        maxY = new double[size];
+        if (size > 0) {
+            initializeCells(0, size, 0,
+                    Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+        tombstones = 0;
+
+        Arrays.fill(overflowValues, 0, overflowSize, null);
+        overflowSize = 0;
+        ++rebuilds;
+    }
+
+    private void initializeCells(final int lo, final int hi, final int depth,
+                                 final double cellMinX, final double cellMaxX,
+                                 final double cellMinY, final double cellMaxY) {
+        final int mid = (lo + hi) >>> 1;
+        minX[mid] = cellMinX;
+        maxX[mid] = cellMaxX;
+        minY[mid] = cellMinY;
+        maxY[mid] = cellMaxY;
+
+        if ((depth & 1) == 0) {
+            final double split = xs[mid];
+            splits[mid] = split;
+            if (lo < mid) {
+                initializeCells(lo, mid, depth + 1, cellMinX, split, cellMinY, cellMaxY);
+            }
+            if (mid + 1 < hi) {
+                initializeCells(mid + 1, hi, depth + 1, split, cellMaxX, cellMinY, cellMaxY);
+            }
+        } else {
+            final double split = ys[mid];
+            splits[mid] = split;
+            if (lo < mid) {
+                initializeCells(lo, mid, depth + 1, cellMinX, cellMaxX, cellMinY, split);
+            }
+            if (mid + 1 < hi) {
+                initializeCells(mid + 1, hi, depth + 1, cellMinX, cellMaxX, split, cellMaxY);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E> E value(final int slot) {
+        return (E) values[slot];
+    }
+}
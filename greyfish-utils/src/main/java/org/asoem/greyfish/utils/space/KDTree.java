@@ -19,6 +19,8 @@ package org.asoem.greyfish.utils.space;
 
 import org.asoem.greyfish.utils.collect.BinaryTree;
 
+import java.util.List;
+
 /**
  * A k-(d)imensional tree.
  */
@@ -47,4 +49,13 @@ public interface KDTree<N extends KDNode<N, ?>> extends BinaryTree<N> {
      * @return an iterable of node distance pairs
      */
     Iterable<DistantObject<N>> rangeSearch(double[] center, double range);
+
+    /**
+     * Search the tree for the {@code k} nodes which are closest to the given {@code center}.
+     *
+     * @param center the point to search the neighbours for
+     * @param k      the maximum number of nodes to return
+     * @return at most {@code k} nodes ordered by increasing distance to the {@code center}
+     */
+    List<N> kNearest(double[] center, int k);
 }
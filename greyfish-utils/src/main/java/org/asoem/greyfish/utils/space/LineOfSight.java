@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+/**
+ * A test whether two points in space can see each other.
+ */
+public interface LineOfSight {
+    /**
+     * Test whether the line between the points at {@code x, y} and {@code x1, y1} is free of obstacles.
+     *
+     * @param x  the x coordinate of the first point
+     * @param y  the y coordinate of the first point
+     * @param x1 the x coordinate of the second point
+     * @param y1 the y coordinate of the second point
+     * @return {@code true} if the points are visible to each other, {@code false} otherwise
+     */
+    boolean isVisible(double x, double y, double x1, double y1);
+}
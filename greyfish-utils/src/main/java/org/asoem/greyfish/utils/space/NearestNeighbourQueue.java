@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A bounded max-heap which keeps the {@code k} objects with the smallest distance of all objects offered to it.
+ * Distances are kept in a primitive array, so no wrapper objects are allocated per candidate.
+ *
+ * @param <T> the type of the objects
+ */
+final class NearestNeighbourQueue<T> {
+
+    private final Object[] values;
+    private final double[] distances;
+    private int size;
+
+    NearestNeighbourQueue(final int k) {
+        checkArgument(k > 0, "k must be positive: %s", k);
+        this.values = new Object[k];
+        this.distances = new double[k];
+    }
+
+    /**
+     * The squared distance a candidate must fall below to be accepted.
+     *
+     * @return the largest squared distance in this queue if it is full, {@link Double#POSITIVE_INFINITY} otherwise
+     */
+    double bound() {
+        return size < values.length ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    /**
+     * Offer a candidate which is accepted if it is closer than the farthest object in the queue or if the queue is
+     * not yet full.
+     *
+     * @param value           the candidate
+     * @param distanceSquared the squared distance of the candidate
+     */
+    void offer(final Object value, final double distanceSquared) {
+        if (size < values.length) {
+            int child = size++;
+            while (child > 0) {
+                final int parent = (child - 1) >>> 1;
+                if (distances[parent] >= distanceSquared) {
+                    break;
+                }
+                values[child] = values[parent];
+                distances[child] = distances[parent];
+                child = parent;
+            }
+            values[child] = value;
+            distances[child] = distanceSquared;
+        } else if (distanceSquared < distances[0]) {
+            siftDown(value, distanceSquared, size);
+        }
+    }
+
+    private void siftDown(final Object value, final double distanceSquared, final int heapSize) {
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && distances[child + 1] > distances[child]) {
+                ++child;
+            }
+            if (distances[child] <= distanceSquared) {
+                break;
+            }
+            values[parent] = values[child];
+            distances[parent] = distances[child];
+            parent = child;
+        }
+        values[parent] = value;
+        distances[parent] = distanceSquared;
+    }
+
+    /**
+     * Remove all objects from this queue.
+     *
+     * @return the objects ordered by increasing distance
+     */
+    @SuppressWarnings("unchecked")
+    List<T> drain() {
+        final Object[] sorted = new Object[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = values[0];
+            final Object last = values[i];
+            final double lastDistance = distances[i];
+            values[i] = null;
+            if (i > 0) {
+                siftDown(last, lastDistance, i);
+            }
+        }
+        size = 0;
+        return (List<T>) Arrays.asList(sorted);
+    }
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import jsr166y.ForkJoinPool;
+import jsr166y.RecursiveAction;
+import org.asoem.greyfish.utils.concurrent.ForkJoinPools;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Computes the neighbours of all objects at once. The objects are bucketed into a grid of cells at least as large as
+ * the search radius, so the neighbours of an object are all located in its own or one of the eight adjacent cells.
+ * The rows of the grid are then swept in parallel on a {@link ForkJoinPool}. Each object owns its result list, so the
+ * workers do not need to synchronize.
+ */
+public final class NeighbourSweep {
+
+    private static final int MAX_CELLS_PER_AXIS = 4096;
+    private static final int MIN_OBJECTS_PER_TASK = 256;
+
+    private NeighbourSweep() {
+        throw new AssertionError("Not instantiable");
+    }
+
+    /**
+     * A line of sight which never is obstructed.
+     *
+     * @return a line of sight which always returns {@code true}
+     */
+    public static LineOfSight unobstructed() {
+        return Unobstructed.INSTANCE;
+    }
+
+    /**
+     * Compute the neighbours of all objects using the {@link ForkJoinPools#commonPool() common pool}.
+     *
+     * @see #allNeighbours(Map, double, LineOfSight, ForkJoinPool)
+     */
+    public static <T> Map<T, List<T>> allNeighbours(final Map<? extends T, ? extends Point2D> locations,
+                                                    final double radius, final LineOfSight lineOfSight) {
+        return allNeighbours(locations, radius, lineOfSight, ForkJoinPools.commonPool());
+    }
+
+    /**
+     * Compute the neighbours of all objects. An object is a neighbour of another object if the distance between the
+     * two is less than or equal to {@code radius} and if they are visible to each other according to {@code
+     * lineOfSight}. An object is never a neighbour of itself.
+     *
+     * @param locations   the objects and their locations
+     * @param radius      the maximum distance of a neighbour
+     * @param lineOfSight the test for visibility
+     * @param pool        the pool to execute the sweep in
+     * @param <T>         the type of the objects
+     * @return a map containing the list of neighbours for each object
+     */
+    public static <T> Map<T, List<T>> allNeighbours(final Map<? extends T, ? extends Point2D> locations,
+                                                    final double radius, final LineOfSight lineOfSight,
+                                                    final ForkJoinPool pool) {
+        checkNotNull(lineOfSight);
+        return sweep(locations, radius, 0, 0, lineOfSight, pool);
+    }
+
+    /**
+     * Compute the neighbours of all objects in the given store using the {@link ForkJoinPools#commonPool() common
+     * pool}. The locations are read directly from the arrays of the store.
+     *
+     * @see #allNeighbours(Map, double, LineOfSight, ForkJoinPool)
+     */
+    public static <T> Map<T, List<T>> allNeighbours(final PositionStore<T> positions,
+                                                    final double radius, final LineOfSight lineOfSight) {
+        checkNotNull(lineOfSight);
+        return sweep(positions, radius, 0, 0, lineOfSight, ForkJoinPools.commonPool());
+    }
+
+    /**
+     * Compute the neighbours of all objects using the {@link ForkJoinPools#commonPool() common pool}.
+     *
+     * @see #allNeighboursOnTorus(Map, double, double, double, ForkJoinPool)
+     */
+    public static <T> Map<T, List<T>> allNeighboursOnTorus(final Map<? extends T, ? extends Point2D> locations,
+                                                           final double radius,
+                                                           final double width, final double height) {
+        return allNeighboursOnTorus(locations, radius, width, height, ForkJoinPools.commonPool());
+    }
+
+    /**
+     * Compute the neighbours of all objects located in the rectangle {@code [0, width) * [0, height)} with periodic
+     * boundaries. The distance between two objects is the distance to the nearest periodic image of the other object.
+     * An object is never a neighbour of itself.
+     *
+     * @param locations the objects and their locations
+     * @param radius    the maximum distance of a neighbour
+     * @param width     the width of the torus
+     * @param height    the height of the torus
+     * @param pool      the pool to execute the sweep in
+     * @param <T>       the type of the objects
+     * @return a map containing the list of neighbours for each object
+     */
+    public static <T> Map<T, List<T>> allNeighboursOnTorus(final Map<? extends T, ? extends Point2D> locations,
+                                                           final double radius,
+                                                           final double width, final double height,
+                                                           final ForkJoinPool pool) {
+        checkArgument(width > 0 && height > 0, "Dimensions must be positive: %s x %s", width, height);
+        return sweep(locations, radius, width, height, unobstructed(), pool);
+    }
+
+    /**
+     * Compute the neighbours of all objects in the given store on a torus using the {@link
+     * ForkJoinPools#commonPool() common pool}. The locations are read directly from the arrays of the store.
+     *
+     * @see #allNeighboursOnTorus(Map, double, double, double, ForkJoinPool)
+     */
+    public static <T> Map<T, List<T>> allNeighboursOnTorus(final PositionStore<T> positions,
+                                                           final double radius,
+                                                           final double width, final double height) {
+        checkArgument(width > 0 && height > 0, "Dimensions must be positive: %s x %s", width, height);
+        return sweep(positions, radius, width, height, unobstructed(), ForkJoinPools.commonPool());
+    }
+
+    private static <T> Map<T, List<T>> sweep(final Map<? extends T, ? extends Point2D> locations,
+                                             final double radius, final double periodX, final double periodY,
+                                             final LineOfSight lineOfSight, final ForkJoinPool pool) {
+        checkNotNull(locations);
+        checkArgument(radius >= 0, "Radius must not be negative: %s", radius);
+        checkNotNull(pool);
+
+        final int size = locations.size();
+        if (size == 0) {
+            return ImmutableMap.of();
+        }
+
+        final Object[] objects = new Object[size];
+        final double[] xs = new double[size];
+        final double[] ys = new double[size];
+        int i = 0;
+        for (Map.Entry<? extends T, ? extends Point2D> entry : locations.entrySet()) {
+            objects[i] = entry.getKey();
+            xs[i] = entry.getValue().getX();
+            ys[i] = entry.getValue().getY();
+            ++i;
+        }
+
+        return sweep(objects, xs, ys, radius, periodX, periodY, lineOfSight, pool);
+    }
+
+    private static <T> Map<T, List<T>> sweep(final PositionStore<T> positions,
+                                             final double radius, final double periodX, final double periodY,
+                                             final LineOfSight lineOfSight, final ForkJoinPool pool) {
+        checkNotNull(positions);
+        checkArgument(radius >= 0, "Radius must not be negative: %s", radius);
+        checkNotNull(pool);
+
+        final int size = positions.size();
+        if (size == 0) {
+            return ImmutableMap.of();
+        }
+
+        // skip free slots
+        final Object[] objects = new Object[size];
+        final double[] xs = new double[size];
+        final double[] ys = new double[size];
+        int i = 0;
+        for (int slot = 0; slot < positions.slotCount(); slot++) {
+            final T object = positions.objectAt(slot);
+            if (object != null) {
+                objects[i] = object;
+                xs[i] = positions.x(slot);
+                ys[i] = positions.y(slot);
+                ++i;
+            }
+        }
+        assert i == size;
+
+        return sweep(objects, xs, ys, radius, periodX, periodY, lineOfSight, pool);
+    }
+
+    private static <T> Map<T, List<T>> sweep(final Object[] objects, final double[] xs, final double[] ys,
+                                             final double radius, final double periodX, final double periodY,
+                                             final LineOfSight lineOfSight, final ForkJoinPool pool) {
+        final int size = objects.length;
+        final Grid grid = new Grid(xs, ys, radius, periodX, periodY);
+        final Object[] neighbours = new Object[size];
+        pool.invoke(new SweepRows(grid, objects, xs, ys, radius, lineOfSight, neighbours, 0, grid.rows));
+
+        final Map<T, List<T>> result = Maps.newHashMapWithExpectedSize(size);
+        for (int j = 0; j < size; j++) {
+            @SuppressWarnings("unchecked")
+            final T object = (T) objects[j];
+            @SuppressWarnings("unchecked")
+            final List<T> list = (List<T>) neighbours[j];
+            result.put(object, list);
+        }
+        return result;
+    }
+
+    /**
+     * The objects sorted by the cell they are located in.
+     */
+    private static final class Grid {
+        private final double minX;
+        private final double minY;
+        /**
+         * The period of the x and y axes, or {@code 0} if the grid is bounded.
+         */
+        private final double periodX;
+        private final double periodY;
+        private final double inverseCellWidth;
+        private final double inverseCellHeight;
+        private final int columns;
+        private final int rows;
+        /**
+         * The objects of cell {@code c} are {@code order[cellStart[c]]} to {@code order[cellStart[c + 1] - 1]}.
+         */
+        private final int[] cellStart;
+        private final int[] order;
+
+        private Grid(final double[] xs, final double[] ys, final double radius,
+                     final double periodX, final double periodY) {
+            double minX = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            if (periodX > 0) {
+                minX = 0;
+                maxX = periodX;
+                minY = 0;
+                maxY = periodY;
+            } else {
+                for (int i = 0; i < xs.length; i++) {
+                    minX = Math.min(minX, xs[i]);
+                    maxX = Math.max(maxX, xs[i]);
+                    minY = Math.min(minY, ys[i]);
+                    maxY = Math.max(maxY, ys[i]);
+                }
+            }
+            final double width = maxX - minX;
+            final double height = maxY - minY;
+
+            // cells must not be smaller than the radius, but need not be smaller than the mean area per object
+            double cellSize = Math.max(radius, Math.sqrt(width * height / xs.length));
+            cellSize = Math.max(cellSize, Math.max(width, height) / MAX_CELLS_PER_AXIS);
+            if (cellSize <= 0) {
+                cellSize = 1;
+            }
+
+            this.minX = minX;
+            this.minY = minY;
+            this.periodX = periodX;
+            this.periodY = periodY;
+            if (periodX > 0) {
+                // the cells have to tile the torus exactly, so they get stretched to a divisor of its size
+                this.columns = Math.max(1, (int) (width / cellSize));
+                this.rows = Math.max(1, (int) (height / cellSize));
+                this.inverseCellWidth = columns / width;
+                this.inverseCellHeight = rows / height;
+            } else {
+                this.inverseCellWidth = 1.0 / cellSize;
+                this.inverseCellHeight = 1.0 / cellSize;
+                this.columns = (int) (width * inverseCellWidth) + 1;
+                this.rows = (int) (height * inverseCellHeight) + 1;
+            }
+
+            final int[] cells = new int[xs.length];
+            this.cellStart = new int[columns * rows + 1];
+            for (int i = 0; i < xs.length; i++) {
+                cells[i] = row(ys[i]) * columns + column(xs[i]);
+                ++cellStart[cells[i] + 1];
+            }
+            for (int c = 0; c < columns * rows; c++) {
+                cellStart[c + 1] += cellStart[c];
+            }
+            this.order = new int[xs.length];
+            final int[] next = new int[columns * rows];
+            System.arraycopy(cellStart, 0, next, 0, next.length);
+            for (int i = 0; i < xs.length; i++) {
+                order[next[cells[i]]++] = i;
+            }
+        }
+
+        private int column(final double x) {
+            return Math.max(0, Math.min(columns - 1, (int) ((x - minX) * inverseCellWidth)));
+        }
+
+        private int row(final double y) {
+            return Math.max(0, Math.min(rows - 1, (int) ((y - minY) * inverseCellHeight)));
+        }
+
+        /**
+         * Write the distinct indices adjacent to {@code index} including itself into {@code adjacent}.
+         *
+         * @return the number of indices written
+         */
+        private static int adjacent(final int index, final int count, final boolean periodic, final int[] adjacent) {
+            int n = 0;
+            for (int i = index - 1; i <= index + 1; i++) {
+                if (periodic) {
+                    final int wrapped = (i + count) % count;
+                    if (n == 0 || (wrapped != adjacent[0] && wrapped != adjacent[n - 1])) {
+                        adjacent[n++] = wrapped;
+                    }
+                } else if (i >= 0 && i < count) {
+                    adjacent[n++] = i;
+                }
+            }
+            return n;
+        }
+
+        /**
+         * The difference between two coordinates, or between their nearest periodic images.
+         */
+        private static double delta(final double a, final double b, final double period) {
+            final double d = b - a;
+            return period > 0 ? d - period * Math.rint(d / period) : d;
+        }
+    }
+
+    private static final class SweepRows extends RecursiveAction {
+        private final Grid grid;
+        private final Object[] objects;
+        private final double[] xs;
+        private final double[] ys;
+        private final double radius;
+        private final LineOfSight lineOfSight;
+        private final Object[] neighbours;
+        private final int fromRow;
+        private final int toRow;
+
+        private SweepRows(final Grid grid, final Object[] objects, final double[] xs, final double[] ys,
+                          final double radius, final LineOfSight lineOfSight, final Object[] neighbours,
+                          final int fromRow, final int toRow) {
+            this.grid = grid;
+            this.objects = objects;
+            this.xs = xs;
+            this.ys = ys;
+            this.radius = radius;
+            this.lineOfSight = lineOfSight;
+            this.neighbours = neighbours;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute() {
+            final int objectCount = grid.cellStart[toRow * grid.columns] - grid.cellStart[fromRow * grid.columns];
+            if (toRow - fromRow > 1 && objectCount > MIN_OBJECTS_PER_TASK) {
+                final int mid = (fromRow + toRow) >>> 1;
+                invokeAll(
+                        new SweepRows(grid, objects, xs, ys, radius, lineOfSight, neighbours, fromRow, mid),
+                        new SweepRows(grid, objects, xs, ys, radius, lineOfSight, neighbours, mid, toRow));
+            } else {
+                final int[] adjacentRows = new int[3];
+                final int[] adjacentColumns = new int[3];
+                final boolean periodic = grid.periodX > 0;
+                for (int row = fromRow; row < toRow; row++) {
+                    final int rowCount = Grid.adjacent(row, grid.rows, periodic, adjacentRows);
+                    for (int column = 0; column < grid.columns; column++) {
+                        final int columnCount = Grid.adjacent(column, grid.columns, periodic, adjacentColumns);
+                        sweepCell(row * grid.columns + column, adjacentRows, rowCount, adjacentColumns, columnCount);
+                    }
+                }
+            }
+        }
+
+        private void sweepCell(final int cell,
+                               final int[] adjacentRows, final int rowCount,
+                               final int[] adjacentColumns, final int columnCount) {
+            final double radiusSquared = radius * radius;
+            for (int k = grid.cellStart[cell]; k < grid.cellStart[cell + 1]; k++) {
+                final int i = grid.order[k];
+                final double x = xs[i];
+                final double y = ys[i];
+                final List<Object> list = Lists.newArrayList();
+                for (int r = 0; r < rowCount; r++) {
+                    for (int c = 0; c < columnCount; c++) {
+                        final int other = adjacentRows[r] * grid.columns + adjacentColumns[c];
+                        for (int l = grid.cellStart[other]; l < grid.cellStart[other + 1]; l++) {
+                            final int j = grid.order[l];
+                            if (j == i) {
+                                continue;
+                            }
+                            final double dx = Grid.delta(x, xs[j], grid.periodX);
+                            final double dy = Grid.delta(y, ys[j], grid.periodY);
+                            if (dx * dx + dy * dy <= radiusSquared && lineOfSight.isVisible(x, y, xs[j], ys[j])) {
+                                list.add(objects[j]);
+                            }
+                        }
+                    }
+                }
+                neighbours[i] = list;
+            }
+        }
+
+        private static final long serialVersionUID = 0;
+    }
+
+    private enum Unobstructed implements LineOfSight {
+        INSTANCE;
+
+        @Override
+        public boolean isVisible(final double x, final double y, final double x1, final double y1) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import com.google.common.collect.Maps;
+import org.asoem.greyfish.utils.collect.SlotAllocator;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A store for the locations and orientations of objects in two dimensional space. The values are kept in parallel
+ * primitive arrays indexed by a dense slot number, which every object gets assigned when it is added to the store.
+ * Slots of removed objects are reused, so the arrays stay as compact as the population. Code which loops over many
+ * objects, like movement or neighbour sweeps, can work on the arrays directly instead of dereferencing a point object
+ * per object.
+ * <p>This class is not thread safe. Concurrent reads are safe as long as no thread modifies the store.</p>
+ *
+ * @param <T> the type of the objects
+ */
+public final class PositionStore<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<T, Integer> slots = Maps.newHashMap();
+    private final SlotAllocator slotAllocator = SlotAllocator.create();
+    private Object[] objects = new Object[INITIAL_CAPACITY];
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private double[] orientations = new double[INITIAL_CAPACITY];
+
+    private PositionStore() {
+    }
+
+    public static <T> PositionStore<T> create() {
+        return new PositionStore<T>();
+    }
+
+    /**
+     * Add the {@code object} at location {@code x, y} with orientation {@code 0}.
+     *
+     * @param object the object to add
+     * @param x      the x coordinate of the object
+     * @param y      the y coordinate of the object
+     * @return the slot assigned to the object
+     * @throws IllegalArgumentException if the object is already stored
+     */
+    public int add(final T object, final double x, final double y) {
+        checkNotNull(object);
+        checkArgument(!slots.containsKey(object), "Object is already stored: %s", object);
+
+        final int slot = slotAllocator.allocate();
+        if (slot == objects.length) {
+            grow();
+        }
+
+        objects[slot] = object;
+        xs[slot] = x;
+        ys[slot] = y;
+        orientations[slot] = 0;
+        slots.put(object, slot);
+        return slot;
+    }
+
+    private void grow() {
+        final int capacity = objects.length * 2;
+        objects = Arrays.copyOf(objects, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        orientations = Arrays.copyOf(orientations, capacity);
+    }
+
+    /**
+     * Remove the {@code object} from this store and release its slot for reuse.
+     *
+     * @param object the object to remove
+     * @return the slot the object was stored at or {@code -1} if it was not stored
+     */
+    public int remove(final Object object) {
+        final Integer slot = slots.remove(object);
+        if (slot == null) {
+            return -1;
+        }
+        objects[slot] = null;
+        slotAllocator.release(slot);
+        return slot;
+    }
+
+    /**
+     * Get the slot of the {@code object}.
+     *
+     * @param object the object to look up
+     * @return the slot of the object or {@code -1} if it is not stored
+     */
+    public int slotOf(final Object object) {
+        final Integer slot = slots.get(object);
+        return slot == null ? -1 : slot;
+    }
+
+    public boolean contains(final Object object) {
+        return slots.containsKey(object);
+    }
+
+    /**
+     * Get the object stored at {@code slot}.
+     *
+     * @param slot the slot
+     * @return the object at the slot or {@code null} if the slot is free
+     */
+    @Nullable
+    public T objectAt(final int slot) {
+        @SuppressWarnings("unchecked")
+        final T object = (T) objects[slot];
+        return object;
+    }
+
+    public double x(final int slot) {
+        return xs[slot];
+    }
+
+    public double y(final int slot) {
+        return ys[slot];
+    }
+
+    public double orientation(final int slot) {
+        return orientations[slot];
+    }
+
+    /**
+     * Get the location stored at {@code slot} as a point.
+     *
+     * @param slot the slot
+     * @return a new point
+     */
+    public Point2D location(final int slot) {
+        return ImmutablePoint2D.at(xs[slot], ys[slot]);
+    }
+
+    public void setLocation(final int slot, final double x, final double y) {
+        xs[slot] = x;
+        ys[slot] = y;
+    }
+
+    public void setOrientation(final int slot, final double orientation) {
+        orientations[slot] = orientation;
+    }
+
+    /**
+     * The number of stored objects.
+     *
+     * @return the number of stored objects
+     */
+    public int size() {
+        return slots.size();
+    }
+
+    public boolean isEmpty() {
+        return slots.isEmpty();
+    }
+
+    /**
+     * An upper bound of the slots in use. All slots of stored objects are less than this value, but some slots below
+     * it may be free.
+     *
+     * @return the number of slots which were ever used
+     */
+    public int slotCount() {
+        return slotAllocator.capacity();
+    }
+
+    /**
+     * Get an unmodifiable view of the stored objects.
+     *
+     * @return the stored objects
+     */
+    public Set<T> objects() {
+        return Collections.unmodifiableSet(slots.keySet());
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+/**
+ * A callback for range queries which receives each object found together with its distance to the query point.
+ * Visiting the results of a query this way does not require any allocation of result collections or distance
+ * wrappers, so a visitor instance can be reused for every query of a simulation step.
+ *
+ * @param <T> the type of the objects
+ */
+public interface RangeVisitor<T> {
+    /**
+     * Called for each object found by a range query, in no particular order.
+     *
+     * @param object   the object found
+     * @param distance the distance of the object to the query point
+     */
+    void visit(T object, double distance);
+}
@@ -69,7 +69,7 @@ public final class SimpleTwoDimTree<T> extends AbstractCollection<TwoDimTree.Nod
     @Override
     public Iterable<DistantObject<TwoDimTree.Node<T>>> rangeSearch(final double[] center, final double range) {
         checkArgument(center.length == dimensions(), "Dimension mismatch");
-        return ImmutableList.copyOf(findNodes(center[0], center[1], range));
+        return findNodes(center[0], center[1], range);
     }
 
     @Nullable
@@ -88,8 +88,7 @@ public final class SimpleTwoDimTree<T> extends AbstractCollection<TwoDimTree.Nod
         final FluentIterable<TwoDimTree.Node<T>> nodes = treeTraverser.preOrderTraversal(rootNode().get());
         List<DistantObject<TwoDimTree.Node<T>>> distantObjects = Lists.newArrayList();
         for (final TwoDimTree.Node<T> node : nodes) {
-            final double distance = ImmutablePoint2D.at(x, y).distance(
-                    ImmutablePoint2D.at(node.xCoordinate(), node.yCoordinate()));
+            final double distance = Geometry2D.distance(x, y, node.xCoordinate(), node.yCoordinate());
             if (distance <= range) {
                 distantObjects.add(new DistantObject<TwoDimTree.Node<T>>() {
                     @Override
@@ -107,6 +106,62 @@ public final class SimpleTwoDimTree<T> extends AbstractCollection<TwoDimTree.Nod
         return distantObjects;
     }
 
+    @Override
+    public void forEachInRange(final double x, final double y, final double range,
+                               final RangeVisitor<? super T> visitor) {
+        checkNotNull(visitor);
+        if (rootNode().isPresent()) {
+            forEachInRange(rootNode().get(), x, y, range * range, visitor);
+        }
+    }
+
+    /**
+     * Visit all nodes of the subtree, following left children in a loop, as trees created by {@link
+     * SimpleTwoDimTreeFactory} degenerate to a list of left children.
+     */
+    private static <T> void forEachInRange(final TwoDimTree.Node<T> subtree,
+                                           final double x, final double y, final double rangeSquared,
+                                           final RangeVisitor<? super T> visitor) {
+        for (TwoDimTree.Node<T> node = subtree; node != null; node = node.leftChild().orNull()) {
+            final double dx = node.xCoordinate() - x;
+            final double dy = node.yCoordinate() - y;
+            final double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared <= rangeSquared) {
+                visitor.visit(node.value(), Math.sqrt(distanceSquared));
+            }
+            final Optional<TwoDimTree.Node<T>> rightChild = node.rightChild();
+            if (rightChild.isPresent()) {
+                forEachInRange(rightChild.get(), x, y, rangeSquared, visitor);
+            }
+        }
+    }
+
+    @Override
+    public List<TwoDimTree.Node<T>> kNearest(final double[] center, final int k) {
+        checkArgument(center.length == dimensions(), "Dimension mismatch");
+        return kNearest(center[0], center[1], k);
+    }
+
+    @Override
+    public List<TwoDimTree.Node<T>> kNearest(final double x, final double y, final int k) {
+        checkArgument(k >= 0, "k must not be negative: %s", k);
+        if (k == 0 || !rootNode().isPresent()) {
+            return ImmutableList.of();
+        }
+        final NearestNeighbourQueue<TwoDimTree.Node<T>> queue = new NearestNeighbourQueue<>(k);
+        for (final TwoDimTree.Node<T> node : treeTraverser.preOrderTraversal(rootNode().get())) {
+            final double dx = node.xCoordinate() - x;
+            final double dy = node.yCoordinate() - y;
+            queue.offer(node, dx * dx + dy * dy);
+        }
+        return queue.drain();
+    }
+
+    @Override
+    public Optional<TwoDimTree.Node<T>> nearest(final double x, final double y) {
+        return Optional.fromNullable(Iterables.getFirst(kNearest(x, y, 1), null));
+    }
+
     @Override
     public Iterator<TwoDimTree.Node<T>> iterator() {
         return treeTraverser.postOrderTraversal(rootNode().get()).iterator();
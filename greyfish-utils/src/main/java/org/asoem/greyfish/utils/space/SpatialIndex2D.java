@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A mutable index over objects located in two dimensional space supporting circular range queries.
+ *
+ * @param <T> the type of the indexed objects
+ */
+public interface SpatialIndex2D<T> {
+
+    /**
+     * Add the {@code object} to this index at location {@code x, y}.
+     *
+     * @param object the object to add
+     * @param x      the x coordinate of the object
+     * @param y      the y coordinate of the object
+     * @throws IllegalArgumentException if the object is already indexed
+     */
+    void insert(T object, double x, double y);
+
+    /**
+     * Remove the {@code object} from this index.
+     *
+     * @param object the object to remove
+     * @return {@code true} if the object was indexed, {@code false} otherwise
+     */
+    boolean remove(T object);
+
+    /**
+     * Update the location of an indexed {@code object}.
+     *
+     * @param object the object to move
+     * @param x      the new x coordinate
+     * @param y      the new y coordinate
+     * @throws IllegalArgumentException if the object is not indexed
+     */
+    void move(T object, double x, double y);
+
+    /**
+     * Update the locations of all given objects. Implementations should prefer this method over repeated calls to
+     * {@link #move(Object, double, double)} to do expensive maintenance work like rebalancing only once per batch.
+     *
+     * @param locations the new locations of the objects
+     * @throws IllegalArgumentException if any of the objects is not indexed
+     */
+    void moveAll(Map<? extends T, ? extends Point2D> locations);
+
+    /**
+     * Update the locations of the objects stored at the first {@code count} {@code slots} of the given store to the
+     * locations stored there. This variant of {@link #moveAll(Map)} reads the coordinates directly from the arrays of
+     * the store.
+     *
+     * @param positions the store holding the new locations
+     * @param slots     the slots of the moved objects
+     * @param count     the number of valid entries in {@code slots}
+     * @throws IllegalArgumentException if any of the objects is not indexed
+     */
+    void moveAll(PositionStore<? extends T> positions, int[] slots, int count);
+
+    /**
+     * Find all objects which are located in the circle around {@code x, y} with given {@code range}.
+     *
+     * @param x     the x coordinate of the center
+     * @param y     the y coordinate of the center
+     * @param range the radius of the circle
+     * @return all objects within the circle
+     */
+    Iterable<T> findObjects(double x, double y, double range);
+
+    /**
+     * Call the {@code visitor} for each object which is located in the circle around {@code x, y} with given {@code
+     * range}. Implementations must not allocate objects per found object.
+     *
+     * @param x       the x coordinate of the center
+     * @param y       the y coordinate of the center
+     * @param range   the radius of the circle
+     * @param visitor the visitor to call for each object found
+     */
+    void forEachInRange(double x, double y, double range, RangeVisitor<? super T> visitor);
+
+    /**
+     * Find the {@code k} objects which are located closest to {@code x, y}.
+     *
+     * @param x the x coordinate of the query point
+     * @param y the y coordinate of the query point
+     * @param k the maximum number of objects to return
+     * @return at most {@code k} objects ordered by increasing distance
+     */
+    List<T> findNearest(double x, double y, int k);
+
+    /**
+     * The number of indexed objects.
+     *
+     * @return the number of objects in this index
+     */
+    int size();
+}
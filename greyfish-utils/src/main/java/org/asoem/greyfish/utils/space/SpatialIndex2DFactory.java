@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+/**
+ * A factory for {@link SpatialIndex2D spatial indexes} covering a rectangular area.
+ *
+ * @param <T> the type of the indexed objects
+ */
+public interface SpatialIndex2DFactory<T> {
+    /**
+     * Create a new empty index for objects located in {@code [0, width) x [0, height)}.
+     *
+     * @param width  the width of the indexed area
+     * @param height the height of the indexed area
+     * @return a new empty index
+     */
+    SpatialIndex2D<T> create(double width, double height);
+}
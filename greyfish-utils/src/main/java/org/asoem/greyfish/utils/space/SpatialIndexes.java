@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Factories for {@link SpatialIndex2D spatial indexes}.
+ */
+public final class SpatialIndexes {
+
+    private SpatialIndexes() {
+        throw new AssertionError("Not instantiable");
+    }
+
+    /**
+     * Create a factory for indexes which rebuild a tree created by the given {@code treeFactory} on the first query
+     * after a modification.
+     *
+     * @param treeFactory the factory for the tree
+     * @param <T>         the type of the indexed objects
+     * @return a new index factory
+     */
+    public static <T> SpatialIndex2DFactory<T> treeIndex(final TwoDimTreeFactory<T> treeFactory) {
+        checkNotNull(treeFactory);
+        return new SpatialIndex2DFactory<T>() {
+            @Override
+            public SpatialIndex2D<T> create(final double width, final double height) {
+                return new TwoDimTreeIndex<>(treeFactory);
+            }
+        };
+    }
+
+    /**
+     * Create a factory for {@link IncrementalTwoDimTreeIndex incrementally maintained tree indexes}.
+     *
+     * @param <T> the type of the indexed objects
+     * @return a new index factory
+     */
+    public static <T> SpatialIndex2DFactory<T> incrementalTreeIndex() {
+        return new SpatialIndex2DFactory<T>() {
+            @Override
+            public SpatialIndex2D<T> create(final double width, final double height) {
+                return IncrementalTwoDimTreeIndex.create();
+            }
+        };
+    }
+
+    /**
+     * Create a factory for {@link UniformGridIndex2D uniform grid indexes} with given {@code cellSize}.
+     *
+     * @param cellSize the edge length of a grid cell
+     * @param <T>      the type of the indexed objects
+     * @return a new index factory
+     */
+    public static <T> SpatialIndex2DFactory<T> uniformGrid(final double cellSize) {
+        checkArgument(cellSize > 0, "Cell size must be positive: %s", cellSize);
+        return new SpatialIndex2DFactory<T>() {
+            @Override
+            public SpatialIndex2D<T> create(final double width, final double height) {
+                return UniformGridIndex2D.create(width, height, cellSize);
+            }
+        };
+    }
+}
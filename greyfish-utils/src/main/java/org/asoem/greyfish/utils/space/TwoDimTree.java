@@ -17,6 +17,10 @@
 
 package org.asoem.greyfish.utils.space;
 
+import com.google.common.base.Optional;
+
+import java.util.List;
+
 public interface TwoDimTree<T> extends KDTree<TwoDimTree.Node<T>> {
 
     /**
@@ -27,6 +31,33 @@ public interface TwoDimTree<T> extends KDTree<TwoDimTree.Node<T>> {
      */
     Iterable<DistantObject<TwoDimTree.Node<T>>> findNodes(double x, double y, final double range);
 
+    /**
+     * Call the {@code visitor} for the value of each node whose point intersects with the circle. In contrast to
+     * {@link #findNodes(double, double, double)} this method does not allocate any objects.
+     *
+     * @param x       the x coordinate of the circle's center
+     * @param y       the y coordinate of the circle's center
+     * @param range   the radius of the circle around the point at {@code x} and {@code y}
+     * @param visitor the visitor to call for each value found
+     */
+    void forEachInRange(double x, double y, double range, RangeVisitor<? super T> visitor);
+
+    /**
+     * @param x the x coordinate of the point to search the neighbours for
+     * @param y the y coordinate of the point to search the neighbours for
+     * @param k the maximum number of nodes to return
+     * @return at most {@code k} nodes ordered by increasing distance to the point at {@code x} and {@code y}
+     */
+    List<TwoDimTree.Node<T>> kNearest(double x, double y, int k);
+
+    /**
+     * @param x the x coordinate of the point to search the neighbour for
+     * @param y the y coordinate of the point to search the neighbour for
+     * @return the node closest to the point at {@code x} and {@code y} or {@link Optional#absent()} if the tree is
+     * empty
+     */
+    Optional<TwoDimTree.Node<T>> nearest(double x, double y);
+
     interface Node<T> extends KDNode<Node<T>, T> {
         double xCoordinate();
 
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.asoem.greyfish.utils.base.SingleElementCache;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A spatial index which lazily rebuilds a {@link TwoDimTree} on the first query after any modification.
+ *
+ * @param <T> the type of the indexed objects
+ */
+final class TwoDimTreeIndex<T> implements SpatialIndex2D<T> {
+
+    private final Map<T, Point2D> locations = Maps.newHashMap();
+    private final SingleElementCache<TwoDimTree<T>> tree;
+
+    TwoDimTreeIndex(final TwoDimTreeFactory<T> treeFactory) {
+        checkNotNull(treeFactory);
+        this.tree = SingleElementCache.memoize(new Supplier<TwoDimTree<T>>() {
+            @Override
+            public TwoDimTree<T> get() {
+                final TwoDimTree<T> twoDimTree = treeFactory.create(locations.keySet(), Functions.forMap(locations));
+                checkNotNull(twoDimTree, "The tree factory must not return null");
+                return twoDimTree;
+            }
+        });
+    }
+
+    @Override
+    public void insert(final T object, final double x, final double y) {
+        checkNotNull(object);
+        final Point2D previous = locations.put(object, ImmutablePoint2D.at(x, y));
+        checkArgument(previous == null, "Object is already indexed: %s", object);
+        tree.invalidate();
+    }
+
+    @Override
+    public boolean remove(final T object) {
+        if (locations.remove(object) != null) {
+            tree.invalidate();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void move(final T object, final double x, final double y) {
+        checkNotNull(object);
+        checkArgument(locations.containsKey(object), "Object is not indexed: %s", object);
+        locations.put(object, ImmutablePoint2D.at(x, y));
+        tree.invalidate();
+    }
+
+    @Override
+    public void moveAll(final Map<? extends T, ? extends Point2D> locations) {
+        for (Map.Entry<? extends T, ? extends Point2D> entry : locations.entrySet()) {
+            final T object = checkNotNull(entry.getKey());
+            checkArgument(this.locations.containsKey(object), "Object is not indexed: %s", object);
+            this.locations.put(object, ImmutablePoint2D.copyOf(entry.getValue()));
+        }
+        tree.invalidate();
+    }
+
+    @Override
+    public void moveAll(final PositionStore<? extends T> positions, final int[] slots, final int count) {
+        for (int i = 0; i < count; i++) {
+            final T object = checkNotNull(positions.objectAt(slots[i]));
+            checkArgument(this.locations.containsKey(object), "Object is not indexed: %s", object);
+            this.locations.put(object, positions.location(slots[i]));
+        }
+        tree.invalidate();
+    }
+
+    @Override
+    public Iterable<T> findObjects(final double x, final double y, final double range) {
+        return Iterables.transform(tree.get().findNodes(x, y, range),
+                new Function<DistantObject<TwoDimTree.Node<T>>, T>() {
+                    @Override
+                    public T apply(final DistantObject<TwoDimTree.Node<T>> input) {
+                        return input.object().value();
+                    }
+                });
+    }
+
+    @Override
+    public void forEachInRange(final double x, final double y, final double range,
+                               final RangeVisitor<? super T> visitor) {
+        tree.get().forEachInRange(x, y, range, visitor);
+    }
+
+    @Override
+    public List<T> findNearest(final double x, final double y, final int k) {
+        return Lists.transform(tree.get().kNearest(x, y, k), new Function<TwoDimTree.Node<T>, T>() {
+            @Override
+            public T apply(final TwoDimTree.Node<T> input) {
+                return input.value();
+            }
+        });
+    }
+
+    @Override
+    public int size() {
+        return locations.size();
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A spatial hash which buckets objects into square cells of equal size. Objects are kept in intrusive doubly linked
+ * lists per cell, so that insertion, removal and movement take constant time. A range query only visits the cells
+ * overlapping the bounding box of the query circle. Locations outside of the indexed area are assigned to the nearest
+ * border cell.
+ *
+ * @param <T> the type of the indexed objects
+ */
+public final class UniformGridIndex2D<T> implements SpatialIndex2D<T> {
+
+    private final double inverseCellSize;
+    private final int columns;
+    private final int rows;
+    private final Object[] cells;
+    private final Map<T, Entry<T>> entries = Maps.newHashMap();
+
+    private UniformGridIndex2D(final double width, final double height, final double cellSize) {
+        checkArgument(width >= 0 && height >= 0, "Width and height must not be negative: %s, %s", width, height);
+        checkArgument(cellSize > 0, "Cell size must be positive: %s", cellSize);
+        this.inverseCellSize = 1.0 / cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width * inverseCellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height * inverseCellSize));
+        this.cells = new Object[columns * rows];
+    }
+
+    /**
+     * Create a new index for the area {@code [0, width) x [0, height)} using square cells with edges of length
+     * {@code cellSize}.
+     *
+     * @param width    the width of the indexed area
+     * @param height   the height of the indexed area
+     * @param cellSize the edge length of a cell
+     * @param <T>      the type of the indexed objects
+     * @return a new empty index
+     */
+    public static <T> UniformGridIndex2D<T> create(final double width, final double height, final double cellSize) {
+        return new UniformGridIndex2D<>(width, height, cellSize);
+    }
+
+    @Override
+    public void insert(final T object, final double x, final double y) {
+        checkNotNull(object);
+        checkArgument(!entries.containsKey(object), "Object is already indexed: %s", object);
+        final Entry<T> entry = new Entry<>(object, x, y, cellIndex(x, y));
+        entries.put(object, entry);
+        link(entry);
+    }
+
+    @Override
+    public boolean remove(final T object) {
+        final Entry<T> entry = entries.remove(object);
+        if (entry != null) {
+            unlink(entry);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void move(final T object, final double x, final double y) {
+        checkNotNull(object);
+        final Entry<T> entry = entries.get(object);
+        checkArgument(entry != null, "Object is not indexed: %s", object);
+        assert entry != null;
+        entry.x = x;
+        entry.y = y;
+        final int cell = cellIndex(x, y);
+        if (cell != entry.cell) {
+            unlink(entry);
+            entry.cell = cell;
+            link(entry);
+        }
+    }
+
+    @Override
+    public void moveAll(final Map<? extends T, ? extends Point2D> locations) {
+        for (Map.Entry<? extends T, ? extends Point2D> entry : locations.entrySet()) {
+            move(entry.getKey(), entry.getValue().getX(), entry.getValue().getY());
+        }
+    }
+
+    @Override
+    public void moveAll(final PositionStore<? extends T> positions, final int[] slots, final int count) {
+        for (int i = 0; i < count; i++) {
+            final int slot = slots[i];
+            move(positions.objectAt(slot), positions.x(slot), positions.y(slot));
+        }
+    }
+
+    @Override
+    public Iterable<T> findObjects(final double x, final double y, final double range) {
+        final List<T> result = Lists.newArrayList();
+        forEachInRange(x, y, range, new RangeVisitor<T>() {
+            @Override
+            public void visit(final T object, final double distance) {
+                result.add(object);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void forEachInRange(final double x, final double y, final double range,
+                               final RangeVisitor<? super T> visitor) {
+        checkNotNull(visitor);
+        if (entries.isEmpty() || range < 0) {
+            return;
+        }
+
+        final int minColumn = column(x - range);
+        final int maxColumn = column(x + range);
+        final int minRow = row(y - range);
+        final int maxRow = row(y + range);
+        final double rangeSquared = range * range;
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                for (Entry<T> entry = head(row * columns + column); entry != null; entry = entry.next) {
+                    final double dx = entry.x - x;
+                    final double dy = entry.y - y;
+                    final double distanceSquared = dx * dx + dy * dy;
+                    if (distanceSquared <= rangeSquared) {
+                        visitor.visit(entry.object, Math.sqrt(distanceSquared));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc} <p>Searches rings of cells of increasing size around the cell of the query point until the
+     * distance to the unsearched cells exceeds the distance to the k-th closest object found so far.</p>
+     */
+    @Override
+    public List<T> findNearest(final double x, final double y, final int k) {
+        checkArgument(k >= 0, "k must not be negative: %s", k);
+        if (k == 0 || entries.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        final NearestNeighbourQueue<T> queue = new NearestNeighbourQueue<>(k);
+        final int centerColumn = column(x);
+        final int centerRow = row(y);
+        final double cellSize = 1.0 / inverseCellSize;
+        for (int ring = 0; ; ring++) {
+            final int minColumn = centerColumn - ring;
+            final int maxColumn = centerColumn + ring;
+            final int minRow = centerRow - ring;
+            final int maxRow = centerRow + ring;
+            for (int row = Math.max(0, minRow); row <= Math.min(rows - 1, maxRow); row++) {
+                final boolean rowOnRing = row == minRow || row == maxRow;
+                for (int column = Math.max(0, minColumn); column <= Math.min(columns - 1, maxColumn); column++) {
+                    if (rowOnRing || column == minColumn || column == maxColumn) {
+                        offerCell(row * columns + column, x, y, queue);
+                    }
+                }
+            }
+
+            // the distance from the query point to the closest cell outside of the searched block
+            double gap = Double.POSITIVE_INFINITY;
+            if (minColumn > 0) {
+                gap = Math.min(gap, x - minColumn * cellSize);
+            }
+            if (maxColumn < columns - 1) {
+                gap = Math.min(gap, (maxColumn + 1) * cellSize - x);
+            }
+            if (minRow > 0) {
+                gap = Math.min(gap, y - minRow * cellSize);
+            }
+            if (maxRow < rows - 1) {
+                gap = Math.min(gap, (maxRow + 1) * cellSize - y);
+            }
+            if (gap == Double.POSITIVE_INFINITY || gap > 0 && gap * gap >= queue.bound()) {
+                return queue.drain();
+            }
+        }
+    }
+
+    private void offerCell(final int cell, final double x, final double y, final NearestNeighbourQueue<T> queue) {
+        for (Entry<T> entry = head(cell); entry != null; entry = entry.next) {
+            final double dx = entry.x - x;
+            final double dy = entry.y - y;
+            queue.offer(entry.object, dx * dx + dy * dy);
+        }
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    private int cellIndex(final double x, final double y) {
+        return row(y) * columns + column(x);
+    }
+
+    private int column(final double x) {
+        return clamp((int) Math.floor(x * inverseCellSize), columns);
+    }
+
+    private int row(final double y) {
+        return clamp((int) Math.floor(y * inverseCellSize), rows);
+    }
+
+    private static int clamp(final int index, final int size) {
+        return index < 0 ? 0 : (index >= size ? size - 1 : index);
+    }
+
+    @SuppressWarnings("unchecked") // cells only hold entries of this index
+    private Entry<T> head(final int cell) {
+        return (Entry<T>) cells[cell];
+    }
+
+    private void link(final Entry<T> entry) {
+        final Entry<T> head = head(entry.cell);
+        entry.previous = null;
+        entry.next = head;
+        if (head != null) {
+            head.previous = entry;
+        }
+        cells[entry.cell] = entry;
+    }
+
+    private void unlink(final Entry<T> entry) {
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else {
+            cells[entry.cell] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+    }
+
+    private static final class Entry<T> {
+        private final T object;
+        private double x;
+        private double y;
+        private int cell;
+        private Entry<T> previous;
+        private Entry<T> next;
+
+        private Entry(final T object, final double x, final double y, final int cell) {
+            this.object = object;
+            this.x = x;
+            this.y = y;
+            this.cell = cell;
+        }
+    }
+}
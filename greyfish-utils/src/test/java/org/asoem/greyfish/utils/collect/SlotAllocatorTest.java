@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.collect;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class SlotAllocatorTest {
+
+    @Test
+    public void testAllocateIsDense() throws Exception {
+        // given
+        final SlotAllocator allocator = SlotAllocator.create();
+
+        // when
+        final int first = allocator.allocate();
+        final int second = allocator.allocate();
+        final int third = allocator.allocate();
+
+        // then
+        assertThat(first, is(0));
+        assertThat(second, is(1));
+        assertThat(third, is(2));
+        assertThat(allocator.size(), is(3));
+        assertThat(allocator.capacity(), is(3));
+    }
+
+    @Test
+    public void testReleasedSlotsAreReused() throws Exception {
+        // given
+        final SlotAllocator allocator = SlotAllocator.create();
+        for (int i = 0; i < 100; i++) {
+            allocator.allocate();
+        }
+
+        // when
+        for (int i = 0; i < 100; i += 2) {
+            allocator.release(i);
+        }
+        for (int i = 0; i < 50; i++) {
+            allocator.allocate();
+        }
+
+        // then
+        assertThat(allocator.size(), is(100));
+        assertThat(allocator.capacity(), is(100));
+        for (int i = 0; i < 100; i++) {
+            assertThat(allocator.isAllocated(i), is(true));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReleaseTwice() throws Exception {
+        // given
+        final SlotAllocator allocator = SlotAllocator.create();
+        final int slot = allocator.allocate();
+        allocator.release(slot);
+
+        // when
+        allocator.release(slot);
+
+        // then
+        // expected IllegalArgumentException
+    }
+}
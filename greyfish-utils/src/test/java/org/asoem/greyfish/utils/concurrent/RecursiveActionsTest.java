@@ -27,6 +27,7 @@ import org.asoem.greyfish.utils.base.VoidFunction;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
@@ -60,6 +61,31 @@ public class RecursiveActionsTest {
         verify(mock, times(listSize)).run();
     }
 
+    @Test
+    public void testAdaptiveForeach() throws Exception {
+        // given
+        final int listSize = 10000;
+        final AtomicIntegerArray counts = new AtomicIntegerArray(listSize);
+        final List<Integer> list = Lists.newArrayList();
+        for (int i = 0; i < listSize; i++) {
+            list.add(i);
+        }
+        final VoidFunction<Integer> fun = new VoidFunction<Integer>() {
+            @Override
+            public void process(final Integer i) {
+                counts.incrementAndGet(i);
+            }
+        };
+
+        // when
+        forkJoinPool.invoke(RecursiveActions.foreach(list, fun));
+
+        // then
+        for (int i = 0; i < listSize; i++) {
+            assertThat(counts.get(i), is(1));
+        }
+    }
+
     @Test
     public void testTransform() throws Exception {
         // given
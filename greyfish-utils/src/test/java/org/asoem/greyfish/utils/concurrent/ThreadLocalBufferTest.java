@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.concurrent;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class ThreadLocalBufferTest {
+
+    @Test
+    public void testDrainKeepsOrderOfThread() throws Exception {
+        // given
+        final ThreadLocalBuffer<Integer> buffer = ThreadLocalBuffer.create();
+        buffer.add(1);
+        buffer.add(2);
+        buffer.add(3);
+
+        // when
+        final List<Integer> drained = buffer.drain();
+
+        // then
+        assertThat(drained, contains(1, 2, 3));
+        assertThat(buffer.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testDrainOrdersByTag() throws Exception {
+        // given
+        final ThreadLocalBuffer<String> buffer = ThreadLocalBuffer.create();
+        buffer.add(2, "c1");
+        buffer.add(0, "a1");
+        buffer.add(1, "b1");
+        buffer.add(2, "c2");
+        buffer.add(0, "a2");
+
+        // when
+        final List<String> drained = buffer.drain();
+
+        // then
+        assertThat(drained, contains("a1", "a2", "b1", "c1", "c2"));
+        assertThat(buffer.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testDrainCollectsAllThreads() throws Exception {
+        // given
+        final ThreadLocalBuffer<Integer> buffer = ThreadLocalBuffer.create();
+        final int threadCount = 4;
+        final int elementsPerThread = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                    for (int i = 0; i < elementsPerThread; i++) {
+                        buffer.add(i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        // when
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        final List<Integer> drained = buffer.drain();
+
+        // then
+        assertThat(drained.size(), is(threadCount * elementsPerThread));
+        assertThat(buffer.drain().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testDrainReleasesBuffersOfTerminatedThreads() throws Exception {
+        // given
+        final ThreadLocalBuffer<Integer> buffer = ThreadLocalBuffer.create();
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            final int element = i;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    buffer.add(element);
+                }
+            });
+            thread.start();
+            thread.join();
+            assertThat(buffer.drain(), contains(element));
+        }
+
+        // then
+        assertThat(buffer.bufferCount(), is(0));
+    }
+}
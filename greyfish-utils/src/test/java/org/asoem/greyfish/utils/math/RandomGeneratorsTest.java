@@ -25,6 +25,9 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 
@@ -70,4 +73,36 @@ public class RandomGeneratorsTest {
         verify(randomGeneratorThread1).nextBoolean();
         verify(randomGeneratorThread2).nextBoolean();
     }
+
+    @Test
+    public void testRunWithBindsGenerator() {
+        // given
+        final RandomGenerator boundGenerator = mock(RandomGenerator.class);
+
+        // when
+        RandomGenerators.runWith(boundGenerator, new Runnable() {
+            @Override
+            public void run() {
+                RandomGenerators.rng().nextBoolean();
+            }
+        });
+        RandomGenerators.rng().nextBoolean();
+
+        // then
+        verify(boundGenerator, times(1)).nextBoolean();
+    }
+
+    @Test
+    public void testSetMasterSeedMakesDefaultGeneratorReproducible() {
+        // given
+        RandomGenerators.setMasterSeed(42);
+        final double first = RandomGenerators.rng().nextDouble();
+
+        // when
+        RandomGenerators.setMasterSeed(42);
+        final double second = RandomGenerators.rng().nextDouble();
+
+        // then
+        assertThat(second, is(equalTo(first)));
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.math;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class SeedSequenceTest {
+
+    @Test
+    public void testEqualMasterSeedsGiveEqualSequences() throws Exception {
+        // given
+        final SeedSequence a = SeedSequence.create(42);
+        final SeedSequence b = SeedSequence.create(42);
+
+        // when
+        final long first = a.nextSeed();
+        final long second = a.nextSeed();
+
+        // then
+        assertThat(b.nextSeed(), is(first));
+        assertThat(b.nextSeed(), is(second));
+        assertThat(first, is(not(second)));
+    }
+
+    @Test
+    public void testNextSeedFollowsIndex() throws Exception {
+        // given
+        final SeedSequence sequence = SeedSequence.create(7);
+
+        // when
+        sequence.nextSeed();
+        final long seed = sequence.nextSeed();
+
+        // then
+        assertThat(seed, is(sequence.seed(1)));
+    }
+}
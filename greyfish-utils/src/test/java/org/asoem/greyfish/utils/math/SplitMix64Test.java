@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.math;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class SplitMix64Test {
+
+    @Test
+    public void testEqualSeedsGiveEqualSequences() throws Exception {
+        // given
+        final SplitMix64 a = SplitMix64.create(42);
+        final SplitMix64 b = SplitMix64.create(42);
+
+        // when
+        final long[] sequenceA = sequence(a, 100);
+        final long[] sequenceB = sequence(b, 100);
+
+        // then
+        assertThat(sequenceA, is(equalTo(sequenceB)));
+    }
+
+    @Test
+    public void testStreamsDiffer() throws Exception {
+        // given
+        final SplitMix64 stream1 = SplitMix64.stream(42, 1);
+        final SplitMix64 stream2 = SplitMix64.stream(42, 2);
+
+        // when
+        final long[] sequence1 = sequence(stream1, 100);
+        final long[] sequence2 = sequence(stream2, 100);
+
+        // then
+        assertThat(sequence1, is(not(equalTo(sequence2))));
+        assertThat(sequence(SplitMix64.stream(42, 1), 100), is(equalTo(sequence1)));
+    }
+
+    @Test
+    public void testRestoreState() throws Exception {
+        // given
+        final SplitMix64 generator = SplitMix64.create(7);
+        sequence(generator, 10);
+        final long state = generator.getState();
+        final long[] expected = sequence(generator, 10);
+
+        // when
+        generator.setSeed(state);
+
+        // then
+        assertThat(sequence(generator, 10), is(equalTo(expected)));
+    }
+
+    @Test
+    public void testRestoreStateAfterOddNumberOfGaussians() throws Exception {
+        // given
+        final SplitMix64 generator = SplitMix64.create(42);
+        generator.nextGaussian();
+        final long state = generator.getState();
+        final double expected = generator.nextGaussian();
+
+        // when
+        final SplitMix64 restored = SplitMix64.create(0);
+        restored.setSeed(state);
+
+        // then
+        assertThat(restored.nextGaussian(), is(expected));
+    }
+
+    @Test
+    public void testGaussianMoments() throws Exception {
+        // given
+        final SplitMix64 generator = SplitMix64.create(3);
+
+        // when
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (int i = 0; i < 100000; i++) {
+            final double value = generator.nextGaussian();
+            sum += value;
+            sumOfSquares += value * value;
+        }
+
+        // then
+        assertThat(sum / 100000, is(closeTo(0, 0.02)));
+        assertThat(sumOfSquares / 100000, is(closeTo(1, 0.02)));
+    }
+
+    @Test
+    public void testNextDoubleInUnitInterval() throws Exception {
+        // given
+        final SplitMix64 generator = SplitMix64.create(0);
+
+        // when
+        double sum = 0;
+        for (int i = 0; i < 10000; i++) {
+            final double value = generator.nextDouble();
+            assertThat(value, is(both(greaterThanOrEqualTo(0.0)).and(lessThan(1.0))));
+            sum += value;
+        }
+
+        // then
+        assertThat(sum / 10000, is(closeTo(0.5, 0.02)));
+    }
+
+    private static long[] sequence(final SplitMix64 generator, final int length) {
+        final long[] sequence = new long[length];
+        for (int i = 0; i < length; i++) {
+            sequence[i] = generator.nextLong();
+        }
+        return sequence;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class BalancedTwoDimTreeTest {
+
+    @Test
+    public void testEmptyTree() throws Exception {
+        // given
+        final BalancedTwoDimTree<Object> tree =
+                BalancedTwoDimTree.create(ImmutableList.of(), Functions.constant(ImmutablePoint2D.at(0, 0)));
+
+        // when
+        final Iterable<DistantObject<TwoDimTree.Node<Object>>> nodes = tree.findNodes(0, 0, 10);
+
+        // then
+        assertThat(tree.size(), is(0));
+        assertThat(tree.rootNode().isPresent(), is(false));
+        assertThat(nodes, is(emptyIterable()));
+    }
+
+    @Test
+    public void testIteratorContainsAllValues() throws Exception {
+        // given
+        final Map<Integer, Point2D> points = randomPoints(100, new Random(0));
+
+        // when
+        final BalancedTwoDimTree<Integer> tree = BalancedTwoDimTree.create(points.keySet(), Functions.forMap(points));
+
+        // then
+        assertThat(tree.size(), is(points.size()));
+        assertThat(values(tree), is(equalTo(points.keySet())));
+    }
+
+    @Test
+    public void testFindNodesEqualsBruteForce() throws Exception {
+        // given
+        final Random random = new Random(42);
+        final Map<Integer, Point2D> points = randomPoints(1000, random);
+        final BalancedTwoDimTree<Integer> tree = BalancedTwoDimTree.create(points.keySet(), Functions.forMap(points));
+
+        for (int i = 0; i < 100; i++) {
+            final double x = random.nextDouble() * 10;
+            final double y = random.nextDouble() * 10;
+            final double range = random.nextDouble() * 3;
+
+            // when
+            final Set<Integer> found = ImmutableSet.copyOf(
+                    Iterables.transform(tree.findNodes(x, y, range),
+                            new Function<DistantObject<TwoDimTree.Node<Integer>>, Integer>() {
+                                @Override
+                                public Integer apply(final DistantObject<TwoDimTree.Node<Integer>> input) {
+                                    assertThat(input.distance(), is(lessThanOrEqualTo(range)));
+                                    return input.object().value();
+                                }
+                            }));
+
+            // then
+            final Set<Integer> expected = Maps.filterValues(points, new Predicate<Point2D>() {
+                @Override
+                public boolean apply(final Point2D input) {
+                    return Geometry2D.distance(x, y, input.getX(), input.getY()) <= range;
+                }
+            }).keySet();
+            assertThat(found, is(equalTo(expected)));
+        }
+    }
+
+    @Test
+    public void testForEachInRangeVisitsSameValuesAsFindNodes() throws Exception {
+        // given
+        final Random random = new Random(5);
+        final Map<Integer, Point2D> points = randomPoints(1000, random);
+        final BalancedTwoDimTree<Integer> tree = BalancedTwoDimTree.create(points.keySet(), Functions.forMap(points));
+        final Map<Integer, Double> visited = Maps.newHashMap();
+        final RangeVisitor<Integer> visitor = new RangeVisitor<Integer>() {
+            @Override
+            public void visit(final Integer object, final double distance) {
+                visited.put(object, distance);
+            }
+        };
+
+        for (int i = 0; i < 50; i++) {
+            final double x = random.nextDouble() * 10;
+            final double y = random.nextDouble() * 10;
+            final double range = random.nextDouble() * 3;
+            visited.clear();
+
+            // when
+            tree.forEachInRange(x, y, range, visitor);
+
+            // then
+            final Map<Integer, Double> expected = Maps.newHashMap();
+            for (DistantObject<TwoDimTree.Node<Integer>> distantObject : tree.findNodes(x, y, range)) {
+                expected.put(distantObject.object().value(), distantObject.distance());
+            }
+            assertThat(visited, is(equalTo(expected)));
+        }
+    }
+
+    @Test
+    public void testDuplicatePoints() throws Exception {
+        // given
+        final ImmutableMap<String, Point2D> points = ImmutableMap.<String, Point2D>of(
+                "a", ImmutablePoint2D.at(1, 1),
+                "b", ImmutablePoint2D.at(1, 1),
+                "c", ImmutablePoint2D.at(1, 1),
+                "d", ImmutablePoint2D.at(2, 2));
+        final BalancedTwoDimTree<String> tree = BalancedTwoDimTree.create(points.keySet(), Functions.forMap(points));
+
+        // when
+        final Iterable<DistantObject<TwoDimTree.Node<String>>> nodes = tree.findNodes(1, 1, 0);
+
+        // then
+        assertThat(Iterables.size(nodes), is(3));
+    }
+
+    @Test
+    public void testKNearestEqualsBruteForce() throws Exception {
+        // given
+        final Random random = new Random(7);
+        final Map<Integer, Point2D> points = randomPoints(500, random);
+        final BalancedTwoDimTree<Integer> tree = BalancedTwoDimTree.create(points.keySet(), Functions.forMap(points));
+
+        for (int i = 0; i < 50; i++) {
+            final double x = random.nextDouble() * 10;
+            final double y = random.nextDouble() * 10;
+            final int k = random.nextInt(20);
+
+            // when
+            final List<TwoDimTree.Node<Integer>> nearest = tree.kNearest(x, y, k);
+
+            // then
+            final List<Double> distances = Lists.newArrayList();
+            for (TwoDimTree.Node<Integer> node : nearest) {
+                distances.add(node.distance(x, y));
+            }
+            final List<Double> expected = Lists.newArrayList();
+            for (Point2D point : points.values()) {
+                expected.add(Geometry2D.distance(x, y, point.getX(), point.getY()));
+            }
+            Collections.sort(expected);
+            assertThat(distances, is(equalTo(expected.subList(0, k))));
+        }
+    }
+
+    @Test
+    public void testNearest() throws Exception {
+        // given
+        final ImmutableMap<String, Point2D> points = ImmutableMap.<String, Point2D>of(
+                "a", ImmutablePoint2D.at(1, 1),
+                "b", ImmutablePoint2D.at(5, 5),
+                "c", ImmutablePoint2D.at(9, 1));
+        final BalancedTwoDimTree<String> tree = BalancedTwoDimTree.create(points.keySet(), Functions.forMap(points));
+
+        // when
+        final Optional<TwoDimTree.Node<String>> nearest = tree.nearest(8, 2);
+
+        // then
+        assertThat(nearest.get().value(), is("c"));
+    }
+
+    private static Map<Integer, Point2D> randomPoints(final int n, final Random random) {
+        final Map<Integer, Point2D> points = Maps.newHashMap();
+        for (int i = 0; i < n; i++) {
+            // coarse coordinates to provoke equal keys on both axes
+            points.put(i, ImmutablePoint2D.at(random.nextInt(100) / 10.0, random.nextInt(100) / 10.0));
+        }
+        return points;
+    }
+
+    private static <T> Set<T> values(final Iterable<? extends TwoDimTree.Node<T>> nodes) {
+        final ImmutableSet.Builder<T> builder = ImmutableSet.builder();
+        for (TwoDimTree.Node<T> node : nodes) {
+            builder.add(node.value());
+        }
+        return builder.build();
+    }
+}
@@ -43,4 +43,13 @@ public class Geometry2DTest {
         // then
         MatcherAssert.assertThat(intersection, is(equalTo(ImmutablePoint2D.at(Math.nextAfter(10.0, -Double.MIN_VALUE), 0.5))));
     }
+
+    @Test
+    public void testDistance() throws Exception {
+        // when
+        final double distance = Geometry2D.distance(1.0, 2.0, 4.0, 6.0);
+
+        // then
+        MatcherAssert.assertThat(distance, is(closeTo(5.0, 1e-12)));
+    }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class IncrementalTwoDimTreeIndexTest {
+
+    @Test
+    public void testRandomModificationsEqualBruteForce() throws Exception {
+        // given
+        final Random random = new Random(1);
+        final IncrementalTwoDimTreeIndex<Integer> index = IncrementalTwoDimTreeIndex.create();
+        final Map<Integer, Point2D> points = Maps.newHashMap();
+        int nextId = 0;
+
+        for (int step = 0; step < 50; step++) {
+            // when
+            for (int i = 0; i < 20; i++) {
+                final ImmutablePoint2D point = randomPoint(random);
+                points.put(nextId, point);
+                index.insert(nextId, point.getX(), point.getY());
+                ++nextId;
+            }
+            for (Integer id : ImmutableSet.copyOf(points.keySet())) {
+                final double p = random.nextDouble();
+                if (p < 0.05) {
+                    points.remove(id);
+                    assertThat(index.remove(id), is(true));
+                } else if (p < 0.5) {
+                    final Point2D current = points.get(id);
+                    final ImmutablePoint2D point = ImmutablePoint2D.at(
+                            current.getX() + random.nextGaussian(), current.getY() + random.nextGaussian());
+                    points.put(id, point);
+                    index.move(id, point.getX(), point.getY());
+                }
+            }
+
+            // then
+            assertThat(index.size(), is(points.size()));
+            assertQueriesEqualBruteForce(index, points, random);
+            assertNearestEqualsBruteForce(index, points, random);
+        }
+    }
+
+    @Test
+    public void testMoveAllRebuildsAtMostOnce() throws Exception {
+        // given
+        final Random random = new Random(2);
+        final IncrementalTwoDimTreeIndex<Integer> index = IncrementalTwoDimTreeIndex.create();
+        final Map<Integer, Point2D> points = Maps.newHashMap();
+        for (int i = 0; i < 1000; i++) {
+            final ImmutablePoint2D point = randomPoint(random);
+            points.put(i, point);
+            index.insert(i, point.getX(), point.getY());
+        }
+        final int rebuilds = index.rebuilds();
+
+        // when
+        for (Integer id : points.keySet()) {
+            points.put(id, randomPoint(random));
+        }
+        index.moveAll(points);
+
+        // then
+        assertThat(index.rebuilds(), is(lessThanOrEqualTo(rebuilds + 1)));
+        assertQueriesEqualBruteForce(index, points, random);
+    }
+
+    @Test
+    public void testMoveAllFromPositionStore() throws Exception {
+        // given
+        final Random random = new Random(3);
+        final IncrementalTwoDimTreeIndex<Integer> index = IncrementalTwoDimTreeIndex.create();
+        final PositionStore<Integer> positions = PositionStore.create();
+        final Map<Integer, Point2D> points = Maps.newHashMap();
+        for (int i = 0; i < 500; i++) {
+            final ImmutablePoint2D point = randomPoint(random);
+            points.put(i, point);
+            positions.add(i, point.getX(), point.getY());
+            index.insert(i, point.getX(), point.getY());
+        }
+
+        // when
+        final int[] slots = new int[points.size()];
+        int count = 0;
+        for (Integer id : points.keySet()) {
+            if (random.nextBoolean()) {
+                final ImmutablePoint2D point = randomPoint(random);
+                points.put(id, point);
+                final int slot = positions.slotOf(id);
+                positions.setLocation(slot, point.getX(), point.getY());
+                slots[count++] = slot;
+            }
+        }
+        index.moveAll(positions, slots, count);
+
+        // then
+        assertQueriesEqualBruteForce(index, points, random);
+        assertNearestEqualsBruteForce(index, points, random);
+    }
+
+    @Test
+    public void testSmallMovesDoNotRebuild() throws Exception {
+        // given
+        final IncrementalTwoDimTreeIndex<Integer> index = IncrementalTwoDimTreeIndex.create();
+        for (int i = 0; i < 100; i++) {
+            index.insert(i, i, i);
+        }
+        final int rebuilds = index.rebuilds();
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            index.move(i, i, i + 0.25);
+        }
+
+        // then
+        assertThat(index.rebuilds(), is(rebuilds));
+        assertThat(ImmutableSet.copyOf(index.findObjects(50, 50.25, 0.1)), contains(50));
+    }
+
+    private static ImmutablePoint2D randomPoint(final Random random) {
+        return ImmutablePoint2D.at(random.nextDouble() * 20, random.nextDouble() * 20);
+    }
+
+    private static void assertQueriesEqualBruteForce(final SpatialIndex2D<Integer> index,
+                                                     final Map<Integer, Point2D> points, final Random random) {
+        for (int i = 0; i < 20; i++) {
+            final double x = random.nextDouble() * 24 - 2;
+            final double y = random.nextDouble() * 24 - 2;
+            final double range = random.nextDouble() * 5;
+
+            final Set<Integer> found = ImmutableSet.copyOf(index.findObjects(x, y, range));
+
+            final ImmutableSet.Builder<Integer> expected = ImmutableSet.builder();
+            for (Map.Entry<Integer, Point2D> entry : points.entrySet()) {
+                if (Geometry2D.distance(x, y, entry.getValue().getX(), entry.getValue().getY()) <= range) {
+                    expected.add(entry.getKey());
+                }
+            }
+            assertThat(found, is(equalTo((Set<Integer>) expected.build())));
+        }
+    }
+
+    private static void assertNearestEqualsBruteForce(final SpatialIndex2D<Integer> index,
+                                                      final Map<Integer, Point2D> points, final Random random) {
+        for (int i = 0; i < 20; i++) {
+            final double x = random.nextDouble() * 24 - 2;
+            final double y = random.nextDouble() * 24 - 2;
+            final int k = random.nextInt(10);
+
+            final List<Double> distances = Lists.newArrayList();
+            for (Integer id : index.findNearest(x, y, k)) {
+                distances.add(Geometry2D.distance(x, y, points.get(id).getX(), points.get(id).getY()));
+            }
+
+            final List<Double> expected = Lists.newArrayList();
+            for (Point2D point : points.values()) {
+                expected.add(Geometry2D.distance(x, y, point.getX(), point.getY()));
+            }
+            Collections.sort(expected);
+            assertThat(distances, is(equalTo(expected.subList(0, Math.min(k, expected.size())))));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import jsr166y.ForkJoinPool;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class NeighbourSweepTest {
+
+    @Test
+    public void testEmpty() throws Exception {
+        // when
+        final Map<Object, List<Object>> neighbours =
+                NeighbourSweep.allNeighbours(ImmutableMap.<Object, Point2D>of(), 1.0, NeighbourSweep.unobstructed());
+
+        // then
+        assertThat(neighbours.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testNeighboursEqualBruteForce() throws Exception {
+        // given
+        final Random random = new Random(42);
+        final Map<Integer, Point2D> locations = Maps.newHashMap();
+        for (int i = 0; i < 2000; i++) {
+            locations.put(i, ImmutablePoint2D.at(random.nextDouble() * 100, random.nextDouble() * 50));
+        }
+        final double radius = 3.0;
+
+        // when
+        final Map<Integer, List<Integer>> neighbours = NeighbourSweep.allNeighbours(
+                locations, radius, NeighbourSweep.unobstructed(), new ForkJoinPool(4));
+
+        // then
+        assertThat(neighbours.keySet(), is(equalTo(locations.keySet())));
+        for (Map.Entry<Integer, Point2D> entry : locations.entrySet()) {
+            final Point2D point = entry.getValue();
+            final List<Integer> expected = Lists.newArrayList();
+            for (Map.Entry<Integer, Point2D> other : locations.entrySet()) {
+                final Point2D otherPoint = other.getValue();
+                if (!other.getKey().equals(entry.getKey())
+                        && Geometry2D.distance(point.getX(), point.getY(), otherPoint.getX(), otherPoint.getY()) <= radius) {
+                    expected.add(other.getKey());
+                }
+            }
+            assertThat(ImmutableSet.copyOf(neighbours.get(entry.getKey())), is(equalTo(ImmutableSet.copyOf(expected))));
+            assertThat(neighbours.get(entry.getKey()), hasSize(expected.size()));
+        }
+    }
+
+    @Test
+    public void testLineOfSightIsRespected() throws Exception {
+        // given
+        final Map<String, Point2D> locations = ImmutableMap.<String, Point2D>of(
+                "a", ImmutablePoint2D.at(0, 0),
+                "b", ImmutablePoint2D.at(1, 0),
+                "c", ImmutablePoint2D.at(0, 1));
+        final LineOfSight wallAtXEqualsHalf = new LineOfSight() {
+            @Override
+            public boolean isVisible(final double x, final double y, final double x1, final double y1) {
+                return (x < 0.5) == (x1 < 0.5);
+            }
+        };
+
+        // when
+        final Map<String, List<String>> neighbours = NeighbourSweep.allNeighbours(locations, 2, wallAtXEqualsHalf);
+
+        // then
+        assertThat(neighbours.get("a"), contains("c"));
+        assertThat(neighbours.get("b"), is(empty()));
+        assertThat(neighbours.get("c"), contains("a"));
+    }
+
+    @Test
+    public void testIdenticalLocations() throws Exception {
+        // given
+        final Map<String, Point2D> locations = ImmutableMap.<String, Point2D>of(
+                "a", ImmutablePoint2D.at(3, 3),
+                "b", ImmutablePoint2D.at(3, 3));
+
+        // when
+        final Map<String, List<String>> neighbours =
+                NeighbourSweep.allNeighbours(locations, 0, NeighbourSweep.unobstructed());
+
+        // then
+        assertThat(neighbours.get("a"), contains("b"));
+        assertThat(neighbours.get("b"), contains("a"));
+    }
+
+    @Test
+    public void testNeighboursOnTorusEqualBruteForce() throws Exception {
+        // given
+        final Random random = new Random(7);
+        final Map<Integer, Point2D> locations = Maps.newHashMap();
+        for (int i = 0; i < 1000; i++) {
+            locations.put(i, ImmutablePoint2D.at(random.nextDouble() * 10, random.nextDouble() * 4));
+        }
+        final double radius = 1.5;
+
+        // when
+        final Map<Integer, List<Integer>> neighbours =
+                NeighbourSweep.allNeighboursOnTorus(locations, radius, 10, 4, new ForkJoinPool(4));
+
+        // then
+        for (Map.Entry<Integer, Point2D> entry : locations.entrySet()) {
+            final Point2D point = entry.getValue();
+            final List<Integer> expected = Lists.newArrayList();
+            for (Map.Entry<Integer, Point2D> other : locations.entrySet()) {
+                double dx = Math.abs(point.getX() - other.getValue().getX());
+                double dy = Math.abs(point.getY() - other.getValue().getY());
+                dx = Math.min(dx, 10 - dx);
+                dy = Math.min(dy, 4 - dy);
+                if (!other.getKey().equals(entry.getKey()) && Math.sqrt(dx * dx + dy * dy) <= radius) {
+                    expected.add(other.getKey());
+                }
+            }
+            assertThat(ImmutableSet.copyOf(neighbours.get(entry.getKey())), is(equalTo(ImmutableSet.copyOf(expected))));
+            assertThat(neighbours.get(entry.getKey()), hasSize(expected.size()));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PositionStoreTest {
+
+    @Test
+    public void testAdd() throws Exception {
+        // given
+        final PositionStore<String> positions = PositionStore.create();
+
+        // when
+        final int slot = positions.add("a", 1.0, 2.0);
+
+        // then
+        assertThat(positions.size(), is(1));
+        assertThat(positions.slotOf("a"), is(slot));
+        assertThat(positions.objectAt(slot), is("a"));
+        assertThat(positions.x(slot), is(1.0));
+        assertThat(positions.y(slot), is(2.0));
+        assertThat(positions.orientation(slot), is(0.0));
+        assertThat(positions.location(slot), is(equalTo((Point2D) ImmutablePoint2D.at(1.0, 2.0))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddDuplicate() throws Exception {
+        // given
+        final PositionStore<String> positions = PositionStore.create();
+        positions.add("a", 1.0, 2.0);
+
+        // when
+        positions.add("a", 3.0, 4.0);
+
+        // then
+        // expected IllegalArgumentException
+    }
+
+    @Test
+    public void testRemoveReleasesSlot() throws Exception {
+        // given
+        final PositionStore<String> positions = PositionStore.create();
+        positions.add("a", 1.0, 2.0);
+        final int slot = positions.add("b", 3.0, 4.0);
+        positions.add("c", 5.0, 6.0);
+
+        // when
+        final int removed = positions.remove("b");
+        final int reused = positions.add("d", 7.0, 8.0);
+
+        // then
+        assertThat(removed, is(slot));
+        assertThat(reused, is(slot));
+        assertThat(positions.slotOf("b"), is(-1));
+        assertThat(positions.remove("b"), is(-1));
+        assertThat(positions.slotCount(), is(3));
+        assertThat(positions.objects(), containsInAnyOrder("a", "c", "d"));
+        assertThat(positions.x(reused), is(7.0));
+    }
+
+    @Test
+    public void testGrowKeepsValues() throws Exception {
+        // given
+        final PositionStore<Integer> positions = PositionStore.create();
+
+        // when
+        for (int i = 0; i < 1000; i++) {
+            final int slot = positions.add(i, i, -i);
+            positions.setOrientation(slot, i / 1000.0);
+        }
+
+        // then
+        assertThat(positions.size(), is(1000));
+        for (int i = 0; i < 1000; i++) {
+            final int slot = positions.slotOf(i);
+            assertThat(positions.x(slot), is((double) i));
+            assertThat(positions.y(slot), is((double) -i));
+            assertThat(positions.orientation(slot), is(i / 1000.0));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2015 The greyfish authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.asoem.greyfish.utils.space;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class UniformGridIndex2DTest {
+
+    @Test
+    public void testFindObjectsEqualsBruteForce() throws Exception {
+        // given
+        final Random random = new Random(0);
+        final UniformGridIndex2D<Integer> index = UniformGridIndex2D.create(10, 10, 1.5);
+        final Map<Integer, Point2D> points = Maps.newHashMap();
+        for (int i = 0; i < 500; i++) {
+            final ImmutablePoint2D point = ImmutablePoint2D.at(random.nextDouble() * 10, random.nextDouble() * 10);
+            points.put(i, point);
+            index.insert(i, point.getX(), point.getY());
+        }
+
+        for (int i = 0; i < 100; i++) {
+            final double x = random.nextDouble() * 12 - 1;
+            final double y = random.nextDouble() * 12 - 1;
+            final double range = random.nextDouble() * 4;
+
+            // when
+            final Set<Integer> found = ImmutableSet.copyOf(index.findObjects(x, y, range));
+
+            // then
+            final ImmutableSet.Builder<Integer> expected = ImmutableSet.builder();
+            for (Map.Entry<Integer, Point2D> entry : points.entrySet()) {
+                if (Geometry2D.distance(x, y, entry.getValue().getX(), entry.getValue().getY()) <= range) {
+                    expected.add(entry.getKey());
+                }
+            }
+            assertThat(found, is(equalTo((Set<Integer>) expected.build())));
+        }
+    }
+
+    @Test
+    public void testFindNearestEqualsBruteForce() throws Exception {
+        // given
+        final Random random = new Random(3);
+        final UniformGridIndex2D<Integer> index = UniformGridIndex2D.create(10, 10, 1.0);
+        final List<Point2D> points = Lists.newArrayList();
+        for (int i = 0; i < 300; i++) {
+            final ImmutablePoint2D point = ImmutablePoint2D.at(random.nextDouble() * 10, random.nextDouble() * 10);
+            points.add(point);
+            index.insert(i, point.getX(), point.getY());
+        }
+
+        for (int i = 0; i < 50; i++) {
+            final double x = random.nextDouble() * 12 - 1;
+            final double y = random.nextDouble() * 12 - 1;
+            final int k = random.nextInt(30);
+
+            // when
+            final List<Integer> nearest = index.findNearest(x, y, k);
+
+            // then
+            final List<Double> distances = Lists.newArrayList();
+            for (Integer id : nearest) {
+                distances.add(Geometry2D.distance(x, y, points.get(id).getX(), points.get(id).getY()));
+            }
+            final List<Double> expected = Lists.newArrayList();
+            for (Point2D point : points) {
+                expected.add(Geometry2D.distance(x, y, point.getX(), point.getY()));
+            }
+            Collections.sort(expected);
+            assertThat(distances, is(equalTo(expected.subList(0, k))));
+        }
+    }
+
+    @Test
+    public void testMove() throws Exception {
+        // given
+        final UniformGridIndex2D<String> index = UniformGridIndex2D.create(10, 10, 1);
+        index.insert("a", 0.5, 0.5);
+        index.insert("b", 0.6, 0.6);
+
+        // when
+        index.move("a", 8.5, 8.5);
+
+        // then
+        assertThat(index.findObjects(0.5, 0.5, 0.5), contains("b"));
+        assertThat(index.findObjects(8.5, 8.5, 0.5), contains("a"));
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        // given
+        final UniformGridIndex2D<String> index = UniformGridIndex2D.create(10, 10, 1);
+        index.insert("a", 0.5, 0.5);
+        index.insert("b", 0.6, 0.6);
+
+        // when
+        final boolean removed = index.remove("a");
+
+        // then
+        assertThat(removed, is(true));
+        assertThat(index.size(), is(1));
+        assertThat(index.findObjects(0.5, 0.5, 0.5), contains("b"));
+        assertThat(index.remove("a"), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInsertDuplicate() throws Exception {
+        // given
+        final UniformGridIndex2D<String> index = UniformGridIndex2D.create(10, 10, 1);
+        index.insert("a", 0.5, 0.5);
+
+        // when
+        index.insert("a", 1.5, 1.5);
+    }
+}